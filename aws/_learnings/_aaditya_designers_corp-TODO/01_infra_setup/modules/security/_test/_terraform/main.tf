@@ -3,7 +3,8 @@
  *
  * Uses modules to create:
  *   1. KMS Asymmetric Key (RSA-4096) for encryption/decryption
- *   2. IAM User with decrypt-only permissions
+ *      + KMS Symmetric Key for the backend's in-memory KEK (optional key hierarchy)
+ *   2. IAM User with decrypt (+ GenerateDataKey) permissions
  *
  * Flow:
  *   1. 3rd party gets public key via API
@@ -38,7 +39,8 @@ module "iam" {
     aws = aws.nvirginia
   }
 
-  name_suffix = local.name_suffix
-  kms_key_arn = module.kms.key_arn
-  tags        = local.tags_common
+  name_suffix     = local.name_suffix
+  kms_key_arn     = module.kms.key_arn
+  kek_kms_key_arn = module.kms.symmetric_key_arn
+  tags            = local.tags_common
 }
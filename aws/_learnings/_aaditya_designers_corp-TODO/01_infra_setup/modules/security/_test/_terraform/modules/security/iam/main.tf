@@ -2,7 +2,8 @@
  * IAM User for KMS Decrypt-Only Access
  *
  * Creates an IAM user with minimal permissions:
- *   - kms:Decrypt - Decrypt data using the specified KMS key
+ *   - kms:Decrypt         - Decrypt data using the specified KMS key
+ *   - kms:GenerateDataKey - Generate the in-memory KEK under the symmetric key
  *
  * This follows the principle of least privilege.
  * The user can ONLY decrypt, not encrypt, delete, or manage keys.
@@ -38,6 +39,14 @@ resource "aws_iam_policy" "kms_decrypt" {
           "kms:Decrypt"
         ]
         Resource = var.kms_key_arn
+      },
+      {
+        Sid    = "AllowKEKGeneration"
+        Effect = "Allow"
+        Action = [
+          "kms:GenerateDataKey"
+        ]
+        Resource = var.kek_kms_key_arn
       }
     ]
   })
@@ -15,6 +15,11 @@ variable "kms_key_arn" {
   type        = string
 }
 
+variable "kek_kms_key_arn" {
+  description = "ARN of the symmetric KMS key this user can generate the KEK under"
+  type        = string
+}
+
 variable "tags" {
   description = "Additional tags for resources"
   type        = map(string)
@@ -87,3 +87,51 @@ resource "aws_kms_alias" "asymmetric" {
     prevent_destroy = true
   }
 }
+
+# -----------------------------------------------------------------------------
+# Symmetric KMS Key for the backend's in-memory key-encryption key (KEK)
+# The backend calls GenerateDataKey at startup and on rotation only
+# (encryption.key-hierarchy.enabled=true); the KEK never leaves process memory
+# -----------------------------------------------------------------------------
+resource "aws_kms_key" "symmetric" {
+  description              = "Test symmetric key for the backend KEK (GenerateDataKey, Use-Case 1)"
+  deletion_window_in_days  = var.key_deletion_window
+  key_usage                = "ENCRYPT_DECRYPT"
+  customer_master_key_spec = "SYMMETRIC_DEFAULT"
+  enable_key_rotation      = true
+
+  policy = jsonencode({
+    Version = "2012-10-17"
+    Statement = [
+      {
+        Sid    = "Enable IAM User Permissions"
+        Effect = "Allow"
+        Principal = {
+          AWS = "arn:aws:iam::${var.account_id}:root"
+        }
+        Action   = "kms:*"
+        Resource = "*"
+      }
+    ]
+  })
+
+  tags = merge(var.tags, {
+    Name    = "test_symmetric_kms-${var.name_suffix}"
+    UseCase = "third-party-no-aws"
+    KeyType = "SYMMETRIC_DEFAULT"
+    Purpose = "Backend key-encryption key (KEK) generation"
+  })
+
+  lifecycle {
+    prevent_destroy = true
+  }
+}
+
+resource "aws_kms_alias" "symmetric" {
+  name          = "alias/test_symmetric_kms-${var.name_suffix}"
+  target_key_id = aws_kms_key.symmetric.key_id
+
+  lifecycle {
+    prevent_destroy = true
+  }
+}
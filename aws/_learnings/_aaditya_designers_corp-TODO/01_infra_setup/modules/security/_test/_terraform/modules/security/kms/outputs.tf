@@ -16,3 +16,8 @@ output "key_alias" {
   description = "KMS Asymmetric Key Alias"
   value       = aws_kms_alias.asymmetric.name
 }
+
+output "symmetric_key_arn" {
+  description = "KMS Symmetric Key ARN (KEK generation)"
+  value       = aws_kms_key.symmetric.arn
+}
@@ -24,6 +24,11 @@ output "asymmetric_key_alias" {
   value       = module.kms.key_alias
 }
 
+output "symmetric_key_arn" {
+  description = "KMS Symmetric Key ARN (AWS_KMS_SYMMETRIC_KEY_ARN, for encryption.key-hierarchy)"
+  value       = module.kms.symmetric_key_arn
+}
+
 # -----------------------------------------------------------------------------
 # IAM Outputs - For Backend Application
 # -----------------------------------------------------------------------------
@@ -0,0 +1,61 @@
+package benchmark._common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+import server._common.metrics.StageMetrics;
+import server.restapi_data_security.multi_fields_encryption.crypto.FieldDecryptor;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Cipher reuse comparison: the 3 PII fields of one Multi-Fields order, decrypted with a pooled
+ * Cipher ({@code cipherPool=true}) vs Cipher.getInstance per field ({@code cipherPool=false}).
+ *
+ * <p>Fields are small (10-16 bytes), where per-call provider lookup and Cipher construction
+ * weigh most. The 8-thread variant shows pool contention.</p>
+ *
+ * <p>Run: {@code ./gradlew jmh -PjmhIncludes=AesGcmCipherPoolBenchmark}</p>
+ */
+@State(Scope.Benchmark)
+public class AesGcmCipherPoolBenchmark {
+
+  @Param({"false", "true"})
+  private boolean cipherPool;
+
+  private FieldDecryptor fieldDecryptor;
+  private SecretKey dataEncryptionKey;
+  private String encryptedDob;
+  private String encryptedCreditCard;
+  private String encryptedSsn;
+
+  @Setup
+  public void setup() {
+    fieldDecryptor = new FieldDecryptor(BenchmarkFixtures.cipherPool(cipherPool), StageMetrics.simple());
+    dataEncryptionKey = BenchmarkFixtures.secretKey(BenchmarkFixtures.aesKey());
+    encryptedDob = BenchmarkFixtures.encryptField("1990-05-15", dataEncryptionKey);
+    encryptedCreditCard = BenchmarkFixtures.encryptField("4111111111111234", dataEncryptionKey);
+    encryptedSsn = BenchmarkFixtures.encryptField("123-45-6789", dataEncryptionKey);
+  }
+
+  @Benchmark
+  public void orderFields(Blackhole blackhole) {
+    decryptOrderFields(blackhole);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void orderFieldsContended(Blackhole blackhole) {
+    decryptOrderFields(blackhole);
+  }
+
+  private void decryptOrderFields(Blackhole blackhole) {
+    blackhole.consume(fieldDecryptor.decrypt(encryptedDob, dataEncryptionKey));
+    blackhole.consume(fieldDecryptor.decrypt(encryptedCreditCard, dataEncryptionKey));
+    blackhole.consume(fieldDecryptor.decrypt(encryptedSsn, dataEncryptionKey));
+  }
+}
@@ -0,0 +1,262 @@
+package benchmark._common;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.JWEObject;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.crypto.RSAEncrypter;
+import server._common.Utils;
+import server._common.crypto.AesGcmCipherPool;
+import server._common.kms.KmsCallGuard;
+import server._common.kms.KmsCircuitBreaker;
+import server._common.kms.UnwrappedKeyCache;
+import server._common.metrics.StageMetrics;
+import server.restapi.encryption.full_payload.crypto.JweKeyUnwrappers;
+import server.restapi.encryption.full_payload.crypto.RsaOaepKeyUnwrapper;
+import server.restapi.encryption.multi_fields_in_payload.schema.FieldEncryptionSchemas;
+import server.restapi.encryption.multi_fields_in_payload.schema.ParallelFieldDecryptor;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Client-side inputs for the decrypt benchmarks: orders of a target size, encrypted the way
+ * the test clients encrypt them.
+ *
+ * <p>Payload sizes are the serialized order JSON size in bytes; a "notes" field pads the
+ * sample order up to the target.</p>
+ */
+public final class BenchmarkFixtures {
+
+  public static final String KEY_ARN = "arn:aws:kms:us-east-1:000000000000:key/benchmark";
+
+  private static final int GCM_IV_SIZE_BYTES = 12;
+  private static final int GCM_TAG_SIZE_BITS = 128;
+  private static final int GCM_TAG_SIZE_BYTES = GCM_TAG_SIZE_BITS / 8;
+  private static final SecureRandom RANDOM = new SecureRandom();
+  private static final Gson GSON = new Gson();
+
+  private BenchmarkFixtures() {
+  }
+
+  /**
+   * @return A fresh 256-bit AES key (raw bytes), used as DEK / CEK and returned by {@link StubKms}
+   */
+  public static byte[] aesKey() {
+    byte[] key = new byte[32];
+    RANDOM.nextBytes(key);
+    return key;
+  }
+
+  public static SecretKey secretKey(byte[] keyBytes) {
+    return new SecretKeySpec(keyBytes, "AES");
+  }
+
+  /**
+   * Key cache as configured by default (enabled): after the first call, unwraps are cache hits.
+   */
+  public static UnwrappedKeyCache keyCache() {
+    return new UnwrappedKeyCache(true, 1000, 300, 10_000);
+  }
+
+  /**
+   * The RSA-OAEP-256 JWE registry over {@link StubKms}, returning {@code contentEncryptionKey}.
+   */
+  public static JweKeyUnwrappers rsaKeyUnwrappers(byte[] contentEncryptionKey, UnwrappedKeyCache keyCache) {
+    return new JweKeyUnwrappers(List.of(new RsaOaepKeyUnwrapper(
+        StubKms.client(contentEncryptionKey),
+        StubKms.asyncClient(contentEncryptionKey),
+        keyCache,
+        KEY_ARN,
+        kmsCallGuard(StageMetrics.simple()))));
+  }
+
+  /**
+   * KMS call guard as configured by default (circuit breaker on); outside a request there is no
+   * deadline.
+   */
+  public static KmsCallGuard kmsCallGuard(StageMetrics metrics) {
+    return new KmsCallGuard(new KmsCircuitBreaker(true, 20, 10, 0.5, 5000, 3), metrics, 2000, 50);
+  }
+
+  /**
+   * @param enabled false = Cipher.getInstance per operation (the pre-pool behavior)
+   */
+  public static AesGcmCipherPool cipherPool(boolean enabled) {
+    return new AesGcmCipherPool(enabled, 256, 65536);
+  }
+
+  public static Utils utils() {
+    return new Utils();
+  }
+
+  /**
+   * The field schemas of application.yml: "order" and "claim" (one encrypted SSN per dependent).
+   *
+   * @param parallelFieldDecryptor Sequential, or a pool with the thresholds under test
+   */
+  public static FieldEncryptionSchemas fieldEncryptionSchemas(ParallelFieldDecryptor parallelFieldDecryptor) {
+    return new FieldEncryptionSchemas(Map.of(
+        "order", List.of("/dateOfBirth", "/cardDetails/creditCardNumber", "/cardDetails/ssn"),
+        "claim", List.of("/patient/dateOfBirth", "/patient/ssn", "/dependents/*/ssn", "/lineItems/*/diagnosis")),
+        parallelFieldDecryptor,
+        StageMetrics.simple().jsonParse(StageMetrics.MULTI_FIELDS));
+  }
+
+  /**
+   * The sample order (same fields as sample-order.json), padded to roughly {@code sizeBytes} of JSON.
+   */
+  public static JsonObject plainOrder(int sizeBytes) {
+    JsonObject order = new JsonObject();
+    order.addProperty("name", "aakash.kumar");
+    order.addProperty("address", "austin,texas,usa");
+    order.addProperty("dateOfBirth", "1990-05-15");
+    order.addProperty("orderAmount", 100.00);
+    JsonObject cardDetails = new JsonObject();
+    cardDetails.addProperty("creditCardNumber", "4111111111111234");
+    cardDetails.addProperty("ssn", "123-45-6789");
+    order.add("cardDetails", cardDetails);
+    pad(order, sizeBytes);
+    return order;
+  }
+
+  /**
+   * Multi-Fields request body: PII fields encrypted with the DEK, padded to roughly {@code sizeBytes}.
+   */
+  public static String multiFieldsOrderJson(SecretKey dataEncryptionKey, int sizeBytes) {
+    JsonObject order = new JsonObject();
+    order.addProperty("name", "aakash.kumar");
+    order.addProperty("address", "austin,texas,usa");
+    order.addProperty("dateOfBirth", encryptField("1990-05-15", dataEncryptionKey));
+    order.addProperty("orderAmount", 100.00);
+    JsonObject cardDetails = new JsonObject();
+    cardDetails.addProperty("creditCardNumber", encryptField("4111111111111234", dataEncryptionKey));
+    cardDetails.addProperty("ssn", encryptField("123-45-6789", dataEncryptionKey));
+    order.add("cardDetails", cardDetails);
+    pad(order, sizeBytes);
+    return GSON.toJson(order);
+  }
+
+  /**
+   * A "claim" payload with {@code encryptedFields} encrypted fields (2 patient fields, the rest
+   * split between dependents' SSNs and line items' diagnoses of {@code diagnosisSize} bytes).
+   */
+  public static String claimJson(SecretKey dataEncryptionKey, int encryptedFields, int diagnosisSize) {
+    JsonObject patient = new JsonObject();
+    patient.addProperty("name", "aakash.kumar");
+    patient.addProperty("dateOfBirth", encryptField("1990-05-15", dataEncryptionKey));
+    patient.addProperty("ssn", encryptField("123-45-6789", dataEncryptionKey));
+    JsonArray dependents = new JsonArray();
+    JsonArray lineItems = new JsonArray();
+    for (int i = 2; i < encryptedFields; i++) {
+      JsonObject item = new JsonObject();
+      if (i % 2 == 0) {
+        item.addProperty("name", "dependent-" + i);
+        item.addProperty("ssn", encryptField("123-45-" + String.format("%04d", i), dataEncryptionKey));
+        dependents.add(item);
+      } else {
+        item.addProperty("amount", 10.0 * i);
+        item.addProperty("diagnosis", encryptField(text(diagnosisSize), dataEncryptionKey));
+        lineItems.add(item);
+      }
+    }
+    JsonObject claim = new JsonObject();
+    claim.addProperty("claimId", "CLM-" + encryptedFields);
+    claim.add("patient", patient);
+    claim.add("dependents", dependents);
+    claim.add("lineItems", lineItems);
+    return GSON.toJson(claim);
+  }
+
+  /**
+   * Full-Payload request body: the padded order as JWE (RSA-OAEP-256 + A256GCM) with a known CEK,
+   * so {@link StubKms} can return it without RSA work.
+   */
+  public static String jwe(byte[] contentEncryptionKey, int sizeBytes) {
+    try {
+      JWEHeader header = new JWEHeader.Builder(JWEAlgorithm.RSA_OAEP_256, EncryptionMethod.A256GCM).build();
+      JWEObject jweObject = new JWEObject(header, new Payload(GSON.toJson(plainOrder(sizeBytes))));
+      jweObject.encrypt(new RSAEncrypter(WrappingKey.PUBLIC_KEY, secretKey(contentEncryptionKey)));
+      return jweObject.serialize();
+    } catch (Exception e) {
+      throw new IllegalStateException("Failed to build JWE fixture", e);
+    }
+  }
+
+  /**
+   * Encrypts a field as BASE64(IV).BASE64(EncryptedText).BASE64(AuthTag), like the Multi-Fields client.
+   */
+  public static String encryptField(String plaintext, SecretKey dataEncryptionKey) {
+    try {
+      byte[] iv = new byte[GCM_IV_SIZE_BYTES];
+      RANDOM.nextBytes(iv);
+      Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+      cipher.init(Cipher.ENCRYPT_MODE, dataEncryptionKey, new GCMParameterSpec(GCM_TAG_SIZE_BITS, iv));
+      byte[] encryptedWithTag = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+
+      int textLength = encryptedWithTag.length - GCM_TAG_SIZE_BYTES;
+      Base64.Encoder encoder = Base64.getEncoder();
+      return encoder.encodeToString(iv) + "."
+          + encoder.encodeToString(Arrays.copyOfRange(encryptedWithTag, 0, textLength)) + "."
+          + encoder.encodeToString(Arrays.copyOfRange(encryptedWithTag, textLength, encryptedWithTag.length));
+    } catch (Exception e) {
+      throw new IllegalStateException("Failed to encrypt field fixture", e);
+    }
+  }
+
+  /**
+   * A plaintext of exactly {@code sizeBytes} ASCII characters.
+   */
+  public static String text(int sizeBytes) {
+    return "x".repeat(sizeBytes);
+  }
+
+  /**
+   * Random bytes standing in for an RSA-wrapped key; {@link StubKms} never looks at them.
+   */
+  public static String wrappedKeyBase64() {
+    byte[] wrappedKey = new byte[512];
+    RANDOM.nextBytes(wrappedKey);
+    return Base64.getEncoder().encodeToString(wrappedKey);
+  }
+
+  private static void pad(JsonObject order, int sizeBytes) {
+    int currentSize = GSON.toJson(order).length();
+    // ,"notes":"" adds 11 bytes around the padding itself
+    int padding = sizeBytes - currentSize - 11;
+    if (padding > 0) {
+      order.addProperty("notes", text(padding));
+    }
+  }
+
+  /**
+   * RSA key the JWE fixtures wrap their CEK with. Generated once; the stubbed KMS never unwraps it.
+   */
+  private static final class WrappingKey {
+    private static final RSAPublicKey PUBLIC_KEY;
+
+    static {
+      try {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(4096);
+        PUBLIC_KEY = (RSAPublicKey) generator.generateKeyPair().getPublic();
+      } catch (Exception e) {
+        throw new ExceptionInInitializerError(e);
+      }
+    }
+  }
+}
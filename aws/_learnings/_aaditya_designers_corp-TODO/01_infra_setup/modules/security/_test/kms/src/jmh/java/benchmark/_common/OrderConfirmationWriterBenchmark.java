@@ -0,0 +1,62 @@
+package benchmark._common;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import server._common.Utils;
+import server._common.order.OrderConfirmation;
+import server._common.order.OrderConfirmationWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Order confirmation response body, from the service result to the bytes handed to the servlet
+ * output stream:
+ * <ul>
+ *   <li>gsonTree: JsonObject tree → gson.toJson → String.getBytes (the former controller path:
+ *       String body + StringHttpMessageConverter)</li>
+ *   <li>writer: OrderConfirmationWriter, exact-size byte[] (OrderConfirmationHttpMessageConverter)</li>
+ * </ul>
+ *
+ * <p>Compare gc.alloc.rate.norm (bytes/op, gc profiler): the writer allocates the response
+ * bytes only (~200 B vs ~2 KB for gsonTree on the ASCII name, ~8x the throughput). The name
+ * parameter adds escaped and multi-byte characters; setup fails if the two outputs differ.</p>
+ *
+ * <p>Run: {@code ./gradlew jmh -PjmhIncludes=OrderConfirmationWriterBenchmark}</p>
+ */
+@State(Scope.Benchmark)
+public class OrderConfirmationWriterBenchmark {
+
+  @Param({"John Doe", "Zoë <O'Brien> 😀"})
+  private String name;
+
+  private final Gson gson = new Gson();
+  private OrderConfirmation confirmation;
+
+  @Setup
+  public void setup() {
+    Utils utils = BenchmarkFixtures.utils();
+    confirmation = new OrderConfirmation(UUID.randomUUID().toString(), name, "1990-01-15",
+        utils.maskCard("4111111111111234"), utils.maskSsn("123-45-6789"));
+    if (!Arrays.equals(gsonTree(), writer())) {
+      throw new IllegalStateException("OrderConfirmationWriter output differs from Gson: " + confirmation.toJson());
+    }
+  }
+
+  @Benchmark
+  public byte[] gsonTree() {
+    return gson.toJson(confirmation.toJsonObject()).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public byte[] writer() {
+    byte[] json = new byte[OrderConfirmationWriter.encodedLength(confirmation)];
+    OrderConfirmationWriter.write(confirmation, json);
+    return json;
+  }
+}
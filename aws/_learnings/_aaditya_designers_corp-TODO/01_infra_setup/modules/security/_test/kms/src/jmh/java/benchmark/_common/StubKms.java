@@ -0,0 +1,70 @@
+package benchmark._common;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.kms.KmsAsyncClient;
+import software.amazon.awssdk.services.kms.KmsClient;
+import software.amazon.awssdk.services.kms.model.DecryptRequest;
+import software.amazon.awssdk.services.kms.model.DecryptResponse;
+import software.amazon.awssdk.services.kms.model.GenerateDataKeyRequest;
+import software.amazon.awssdk.services.kms.model.GenerateDataKeyResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * KMS stub for benchmarks: every Decrypt returns the same AES key, with no RSA work and no latency;
+ * GenerateDataKey returns a fresh random AES-256 key.
+ *
+ * <p>Keeps the measured cost to the local hot path (parse, Base64, AES-GCM, JSON).</p>
+ */
+public final class StubKms {
+
+  private StubKms() {
+  }
+
+  public static KmsClient client(byte[] plaintextKey) {
+    return new KmsClient() {
+      @Override
+      public DecryptResponse decrypt(DecryptRequest decryptRequest) {
+        return response(plaintextKey);
+      }
+
+      @Override
+      public GenerateDataKeyResponse generateDataKey(GenerateDataKeyRequest generateDataKeyRequest) {
+        return GenerateDataKeyResponse.builder()
+            .plaintext(SdkBytes.fromByteArray(BenchmarkFixtures.aesKey()))
+            .build();
+      }
+
+      @Override
+      public String serviceName() {
+        return SERVICE_NAME;
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+  }
+
+  public static KmsAsyncClient asyncClient(byte[] plaintextKey) {
+    return new KmsAsyncClient() {
+      @Override
+      public CompletableFuture<DecryptResponse> decrypt(DecryptRequest decryptRequest) {
+        return CompletableFuture.completedFuture(response(plaintextKey));
+      }
+
+      @Override
+      public String serviceName() {
+        return SERVICE_NAME;
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+  }
+
+  private static DecryptResponse response(byte[] plaintextKey) {
+    return DecryptResponse.builder().plaintext(SdkBytes.fromByteArray(plaintextKey)).build();
+  }
+}
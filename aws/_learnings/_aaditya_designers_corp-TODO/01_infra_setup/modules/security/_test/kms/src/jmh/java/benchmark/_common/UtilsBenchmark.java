@@ -0,0 +1,40 @@
+package benchmark._common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import server._common.Utils;
+
+/**
+ * Utils.maskCard / maskSsn on the sample order's values.
+ *
+ * <p>Input size is fixed (card number / SSN), so there is no payload-size parameter; the cost is
+ * the same per field at every payload size.</p>
+ *
+ * <p>Run: {@code ./gradlew jmh -PjmhIncludes=UtilsBenchmark}</p>
+ */
+@State(Scope.Benchmark)
+public class UtilsBenchmark {
+
+  private Utils utils;
+  private String creditCardNumber;
+  private String ssn;
+
+  @Setup
+  public void setup() {
+    utils = BenchmarkFixtures.utils();
+    creditCardNumber = "4111111111111234";
+    ssn = "123-45-6789";
+  }
+
+  @Benchmark
+  public String maskCard() {
+    return utils.maskCard(creditCardNumber);
+  }
+
+  @Benchmark
+  public String maskSsn() {
+    return utils.maskSsn(ssn);
+  }
+}
@@ -0,0 +1,101 @@
+package benchmark.client;
+
+import benchmark._common.BenchmarkFixtures;
+import client.restapi.encryption.full_payload.crypto.PayloadEncryptor;
+import client.restapi.encryption.multi_fields_in_payload.crypto.DEKEncryptorAndWrapper;
+import client.restapi.encryption.multi_fields_in_payload.crypto.DEKGenerator;
+import client.restapi.encryption.multi_fields_in_payload.crypto.FieldEncryptor;
+import client.restapi.encryption.multi_fields_in_payload.service.EncryptionContext;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+import server._common.kms.local.LocalKms;
+
+/**
+ * Client-side encryption throughput: one shared client service per approach, called from 1 and 8
+ * threads, with pooled Ciphers ({@code cipherPool=true}) vs Cipher.getInstance per operation.
+ * <ul>
+ *   <li>multiFieldsOrder: a new request context (DEK + RSA-OAEP-256 wrap under RSA-4096) and the
+ *       3 PII fields of one order</li>
+ *   <li>multiFieldsFields: the 3 fields only, under one shared context (batches, sessions, key tokens)</li>
+ *   <li>fullPayloadOrder: one 200-byte order as a JWE (CEK + A256GCM + RSA-OAEP-256)</li>
+ * </ul>
+ *
+ * <p>The RSA public-key operation dominates a new context; ops/s of multiFieldsOrder is orders
+ * per second. The 8-thread variants share the services and the parsed key, nothing else.</p>
+ *
+ * <p>Run: {@code ./gradlew jmh -PjmhIncludes=ClientEncryptionBenchmark}</p>
+ */
+@State(Scope.Benchmark)
+public class ClientEncryptionBenchmark {
+
+  private static final int ORDER_SIZE_BYTES = 200;
+
+  @Param({"false", "true"})
+  private boolean cipherPool;
+
+  private client.restapi.encryption.multi_fields_in_payload.service.HybridEncryptionService multiFieldsService;
+  private client.restapi.encryption.full_payload.service.HybridEncryptionService allFieldsService;
+  private EncryptionContext sharedContext;
+  private String orderJson;
+
+  @Setup
+  public void setup() {
+    LocalKms localKms = LocalKms.create("", "", "P-256", new LocalKms.FaultProfile(0, 0, 0.0, 0.0));
+    String publicKeyPem = localKms.publicKeyPem();
+
+    multiFieldsService = new client.restapi.encryption.multi_fields_in_payload.service.HybridEncryptionService(
+        new FieldEncryptor(cipherPool ? 256 : 0), new DEKEncryptorAndWrapper(cipherPool ? 64 : 0), new DEKGenerator());
+    multiFieldsService.loadPublicKey(publicKeyPem);
+    sharedContext = multiFieldsService.newContext();
+
+    allFieldsService = new client.restapi.encryption.full_payload.service.HybridEncryptionService(new PayloadEncryptor());
+    allFieldsService.loadPublicKey(publicKeyPem);
+    orderJson = new Gson().toJson(BenchmarkFixtures.plainOrder(ORDER_SIZE_BYTES));
+  }
+
+  @Benchmark
+  public void multiFieldsOrder(Blackhole blackhole) {
+    encryptOrderFields(multiFieldsService.newContext(), blackhole);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void multiFieldsOrderConcurrent(Blackhole blackhole) {
+    encryptOrderFields(multiFieldsService.newContext(), blackhole);
+  }
+
+  @Benchmark
+  public void multiFieldsFields(Blackhole blackhole) {
+    encryptOrderFields(sharedContext, blackhole);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void multiFieldsFieldsConcurrent(Blackhole blackhole) {
+    encryptOrderFields(sharedContext, blackhole);
+  }
+
+  @Benchmark
+  public String fullPayloadOrder() {
+    return allFieldsService.encryptPayload(orderJson);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public String fullPayloadOrderConcurrent() {
+    return allFieldsService.encryptPayload(orderJson);
+  }
+
+  private static void encryptOrderFields(EncryptionContext request, Blackhole blackhole) {
+    blackhole.consume(request.encryptField("1990-05-15"));
+    blackhole.consume(request.encryptField("4111111111111234"));
+    blackhole.consume(request.encryptField("123-45-6789"));
+    blackhole.consume(request.getEncryptedDataEncryptionKey());
+  }
+}
@@ -0,0 +1,128 @@
+package benchmark.file_security;
+
+import benchmark._common.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import server.CryptoPoolConfig;
+import server._common.crypto.AesGcmCipherPool;
+import server._common.metrics.StageMetrics;
+import server.file_security.crypto.EncryptedFileHeader;
+import server.file_security.crypto.SegmentedFileDecryptor;
+import server.file_security.crypto.SegmentedFileEncryptor;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Segmented file encryption and decryption of one file, per segment size: ops/s × fileSize is
+ * the throughput to compare with the disk's.
+ *
+ * <p>The DEK is given (no KMS): this measures the segment loop, mmap reads and positional
+ * writes. decryptParallelism=0 decrypts segment ranges on one fork-join worker per CPU
+ * (encrypt is sequential either way). Files live in a temp directory, so mostly in the page cache: the gc profiler should
+ * show allocation independent of fileSize.</p>
+ *
+ * <p>Run: {@code ./gradlew jmh -PjmhIncludes=SegmentedFileBenchmark}</p>
+ */
+@State(Scope.Benchmark)
+public class SegmentedFileBenchmark {
+
+  @Param({"67108864"})
+  private long fileSize;
+
+  @Param({"65536", "1048576"})
+  private int segmentSize;
+
+  /** Decrypt threads: 1 = sequential, 0 = one per CPU */
+  @Param({"1", "0"})
+  private int decryptParallelism;
+
+  private SegmentedFileEncryptor encryptor;
+  private SegmentedFileDecryptor decryptor;
+  private ForkJoinPool cryptoPool;
+  private SecretKey dataEncryptionKey;
+  private EncryptedFileHeader header;
+  private Path directory;
+  private Path plaintext;
+  private Path encrypted;
+  private Path output;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    AesGcmCipherPool cipherPool = BenchmarkFixtures.cipherPool(true);
+    StageMetrics metrics = StageMetrics.simple();
+    encryptor = new SegmentedFileEncryptor(cipherPool, metrics);
+    cryptoPool = CryptoPoolConfig.newCryptoPool(0);
+    decryptor = new SegmentedFileDecryptor(cipherPool, metrics, cryptoPool, decryptParallelism, 0);
+    dataEncryptionKey = BenchmarkFixtures.secretKey(BenchmarkFixtures.aesKey());
+
+    SecureRandom random = new SecureRandom();
+    byte[] noncePrefix = new byte[EncryptedFileHeader.NONCE_PREFIX_SIZE_BYTES];
+    random.nextBytes(noncePrefix);
+    // Stands in for the RSA-4096 wrapped DEK: only its size matters here
+    byte[] wrappedKey = new byte[512];
+    random.nextBytes(wrappedKey);
+    header = new EncryptedFileHeader(segmentSize, noncePrefix, wrappedKey);
+
+    directory = Files.createTempDirectory("segmented-file-benchmark");
+    plaintext = directory.resolve("plain.bin");
+    encrypted = directory.resolve("plain.bin.enc");
+    output = directory.resolve("output.bin");
+    byte[] block = new byte[1 << 20];
+    try (FileChannel channel = FileChannel.open(plaintext, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      for (long written = 0; written < fileSize; written += block.length) {
+        random.nextBytes(block);
+        channel.write(ByteBuffer.wrap(block, 0, (int) Math.min(block.length, fileSize - written)));
+      }
+    }
+    try (FileChannel in = FileChannel.open(plaintext, StandardOpenOption.READ);
+         FileChannel out = FileChannel.open(encrypted, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      encryptor.encrypt(in, out, header, dataEncryptionKey);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    cryptoPool.shutdownNow();
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  @Benchmark
+  public long encrypt() throws IOException {
+    try (FileChannel in = FileChannel.open(plaintext, StandardOpenOption.READ);
+         FileChannel out = openOutput()) {
+      return encryptor.encrypt(in, out, header, dataEncryptionKey);
+    }
+  }
+
+  @Benchmark
+  public long decrypt() throws IOException {
+    try (FileChannel in = FileChannel.open(encrypted, StandardOpenOption.READ);
+         FileChannel out = openOutput()) {
+      return decryptor.decrypt(in, header, dataEncryptionKey, out);
+    }
+  }
+
+  private FileChannel openOutput() throws IOException {
+    return FileChannel.open(output,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+  }
+}
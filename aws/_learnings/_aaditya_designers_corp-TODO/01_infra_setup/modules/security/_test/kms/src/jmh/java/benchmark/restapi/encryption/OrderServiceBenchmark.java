@@ -0,0 +1,117 @@
+package benchmark.restapi.encryption;
+
+import benchmark._common.BenchmarkFixtures;
+import benchmark._common.StubKms;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import server._common.Utils;
+import server._common.crypto.AesGcmCipherPool;
+import server._common.kms.UnwrappedKeyCache;
+import server._common.metrics.StageMetrics;
+import server.restapi.encryption.multi_fields_in_payload.schema.ParallelFieldDecryptor;
+import server.restapi_data_security.multi_fields_encryption.crypto.DEKDecryptorAndUnwrapper;
+import server.restapi_data_security.multi_fields_encryption.crypto.FieldDecryptor;
+import server.restapi_data_security.multi_fields_encryption.crypto.FieldEncryptor;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Both OrderService.processOrder variants as the controllers drive them, including the request
+ * parse and response serialization:
+ * <ul>
+ *   <li>multiFields: processOrder(body, encryptedDEK) [order schema plan: streaming extract + decrypt]
+ *       → response.toJson() [OrderConfirmationWriter]</li>
+ *   <li>multiFieldsTree: fromJson(body) → unwrap DEK → processOrder(order, dek) → toJson(toJsonObject()),
+ *       the JsonObject path the batch endpoint uses (the plan walks the parsed tree in place)</li>
+ *   <li>allFields: processOrder(jwe) [decrypt + streaming extract] → response.toJson()</li>
+ *   <li>multiFieldsEncryptedResponse / allFieldsEncryptedResponse: the same with X-Encrypt-Response,
+ *       i.e. name and dateOfBirth re-encrypted with the DEK / a dir JWE under the CEK; the
+ *       difference to multiFields / allFields is the whole cost of encrypted responses</li>
+ * </ul>
+ *
+ * <p>Run: {@code ./gradlew jmh -PjmhIncludes=OrderServiceBenchmark}</p>
+ */
+@State(Scope.Benchmark)
+public class OrderServiceBenchmark {
+
+  @Param({"200", "1024", "16384", "131072", "1048576"})
+  private int payloadSize;
+
+  private final Gson gson = new Gson();
+
+  private server.restapi.encryption.multi_fields_in_payload.service.OrderService multiFieldsOrderService;
+  private DEKDecryptorAndUnwrapper dekDecryptorAndUnwrapper;
+  private String multiFieldsBody;
+  private String encryptedDataEncryptionKey;
+
+  private server.restapi.encryption.full_payload.service.OrderService allFieldsOrderService;
+  private String allFieldsBody;
+
+  @Setup
+  public void setup() {
+    Utils utils = BenchmarkFixtures.utils();
+    UnwrappedKeyCache keyCache = BenchmarkFixtures.keyCache();
+    AesGcmCipherPool cipherPool = BenchmarkFixtures.cipherPool(true);
+    StageMetrics metrics = StageMetrics.simple();
+
+    byte[] dataEncryptionKey = BenchmarkFixtures.aesKey();
+    dekDecryptorAndUnwrapper = new DEKDecryptorAndUnwrapper(
+        StubKms.client(dataEncryptionKey),
+        StubKms.asyncClient(dataEncryptionKey),
+        keyCache,
+        BenchmarkFixtures.KEY_ARN,
+        BenchmarkFixtures.kmsCallGuard(metrics));
+    multiFieldsOrderService = new server.restapi.encryption.multi_fields_in_payload.service.OrderService(
+        dekDecryptorAndUnwrapper,
+        new FieldDecryptor(cipherPool, metrics),
+        new FieldEncryptor(cipherPool, metrics),
+        BenchmarkFixtures.fieldEncryptionSchemas(ParallelFieldDecryptor.sequential()),
+        utils);
+    multiFieldsBody = BenchmarkFixtures.multiFieldsOrderJson(BenchmarkFixtures.secretKey(dataEncryptionKey), payloadSize);
+    encryptedDataEncryptionKey = BenchmarkFixtures.wrappedKeyBase64();
+
+    byte[] contentEncryptionKey = BenchmarkFixtures.aesKey();
+    allFieldsOrderService = new server.restapi.encryption.full_payload.service.OrderService(
+        new server.restapi.encryption.full_payload.crypto.PayloadDecryptor(
+            BenchmarkFixtures.rsaKeyUnwrappers(contentEncryptionKey, keyCache),
+            cipherPool,
+            metrics),
+        new server.restapi.encryption.full_payload.crypto.PayloadEncryptor(cipherPool, metrics),
+        utils,
+        metrics);
+    allFieldsBody = BenchmarkFixtures.jwe(contentEncryptionKey, payloadSize);
+  }
+
+  @Benchmark
+  public String multiFields() {
+    return multiFieldsOrderService.processOrder(multiFieldsBody, encryptedDataEncryptionKey, false).toJson();
+  }
+
+  @Benchmark
+  public String multiFieldsEncryptedResponse() {
+    return multiFieldsOrderService.processOrder(multiFieldsBody, encryptedDataEncryptionKey, true).toJson();
+  }
+
+  @Benchmark
+  public String multiFieldsTree() {
+    JsonObject order = gson.fromJson(multiFieldsBody, JsonObject.class);
+    SecretKey dataEncryptionKey =
+        dekDecryptorAndUnwrapper.unwrapAndDecryptDataEncryptionKeyViaAWSKMS(encryptedDataEncryptionKey);
+    return gson.toJson(multiFieldsOrderService.processOrder(order, dataEncryptionKey).toJsonObject());
+  }
+
+  @Benchmark
+  public String allFields() {
+    return allFieldsOrderService.processOrder(allFieldsBody).toJson();
+  }
+
+  @Benchmark
+  public String allFieldsEncryptedResponse() {
+    return allFieldsOrderService.processOrderWithEncryptedResponse(allFieldsBody);
+  }
+}
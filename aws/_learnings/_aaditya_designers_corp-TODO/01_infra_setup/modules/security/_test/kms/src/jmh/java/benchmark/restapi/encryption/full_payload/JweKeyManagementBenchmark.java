@@ -0,0 +1,112 @@
+package benchmark.restapi.encryption.full_payload;
+
+import benchmark._common.BenchmarkFixtures;
+import com.google.gson.Gson;
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEEncrypter;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.JWEObject;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.crypto.ECDHEncrypter;
+import com.nimbusds.jose.crypto.RSAEncrypter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import server._common.kms.UnwrappedKeyCache;
+import server._common.kms.local.LocalKms;
+import server._common.kms.local.LocalKmsAsyncClient;
+import server._common.kms.local.LocalKmsClient;
+import server._common.kms.local.LocalKmsEcdhKeyAgreement;
+import server._common.metrics.StageMetrics;
+import server.restapi.encryption.full_payload.crypto.EcdhEsKeyUnwrapper;
+import server.restapi.encryption.full_payload.crypto.JweKeyUnwrappers;
+import server.restapi.encryption.full_payload.crypto.PayloadDecryptor;
+import server.restapi.encryption.full_payload.crypto.RsaOaepKeyUnwrapper;
+import software.amazon.awssdk.services.kms.model.GetPublicKeyRequest;
+
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.List;
+
+/**
+ * JWE key management per message, RSA-OAEP-256 (RSA-4096) vs ECDH-ES+A256KW (P-256 / P-384),
+ * for a 200-byte order:
+ * <ul>
+ *   <li>clientEncrypt: what a partner's device pays per request (CEK + A256GCM + key management)</li>
+ *   <li>serverDecrypt: PayloadDecryptor with the private-key operation in the Local KMS stand-in
+ *       (zero latency, key cache off), i.e. the HSM-side work a KMS call would do</li>
+ * </ul>
+ *
+ * <p>Message size (header + encrypted key, Base64URL): RSA-OAEP-256 68 + 683 characters,
+ * ECDH-ES+A256KW 248 + 54 on P-256 (the epk is in the header), 304 + 54 on P-384.</p>
+ *
+ * <p>In the JDK provider, an RSA public-key encryption (e = 65537) is cheaper than an EC key
+ * generation + ECDH, so clientEncrypt favours RSA; the private-key side (serverDecrypt) favours
+ * ECDH by ~4x on P-256.</p>
+ *
+ * <p>Run: {@code ./gradlew jmh -PjmhIncludes=JweKeyManagementBenchmark}</p>
+ */
+@State(Scope.Benchmark)
+public class JweKeyManagementBenchmark {
+
+  @Param({"RSA-OAEP-256", "ECDH-ES+A256KW/P-256", "ECDH-ES+A256KW/P-384"})
+  private String keyManagement;
+
+  private final Gson gson = new Gson();
+  private JWEHeader header;
+  private JWEEncrypter encrypter;
+  private String payload;
+  private PayloadDecryptor payloadDecryptor;
+  private String jwe;
+
+  @Setup
+  public void setup() throws Exception {
+    boolean ecdh = keyManagement.startsWith("ECDH-ES");
+    LocalKms localKms = LocalKms.create("", "", ecdh ? keyManagement.substring(keyManagement.indexOf('/') + 1) : "P-256",
+        new LocalKms.FaultProfile(0, 0, 0.0, 0.0));
+
+    if (ecdh) {
+      header = new JWEHeader.Builder(JWEAlgorithm.ECDH_ES_A256KW, EncryptionMethod.A256GCM).build();
+      encrypter = new ECDHEncrypter(localKms.ecdhPublicKey());
+    } else {
+      header = new JWEHeader.Builder(JWEAlgorithm.RSA_OAEP_256, EncryptionMethod.A256GCM).build();
+      byte[] publicKey = localKms.getPublicKey(GetPublicKeyRequest.builder().keyId(BenchmarkFixtures.KEY_ARN).build())
+          .publicKey().asByteArray();
+      encrypter = new RSAEncrypter((RSAPublicKey) KeyFactory.getInstance("RSA")
+          .generatePublic(new X509EncodedKeySpec(publicKey)));
+    }
+
+    StageMetrics metrics = StageMetrics.simple();
+    payloadDecryptor = new PayloadDecryptor(
+        new JweKeyUnwrappers(List.of(
+            new RsaOaepKeyUnwrapper(
+                new LocalKmsClient(localKms),
+                new LocalKmsAsyncClient(localKms),
+                new UnwrappedKeyCache(false, 1000, 300, 10_000),
+                BenchmarkFixtures.KEY_ARN,
+                BenchmarkFixtures.kmsCallGuard(metrics)),
+            new EcdhEsKeyUnwrapper(new LocalKmsEcdhKeyAgreement(localKms), metrics))),
+        BenchmarkFixtures.cipherPool(true),
+        metrics);
+
+    payload = gson.toJson(BenchmarkFixtures.plainOrder(200));
+    jwe = clientEncrypt();
+  }
+
+  @Benchmark
+  public String clientEncrypt() throws JOSEException {
+    JWEObject jweObject = new JWEObject(header, new Payload(payload));
+    jweObject.encrypt(encrypter);
+    return jweObject.serialize();
+  }
+
+  @Benchmark
+  public String serverDecrypt() {
+    return payloadDecryptor.decrypt(jwe);
+  }
+}
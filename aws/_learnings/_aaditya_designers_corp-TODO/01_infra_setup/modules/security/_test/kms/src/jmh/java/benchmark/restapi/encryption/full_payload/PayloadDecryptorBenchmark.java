@@ -0,0 +1,65 @@
+package benchmark.restapi.encryption.full_payload;
+
+import benchmark._common.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import server._common.metrics.StageMetrics;
+import server.restapi.encryption.full_payload.crypto.PayloadDecryptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * PayloadDecryptor.decrypt: JWE parse (Base64URL of all parts) + CEK lookup (key cache hit) + AES-256-GCM.
+ *
+ * <p>{@code decryptStream} is the application/jose path: chunked BouncyCastle AES-GCM, plaintext
+ * drained through a Reader; compare gc.alloc.rate.norm against {@code decrypt}.</p>
+ *
+ * <p>Run: {@code ./gradlew jmh -PjmhIncludes=PayloadDecryptorBenchmark}</p>
+ */
+@State(Scope.Benchmark)
+public class PayloadDecryptorBenchmark {
+
+  @Param({"200", "1024", "16384", "131072", "1048576"})
+  private int payloadSize;
+
+  private PayloadDecryptor payloadDecryptor;
+  private String jwe;
+  private byte[] jweBytes;
+
+  @Setup
+  public void setup() {
+    byte[] contentEncryptionKey = BenchmarkFixtures.aesKey();
+    payloadDecryptor = new PayloadDecryptor(
+        BenchmarkFixtures.rsaKeyUnwrappers(contentEncryptionKey, BenchmarkFixtures.keyCache()),
+        BenchmarkFixtures.cipherPool(true),
+        StageMetrics.simple());
+    jwe = BenchmarkFixtures.jwe(contentEncryptionKey, payloadSize);
+    jweBytes = jwe.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  @Benchmark
+  public String decrypt() {
+    return payloadDecryptor.decrypt(jwe);
+  }
+
+  @Benchmark
+  public long decryptStream() {
+    return payloadDecryptor.decrypt(new ByteArrayInputStream(jweBytes), PayloadDecryptorBenchmark::drain);
+  }
+
+  private static long drain(Reader plaintext) throws IOException {
+    char[] buffer = new char[8192];
+    long chars = 0;
+    int read;
+    while ((read = plaintext.read(buffer)) >= 0) {
+      chars += read;
+    }
+    return chars;
+  }
+}
@@ -0,0 +1,68 @@
+package benchmark.restapi.encryption.key_token;
+
+import benchmark._common.BenchmarkFixtures;
+import benchmark._common.StubKms;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import server._common.kms.KeyEncryptionKeyManager;
+import server._common.metrics.StageMetrics;
+import server.restapi.encryption.key_token.service.KeyTokenService;
+import server.restapi_data_security.multi_fields_encryption.crypto.DEKDecryptorAndUnwrapper;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Per-request DEK resolution, with KMS stubbed (so the KMS round trip itself is not measured):
+ * <ul>
+ *   <li>keyToken: X-Key-Token path, local AES-KW unwrap under the in-memory KEK + expiry check</li>
+ *   <li>wrappedKeyCacheHit: X-Encryption-Key path on a key-cache hit (SHA-256 fingerprint + copy),
+ *       the best case of the KMS path</li>
+ * </ul>
+ *
+ * <p>Run: {@code ./gradlew jmh -PjmhIncludes=KeyTokenServiceBenchmark}</p>
+ */
+@State(Scope.Benchmark)
+public class KeyTokenServiceBenchmark {
+
+  private KeyEncryptionKeyManager keyEncryptionKeyManager;
+  private KeyTokenService keyTokenService;
+  private DEKDecryptorAndUnwrapper dekDecryptorAndUnwrapper;
+  private String encryptedDataEncryptionKey;
+  private String keyToken;
+
+  @Setup
+  public void setup() {
+    byte[] dataEncryptionKey = BenchmarkFixtures.aesKey();
+    dekDecryptorAndUnwrapper = new DEKDecryptorAndUnwrapper(
+        StubKms.client(dataEncryptionKey),
+        StubKms.asyncClient(dataEncryptionKey),
+        BenchmarkFixtures.keyCache(),
+        BenchmarkFixtures.KEY_ARN,
+        BenchmarkFixtures.kmsCallGuard(StageMetrics.simple()));
+    keyEncryptionKeyManager = new KeyEncryptionKeyManager(
+        StubKms.client(dataEncryptionKey), true, BenchmarkFixtures.KEY_ARN, 3600, StageMetrics.simple());
+    keyEncryptionKeyManager.start();
+    keyTokenService = new KeyTokenService(dekDecryptorAndUnwrapper, keyEncryptionKeyManager, 900);
+
+    encryptedDataEncryptionKey = BenchmarkFixtures.wrappedKeyBase64();
+    keyToken = keyTokenService.issueToken(encryptedDataEncryptionKey).keyToken();
+  }
+
+  @TearDown
+  public void tearDown() {
+    keyEncryptionKeyManager.stop();
+  }
+
+  @Benchmark
+  public SecretKey keyToken() {
+    return keyTokenService.resolveDataEncryptionKey(keyToken);
+  }
+
+  @Benchmark
+  public SecretKey wrappedKeyCacheHit() {
+    return dekDecryptorAndUnwrapper.unwrapAndDecryptDataEncryptionKeyViaAWSKMS(encryptedDataEncryptionKey);
+  }
+}
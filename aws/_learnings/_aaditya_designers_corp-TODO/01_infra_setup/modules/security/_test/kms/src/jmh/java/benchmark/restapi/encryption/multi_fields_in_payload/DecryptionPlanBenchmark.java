@@ -0,0 +1,72 @@
+package benchmark.restapi.encryption.multi_fields_in_payload;
+
+import benchmark._common.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import server.CryptoPoolConfig;
+import server._common.metrics.StageMetrics;
+import server.restapi.encryption.multi_fields_in_payload.schema.DecryptionPlan;
+import server.restapi.encryption.multi_fields_in_payload.schema.ParallelFieldDecryptor;
+import server.restapi_data_security.multi_fields_encryption.crypto.FieldDecryptor;
+
+import javax.crypto.SecretKey;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * DecryptionPlan.decrypt for the "claim" schema: one streaming walk, then {@code fieldCount}
+ * field decryptions with the shared DEK, line-item fields of {@code fieldSize} bytes.
+ * <ul>
+ *   <li>sequential: ParallelFieldDecryptor.sequential()</li>
+ *   <li>parallel: ParallelFieldDecryptor over a crypto pool of all CPUs with the default thresholds
+ *       (16 fields or 256 KB of encoded fields)</li>
+ * </ul>
+ *
+ * <p>Run: {@code ./gradlew jmh -PjmhIncludes=DecryptionPlanBenchmark}</p>
+ */
+@State(Scope.Benchmark)
+public class DecryptionPlanBenchmark {
+
+  @Param({"4", "16", "64", "256"})
+  private int fieldCount;
+
+  @Param({"64", "65536"})
+  private int fieldSize;
+
+  private ForkJoinPool cryptoPool;
+  private DecryptionPlan sequentialPlan;
+  private DecryptionPlan parallelPlan;
+  private FieldDecryptor fieldDecryptor;
+  private SecretKey dataEncryptionKey;
+  private String claim;
+
+  @Setup
+  public void setup() {
+    cryptoPool = CryptoPoolConfig.newCryptoPool(0);
+    sequentialPlan = BenchmarkFixtures.fieldEncryptionSchemas(ParallelFieldDecryptor.sequential()).plan("claim");
+    parallelPlan = BenchmarkFixtures.fieldEncryptionSchemas(
+        new ParallelFieldDecryptor(cryptoPool, 0, 16, 262144)).plan("claim");
+    fieldDecryptor = new FieldDecryptor(BenchmarkFixtures.cipherPool(true), StageMetrics.simple());
+    dataEncryptionKey = BenchmarkFixtures.secretKey(BenchmarkFixtures.aesKey());
+    claim = BenchmarkFixtures.claimJson(dataEncryptionKey, fieldCount, fieldSize);
+  }
+
+  @TearDown
+  public void tearDown() {
+    cryptoPool.shutdownNow();
+  }
+
+  @Benchmark
+  public Map<String, String> sequential() {
+    return sequentialPlan.decrypt(claim, dataEncryptionKey, fieldDecryptor);
+  }
+
+  @Benchmark
+  public Map<String, String> parallel() {
+    return parallelPlan.decrypt(claim, dataEncryptionKey, fieldDecryptor);
+  }
+}
@@ -0,0 +1,41 @@
+package benchmark.restapi.encryption.multi_fields_in_payload;
+
+import benchmark._common.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import server._common.metrics.StageMetrics;
+import server.restapi_data_security.multi_fields_encryption.crypto.FieldDecryptor;
+
+import javax.crypto.SecretKey;
+
+/**
+ * FieldDecryptor.decrypt: split + Base64 decode of IV/EncryptedText/AuthTag + AES-256-GCM,
+ * for a single field whose plaintext is {@code fieldSize} bytes.
+ *
+ * <p>Run: {@code ./gradlew jmh -PjmhIncludes=FieldDecryptorBenchmark}</p>
+ */
+@State(Scope.Benchmark)
+public class FieldDecryptorBenchmark {
+
+  @Param({"200", "1024", "16384", "131072", "1048576"})
+  private int fieldSize;
+
+  private FieldDecryptor fieldDecryptor;
+  private SecretKey dataEncryptionKey;
+  private String encryptedField;
+
+  @Setup
+  public void setup() {
+    fieldDecryptor = new FieldDecryptor(BenchmarkFixtures.cipherPool(true), StageMetrics.simple());
+    dataEncryptionKey = BenchmarkFixtures.secretKey(BenchmarkFixtures.aesKey());
+    encryptedField = BenchmarkFixtures.encryptField(BenchmarkFixtures.text(fieldSize), dataEncryptionKey);
+  }
+
+  @Benchmark
+  public String decrypt() {
+    return fieldDecryptor.decrypt(encryptedField, dataEncryptionKey);
+  }
+}
@@ -0,0 +1,47 @@
+package server;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import server._common.audit.AuditLogFilter;
+
+import java.util.Map;
+
+/**
+ * Audit Log Configuration
+ *
+ * Registers the sampled per-request audit log for /api/** (logger "audit", async appender in
+ * logback-spring.xml). Request and response bodies are not logged on the hot path.
+ *
+ * Properties:
+ * - audit.log.sample-rate: Fraction of requests logged (default: 0.01)
+ * - audit.log.sample-rates.[{path pattern}]: Per-endpoint override, e.g.
+ *   audit.log.sample-rates.[/api/v1/all-fields/orders]=0.1 (brackets keep the slashes)
+ * - audit.log.always-log-errors: Log every 4xx / 5xx response (default: true)
+ * - audit.log.include-bodies: Add truncated request/response bodies (default: false; ciphertext
+ *   and masked PII, local debugging only)
+ * - audit.log.max-body-chars: Truncation length of logged bodies (default: 200)
+ * - logging.level.audit=WARN: Turns auditing off entirely (filter skipped)
+ */
+@Configuration
+public class AuditLogConfig {
+
+  private static final Bindable<Map<String, Double>> SAMPLE_RATES = Bindable.mapOf(String.class, Double.class);
+
+  @Bean
+  public AuditLogFilter auditLogFilter(
+      Environment environment,
+      @Value("${audit.log.sample-rate:0.01}") double sampleRate,
+      @Value("${audit.log.always-log-errors:true}") boolean alwaysLogErrors,
+      @Value("${audit.log.include-bodies:false}") boolean includeBodies,
+      @Value("${audit.log.max-body-chars:200}") int maxBodyChars
+  ) {
+    Map<String, Double> sampleRates = Binder.get(environment)
+        .bind("audit.log.sample-rates", SAMPLE_RATES)
+        .orElse(Map.of());
+    return new AuditLogFilter(sampleRate, sampleRates, alwaysLogErrors, includeBodies, maxBodyChars);
+  }
+}
@@ -1,17 +1,36 @@
 package server;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import server._common.metrics.KmsRetryMetricPublisher;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryMode;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.kms.KmsAsyncClient;
 import software.amazon.awssdk.services.kms.KmsClient;
 
+import java.time.Duration;
+
 /**
  * AWS KMS Configuration
  *
- * Creates KMS client bean using credentials from application properties.
+ * Creates KMS client beans using credentials from application properties:
+ * - kmsClient: blocking client (request thread waits for the KMS round trip);
+ *   pairs with spring.threads.virtual.enabled=true, where the waiting thread is virtual
+ * - kmsAsyncClient: non-blocking client on a Netty NIO connection pool
+ *
+ * Both clients bound every call (api-call-timeout-ms, retries included) and every attempt, and
+ * retry in the adaptive mode: on throttling, a client-side token bucket slows the send rate of
+ * all calls instead of letting each one retry on its own. Retries are counted as
+ * kms.request.retries; deadline and circuit breaker sit on top (KmsCallGuard).
  *
  * Credentials are injected via environment variables or system properties:
  * - Local development: Pass as env vars or -D flags
@@ -24,8 +43,23 @@ import software.amazon.awssdk.services.kms.KmsClient;
  * - aws.credentials.access-key-id: AWS Access Key ID
  * - aws.credentials.secret-access-key: AWS Secret Access Key
  * - aws.region: AWS Region (default: us-east-1)
+ * - aws.kms.sync.max-connections: Max pooled connections of the blocking client (default: 200)
+ * - aws.kms.sync.connection-acquisition-timeout-ms: Max wait for a pooled connection (default: 2000)
+ * - aws.kms.async.max-concurrency: Max open connections of the async client (default: 100)
+ * - aws.kms.async.max-pending-connection-acquires: Max requests queued for a connection (default: 10000)
+ * - aws.kms.async.connection-acquisition-timeout-ms: Max wait for a pooled connection (default: 2000)
+ * - aws.kms.api-call-timeout-ms: Max time of a call, retries and backoff included (default: 2000;
+ *   shortened per call to the request's remaining deadline)
+ * - aws.kms.api-call-attempt-timeout-ms: Max time of one HTTP attempt (default: 500)
+ * - aws.kms.retry.mode: adaptive, standard or legacy (default: adaptive)
+ * - aws.kms.retry.max-attempts: Attempts per call, first one included (default: 3)
+ * - aws.kms.retry.fast-fail-rate-limiting: Fail instead of waiting when the adaptive rate
+ *   limiter has no capacity (default: false)
+ *
+ * Skipped when aws.kms.local.enabled=true (see LocalKmsConfig).
  */
 @Configuration
+@ConditionalOnProperty(name = "aws.kms.local.enabled", havingValue = "false", matchIfMissing = true)
 public class AwsKmsConfig {
 
   @Value("${aws.region}")
@@ -37,13 +71,76 @@ public class AwsKmsConfig {
   @Value("${aws.credentials.secret-access-key}")
   private String secretAccessKey;
 
+  @Value("${aws.kms.sync.max-connections:200}")
+  private int syncMaxConnections;
+
+  @Value("${aws.kms.sync.connection-acquisition-timeout-ms:2000}")
+  private long syncConnectionAcquisitionTimeoutMs;
+
+  @Value("${aws.kms.async.max-concurrency:100}")
+  private int asyncMaxConcurrency;
+
+  @Value("${aws.kms.async.max-pending-connection-acquires:10000}")
+  private int asyncMaxPendingConnectionAcquires;
+
+  @Value("${aws.kms.async.connection-acquisition-timeout-ms:2000}")
+  private long asyncConnectionAcquisitionTimeoutMs;
+
+  @Value("${aws.kms.api-call-timeout-ms:2000}")
+  private long apiCallTimeoutMs;
+
+  @Value("${aws.kms.api-call-attempt-timeout-ms:500}")
+  private long apiCallAttemptTimeoutMs;
+
+  @Value("${aws.kms.retry.mode:adaptive}")
+  private String retryMode;
+
+  @Value("${aws.kms.retry.max-attempts:3}")
+  private int retryMaxAttempts;
+
+  @Value("${aws.kms.retry.fast-fail-rate-limiting:false}")
+  private boolean fastFailRateLimiting;
+
   @Bean
-  public KmsClient kmsClient() {
+  public KmsClient kmsClient(MeterRegistry meterRegistry) {
     AwsBasicCredentials credentials = AwsBasicCredentials.create(accessKeyId, secretAccessKey);
 
+    // With virtual threads, request concurrency is no longer capped by the Tomcat pool,
+    // so the connection pool must be sized for the expected number of in-flight KMS calls
     return KmsClient.builder()
         .region(Region.of(region))
         .credentialsProvider(StaticCredentialsProvider.create(credentials))
+        .overrideConfiguration(resilience(meterRegistry))
+        .httpClientBuilder(ApacheHttpClient.builder()
+            .maxConnections(syncMaxConnections)
+            .connectionAcquisitionTimeout(Duration.ofMillis(syncConnectionAcquisitionTimeoutMs)))
+        .build();
+  }
+
+  @Bean
+  public KmsAsyncClient kmsAsyncClient(MeterRegistry meterRegistry) {
+    AwsBasicCredentials credentials = AwsBasicCredentials.create(accessKeyId, secretAccessKey);
+
+    return KmsAsyncClient.builder()
+        .region(Region.of(region))
+        .credentialsProvider(StaticCredentialsProvider.create(credentials))
+        .overrideConfiguration(resilience(meterRegistry))
+        .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+            .maxConcurrency(asyncMaxConcurrency)
+            .maxPendingConnectionAcquires(asyncMaxPendingConnectionAcquires)
+            .connectionAcquisitionTimeout(Duration.ofMillis(asyncConnectionAcquisitionTimeoutMs)))
+        .build();
+  }
+
+  private ClientOverrideConfiguration resilience(MeterRegistry meterRegistry) {
+    return ClientOverrideConfiguration.builder()
+        .apiCallTimeout(Duration.ofMillis(apiCallTimeoutMs))
+        .apiCallAttemptTimeout(Duration.ofMillis(apiCallAttemptTimeoutMs))
+        .retryPolicy(RetryPolicy.builder(RetryMode.valueOf(retryMode.trim().toUpperCase()))
+            .numRetries(retryMaxAttempts - 1)
+            .fastFailRateLimiting(fastFailRateLimiting)
+            .build())
+        .addMetricPublisher(new KmsRetryMetricPublisher(meterRegistry))
         .build();
   }
 }
@@ -0,0 +1,47 @@
+package server;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Crypto Pool Configuration
+ *
+ * One ForkJoinPool for every CPU-bound AES-GCM fan-out: batch orders (BatchOrderService), the
+ * fields of a wide payload (ParallelFieldDecryptor) and the segments of a large file
+ * (SegmentedFileDecryptor). A pool per use would each be sized to the cores and together
+ * oversubscribe them; sharing one keeps the decrypting threads at the core count, whichever
+ * mix of requests is running. Nested fan-outs (a batch order with a wide payload) join inside
+ * the pool, where a waiting worker runs queued tasks instead of blocking.
+ *
+ * Each user bounds its own share with its parallelism property (tasks it splits into).
+ *
+ * Properties:
+ * - encryption.crypto-pool.parallelism: Worker threads (default: 0 = CPU count)
+ */
+@Configuration
+public class CryptoPoolConfig {
+
+  @Bean(destroyMethod = "shutdownNow")
+  public ForkJoinPool cryptoPool(@Value("${encryption.crypto-pool.parallelism:0}") int parallelism) {
+    return newCryptoPool(parallelism);
+  }
+
+  /**
+   * @param parallelism Worker threads (0 = CPU count)
+   * @return A pool of daemon "crypto-N" workers
+   */
+  public static ForkJoinPool newCryptoPool(int parallelism) {
+    AtomicInteger threadCount = new AtomicInteger();
+    return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(), pool -> {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName("crypto-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }, null, false);
+  }
+}
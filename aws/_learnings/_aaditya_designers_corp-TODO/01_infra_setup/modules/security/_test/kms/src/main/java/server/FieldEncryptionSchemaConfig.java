@@ -0,0 +1,62 @@
+package server;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.env.Environment;
+import server._common.metrics.StageMetrics;
+import server.restapi.encryption.multi_fields_in_payload.schema.FieldEncryptionSchemas;
+import server.restapi.encryption.multi_fields_in_payload.schema.ParallelFieldDecryptor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Field Encryption Schema Configuration
+ *
+ * Binds the per-payload-type encrypted field lists and compiles them once at startup;
+ * an invalid JSON pointer fails startup instead of the first request.
+ *
+ * Properties:
+ * - encryption.field-schemas.{type}: JSON pointers of the encrypted fields of a payload type
+ *   ("order" is required: it drives /api/v1/multi-fields/orders)
+ * - encryption.field-decryption.parallelism: Threads decrypting one payload's fields on the shared
+ *   crypto pool, calling thread included (default: 0 = pool parallelism; 1 = always sequential)
+ * - encryption.field-decryption.parallel-threshold: Encrypted fields per payload at or above
+ *   which they are decrypted in parallel (default: 16)
+ * - encryption.field-decryption.parallel-threshold-bytes: Total encoded size of a payload's
+ *   encrypted fields at or above which they are decrypted in parallel (default: 262144)
+ */
+@Configuration
+public class FieldEncryptionSchemaConfig {
+
+  private static final Bindable<Map<String, List<String>>> SCHEMAS = Bindable.of(ResolvableType.forClassWithGenerics(
+      Map.class, ResolvableType.forClass(String.class), ResolvableType.forClassWithGenerics(List.class, String.class)));
+
+  @Bean
+  public ParallelFieldDecryptor parallelFieldDecryptor(
+      @Qualifier("cryptoPool") ForkJoinPool cryptoPool,
+      @Value("${encryption.field-decryption.parallelism:0}") int parallelism,
+      @Value("${encryption.field-decryption.parallel-threshold:16}") int parallelThreshold,
+      @Value("${encryption.field-decryption.parallel-threshold-bytes:262144}") long parallelThresholdBytes
+  ) {
+    return new ParallelFieldDecryptor(cryptoPool, parallelism, parallelThreshold, parallelThresholdBytes);
+  }
+
+  @Bean
+  public FieldEncryptionSchemas fieldEncryptionSchemas(
+      Environment environment,
+      ParallelFieldDecryptor parallelFieldDecryptor,
+      StageMetrics metrics
+  ) {
+    Map<String, List<String>> schemas = Binder.get(environment)
+        .bind("encryption.field-schemas", SCHEMAS)
+        .orElse(Map.of());
+    return new FieldEncryptionSchemas(schemas, parallelFieldDecryptor, metrics.jsonParse(StageMetrics.MULTI_FIELDS));
+  }
+}
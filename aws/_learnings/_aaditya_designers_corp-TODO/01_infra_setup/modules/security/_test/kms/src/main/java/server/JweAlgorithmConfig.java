@@ -0,0 +1,67 @@
+package server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import server._common.kms.EcdhKeyAgreement;
+import server._common.metrics.StageMetrics;
+import server.restapi.encryption.full_payload.crypto.EcdhEsKeyUnwrapper;
+import server.restapi.encryption.full_payload.crypto.JweKeyUnwrapper;
+import server.restapi.encryption.full_payload.crypto.JweKeyUnwrappers;
+import server.restapi.encryption.full_payload.crypto.RsaOaepKeyUnwrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JWE Algorithm Configuration
+ *
+ * Builds the registry of JWE key management algorithms accepted by the all-fields endpoints;
+ * a JWE with any other "alg" is rejected with 400.
+ *
+ * ECDH-ES+A256KW needs an EcdhKeyAgreement bean (the server's key agreement key). The Local KMS
+ * stand-in provides one; with AWS KMS the algorithm is skipped (logged) until a DeriveSharedSecret
+ * implementation is wired, which needs an AWS SDK newer than the pinned 2.21.
+ *
+ * Properties:
+ * - encryption.jwe.algorithms: Accepted "alg" values, RSA-OAEP-256 and/or ECDH-ES+A256KW
+ *   (default: both)
+ */
+@Configuration
+public class JweAlgorithmConfig {
+
+  private static final Logger log = LoggerFactory.getLogger(JweAlgorithmConfig.class);
+
+  @Bean
+  public JweKeyUnwrappers jweKeyUnwrappers(
+      @Value("${encryption.jwe.algorithms:RSA-OAEP-256,ECDH-ES+A256KW}") List<String> algorithms,
+      RsaOaepKeyUnwrapper rsaOaepKeyUnwrapper,
+      ObjectProvider<EcdhKeyAgreement> ecdhKeyAgreement,
+      StageMetrics metrics
+  ) {
+    List<JweKeyUnwrapper> unwrappers = new ArrayList<>();
+    for (String algorithm : algorithms) {
+      switch (algorithm.trim()) {
+        case "RSA-OAEP-256" -> unwrappers.add(rsaOaepKeyUnwrapper);
+        case "ECDH-ES+A256KW" -> {
+          EcdhKeyAgreement keyAgreement = ecdhKeyAgreement.getIfAvailable();
+          if (keyAgreement == null) {
+            log.info("ECDH-ES+A256KW disabled: no key agreement key configured (Local KMS only)");
+          } else {
+            EcdhEsKeyUnwrapper unwrapper = new EcdhEsKeyUnwrapper(keyAgreement, metrics);
+            log.info("ECDH-ES+A256KW enabled on {}", unwrapper.curve());
+            unwrappers.add(unwrapper);
+          }
+        }
+        default -> throw new IllegalArgumentException("Unsupported encryption.jwe.algorithms entry: " + algorithm);
+      }
+    }
+    if (unwrappers.isEmpty()) {
+      throw new IllegalArgumentException("encryption.jwe.algorithms enables no usable algorithm");
+    }
+    return new JweKeyUnwrappers(unwrappers);
+  }
+}
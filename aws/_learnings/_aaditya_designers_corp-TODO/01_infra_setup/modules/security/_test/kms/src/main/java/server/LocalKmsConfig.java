@@ -0,0 +1,66 @@
+package server;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import server._common.kms.EcdhKeyAgreement;
+import server._common.kms.local.LocalKms;
+import server._common.kms.local.LocalKmsAsyncClient;
+import server._common.kms.local.LocalKmsClient;
+import server._common.kms.local.LocalKmsEcdhKeyAgreement;
+import software.amazon.awssdk.services.kms.KmsAsyncClient;
+import software.amazon.awssdk.services.kms.KmsClient;
+
+/**
+ * Local KMS Configuration (offline load and integration testing)
+ *
+ * Replaces the AWS KMS client beans with in-process stand-ins when aws.kms.local.enabled=true
+ * (AwsKmsConfig is skipped). No AWS credentials or network access are needed.
+ *
+ * Example: AWS_KMS_LOCAL_ENABLED=true AWS_KMS_LOCAL_LATENCY_MS=20 ./gradlew bootRun
+ *
+ * Properties:
+ * - aws.kms.local.enabled: Use the Local KMS stand-in (default: false)
+ * - aws.kms.local.private-key-path: PKCS#8 PEM private key matching the clients' public-key.pem
+ *   (default: empty = generate an RSA-4096 key pair at startup)
+ * - aws.kms.local.public-key-path: Where to write the matching public key PEM (default: empty = skip)
+ * - aws.kms.local.ecdh-curve: Curve of the ECDH key pair for ECDH-ES+A256KW, P-256 or P-384 (default: P-256)
+ * - aws.kms.local.latency-ms: Mean latency per KMS call (default: 0)
+ * - aws.kms.local.jitter-ms: Uniform jitter around the latency (default: 0)
+ * - aws.kms.local.throttle-rate: Fraction of calls failing with ThrottlingException (default: 0.0)
+ * - aws.kms.local.error-rate: Fraction of calls failing with KMSInternalException (default: 0.0)
+ */
+@Configuration
+@ConditionalOnProperty(name = "aws.kms.local.enabled", havingValue = "true")
+public class LocalKmsConfig {
+
+  @Bean
+  public LocalKms localKms(
+      @Value("${aws.kms.local.private-key-path:}") String privateKeyPath,
+      @Value("${aws.kms.local.public-key-path:}") String publicKeyPath,
+      @Value("${aws.kms.local.ecdh-curve:P-256}") String ecdhCurve,
+      @Value("${aws.kms.local.latency-ms:0}") long latencyMs,
+      @Value("${aws.kms.local.jitter-ms:0}") long jitterMs,
+      @Value("${aws.kms.local.throttle-rate:0.0}") double throttleRate,
+      @Value("${aws.kms.local.error-rate:0.0}") double errorRate
+  ) {
+    return LocalKms.create(privateKeyPath, publicKeyPath, ecdhCurve,
+        new LocalKms.FaultProfile(latencyMs, jitterMs, throttleRate, errorRate));
+  }
+
+  @Bean
+  public KmsClient kmsClient(LocalKms localKms) {
+    return new LocalKmsClient(localKms);
+  }
+
+  @Bean
+  public KmsAsyncClient kmsAsyncClient(LocalKms localKms) {
+    return new LocalKmsAsyncClient(localKms);
+  }
+
+  @Bean
+  public EcdhKeyAgreement ecdhKeyAgreement(LocalKms localKms) {
+    return new LocalKmsEcdhKeyAgreement(localKms);
+  }
+}
@@ -0,0 +1,82 @@
+package server;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import server._common.kms.KmsCallGuard;
+import server._common.kms.KmsCircuitBreaker;
+import server._common.kms.UnwrappedKeyCache;
+
+/**
+ * Metrics Configuration
+ *
+ * Request stages are timed by StageMetrics (kms.request, crypto.*, order.*); this binds the
+ * counters the unwrapped key cache already keeps, so a KMS call rate can be read against the
+ * hits that avoided it:
+ * - kms.key.cache.requests{result=hit|miss}: cache lookups (a miss is 1 kms.request, unless coalesced)
+ * - kms.key.cache.coalesced: misses that joined an in-flight KMS call instead of making their own
+ * - kms.key.cache.evictions: entries dropped for size or TTL
+ * - kms.key.cache.size: cached keys
+ *
+ * and the state of the KMS resilience layer (KmsCallGuard, KmsCircuitBreaker):
+ * - kms.circuit.state{state=closed|open|half_open}: 1 for the current state, 0 for the others
+ * - kms.circuit.transitions{state}: times the breaker entered the state
+ * - kms.call.rejections{reason=circuit_open|deadline}: KMS calls not made, answered 503
+ * (SDK retries are counted as kms.request.retries, see AwsKmsConfig)
+ *
+ * Exposed at /actuator/prometheus (management.endpoints.web.exposure.include). Percentile
+ * histograms are enabled per meter prefix with management.metrics.distribution.percentiles-histogram.*
+ */
+@Configuration
+public class MetricsConfig {
+
+  @Bean
+  public MeterBinder unwrappedKeyCacheMetrics(UnwrappedKeyCache unwrappedKeyCache) {
+    return registry -> {
+      FunctionCounter.builder("kms.key.cache.requests", unwrappedKeyCache, UnwrappedKeyCache::hitCount)
+          .description("Unwrapped key cache lookups")
+          .tag("result", "hit")
+          .register(registry);
+      FunctionCounter.builder("kms.key.cache.requests", unwrappedKeyCache, UnwrappedKeyCache::missCount)
+          .description("Unwrapped key cache lookups")
+          .tag("result", "miss")
+          .register(registry);
+      FunctionCounter.builder("kms.key.cache.coalesced", unwrappedKeyCache, UnwrappedKeyCache::coalescedCount)
+          .description("Cache misses that joined an in-flight KMS call")
+          .register(registry);
+      FunctionCounter.builder("kms.key.cache.evictions", unwrappedKeyCache, UnwrappedKeyCache::evictionCount)
+          .description("Entries evicted for size or TTL")
+          .register(registry);
+      Gauge.builder("kms.key.cache.size", unwrappedKeyCache, UnwrappedKeyCache::size)
+          .description("Cached unwrapped keys")
+          .register(registry);
+    };
+  }
+
+  @Bean
+  public MeterBinder kmsResilienceMetrics(KmsCircuitBreaker circuitBreaker, KmsCallGuard kmsCallGuard) {
+    return registry -> {
+      for (KmsCircuitBreaker.State state : KmsCircuitBreaker.State.values()) {
+        String tag = state.name().toLowerCase();
+        Gauge.builder("kms.circuit.state", circuitBreaker, breaker -> breaker.state() == state ? 1 : 0)
+            .description("KMS circuit breaker state (1 = current)")
+            .tag("state", tag)
+            .register(registry);
+        FunctionCounter.builder("kms.circuit.transitions", circuitBreaker, breaker -> breaker.transitionCount(state))
+            .description("KMS circuit breaker transitions into the state")
+            .tag("state", tag)
+            .register(registry);
+      }
+      FunctionCounter.builder("kms.call.rejections", kmsCallGuard, KmsCallGuard::circuitOpenRejections)
+          .description("KMS calls not made")
+          .tag("reason", "circuit_open")
+          .register(registry);
+      FunctionCounter.builder("kms.call.rejections", kmsCallGuard, KmsCallGuard::deadlineRejections)
+          .description("KMS calls not made")
+          .tag("reason", "deadline")
+          .register(registry);
+    };
+  }
+}
@@ -9,7 +9,8 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * <h2>Packages:</h2>
  * <ul>
  *   <li><b>restapi</b> - PII data protection for REST API payloads</li>
- *   <li><b>file_security</b> - File encryption/decryption (coming soon)</li>
+ *   <li><b>file_security</b> - Segmented (STREAM) AES-256-GCM encryption of large files, one
+ *       KMS-wrapped DEK per file</li>
  * </ul>
  *
  * <h2>REST API Security Flow (3rd Party WITHOUT AWS Account):</h2>
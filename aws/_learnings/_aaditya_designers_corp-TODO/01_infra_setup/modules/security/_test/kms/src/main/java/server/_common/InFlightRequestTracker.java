@@ -0,0 +1,79 @@
+package server._common;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks how many requests are in flight, including async requests still waiting on KMS.
+ *
+ * <p>Used to compare the platform-thread baseline with the virtual-thread and async KMS
+ * modes: the peak shows how many orders the server actually held concurrently.</p>
+ */
+@Component
+public class InFlightRequestTracker extends OncePerRequestFilter {
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger peakInFlight = new AtomicInteger();
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    boolean asyncStarted = false;
+    try {
+      filterChain.doFilter(request, response);
+      asyncStarted = request.isAsyncStarted();
+      if (asyncStarted) {
+        // Async requests end when the CompletableFuture completes, not when this thread returns
+        request.getAsyncContext().addListener(new AsyncCompletionListener());
+      }
+    } finally {
+      if (!asyncStarted) {
+        inFlight.decrementAndGet();
+      }
+    }
+  }
+
+  public int currentInFlight() {
+    return inFlight.get();
+  }
+
+  public int peakInFlight() {
+    return peakInFlight.get();
+  }
+
+  public void resetPeak() {
+    peakInFlight.set(inFlight.get());
+  }
+
+  private class AsyncCompletionListener implements AsyncListener {
+    @Override
+    public void onComplete(AsyncEvent event) {
+      inFlight.decrementAndGet();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      // onComplete follows
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      // onComplete follows
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      event.getAsyncContext().addListener(this);
+    }
+  }
+}
@@ -1,7 +1,11 @@
 package server._common;
 
 import com.google.gson.JsonObject;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import server._common.kms.KmsCallGuard;
+
+import java.util.concurrent.CompletionException;
 
 /**
  * Common utility methods for REST API data security.
@@ -24,15 +28,31 @@ public class Utils {
     return response;
   }
 
+  /**
+   * Status of a request that failed while being processed.
+   *
+   * @param failure The failure (wrapped or not)
+   * @return 503 if KMS was unavailable for it (circuit open, deadline exhausted, KMS failing),
+   *         else 400
+   */
+  public HttpStatus failureStatus(Throwable failure) {
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof KmsCallGuard.KmsUnavailableException) {
+        return HttpStatus.SERVICE_UNAVAILABLE;
+      }
+    }
+    return HttpStatus.BAD_REQUEST;
+  }
+
   /**
    * Truncates a string to the specified maximum length, appending "..." if truncated.
    *
    * @param str    The input string
    * @param maxLen The maximum length
-   * @return The truncated string with "..." if it was longer than maxLen
+   * @return The truncated string with "..." if it was longer than maxLen (null stays null)
    */
   public String truncate(String str, int maxLen) {
-    return str.length() > maxLen ? str.substring(0, maxLen) + "..." : str;
+    return str != null && str.length() > maxLen ? str.substring(0, maxLen) + "..." : str;
   }
 
   /**
@@ -56,4 +76,16 @@ public class Utils {
     if (ssn == null || ssn.length() < 4) return "***-**-****";
     return "***-**-" + ssn.substring(ssn.length() - 4);
   }
+
+  /**
+   * Unwraps the CompletionException that CompletableFuture stages wrap failures in.
+   *
+   * @param throwable The failure passed to a CompletableFuture handler
+   * @return The original exception
+   */
+  public Throwable unwrap(Throwable throwable) {
+    return throwable instanceof CompletionException && throwable.getCause() != null
+        ? throwable.getCause()
+        : throwable;
+  }
 }
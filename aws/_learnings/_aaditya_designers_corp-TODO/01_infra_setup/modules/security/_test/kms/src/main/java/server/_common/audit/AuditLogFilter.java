@@ -0,0 +1,162 @@
+package server._common.audit;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Audit Log Filter - One structured, sampled log event per API request, off the hot path.
+ *
+ * <h2>Instead of Request / Response Body log lines</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  logger "audit" INFO disabled  → filter skipped (level guard)          │
+ * │  request completes (sync, or async after the KMS callback)             │
+ * │    rate = sample-rates[pattern] ?: sample-rate                         │
+ * │    status >= 400 and always-log-errors  → logged                       │
+ * │    else random() < rate                  → logged                      │
+ * │                                                                        │
+ * │  INFO audit - request endpoint="POST /api/v1/multi-fields/orders"      │
+ * │       status=200 durationMs=23.41 requestBytes=512 sampleRate=0.01     │
+ * │       (+ requestBody / responseBody with include-bodies, truncated)    │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <p>Fields are SLF4J key-value pairs: printed by %kvp in the console pattern, and emitted as
+ * JSON fields with logging.structured.format.console (ecs, logstash). The "audit" logger writes
+ * through an AsyncAppender (logback-spring.xml), so the request thread only enqueues the event.</p>
+ *
+ * <p>Bodies are never serialized for auditing: controllers hand over the Strings they already
+ * hold via {@link AuditRecord}, and only when audit.log.include-bodies=true. They still carry
+ * ciphertext and masked PII: keep include-bodies off outside local debugging.</p>
+ */
+public class AuditLogFilter extends OncePerRequestFilter {
+
+  private static final Logger audit = LoggerFactory.getLogger("audit");
+  private static final String AUDITED_PATH_PREFIX = "/api/";
+  private static final String UNMATCHED = "unmatched";
+
+  private final double sampleRate;
+  private final Map<String, Double> sampleRates;
+  private final boolean alwaysLogErrors;
+  private final boolean includeBodies;
+  private final int maxBodyChars;
+
+  /**
+   * @param sampleRate      Fraction of requests logged (0.0 - 1.0)
+   * @param sampleRates     Path pattern (e.g. /api/v1/all-fields/orders) → rate overriding sampleRate
+   * @param alwaysLogErrors Log every 4xx / 5xx regardless of the rate
+   * @param includeBodies   Add the (truncated) request and response bodies
+   * @param maxBodyChars    Truncation length of logged bodies
+   */
+  public AuditLogFilter(double sampleRate, Map<String, Double> sampleRates, boolean alwaysLogErrors,
+                        boolean includeBodies, int maxBodyChars) {
+    this.sampleRate = sampleRate;
+    this.sampleRates = Map.copyOf(sampleRates);
+    this.alwaysLogErrors = alwaysLogErrors;
+    this.includeBodies = includeBodies;
+    this.maxBodyChars = maxBodyChars;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !audit.isInfoEnabled() || !request.getRequestURI().startsWith(AUDITED_PATH_PREFIX);
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    long startNanos = System.nanoTime();
+    if (includeBodies) {
+      request.setAttribute(AuditRecord.ATTRIBUTE, new AuditRecord(true));
+    }
+    boolean asyncStarted = false;
+    try {
+      filterChain.doFilter(request, response);
+      asyncStarted = request.isAsyncStarted();
+      if (asyncStarted) {
+        // Async requests end when the CompletableFuture completes, not when this thread returns
+        request.getAsyncContext().addListener(new AsyncCompletionListener(request, response, startNanos));
+      }
+    } finally {
+      if (!asyncStarted) {
+        complete(request, response, startNanos);
+      }
+    }
+  }
+
+  private void complete(HttpServletRequest request, HttpServletResponse response, long startNanos) {
+    String pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE) instanceof String matched
+        ? matched : UNMATCHED;
+    int status = response.getStatus();
+    double rate = sampleRates.getOrDefault(pattern, sampleRate);
+    if (!(alwaysLogErrors && status >= 400) && ThreadLocalRandom.current().nextDouble() >= rate) {
+      return;
+    }
+
+    LoggingEventBuilder event = audit.atInfo()
+        .addKeyValue("endpoint", request.getMethod() + " " + pattern)
+        .addKeyValue("status", status)
+        .addKeyValue("durationMs", Math.round((System.nanoTime() - startNanos) / 10_000.0) / 100.0)
+        .addKeyValue("requestBytes", request.getContentLengthLong())
+        .addKeyValue("sampleRate", rate);
+    AuditRecord record = AuditRecord.of(request);
+    if (record.requestBody() != null) {
+      event = event.addKeyValue("requestBody", truncate(record.requestBody()));
+    }
+    if (record.responseBody() != null) {
+      event = event.addKeyValue("responseBody", truncate(record.responseBody()));
+    }
+    event.log("request");
+  }
+
+  private String truncate(String body) {
+    return body.length() > maxBodyChars ? body.substring(0, maxBodyChars) + "..." : body;
+  }
+
+  private class AsyncCompletionListener implements AsyncListener {
+
+    private final HttpServletRequest request;
+    private final HttpServletResponse response;
+    private final long startNanos;
+
+    AsyncCompletionListener(HttpServletRequest request, HttpServletResponse response, long startNanos) {
+      this.request = request;
+      this.response = response;
+      this.startNanos = startNanos;
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      complete(request, response, startNanos);
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      // onComplete follows
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      // onComplete follows
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      event.getAsyncContext().addListener(this);
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package server._common.audit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.function.Supplier;
+
+/**
+ * Audit Record - Bodies of the current request, handed to the audit log only when enabled.
+ *
+ * <p>Controllers pass the request body and serialized response body they already hold; bodies
+ * written straight to the response are serialized for auditing only when included. With
+ * audit.log.include-bodies=false (the default) every call is a no-op on {@link #NONE}.</p>
+ *
+ * <p>Obtain it on the request thread ({@link #current()}) and keep the reference for async
+ * completions: the request context is not available on the KMS callback thread.</p>
+ */
+public final class AuditRecord {
+
+  static final String ATTRIBUTE = AuditRecord.class.getName();
+
+  /** Shared no-op record: bodies are not audited, or the request is not audited at all */
+  public static final AuditRecord NONE = new AuditRecord(false);
+
+  private final boolean includeBodies;
+  private volatile String requestBody;
+  private volatile String responseBody;
+
+  AuditRecord(boolean includeBodies) {
+    this.includeBodies = includeBodies;
+  }
+
+  /**
+   * @return The record of the request being handled on this thread, else {@link #NONE}
+   */
+  public static AuditRecord current() {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    Object record = attributes == null ? null : attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    return record instanceof AuditRecord auditRecord ? auditRecord : NONE;
+  }
+
+  static AuditRecord of(HttpServletRequest request) {
+    return request.getAttribute(ATTRIBUTE) instanceof AuditRecord auditRecord ? auditRecord : NONE;
+  }
+
+  public void requestBody(String body) {
+    if (includeBodies) {
+      requestBody = body;
+    }
+  }
+
+  public void responseBody(String body) {
+    if (includeBodies) {
+      responseBody = body;
+    }
+  }
+
+  /**
+   * @param body Serializes the response body, called only when bodies are audited (responses
+   *             written without an intermediate String)
+   */
+  public void responseBody(Supplier<String> body) {
+    if (includeBodies) {
+      responseBody = body.get();
+    }
+  }
+
+  String requestBody() {
+    return requestBody;
+  }
+
+  String responseBody() {
+    return responseBody;
+  }
+}
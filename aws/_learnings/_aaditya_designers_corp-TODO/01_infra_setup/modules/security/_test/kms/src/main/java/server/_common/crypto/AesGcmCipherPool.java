@@ -0,0 +1,194 @@
+package server._common.crypto;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * AES-GCM Cipher Pool - Reuses "AES/GCM/NoPadding" Cipher instances across requests.
+ *
+ * <h2>Borrow → Init → Use → Return</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  1. borrow: poll an idle Cipher, or Cipher.getInstance() if none idle  │
+ * │  2. operation: cipher.init(mode, key, GCMParameterSpec) → doFinal()    │
+ * │  3. return: offer back to the pool (dropped if max-idle reached)       │
+ * │                                                                        │
+ * │  Operation throws → Cipher is discarded, never returned                │
+ * │                                                                        │
+ * │  Each pooled Cipher carries Scratch input/output ByteBuffers, so the   │
+ * │  decrypt path can decode into and decrypt out of reused memory         │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <h3>Why a Pool (not ThreadLocal):</h3>
+ * <ul>
+ *   <li>With spring.threads.virtual.enabled=true every request runs on a new virtual thread,
+ *       so a ThreadLocal Cipher would be created once per request and never reused</li>
+ *   <li>The pool is bounded by concurrency, not by the number of threads ever created</li>
+ *   <li>ArrayBlockingQueue uses a ReentrantLock, so it never pins a virtual thread's carrier</li>
+ * </ul>
+ *
+ * <h3>GCM Re-init Semantics:</h3>
+ * <ul>
+ *   <li>Every operation must call {@code cipher.init(...)} with the key and IV of the message
+ *       before use: init fully resets the previous key, IV and AAD</li>
+ *   <li>For DECRYPT_MODE re-init with any key/IV is always allowed; for ENCRYPT_MODE the JDK
+ *       rejects re-using the previous key + IV pair, so callers must pass a fresh IV</li>
+ * </ul>
+ *
+ * <p>Properties:</p>
+ * <ul>
+ *   <li>encryption.cipher-pool.enabled: Reuse Cipher instances (default: true)</li>
+ *   <li>encryption.cipher-pool.max-idle: Maximum idle Ciphers kept (default: 256)</li>
+ *   <li>encryption.cipher-pool.max-scratch-bytes: Largest scratch buffer kept per Cipher; larger
+ *       messages use a one-off buffer (default: 65536)</li>
+ * </ul>
+ */
+@Component
+public class AesGcmCipherPool {
+
+  private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+  private static final int INITIAL_SCRATCH_BYTES = 1024;
+
+  private final boolean enabled;
+  private final int maxScratchBytes;
+  private final BlockingQueue<PooledCipher> idleCiphers;
+
+  /**
+   * Runs on a borrowed Cipher; must init it before use.
+   */
+  @FunctionalInterface
+  public interface CipherOperation<T> {
+    T apply(Cipher cipher) throws GeneralSecurityException;
+  }
+
+  /**
+   * Runs on a borrowed Cipher and its scratch buffers; must init the Cipher before use.
+   */
+  @FunctionalInterface
+  public interface ScratchOperation<T> {
+    T apply(Cipher cipher, Scratch scratch) throws GeneralSecurityException;
+  }
+
+  public AesGcmCipherPool(
+      @Value("${encryption.cipher-pool.enabled:true}") boolean enabled,
+      @Value("${encryption.cipher-pool.max-idle:256}") int maxIdle,
+      @Value("${encryption.cipher-pool.max-scratch-bytes:65536}") int maxScratchBytes
+  ) {
+    this.enabled = enabled;
+    this.maxScratchBytes = maxScratchBytes;
+    this.idleCiphers = new ArrayBlockingQueue<>(Math.max(1, maxIdle));
+  }
+
+  /**
+   * Runs the operation on a pooled Cipher.
+   *
+   * @param operation Initializes and uses the Cipher
+   * @return The operation result
+   * @throws GeneralSecurityException If the operation fails (e.g. AEADBadTagException)
+   */
+  public <T> T execute(CipherOperation<T> operation) throws GeneralSecurityException {
+    PooledCipher pooled = borrow();
+    T result = operation.apply(pooled.cipher);
+    release(pooled);
+    return result;
+  }
+
+  /**
+   * Runs the operation on a pooled Cipher together with its reusable scratch buffers.
+   *
+   * @param operation Initializes and uses the Cipher; may use the scratch buffers until it returns
+   * @return The operation result (must not reference the scratch buffers)
+   * @throws GeneralSecurityException If the operation fails (e.g. AEADBadTagException)
+   */
+  public <T> T executeWithScratch(ScratchOperation<T> operation) throws GeneralSecurityException {
+    PooledCipher pooled = borrow();
+    T result = operation.apply(pooled.cipher, pooled.scratch);
+    pooled.scratch.trim(maxScratchBytes);
+    release(pooled);
+    return result;
+  }
+
+  /**
+   * @return Number of idle Ciphers currently pooled
+   */
+  public int idleCount() {
+    return idleCiphers.size();
+  }
+
+  private PooledCipher borrow() throws GeneralSecurityException {
+    PooledCipher pooled = enabled ? idleCiphers.poll() : null;
+    return pooled != null ? pooled : new PooledCipher(Cipher.getInstance(TRANSFORMATION), new Scratch());
+  }
+
+  private void release(PooledCipher pooled) {
+    if (enabled) {
+      idleCiphers.offer(pooled);
+    }
+  }
+
+  private record PooledCipher(Cipher cipher, Scratch scratch) {
+  }
+
+  /**
+   * Reusable heap buffers of one pooled Cipher: ciphertext in, plaintext out.
+   *
+   * <p>Buffers grow on demand; after the operation, any buffer above max-scratch-bytes is
+   * replaced so one large message does not pin its buffer for the pool's lifetime.</p>
+   */
+  public static final class Scratch {
+
+    private ByteBuffer input = ByteBuffer.allocate(INITIAL_SCRATCH_BYTES);
+    private ByteBuffer output = ByteBuffer.allocate(INITIAL_SCRATCH_BYTES);
+
+    /**
+     * @return The cleared input buffer with at least {@code capacity} bytes (backing array at offset 0)
+     */
+    public ByteBuffer input(int capacity) {
+      if (input.capacity() < capacity) {
+        input = ByteBuffer.allocate(capacity);
+      }
+      return input.clear();
+    }
+
+    /**
+     * @return The cleared output buffer with at least {@code capacity} bytes (backing array at offset 0)
+     */
+    public ByteBuffer output(int capacity) {
+      if (output.capacity() < capacity) {
+        output = ByteBuffer.allocate(capacity);
+      }
+      return output.clear();
+    }
+
+    /**
+     * Decodes the first {@code length} output bytes as UTF-8, then zeroizes them so plaintext
+     * does not linger in the pooled buffer.
+     */
+    public String outputAsUtf8(int length) {
+      byte[] bytes = output.array();
+      try {
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+      } finally {
+        Arrays.fill(bytes, 0, length, (byte) 0);
+      }
+    }
+
+    private void trim(int maxScratchBytes) {
+      if (input.capacity() > maxScratchBytes) {
+        input = ByteBuffer.allocate(INITIAL_SCRATCH_BYTES);
+      }
+      if (output.capacity() > maxScratchBytes) {
+        output = ByteBuffer.allocate(INITIAL_SCRATCH_BYTES);
+      }
+    }
+  }
+}
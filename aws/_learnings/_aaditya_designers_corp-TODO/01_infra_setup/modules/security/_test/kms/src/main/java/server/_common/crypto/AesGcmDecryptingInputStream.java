@@ -0,0 +1,234 @@
+package server._common.crypto;
+
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.modes.GCMBlockCipher;
+import org.bouncycastle.crypto.modes.GCMModeCipher;
+import org.bouncycastle.crypto.modes.gcm.BasicGCMMultiplier;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+/**
+ * AES-GCM Decrypting InputStream - Decrypts {@code BASE64URL(ciphertext).BASE64URL(tag)} chunk by chunk.
+ *
+ * <h2>Bounded-Memory GCM</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  Cipher("AES/GCM") in DECRYPT_MODE buffers the whole ciphertext until  │
+ * │  doFinal, so it cannot stream. BouncyCastle's GCMBlockCipher does:     │
+ * │                                                                        │
+ * │  per chunk (8K chars):  Base64URL decode → ciphertext                  │
+ * │                         gcm.processBytes → plaintext → read()          │
+ * │                         (the last 16 bytes are held back: maybe tag)   │
+ * │                                                                        │
+ * │  at '.':                gcm.processBytes(tag), gcm.doFinal             │
+ * │                         tag mismatch → read() throws (Tag mismatch)    │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <h3>Constant-Time GHASH:</h3>
+ * <p>The GCM uses {@link BasicGCMMultiplier}: a branch- and table-free GF(2^128) multiply.
+ * The key cache hands the same CEK (so the same hash subkey H) to every request that resends
+ * one wrapped key, so a client can submit any number of forgeries under one H; table-driven
+ * multipliers would leak H through cache timing.</p>
+ *
+ * <h3>Unverified Plaintext:</h3>
+ * <p>Bytes are returned before the tag is checked. Callers must read to EOF and discard
+ * everything derived from the stream if any read throws; only a clean EOF means the
+ * plaintext was authentic.</p>
+ *
+ * <p>Memory per stream is fixed (a few chunk buffers) regardless of the ciphertext size.</p>
+ */
+public final class AesGcmDecryptingInputStream extends InputStream {
+
+  private static final int IV_SIZE_BYTES = 12;
+  private static final int TAG_SIZE_BYTES = 16;
+  private static final int CHUNK_CHARS = 8192;
+  private static final int MAX_TAG_CHARS = 32;
+  /** NIST SP 800-38D: at most 2^32 - 2 blocks of plaintext per IV. */
+  private static final long MAX_CIPHERTEXT_BYTES = ((1L << 32) - 2) * 16;
+
+  private final Reader source;
+  private final GCMModeCipher gcm;
+
+  private final char[] chars = new char[CHUNK_CHARS];
+  private final CharBuffer charSequence = CharBuffer.wrap(chars);
+  private final byte[] ciphertext = new byte[Base64Decoder.maxDecodedLength(CHUNK_CHARS)];
+  // One chunk plus what GCM held back from the previous ones (tag-sized tail + partial block)
+  private final byte[] plaintext = new byte[Base64Decoder.maxDecodedLength(CHUNK_CHARS) + 2 * TAG_SIZE_BYTES];
+  private final StringBuilder encodedTag = new StringBuilder(MAX_TAG_CHARS);
+  private int carriedChars;
+  private int plaintextPosition;
+  private int plaintextLimit;
+  private long ciphertextBytes;
+  private boolean ciphertextDone;
+
+  /**
+   * @param source Positioned at the ciphertext: {@code BASE64URL(ciphertext) '.' BASE64URL(tag)} then EOF
+   * @param key    The AES key (CEK)
+   * @param iv     The 96-bit GCM IV
+   * @param aad    The additional authenticated data
+   * @throws GeneralSecurityException If the key or IV is unusable
+   */
+  public AesGcmDecryptingInputStream(Reader source, SecretKey key, byte[] iv, byte[] aad)
+      throws GeneralSecurityException {
+    if (iv.length != IV_SIZE_BYTES) {
+      throw new GeneralSecurityException("GCM IV must be " + IV_SIZE_BYTES + " bytes, got " + iv.length);
+    }
+    this.source = source;
+    this.gcm = GCMBlockCipher.newInstance(AESEngine.newInstance(), new BasicGCMMultiplier());
+    try {
+      this.gcm.init(false, new AEADParameters(new KeyParameter(key.getEncoded()), TAG_SIZE_BYTES * 8, iv, aad));
+    } catch (IllegalArgumentException e) {
+      throw new GeneralSecurityException("Invalid AES-GCM key: " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!fill()) {
+      return -1;
+    }
+    return plaintext[plaintextPosition++] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    if (!fill()) {
+      return -1;
+    }
+    int count = Math.min(length, plaintextLimit - plaintextPosition);
+    System.arraycopy(plaintext, plaintextPosition, buffer, offset, count);
+    plaintextPosition += count;
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return plaintextLimit - plaintextPosition;
+  }
+
+  @Override
+  public void close() throws IOException {
+    Arrays.fill(plaintext, (byte) 0);
+    plaintextPosition = plaintextLimit = 0;
+    source.close();
+  }
+
+  /**
+   * Decrypts the next chunk once the current one is consumed.
+   *
+   * @return false at EOF (tag verified)
+   */
+  private boolean fill() throws IOException {
+    while (plaintextPosition == plaintextLimit) {
+      if (ciphertextDone) {
+        return false;
+      }
+
+      int read = source.read(chars, carriedChars, CHUNK_CHARS - carriedChars);
+      if (read < 0) {
+        throw new IOException("Truncated ciphertext: missing authentication tag");
+      }
+      int end = carriedChars + read;
+      int dot = indexOf('.', carriedChars, end);
+      int decodeEnd;
+      if (dot >= 0) {
+        decodeEnd = dot;
+        encodedTag.append(chars, dot + 1, end - dot - 1);
+        ciphertextDone = true;
+      } else {
+        // Only whole 4-char groups; the rest is carried into the next chunk
+        decodeEnd = end - end % 4;
+      }
+
+      int length = decode(decodeEnd);
+      carriedChars = dot >= 0 ? 0 : end - decodeEnd;
+      System.arraycopy(chars, decodeEnd, chars, 0, carriedChars);
+
+      ciphertextBytes += length;
+      if (ciphertextBytes > MAX_CIPHERTEXT_BYTES) {
+        throw new IOException("Ciphertext exceeds the GCM limit of " + MAX_CIPHERTEXT_BYTES + " bytes");
+      }
+      plaintextLimit = gcm.processBytes(ciphertext, 0, length, plaintext, 0);
+      plaintextPosition = 0;
+
+      if (ciphertextDone) {
+        plaintextLimit += verifyTag(plaintextLimit);
+      }
+    }
+    return true;
+  }
+
+  private int decode(int decodeEnd) throws IOException {
+    try {
+      return Base64Decoder.URL.decode(charSequence, 0, decodeEnd, ciphertext, 0);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Invalid ciphertext encoding: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Feeds the tag to the GCM and verifies it.
+   *
+   * @param plaintextOffset Where the plaintext GCM held back is written
+   * @return Number of held-back plaintext bytes released
+   */
+  private int verifyTag(int plaintextOffset) throws IOException {
+    int c;
+    while (encodedTag.length() <= MAX_TAG_CHARS && (c = source.read()) >= 0) {
+      encodedTag.append((char) c);
+    }
+    int tagEnd = encodedTag.length();
+    while (tagEnd > 0 && Character.isWhitespace(encodedTag.charAt(tagEnd - 1))) {
+      tagEnd--;
+    }
+    if (tagEnd > MAX_TAG_CHARS) {
+      throw new IOException("Invalid authentication tag segment");
+    }
+
+    byte[] tag = new byte[Base64Decoder.maxDecodedLength(MAX_TAG_CHARS)];
+    int tagLength;
+    try {
+      tagLength = Base64Decoder.URL.decode(encodedTag, 0, tagEnd, tag, 0);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Invalid authentication tag encoding: " + e.getMessage(), e);
+    }
+
+    if (tagLength != TAG_SIZE_BYTES) {
+      throw tagMismatch();
+    }
+    try {
+      int released = gcm.processBytes(tag, 0, TAG_SIZE_BYTES, plaintext, plaintextOffset);
+      return released + gcm.doFinal(plaintext, plaintextOffset + released);
+    } catch (InvalidCipherTextException e) {
+      throw tagMismatch();
+    }
+  }
+
+  /** Same message as the JDK's GCM so callers see one error for forged payloads. */
+  private static IOException tagMismatch() {
+    return new IOException("Tag mismatch", new AEADBadTagException("Tag mismatch"));
+  }
+
+  private int indexOf(char target, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (chars[i] == target) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
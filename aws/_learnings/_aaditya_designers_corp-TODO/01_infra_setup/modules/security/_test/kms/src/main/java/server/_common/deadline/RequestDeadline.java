@@ -0,0 +1,60 @@
+package server._common.deadline;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+
+/**
+ * Request Deadline - The point in time by which the current request must be answered.
+ *
+ * <p>Set by {@link RequestDeadlineFilter} when an /api/** request arrives; downstream calls
+ * (KMS, see KmsCallGuard) take their timeout from what is left instead of a fixed value, so a
+ * request never waits on a dependency longer than its caller is willing to wait for it.</p>
+ *
+ * <p>Read it on the request thread ({@link #current()}): the request context is not available
+ * on KMS callback or worker threads. Outside a request it is {@link #NONE} (no deadline).</p>
+ */
+public final class RequestDeadline {
+
+  static final String ATTRIBUTE = RequestDeadline.class.getName();
+
+  /** No deadline: outside a request (startup, benchmarks) */
+  public static final RequestDeadline NONE = new RequestDeadline(0, false);
+
+  private final long deadlineNanos;
+  private final boolean bounded;
+
+  private RequestDeadline(long deadlineNanos, boolean bounded) {
+    this.deadlineNanos = deadlineNanos;
+    this.bounded = bounded;
+  }
+
+  /**
+   * @param budget Time the request may take from now
+   * @return The deadline budget from now
+   */
+  public static RequestDeadline after(Duration budget) {
+    return new RequestDeadline(System.nanoTime() + budget.toNanos(), true);
+  }
+
+  /**
+   * @return The deadline of the request being handled on this thread, else {@link #NONE}
+   */
+  public static RequestDeadline current() {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    Object deadline = attributes == null ? null : attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    return deadline instanceof RequestDeadline requestDeadline ? requestDeadline : NONE;
+  }
+
+  public boolean isBounded() {
+    return bounded;
+  }
+
+  /**
+   * @return Time left (negative once passed); only meaningful when {@link #isBounded()}
+   */
+  public Duration remaining() {
+    return Duration.ofNanos(deadlineNanos - System.nanoTime());
+  }
+}
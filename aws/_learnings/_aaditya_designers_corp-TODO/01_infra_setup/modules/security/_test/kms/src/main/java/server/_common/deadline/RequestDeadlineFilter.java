@@ -0,0 +1,78 @@
+package server._common.deadline;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Request Deadline Filter - Starts the time budget of every /api/** request.
+ *
+ * <h2>Budget</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  X-Request-Timeout-Ms: 800   → budget = min(800, max-ms)               │
+ * │  (absent or not a number)    → budget = default-ms                     │
+ * │                                                                        │
+ * │  deadline = arrival + budget  → RequestDeadline request attribute      │
+ * │  KMS call: apiCallTimeout = min(deadline - now, aws.kms.api-call-      │
+ * │            timeout-ms); too little left → 503 without calling KMS      │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <p>Callers (gateways, client SDKs) forward the time they have left, so work they have
+ * already given up on is not started.</p>
+ *
+ * <p>Properties:</p>
+ * <ul>
+ *   <li>request.deadline.default-ms: Budget of a request without the header (default: 5000)</li>
+ *   <li>request.deadline.max-ms: Largest budget a caller may ask for (default: 30000)</li>
+ * </ul>
+ */
+@Component
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+  public static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+  private static final String DEADLINE_PATH_PREFIX = "/api/";
+
+  private final long defaultBudgetMs;
+  private final long maxBudgetMs;
+
+  public RequestDeadlineFilter(
+      @Value("${request.deadline.default-ms:5000}") long defaultBudgetMs,
+      @Value("${request.deadline.max-ms:30000}") long maxBudgetMs
+  ) {
+    this.defaultBudgetMs = defaultBudgetMs;
+    this.maxBudgetMs = maxBudgetMs;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !request.getRequestURI().startsWith(DEADLINE_PATH_PREFIX);
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    request.setAttribute(RequestDeadline.ATTRIBUTE, RequestDeadline.after(Duration.ofMillis(budgetMs(request))));
+    filterChain.doFilter(request, response);
+  }
+
+  private long budgetMs(HttpServletRequest request) {
+    String header = request.getHeader(TIMEOUT_HEADER);
+    if (header == null || header.isBlank()) {
+      return defaultBudgetMs;
+    }
+    try {
+      return Math.max(0, Math.min(Long.parseLong(header.trim()), maxBudgetMs));
+    } catch (NumberFormatException e) {
+      return defaultBudgetMs;
+    }
+  }
+}
@@ -0,0 +1,347 @@
+package server._common.json;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON Field Extractor - Pulls a fixed set of fields out of a JSON document in one streaming pass.
+ *
+ * <h2>Compile Once, Stream Many</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  compile("/name", "/dateOfBirth", "/cardDetails/ssn", "/kids/∗/ssn")   │
+ * │  └── path trie:  (root) ─┬─ name            → field 0                  │
+ * │                          ├─ dateOfBirth     → field 1                  │
+ * │                          ├─ cardDetails ─── ssn → field 2              │
+ * │                          └─ kids ─── ∗ ─── ssn  → field 3              │
+ * │                                                                        │
+ * │  walk(json, handler):  JsonReader walks the document once              │
+ * │  ├── name in trie, leaf   → handler(field, "/kids/0/ssn", value)       │
+ * │  ├── name in trie, inner  → descend                                    │
+ * │  └── anything else        → skipValue() (never materialized)           │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <h3>Paths:</h3>
+ * <ul>
+ *   <li>JSON pointers (RFC 6901): "/a/b", with "~1" for '/' and "~0" for '~' in names;
+ *       numeric tokens select array elements</li>
+ *   <li>"*" matches every array element / object member at that level (an extension: it
+ *       cannot share a level with named tokens)</li>
+ *   <li>Fields without "*" are required; wildcard fields may match any number of times</li>
+ * </ul>
+ *
+ * <p>Compared with {@code gson.fromJson(body, JsonObject.class)} no tree is built: a large
+ * document costs one pass of the tokenizer plus the extracted values. A document that is
+ * already a tree (e.g. an element of a batch array) is walked in place with the same trie,
+ * without serializing it back to text.</p>
+ *
+ * <p>Immutable and thread-safe once compiled.</p>
+ */
+public final class JsonFieldExtractor {
+
+  private static final String WILDCARD = "*";
+
+  private final List<String> paths;
+  private final boolean[] required;
+  private final boolean hasWildcards;
+  private final Node root = new Node();
+
+  /**
+   * Maps an extracted value as soon as it is read (e.g. decrypts it).
+   */
+  @FunctionalInterface
+  public interface ValueMapper {
+    String apply(int field, String value);
+  }
+
+  /**
+   * Receives every match, in document order, with the concrete pointer of the value.
+   */
+  @FunctionalInterface
+  public interface MatchHandler {
+    void accept(int field, String pointer, String value);
+  }
+
+  private JsonFieldExtractor(List<String> paths) {
+    this.paths = List.copyOf(paths);
+    this.required = new boolean[this.paths.size()];
+    boolean wildcards = false;
+    for (int field = 0; field < this.paths.size(); field++) {
+      String path = this.paths.get(field);
+      List<String> tokens = parsePointer(path);
+      if (tokens.isEmpty()) {
+        throw new IllegalArgumentException("Path must select a field, not the whole document: \"" + path + "\"");
+      }
+
+      Node node = root;
+      required[field] = !tokens.contains(WILDCARD);
+      wildcards |= !required[field];
+      for (String token : tokens) {
+        if (node.field >= 0) {
+          throw new IllegalArgumentException("Path " + path + " descends into field " + this.paths.get(node.field));
+        }
+        node = node.child(token, path);
+      }
+      if (node.field >= 0 || node.hasChildren()) {
+        throw new IllegalArgumentException("Duplicate or overlapping path: " + path);
+      }
+      node.field = field;
+    }
+    this.hasWildcards = wildcards;
+  }
+
+  /**
+   * @param paths JSON pointers, e.g. "/cardDetails/ssn"; the index of a path is its field number
+   * @return The compiled extractor
+   * @throws IllegalArgumentException If a path is malformed, duplicated, or nested in another
+   */
+  public static JsonFieldExtractor compile(String... paths) {
+    return new JsonFieldExtractor(List.of(paths));
+  }
+
+  /**
+   * @see #compile(String...)
+   */
+  public static JsonFieldExtractor compile(List<String> paths) {
+    return new JsonFieldExtractor(paths);
+  }
+
+  /**
+   * @return The compiled paths, in field order
+   */
+  public List<String> paths() {
+    return paths;
+  }
+
+  /**
+   * Extracts all compiled fields from a JSON string.
+   *
+   * @see #extract(Reader, ValueMapper)
+   */
+  public String[] extract(String json, ValueMapper mapper) {
+    try {
+      return extract(new StringReader(json), mapper);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Invalid JSON: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Extracts all compiled fields in one pass, mapping each value as it is read.
+   *
+   * <p>Only for extractors without wildcards (one value per field).</p>
+   *
+   * @param json   The JSON document (a single object)
+   * @param mapper Applied to every extracted value, in document order
+   * @return Mapped values indexed by field number
+   * @throws IOException If the JSON is malformed
+   * @throws IllegalArgumentException If a field is missing or not a scalar
+   */
+  public String[] extract(Reader json, ValueMapper mapper) throws IOException {
+    if (hasWildcards) {
+      throw new IllegalStateException("Wildcard paths can match many values: use walk()");
+    }
+    String[] values = new String[paths.size()];
+    walk(json, (field, pointer, value) -> values[field] = mapper.apply(field, value));
+    return values;
+  }
+
+  /**
+   * Walks a JSON string once, reporting every match.
+   *
+   * @see #walk(Reader, MatchHandler)
+   */
+  public void walk(String json, MatchHandler handler) {
+    try {
+      walk(new StringReader(json), handler);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Invalid JSON: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Walks the document once, reporting every match in document order.
+   *
+   * @param json    The JSON document
+   * @param handler Receives each matched value with its concrete pointer
+   * @throws IOException If the JSON is malformed
+   * @throws IllegalArgumentException If a required field is missing or a match is not a scalar
+   */
+  public void walk(Reader json, MatchHandler handler) throws IOException {
+    boolean[] seen = new boolean[paths.size()];
+    JsonReader reader = new JsonReader(json);
+    readValue(reader, root, new StringBuilder(), seen, handler);
+    if (reader.peek() != JsonToken.END_DOCUMENT) {
+      throw new IllegalArgumentException("Unexpected content after JSON document");
+    }
+    checkRequired(seen);
+  }
+
+  /**
+   * Walks an already parsed document, reporting every match in document order.
+   *
+   * @param json    The parsed JSON document
+   * @param handler Receives each matched value with its concrete pointer
+   * @throws IllegalArgumentException If a required field is missing or a match is not a scalar
+   */
+  public void walk(JsonElement json, MatchHandler handler) {
+    boolean[] seen = new boolean[paths.size()];
+    visitValue(json, root, new StringBuilder(), seen, handler);
+    checkRequired(seen);
+  }
+
+  private void checkRequired(boolean[] seen) {
+    for (int field = 0; field < seen.length; field++) {
+      if (required[field] && !seen[field]) {
+        throw new IllegalArgumentException("Missing field: " + paths.get(field));
+      }
+    }
+  }
+
+  private void readValue(JsonReader reader, Node node, StringBuilder pointer, boolean[] seen, MatchHandler handler)
+      throws IOException {
+    if (node.field >= 0) {
+      seen[node.field] = true;
+      handler.accept(node.field, pointer.toString(), readScalar(reader, pointer));
+      return;
+    }
+
+    switch (reader.peek()) {
+      case BEGIN_OBJECT -> {
+        reader.beginObject();
+        while (reader.hasNext()) {
+          String name = reader.nextName();
+          Node child = node.wildcard != null ? node.wildcard : node.children.get(name);
+          descend(reader, child, pointer, escape(name), seen, handler);
+        }
+        reader.endObject();
+      }
+      case BEGIN_ARRAY -> {
+        reader.beginArray();
+        for (int index = 0; reader.hasNext(); index++) {
+          Node child = node.wildcard != null ? node.wildcard : node.children.get(Integer.toString(index));
+          descend(reader, child, pointer, Integer.toString(index), seen, handler);
+        }
+        reader.endArray();
+      }
+      // A scalar where the paths expect a container: nothing matches below it
+      default -> reader.skipValue();
+    }
+  }
+
+  private void descend(JsonReader reader, Node child, StringBuilder pointer, String token, boolean[] seen,
+                       MatchHandler handler) throws IOException {
+    if (child == null) {
+      reader.skipValue();
+      return;
+    }
+    int length = pointer.length();
+    pointer.append('/').append(token);
+    readValue(reader, child, pointer, seen, handler);
+    pointer.setLength(length);
+  }
+
+  private void visitValue(JsonElement value, Node node, StringBuilder pointer, boolean[] seen, MatchHandler handler) {
+    if (node.field >= 0) {
+      seen[node.field] = true;
+      handler.accept(node.field, pointer.toString(), scalar(value, pointer));
+      return;
+    }
+
+    if (value.isJsonObject()) {
+      for (Map.Entry<String, JsonElement> member : value.getAsJsonObject().entrySet()) {
+        Node child = node.wildcard != null ? node.wildcard : node.children.get(member.getKey());
+        visitChild(member.getValue(), child, pointer, escape(member.getKey()), seen, handler);
+      }
+    } else if (value.isJsonArray()) {
+      int index = 0;
+      for (JsonElement element : value.getAsJsonArray()) {
+        Node child = node.wildcard != null ? node.wildcard : node.children.get(Integer.toString(index));
+        visitChild(element, child, pointer, Integer.toString(index++), seen, handler);
+      }
+    }
+    // A scalar where the paths expect a container: nothing matches below it
+  }
+
+  private void visitChild(JsonElement value, Node child, StringBuilder pointer, String token, boolean[] seen,
+                          MatchHandler handler) {
+    if (child == null) {
+      return;
+    }
+    int length = pointer.length();
+    pointer.append('/').append(token);
+    visitValue(value, child, pointer, seen, handler);
+    pointer.setLength(length);
+  }
+
+  private static String scalar(JsonElement value, CharSequence pointer) {
+    if (value instanceof JsonPrimitive primitive) {
+      // Same text as readScalar: numbers keep their literal, booleans become "true"/"false"
+      return primitive.getAsString();
+    }
+    throw new IllegalArgumentException("Field " + pointer + " must be a string");
+  }
+
+  private static String readScalar(JsonReader reader, CharSequence pointer) throws IOException {
+    return switch (reader.peek()) {
+      case STRING, NUMBER -> reader.nextString();
+      case BOOLEAN -> String.valueOf(reader.nextBoolean());
+      default -> throw new IllegalArgumentException("Field " + pointer + " must be a string");
+    };
+  }
+
+  private static List<String> parsePointer(String path) {
+    if (path.isEmpty()) {
+      return List.of();
+    }
+    if (path.charAt(0) != '/') {
+      throw new IllegalArgumentException("JSON pointer must start with '/': \"" + path + "\"");
+    }
+    List<String> tokens = new ArrayList<>();
+    for (String token : path.substring(1).split("/", -1)) {
+      tokens.add(token.replace("~1", "/").replace("~0", "~"));
+    }
+    return tokens;
+  }
+
+  private static String escape(String name) {
+    return name.indexOf('~') < 0 && name.indexOf('/') < 0 ? name : name.replace("~", "~0").replace("/", "~1");
+  }
+
+  private static final class Node {
+    private final Map<String, Node> children = new HashMap<>();
+    private Node wildcard;
+    private int field = -1;
+
+    private Node child(String token, String path) {
+      if (WILDCARD.equals(token)) {
+        if (!children.isEmpty()) {
+          throw new IllegalArgumentException("Wildcard in " + path + " cannot share a level with named paths");
+        }
+        if (wildcard == null) {
+          wildcard = new Node();
+        }
+        return wildcard;
+      }
+      if (wildcard != null) {
+        throw new IllegalArgumentException("Named token in " + path + " cannot share a level with a wildcard");
+      }
+      return children.computeIfAbsent(token, key -> new Node());
+    }
+
+    private boolean hasChildren() {
+      return wildcard != null || !children.isEmpty();
+    }
+  }
+}
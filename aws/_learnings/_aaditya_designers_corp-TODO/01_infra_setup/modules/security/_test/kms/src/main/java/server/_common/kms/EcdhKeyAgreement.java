@@ -0,0 +1,34 @@
+package server._common.kms;
+
+import java.security.interfaces.ECPublicKey;
+
+/**
+ * ECDH Key Agreement - The server half of ECDH-ES: Z = ECDH(server private key, ephemeral public key).
+ *
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  Client: ephemeral key pair (epk) on the server key's curve            │
+ * │          Z = ECDH(epk private, server public)  → KEK via Concat KDF    │
+ * │  Server: Z = deriveSharedSecret(epk public)    → same KEK              │
+ * │                                                                        │
+ * │  Implementations keep the private key out of the application:          │
+ * │  KMS DeriveSharedSecret (ECC_NIST_P256 / P384, KEY_AGREEMENT), or the  │
+ * │  Local KMS stand-in                                                    │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ */
+public interface EcdhKeyAgreement {
+
+  /**
+   * @return The server's public key, published to clients (its curve is the only one accepted)
+   */
+  ECPublicKey publicKey();
+
+  /**
+   * Derives the raw ECDH shared secret Z with the server's private key.
+   *
+   * @param ephemeralPublicKey The client's ephemeral public key (epk), on the server key's curve
+   * @return Z, the x coordinate of the shared point (32 bytes for P-256, 48 for P-384)
+   */
+  byte[] deriveSharedSecret(ECPublicKey ephemeralPublicKey);
+}
@@ -0,0 +1,253 @@
+package server._common.kms;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import server._common.metrics.StageMetrics;
+import software.amazon.awssdk.services.kms.KmsClient;
+import software.amazon.awssdk.services.kms.model.DataKeySpec;
+import software.amazon.awssdk.services.kms.model.GenerateDataKeyRequest;
+import software.amazon.awssdk.services.kms.model.GenerateDataKeyResponse;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Key-Encryption Key Manager - In-memory AES KEK from KMS GenerateDataKey, for local key wrapping.
+ *
+ * <h2>Envelope Key Hierarchy</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  KMS symmetric key (aws.kms.symmetric-key-arn, never leaves KMS)       │
+ * │  └── GenerateDataKey(AES_256), at startup and every rotation-seconds   │
+ * │      └── KEK: plaintext kept in memory only (ciphertext blob dropped)  │
+ * │          └── wrap(keyMaterial)   = kid "." BASE64URL(AES-KW(KEK, ..))  │
+ * │              unwrap(wrapped)     = local AES-KW, no KMS call (~1 µs)   │
+ * │                                                                        │
+ * │  Rotation: current → previous (still unwraps), previous → zeroized     │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <h3>Security:</h3>
+ * <ul>
+ *   <li>The KEK is never persisted: a restart or a second rotation invalidates everything
+ *       wrapped under it, and clients fall back to a KMS handshake</li>
+ *   <li>AES-KW (RFC 3394) carries an integrity check: a forged or bit-flipped value fails to unwrap</li>
+ *   <li>The kid is random, so it reveals nothing about the KEK</li>
+ * </ul>
+ *
+ * <p>Properties:</p>
+ * <ul>
+ *   <li>encryption.key-hierarchy.enabled: Turns the tiered mode on/off (default: false)</li>
+ *   <li>encryption.key-hierarchy.rotation-seconds: KEK lifetime before a new one is generated (default: 3600)</li>
+ *   <li>aws.kms.symmetric-key-arn: KMS symmetric key the KEK is generated under</li>
+ * </ul>
+ */
+@Component
+public class KeyEncryptionKeyManager {
+
+  private static final Logger log = LoggerFactory.getLogger(KeyEncryptionKeyManager.class);
+  private static final String AES_ALGORITHM = "AES";
+  private static final String AES_KW_TRANSFORMATION = "AES/KW/NoPadding";
+  private static final int KID_SIZE_BYTES = 8;
+
+  private final KmsClient kmsClient;
+  private final boolean enabled;
+  private final String symmetricKeyArn;
+  private final long rotationSeconds;
+  private final StageMetrics metrics;
+  private final SecureRandom secureRandom = new SecureRandom();
+  private final AtomicLong rotations = new AtomicLong();
+
+  // One immutable pair, so a reader never sees current and previous from different rotations
+  private volatile Generations generations = new Generations(null, null);
+  private ScheduledExecutorService rotationScheduler;
+
+  public KeyEncryptionKeyManager(
+      KmsClient kmsClient,
+      @Value("${encryption.key-hierarchy.enabled:false}") boolean enabled,
+      @Value("${aws.kms.symmetric-key-arn:}") String symmetricKeyArn,
+      @Value("${encryption.key-hierarchy.rotation-seconds:3600}") long rotationSeconds,
+      StageMetrics metrics
+  ) {
+    this.kmsClient = kmsClient;
+    this.enabled = enabled;
+    this.symmetricKeyArn = symmetricKeyArn;
+    this.rotationSeconds = rotationSeconds;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Generates the first KEK (startup fails if KMS cannot provide it) and schedules rotation.
+   */
+  @PostConstruct
+  public void start() {
+    if (!enabled) {
+      return;
+    }
+    if (symmetricKeyArn == null || symmetricKeyArn.isBlank()) {
+      throw new IllegalStateException("encryption.key-hierarchy.enabled=true requires aws.kms.symmetric-key-arn");
+    }
+    rotate();
+    rotationScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "kek-rotation");
+      thread.setDaemon(true);
+      return thread;
+    });
+    rotationScheduler.scheduleAtFixedRate(() -> {
+      try {
+        rotate();
+      } catch (RuntimeException e) {
+        // Keep serving with the current KEK; the next tick retries
+        log.error("KEK rotation failed, keeping current KEK: {}", e.getMessage(), e);
+      }
+    }, rotationSeconds, rotationSeconds, TimeUnit.SECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (rotationScheduler != null) {
+      rotationScheduler.shutdownNow();
+    }
+    Generations retired = generations;
+    generations = new Generations(null, null);
+    retired.destroy();
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return Lifetime of a KEK; a wrapped value stays unwrappable for at least this long
+   */
+  public long rotationSeconds() {
+    return rotationSeconds;
+  }
+
+  /**
+   * @return KEKs generated so far (1 KMS GenerateDataKey call each)
+   */
+  public long rotationCount() {
+    return rotations.get();
+  }
+
+  /**
+   * Replaces the current KEK with a new one from KMS GenerateDataKey (1 KMS call).
+   * The replaced KEK keeps unwrapping until the next rotation.
+   */
+  public synchronized void rotate() {
+    GenerateDataKeyResponse response = metrics.kms("GenerateDataKey", () -> kmsClient.generateDataKey(
+        GenerateDataKeyRequest.builder()
+            .keyId(symmetricKeyArn)
+            .keySpec(DataKeySpec.AES_256)
+            .build()));
+    byte[] kidBytes = new byte[KID_SIZE_BYTES];
+    secureRandom.nextBytes(kidBytes);
+    KeyEncryptionKey next = new KeyEncryptionKey(
+        Base64.getUrlEncoder().withoutPadding().encodeToString(kidBytes),
+        response.plaintext().asByteArray());
+
+    Generations before = generations;
+    generations = new Generations(next, before.current());
+    if (before.previous() != null) {
+      before.previous().destroy();
+    }
+    rotations.incrementAndGet();
+    log.info("KEK rotated - kid={} (KMS GenerateDataKey under {})", next.kid(), symmetricKeyArn);
+  }
+
+  /**
+   * Wraps key material under the current KEK.
+   *
+   * @param keyMaterial At least 16 bytes, a multiple of 8 (AES-KW)
+   * @return kid "." BASE64URL(AES-KW(KEK, keyMaterial))
+   * @throws IllegalStateException If the key hierarchy is disabled
+   */
+  public String wrap(byte[] keyMaterial) {
+    KeyEncryptionKey kek = generations.current();
+    if (kek == null) {
+      throw new IllegalStateException("Key hierarchy is disabled (encryption.key-hierarchy.enabled=false)");
+    }
+    try {
+      Cipher cipher = Cipher.getInstance(AES_KW_TRANSFORMATION);
+      cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(kek.key(), AES_ALGORITHM));
+      return kek.kid() + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(cipher.doFinal(keyMaterial));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Failed to wrap key under KEK: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Unwraps a value produced by {@link #wrap(byte[])} under the current or previous KEK.
+   *
+   * @param wrapped kid "." BASE64URL(AES-KW(KEK, keyMaterial))
+   * @return The key material (caller owns and should zeroize it)
+   * @throws InvalidWrappedKeyException If the KEK is unknown (rotated out, restart) or the
+   *                                    integrity check fails
+   */
+  public byte[] unwrap(String wrapped) {
+    int dot = wrapped.indexOf('.');
+    if (dot <= 0) {
+      throw new InvalidWrappedKeyException("Malformed wrapped key");
+    }
+    KeyEncryptionKey kek = generations.find(wrapped.substring(0, dot));
+    if (kek == null) {
+      throw new InvalidWrappedKeyException("Unknown or retired key-encryption key");
+    }
+    try {
+      Cipher cipher = Cipher.getInstance(AES_KW_TRANSFORMATION);
+      cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(kek.key(), AES_ALGORITHM));
+      return cipher.doFinal(Base64.getUrlDecoder().decode(wrapped.substring(dot + 1)));
+    } catch (IllegalArgumentException | GeneralSecurityException e) {
+      throw new InvalidWrappedKeyException("Wrapped key failed to unwrap: " + e.getMessage());
+    }
+  }
+
+  private record KeyEncryptionKey(String kid, byte[] key) {
+    private void destroy() {
+      Arrays.fill(key, (byte) 0);
+    }
+  }
+
+  private record Generations(KeyEncryptionKey current, KeyEncryptionKey previous) {
+    private KeyEncryptionKey find(String kid) {
+      if (current != null && current.kid().equals(kid)) {
+        return current;
+      }
+      if (previous != null && previous.kid().equals(kid)) {
+        return previous;
+      }
+      return null;
+    }
+
+    private void destroy() {
+      if (current != null) {
+        current.destroy();
+      }
+      if (previous != null) {
+        previous.destroy();
+      }
+    }
+  }
+
+  /**
+   * Thrown when a wrapped value cannot be unwrapped; callers treat it like an expired credential.
+   */
+  public static class InvalidWrappedKeyException extends RuntimeException {
+    public InvalidWrappedKeyException(String message) {
+      super(message);
+    }
+  }
+}
@@ -0,0 +1,209 @@
+package server._common.kms;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import server._common.deadline.RequestDeadline;
+import server._common.metrics.StageMetrics;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * KMS Call Guard - Deadline, circuit breaker and failure classification around a KMS call.
+ *
+ * <h2>Per Call</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  1. left = RequestDeadline.current().remaining()                       │
+ * │     left < min-call-budget-ms        → 503, KMS not called             │
+ * │  2. KmsCircuitBreaker.tryAcquire()                                     │
+ * │     OPEN (or HALF_OPEN trials taken) → 503, KMS not called             │
+ * │  3. call(override): apiCallTimeout = min(left, api-call-timeout-ms)    │
+ * │     inside: SDK adaptive retries + client-side rate limiting           │
+ * │     (AwsKmsConfig), timed as kms.request (StageMetrics)                │
+ * │  4. outcome → breaker                                                  │
+ * │     throttled / 5xx / timeout / connection → KmsUnavailableException   │
+ * │     KMS rejected the request (bad ciphertext...) → rethrown as is      │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <p>A timeout caused by the caller's short deadline (not by KMS) answers 503 but is not
+ * counted against KMS by the breaker. Callers map {@link KmsUnavailableException} anywhere in
+ * the cause chain to 503 (Utils.failureStatus).</p>
+ *
+ * <p>Properties:</p>
+ * <ul>
+ *   <li>aws.kms.api-call-timeout-ms: Upper bound of one KMS call, retries included (default: 2000)</li>
+ *   <li>aws.kms.min-call-budget-ms: Least request time left worth a KMS call (default: 50)</li>
+ * </ul>
+ */
+@Component
+public class KmsCallGuard {
+
+  private final KmsCircuitBreaker circuitBreaker;
+  private final StageMetrics metrics;
+  private final Duration apiCallTimeout;
+  private final Duration minCallBudget;
+  private final AtomicLong circuitOpenRejections = new AtomicLong();
+  private final AtomicLong deadlineRejections = new AtomicLong();
+
+  public KmsCallGuard(
+      KmsCircuitBreaker circuitBreaker,
+      StageMetrics metrics,
+      @Value("${aws.kms.api-call-timeout-ms:2000}") long apiCallTimeoutMs,
+      @Value("${aws.kms.min-call-budget-ms:50}") long minCallBudgetMs
+  ) {
+    this.circuitBreaker = circuitBreaker;
+    this.metrics = metrics;
+    this.apiCallTimeout = Duration.ofMillis(apiCallTimeoutMs);
+    this.minCallBudget = Duration.ofMillis(minCallBudgetMs);
+  }
+
+  /**
+   * KMS is not usable for this request: circuit open, deadline exhausted, or KMS failing after
+   * the SDK's retries. Answered with 503.
+   */
+  public static class KmsUnavailableException extends RuntimeException {
+    public KmsUnavailableException(String message, Throwable cause) {
+      super(message, cause);
+    }
+  }
+
+  /**
+   * The caller's own request deadline ran out before or during the KMS call: says nothing about
+   * KMS, so a concurrent request sharing the call (SingleFlight) retries it instead of failing.
+   */
+  public static class DeadlineExceededException extends KmsUnavailableException {
+    public DeadlineExceededException(String message, Throwable cause) {
+      super(message, cause);
+    }
+  }
+
+  /**
+   * Makes a blocking KMS call.
+   *
+   * @param operation KMS API name, e.g. Decrypt
+   * @param call      Makes the call with the given request override configuration
+   * @return The call's result
+   * @throws KmsUnavailableException If the call is not made, or KMS failed
+   */
+  public <T> T call(String operation, Function<AwsRequestOverrideConfiguration, T> call) {
+    Duration timeout = admit(operation);
+    long permit = acquire(operation);
+    try {
+      T result = metrics.kms(operation, () -> call.apply(override(timeout)));
+      circuitBreaker.onResult(permit, false);
+      return result;
+    } catch (RuntimeException e) {
+      throw onFailure(operation, permit, e, timeout);
+    }
+  }
+
+  /**
+   * Makes a non-blocking KMS call; the deadline and circuit are checked on submission.
+   *
+   * @param operation KMS API name, e.g. Decrypt
+   * @param call      Submits the call with the given request override configuration
+   * @return The call's future, failing with {@link KmsUnavailableException} if the call is not
+   *         made or KMS failed
+   */
+  public <T> CompletableFuture<T> callAsync(String operation,
+                                            Function<AwsRequestOverrideConfiguration, CompletableFuture<T>> call) {
+    Duration timeout;
+    long permit;
+    try {
+      timeout = admit(operation);
+      permit = acquire(operation);
+    } catch (KmsUnavailableException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+
+    CompletableFuture<T> guarded = new CompletableFuture<>();
+    CompletableFuture<T> pending;
+    try {
+      pending = metrics.kmsAsync(operation, () -> call.apply(override(timeout)));
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(onFailure(operation, permit, e, timeout));
+    }
+    pending.whenComplete((result, error) -> {
+      if (error == null) {
+        circuitBreaker.onResult(permit, false);
+        guarded.complete(result);
+      } else {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        guarded.completeExceptionally(onFailure(operation, permit, cause, timeout));
+      }
+    });
+    return guarded;
+  }
+
+  public long circuitOpenRejections() {
+    return circuitOpenRejections.get();
+  }
+
+  public long deadlineRejections() {
+    return deadlineRejections.get();
+  }
+
+  /**
+   * @return The timeout of the call: what is left of the request's deadline, capped by
+   *         api-call-timeout-ms
+   */
+  private Duration admit(String operation) {
+    RequestDeadline deadline = RequestDeadline.current();
+    if (!deadline.isBounded()) {
+      return apiCallTimeout;
+    }
+    Duration remaining = deadline.remaining();
+    if (remaining.compareTo(minCallBudget) < 0) {
+      deadlineRejections.incrementAndGet();
+      throw new DeadlineExceededException("Request deadline exhausted before KMS " + operation
+          + " (" + Math.max(0, remaining.toMillis()) + " ms left)", null);
+    }
+    return remaining.compareTo(apiCallTimeout) < 0 ? remaining : apiCallTimeout;
+  }
+
+  private long acquire(String operation) {
+    long permit = circuitBreaker.tryAcquire();
+    if (permit == KmsCircuitBreaker.REJECTED) {
+      circuitOpenRejections.incrementAndGet();
+      throw new KmsUnavailableException("KMS circuit open: " + operation + " not attempted", null);
+    }
+    return permit;
+  }
+
+  private static AwsRequestOverrideConfiguration override(Duration timeout) {
+    return AwsRequestOverrideConfiguration.builder().apiCallTimeout(timeout).build();
+  }
+
+  private RuntimeException onFailure(String operation, long permit, Throwable error, Duration timeout) {
+    // Timed out on a deadline shorter than the regular KMS timeout: the caller's budget, not KMS
+    boolean deadlineTimeout = error instanceof ApiCallTimeoutException && timeout.compareTo(apiCallTimeout) < 0;
+    boolean kmsFailure = !deadlineTimeout && isKmsFailure(error);
+    circuitBreaker.onResult(permit, kmsFailure);
+    if (deadlineTimeout) {
+      return new DeadlineExceededException("Request deadline exceeded during KMS " + operation, error);
+    }
+    if (kmsFailure) {
+      return new KmsUnavailableException("KMS " + operation + " unavailable: " + error.getMessage(), error);
+    }
+    return error instanceof RuntimeException runtimeException ? runtimeException : new CompletionException(error);
+  }
+
+  /**
+   * @return Whether KMS (or the way to it) failed, as opposed to rejecting the request
+   */
+  private static boolean isKmsFailure(Throwable error) {
+    if (error instanceof AwsServiceException serviceException) {
+      return serviceException.isThrottlingException() || serviceException.statusCode() >= 500;
+    }
+    return error instanceof SdkClientException;
+  }
+}
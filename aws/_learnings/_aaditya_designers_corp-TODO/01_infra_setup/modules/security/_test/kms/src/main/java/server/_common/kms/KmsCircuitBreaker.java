@@ -0,0 +1,182 @@
+package server._common.kms;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KMS Circuit Breaker - Stops calling a failing KMS so requests fail fast instead of piling up.
+ *
+ * <h2>States</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  CLOSED     calls pass; outcomes slide through a window of the last    │
+ * │             window-size calls                                          │
+ * │             ≥ minimum-calls and failures ≥ failure-rate → OPEN         │
+ * │                                                                        │
+ * │  OPEN       every call rejected (503) for open-ms, no KMS traffic      │
+ * │             open-ms elapsed                          → HALF_OPEN       │
+ * │                                                                        │
+ * │  HALF_OPEN  half-open-calls trial calls pass, the rest are rejected    │
+ * │             all trials succeed → CLOSED    any trial fails → OPEN      │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <p>Only KMS-side failures count (throttling after retries, 5xx, timeouts, connection errors,
+ * classified by KmsCallGuard); a ciphertext KMS rejects is the caller's error and counts as a
+ * success. {@link #tryAcquire()} hands out a permit tagged with the current state generation:
+ * outcomes of calls admitted before the last transition are ignored.</p>
+ *
+ * <p>Properties:</p>
+ * <ul>
+ *   <li>aws.kms.circuit-breaker.enabled: Turns the breaker on/off (default: true)</li>
+ *   <li>aws.kms.circuit-breaker.window-size: Calls in the sliding window (default: 20)</li>
+ *   <li>aws.kms.circuit-breaker.minimum-calls: Calls before the rate is evaluated (default: 10)</li>
+ *   <li>aws.kms.circuit-breaker.failure-rate: Failure fraction that opens the circuit (default: 0.5)</li>
+ *   <li>aws.kms.circuit-breaker.open-ms: Time calls are rejected before trials (default: 5000)</li>
+ *   <li>aws.kms.circuit-breaker.half-open-calls: Trial calls that must succeed to close (default: 3)</li>
+ * </ul>
+ */
+@Component
+public class KmsCircuitBreaker {
+
+  private static final Logger log = LoggerFactory.getLogger(KmsCircuitBreaker.class);
+
+  /** {@link #tryAcquire()} result when the call must not be made */
+  public static final long REJECTED = -1;
+
+  public enum State { CLOSED, OPEN, HALF_OPEN }
+
+  private final boolean enabled;
+  private final int minimumCalls;
+  private final double failureRate;
+  private final long openNanos;
+  private final int halfOpenCalls;
+
+  // Sliding window of the last outcomes (true = failure), CLOSED state only
+  private final boolean[] window;
+  private int windowIndex;
+  private int windowCalls;
+  private int windowFailures;
+
+  private State state = State.CLOSED;
+  private long generation;
+  private long openUntilNanos;
+  private int halfOpenStarted;
+  private int halfOpenSucceeded;
+  private final long[] transitions = new long[State.values().length];
+
+  public KmsCircuitBreaker(
+      @Value("${aws.kms.circuit-breaker.enabled:true}") boolean enabled,
+      @Value("${aws.kms.circuit-breaker.window-size:20}") int windowSize,
+      @Value("${aws.kms.circuit-breaker.minimum-calls:10}") int minimumCalls,
+      @Value("${aws.kms.circuit-breaker.failure-rate:0.5}") double failureRate,
+      @Value("${aws.kms.circuit-breaker.open-ms:5000}") long openMs,
+      @Value("${aws.kms.circuit-breaker.half-open-calls:3}") int halfOpenCalls
+  ) {
+    if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize || halfOpenCalls < 1) {
+      throw new IllegalArgumentException("Invalid aws.kms.circuit-breaker settings: window-size " + windowSize
+          + ", minimum-calls " + minimumCalls + ", half-open-calls " + halfOpenCalls);
+    }
+    this.enabled = enabled;
+    this.window = new boolean[windowSize];
+    this.minimumCalls = minimumCalls;
+    this.failureRate = failureRate;
+    this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+    this.halfOpenCalls = halfOpenCalls;
+  }
+
+  /**
+   * @return A permit for {@link #onResult(long, boolean)}, or {@link #REJECTED}
+   */
+  public synchronized long tryAcquire() {
+    if (!enabled) {
+      return generation;
+    }
+    if (state == State.OPEN) {
+      if (System.nanoTime() - openUntilNanos < 0) {
+        return REJECTED;
+      }
+      transition(State.HALF_OPEN);
+    }
+    if (state == State.HALF_OPEN) {
+      if (halfOpenStarted >= halfOpenCalls) {
+        return REJECTED;
+      }
+      halfOpenStarted++;
+    }
+    return generation;
+  }
+
+  /**
+   * Records the outcome of a call made with a permit from {@link #tryAcquire()}.
+   *
+   * @param permit  The permit
+   * @param failure Whether KMS failed (not: rejected the request)
+   */
+  public synchronized void onResult(long permit, boolean failure) {
+    if (!enabled || permit != generation) {
+      return;
+    }
+    if (state == State.HALF_OPEN) {
+      if (failure) {
+        transition(State.OPEN);
+      } else if (++halfOpenSucceeded >= halfOpenCalls) {
+        transition(State.CLOSED);
+      }
+      return;
+    }
+
+    if (windowCalls == window.length) {
+      if (window[windowIndex]) {
+        windowFailures--;
+      }
+    } else {
+      windowCalls++;
+    }
+    window[windowIndex] = failure;
+    if (failure) {
+      windowFailures++;
+    }
+    windowIndex = (windowIndex + 1) % window.length;
+    if (failure && windowCalls >= minimumCalls && windowFailures >= failureRate * windowCalls) {
+      transition(State.OPEN);
+    }
+  }
+
+  public synchronized State state() {
+    return state;
+  }
+
+  /**
+   * @return How often the breaker entered the state
+   */
+  public synchronized long transitionCount(State to) {
+    return transitions[to.ordinal()];
+  }
+
+  private void transition(State next) {
+    if (next == State.OPEN) {
+      log.warn("KMS circuit {} → OPEN: failing KMS calls fast for {} ms", state,
+          TimeUnit.NANOSECONDS.toMillis(openNanos));
+      openUntilNanos = System.nanoTime() + openNanos;
+    } else {
+      log.info("KMS circuit {} → {}", state, next);
+    }
+    if (next == State.HALF_OPEN) {
+      halfOpenStarted = 0;
+      halfOpenSucceeded = 0;
+    }
+    if (next == State.CLOSED) {
+      windowIndex = 0;
+      windowCalls = 0;
+      windowFailures = 0;
+    }
+    state = next;
+    generation++;
+    transitions[next.ordinal()]++;
+  }
+}
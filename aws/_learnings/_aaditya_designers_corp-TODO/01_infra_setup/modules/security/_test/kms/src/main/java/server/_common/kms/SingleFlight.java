@@ -0,0 +1,269 @@
+package server._common.kms;
+
+import server._common.deadline.RequestDeadline;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Single Flight - Coalesces concurrent calls for the same key into one in-flight call.
+ *
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  Thread 1 ── execute(key) ──► LEADER: runs the call ──┐                │
+ * │  Thread 2 ── execute(key) ──► FOLLOWER: waits ────────┤                │
+ * │  Thread 3 ── execute(key) ──► FOLLOWER: waits ────────┤                │
+ * │                                                       ▼                │
+ * │                        result / error / timeout delivered to ALL       │
+ * │                                                                        │
+ * │  Once the call completes the key is released: the next execute(key)    │
+ * │  starts a new call.                                                    │
+ * │                                                                        │
+ * │  The flight is bounded by timeoutMillis on its own: if the leader's    │
+ * │  call hangs, every waiter fails and the key is released anyway         │
+ * │                                                                        │
+ * │  Follower wait = min(timeoutMillis, its own RequestDeadline.remaining) │
+ * │  Leader failed for its own reason (callerSpecific, e.g. its deadline)  │
+ * │  → followers are not failed with it: they join or lead the next call   │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <p>Blocking and non-blocking callers share the same flights, so a request thread can
+ * wait on a call started by the KmsAsyncClient path and vice versa. The result is shared
+ * by every waiter, so it must be immutable.</p>
+ *
+ * <p>The leader's own blocking call cannot be interrupted safely: it is bounded by the call
+ * itself (KmsCallGuard: api-call-timeout-ms and the request deadline). A result arriving after
+ * the flight timed out is still returned to the leader.</p>
+ *
+ * @param <K> Key identifying identical calls
+ * @param <V> Result type (shared by all waiters)
+ */
+public class SingleFlight<K, V> {
+
+  private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+  private final long timeoutMillis;
+  private final Predicate<Throwable> callerSpecific;
+  private final AtomicLong coalesced = new AtomicLong();
+  private final AtomicLong retried = new AtomicLong();
+
+  /**
+   * A waiter gave up: the flight did not complete within the timeout or the waiter's deadline.
+   */
+  public static class FlightTimeoutException extends RuntimeException {
+    public FlightTimeoutException(String message, Throwable cause) {
+      super(message, cause);
+    }
+  }
+
+  /**
+   * @param timeoutMillis Upper bound for a flight; on expiry every waiter fails with a
+   *                      {@link FlightTimeoutException} and the key is released
+   */
+  public SingleFlight(long timeoutMillis) {
+    this(timeoutMillis, failure -> false);
+  }
+
+  /**
+   * @param timeoutMillis  Upper bound for a flight; on expiry every waiter fails with a
+   *                       {@link FlightTimeoutException} and the key is released
+   * @param callerSpecific Leader failures that concern the leader's caller only (e.g. its
+   *                       request deadline ran out): followers retry instead of sharing them
+   */
+  public SingleFlight(long timeoutMillis, Predicate<Throwable> callerSpecific) {
+    this.timeoutMillis = timeoutMillis;
+    this.callerSpecific = callerSpecific;
+  }
+
+  /**
+   * Runs the call on the current thread, or waits for an identical call already in flight.
+   *
+   * @param key  Key identifying identical calls
+   * @param call The blocking call
+   * @return The (possibly shared) result
+   */
+  public V execute(K key, Supplier<V> call) {
+    return execute(key, call, RequestDeadline.NONE);
+  }
+
+  /**
+   * Runs the call on the current thread, or waits for an identical call already in flight for
+   * at most what is left of the caller's deadline.
+   *
+   * @param key      Key identifying identical calls
+   * @param call     The blocking call
+   * @param deadline The caller's deadline, bounding its wait as a follower
+   * @return The (possibly shared) result
+   */
+  public V execute(K key, Supplier<V> call, RequestDeadline deadline) {
+    while (true) {
+      CompletableFuture<V> flight = new CompletableFuture<>();
+      CompletableFuture<V> existing = flights.putIfAbsent(key, flight);
+      if (existing == null) {
+        return lead(key, flight, call);
+      }
+
+      coalesced.incrementAndGet();
+      try {
+        return await(existing, deadline);
+      } catch (RuntimeException e) {
+        if (!callerSpecific.test(e)) {
+          throw e;
+        }
+        // The leader's own failure: released so this caller can join or lead the next call
+        flights.remove(key, existing);
+        retried.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Starts the asynchronous call, or joins an identical call already in flight.
+   *
+   * @param key  Key identifying identical calls
+   * @param call Starts the non-blocking call
+   * @return Future completing with the (possibly shared) result
+   */
+  public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> call) {
+    return executeAsync(key, call, RequestDeadline.NONE);
+  }
+
+  /**
+   * Starts the asynchronous call, or joins an identical call already in flight for at most what
+   * is left of the caller's deadline.
+   *
+   * @param key      Key identifying identical calls
+   * @param call     Starts the non-blocking call
+   * @param deadline The caller's deadline, bounding its wait as a follower
+   * @return Future completing with the (possibly shared) result
+   */
+  public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> call, RequestDeadline deadline) {
+    CompletableFuture<V> flight = new CompletableFuture<>();
+    CompletableFuture<V> existing = flights.putIfAbsent(key, flight);
+    if (existing != null) {
+      coalesced.incrementAndGet();
+      long waitMillis = waitMillis(deadline);
+      return translateTimeout(existing.copy().orTimeout(waitMillis, TimeUnit.MILLISECONDS), waitMillis)
+          .exceptionallyCompose(failure -> {
+            Throwable cause = unwrap(failure);
+            if (!callerSpecific.test(cause)) {
+              return CompletableFuture.failedFuture(cause);
+            }
+            flights.remove(key, existing);
+            retried.incrementAndGet();
+            // Runs on the completing thread, outside the request: bound by this caller's deadline here
+            long retryWaitMillis = waitMillis(deadline);
+            return translateTimeout(
+                executeAsync(key, call, deadline).orTimeout(retryWaitMillis, TimeUnit.MILLISECONDS), retryWaitMillis);
+          });
+    }
+
+    CompletableFuture<V> pending;
+    try {
+      pending = call.get();
+    } catch (RuntimeException | Error e) {
+      pending = CompletableFuture.failedFuture(e);
+    }
+    pending.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((result, failure) -> {
+      flights.remove(key, flight);
+      if (failure != null) {
+        flight.completeExceptionally(failure);
+      } else {
+        flight.complete(result);
+      }
+    });
+    // Callers get a copy so their own stages (or cancellation) never affect other waiters
+    return translateTimeout(flight.copy(), timeoutMillis);
+  }
+
+  /**
+   * @return Number of calls that joined an existing flight instead of starting their own
+   */
+  public long coalescedCount() {
+    return coalesced.get();
+  }
+
+  /**
+   * @return Number of followers that did not share a caller-specific leader failure and tried again
+   */
+  public long retriedCount() {
+    return retried.get();
+  }
+
+  /**
+   * @return Number of distinct calls currently in flight
+   */
+  public int inFlightCount() {
+    return flights.size();
+  }
+
+  private V lead(K key, CompletableFuture<V> flight, Supplier<V> call) {
+    flight.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+        .whenComplete((result, failure) -> flights.remove(key, flight));
+    try {
+      V result = call.get();
+      flight.complete(result);
+      return result;
+    } catch (RuntimeException | Error e) {
+      flight.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  private V await(CompletableFuture<V> flight, RequestDeadline deadline) {
+    long waitMillis = waitMillis(deadline);
+    try {
+      return flight.get(waitMillis, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof TimeoutException) {
+        throw timedOut(cause, timeoutMillis);
+      }
+      if (cause instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      if (cause instanceof Error error) {
+        throw error;
+      }
+      throw new IllegalStateException(cause.getMessage(), cause);
+    } catch (TimeoutException e) {
+      throw timedOut(e, waitMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for in-flight call", e);
+    }
+  }
+
+  /**
+   * @return How long a follower waits: timeoutMillis, or less if its deadline is closer
+   */
+  private long waitMillis(RequestDeadline deadline) {
+    if (!deadline.isBounded()) {
+      return timeoutMillis;
+    }
+    return Math.max(0, Math.min(timeoutMillis, deadline.remaining().toMillis()));
+  }
+
+  private CompletableFuture<V> translateTimeout(CompletableFuture<V> waiter, long waitMillis) {
+    return waiter.exceptionallyCompose(failure -> {
+      Throwable cause = unwrap(failure);
+      return CompletableFuture.failedFuture(cause instanceof TimeoutException ? timedOut(cause, waitMillis) : cause);
+    });
+  }
+
+  private static Throwable unwrap(Throwable failure) {
+    return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+  }
+
+  private static FlightTimeoutException timedOut(Throwable cause, long waitMillis) {
+    return new FlightTimeoutException("Timed out after " + waitMillis + " ms waiting for in-flight call", cause);
+  }
+}
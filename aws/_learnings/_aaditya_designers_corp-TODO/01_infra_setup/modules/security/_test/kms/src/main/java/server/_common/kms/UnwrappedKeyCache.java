@@ -0,0 +1,295 @@
+package server._common.kms;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import server._common.deadline.RequestDeadline;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Unwrapped Key Cache - Bounded, TTL-limited cache of KMS-unwrapped AES keys.
+ *
+ * <h2>Skip Repeat KMS Decrypt Calls</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  Input: wrappedKey (RSA-encrypted DEK / CEK, ~512 bytes)               │
+ * │                                                                        │
+ * │  1. fingerprint = HEX(SHA-256(wrappedKey))                             │
+ * │  2. HIT  → return cached AES key (no KMS call)                         │
+ * │  3. MISS → KMS Decrypt → cache AES key under fingerprint               │
+ * │     (concurrent misses for one fingerprint share a single KMS call;    │
+ * │     each waits at most min(single-flight timeout, its own deadline))   │
+ * │                                                                        │
+ * │  Eviction: least-recently-used when max-entries is reached,            │
+ * │            or once the entry is older than ttl-seconds                 │
+ * │  Evicted key bytes are zeroized before being dropped                   │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <h3>Security:</h3>
+ * <ul>
+ *   <li>Only the SHA-256 fingerprint of the wrapped key is used as lookup key</li>
+ *   <li>Callers always receive a copy of the key, never the cached bytes</li>
+ *   <li>A short TTL bounds how long an unwrapped key lives in memory</li>
+ * </ul>
+ *
+ * <p>Properties:</p>
+ * <ul>
+ *   <li>aws.kms.key-cache.enabled: Turns caching on/off (default: true)</li>
+ *   <li>aws.kms.key-cache.max-entries: Maximum cached keys (default: 1000)</li>
+ *   <li>aws.kms.key-cache.ttl-seconds: Time-to-live per entry (default: 300)</li>
+ *   <li>aws.kms.single-flight.timeout-ms: Upper bound for a shared KMS call; a waiter's own request
+ *       deadline (X-Request-Timeout-Ms) can only shorten its wait (default: 10000)</li>
+ * </ul>
+ */
+@Component
+public class UnwrappedKeyCache {
+
+  private static final Logger log = LoggerFactory.getLogger(UnwrappedKeyCache.class);
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+  private static final String AES_ALGORITHM = "AES";
+
+  private final boolean enabled;
+  private final int maxEntries;
+  private final long ttlNanos;
+  private final Map<String, CachedKey> cachedKeys;
+  private final SingleFlight<String, SecretKey> unwrapFlights;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  public UnwrappedKeyCache(
+      @Value("${aws.kms.key-cache.enabled:true}") boolean enabled,
+      @Value("${aws.kms.key-cache.max-entries:1000}") int maxEntries,
+      @Value("${aws.kms.key-cache.ttl-seconds:300}") long ttlSeconds,
+      @Value("${aws.kms.single-flight.timeout-ms:10000}") long singleFlightTimeoutMs
+  ) {
+    this.enabled = enabled;
+    this.maxEntries = maxEntries;
+    this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    // A leader whose own request deadline ran out says nothing about KMS: the waiters retry
+    this.unwrapFlights = new SingleFlight<>(singleFlightTimeoutMs,
+        failure -> failure instanceof KmsCallGuard.DeadlineExceededException);
+    // Access-ordered map: iteration starts at the least-recently-used entry
+    this.cachedKeys = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CachedKey> eldest) {
+        if (size() > UnwrappedKeyCache.this.maxEntries) {
+          evict(eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Returns the AES key for the given wrapped key, calling KMS only on a cache miss.
+   *
+   * <p>Concurrent misses for the same wrapped key wait on one shared KMS call, each for at most
+   * what is left of its own request deadline. The call's result, error or timeout is delivered to
+   * every waiter, except a failure caused by the leading request's deadline: the waiters then
+   * retry, one of them leading the next call.</p>
+   *
+   * @param wrappedKey The RSA-encrypted key bytes (as sent by the client)
+   * @param unwrapper  Function performing the KMS Decrypt call for a miss
+   * @return The unwrapped AES key
+   */
+  public SecretKey getOrUnwrap(byte[] wrappedKey, Function<byte[], byte[]> unwrapper) {
+    String fingerprint = fingerprint(wrappedKey);
+    if (enabled) {
+      SecretKey cached = lookup(fingerprint);
+      if (cached != null) {
+        hits.incrementAndGet();
+        return cached;
+      }
+    }
+
+    try {
+      return unwrapFlights.execute(fingerprint, () -> {
+        // A flight that finished just before this one started may already have cached the key
+        SecretKey cached = enabled ? lookup(fingerprint) : null;
+        if (cached != null) {
+          hits.incrementAndGet();
+          return cached;
+        }
+        return unwrapped(fingerprint, unwrapper.apply(wrappedKey));
+      }, RequestDeadline.current());
+    } catch (SingleFlight.FlightTimeoutException e) {
+      throw unavailable(e);
+    }
+  }
+
+  /**
+   * Non-blocking variant of {@link #getOrUnwrap(byte[], Function)} for the KmsAsyncClient path.
+   *
+   * @param wrappedKey The RSA-encrypted key bytes (as sent by the client)
+   * @param unwrapper  Function starting the asynchronous KMS Decrypt call for a miss
+   * @return Future completing with the unwrapped AES key
+   */
+  public CompletableFuture<SecretKey> getOrUnwrapAsync(
+      byte[] wrappedKey,
+      Function<byte[], CompletableFuture<byte[]>> unwrapper
+  ) {
+    String fingerprint = fingerprint(wrappedKey);
+    if (enabled) {
+      SecretKey cached = lookup(fingerprint);
+      if (cached != null) {
+        hits.incrementAndGet();
+        return CompletableFuture.completedFuture(cached);
+      }
+    }
+
+    return unwrapFlights.executeAsync(fingerprint, () -> {
+      SecretKey cached = enabled ? lookup(fingerprint) : null;
+      if (cached != null) {
+        hits.incrementAndGet();
+        return CompletableFuture.completedFuture(cached);
+      }
+      return unwrapper.apply(wrappedKey).thenApply(keyBytes -> unwrapped(fingerprint, keyBytes));
+    }, RequestDeadline.current()).exceptionallyCompose(failure -> {
+      Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+      return CompletableFuture.failedFuture(
+          cause instanceof SingleFlight.FlightTimeoutException timeout ? unavailable(timeout) : cause);
+    });
+  }
+
+  public long hitCount() {
+    return hits.get();
+  }
+
+  public long missCount() {
+    return misses.get();
+  }
+
+  public long evictionCount() {
+    return evictions.get();
+  }
+
+  /**
+   * @return Number of unwraps that joined an in-flight KMS call instead of making their own
+   */
+  public long coalescedCount() {
+    return unwrapFlights.coalescedCount();
+  }
+
+  /**
+   * @return Number of unwraps that did not share the leading request's deadline failure and retried
+   */
+  public long retriedCount() {
+    return unwrapFlights.retriedCount();
+  }
+
+  public synchronized int size() {
+    return cachedKeys.size();
+  }
+
+  /**
+   * Computes the cache fingerprint of a wrapped key.
+   *
+   * @param wrappedKey The RSA-encrypted key bytes
+   * @return HEX(SHA-256(wrappedKey))
+   */
+  public static String fingerprint(byte[] wrappedKey) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+      return HexFormat.of().formatHex(digest.digest(wrappedKey));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 algorithm not available", e);
+    }
+  }
+
+  /**
+   * Waited too long on a KMS call made for another request: KMS is slow, answered with 503.
+   */
+  private static KmsCallGuard.KmsUnavailableException unavailable(SingleFlight.FlightTimeoutException e) {
+    return new KmsCallGuard.KmsUnavailableException("KMS Decrypt in flight for a concurrent request: " + e.getMessage(), e);
+  }
+
+  private synchronized SecretKey lookup(String fingerprint) {
+    CachedKey cachedKey = cachedKeys.get(fingerprint);
+    if (cachedKey == null) {
+      return null;
+    }
+    if (cachedKey.isExpired(System.nanoTime())) {
+      cachedKeys.remove(fingerprint);
+      evict(cachedKey);
+      return null;
+    }
+    // SecretKeySpec copies the bytes, so eviction never touches a key handed out
+    return new SecretKeySpec(cachedKey.keyBytes, AES_ALGORITHM);
+  }
+
+  private synchronized void store(String fingerprint, byte[] keyBytes) {
+    long now = System.nanoTime();
+    purgeExpired(now);
+    CachedKey previous = cachedKeys.put(fingerprint, new CachedKey(keyBytes.clone(), now + ttlNanos));
+    if (previous != null) {
+      evict(previous);
+    }
+  }
+
+  /**
+   * Drops every expired entry. Runs on the miss path only, where the KMS round trip
+   * dwarfs a linear scan over at most max-entries keys.
+   */
+  private void purgeExpired(long now) {
+    Iterator<CachedKey> iterator = cachedKeys.values().iterator();
+    while (iterator.hasNext()) {
+      CachedKey cachedKey = iterator.next();
+      if (cachedKey.isExpired(now)) {
+        iterator.remove();
+        evict(cachedKey);
+      }
+    }
+  }
+
+  private void evict(CachedKey cachedKey) {
+    Arrays.fill(cachedKey.keyBytes, (byte) 0);
+    evictions.incrementAndGet();
+  }
+
+  /**
+   * Miss path: caches the freshly unwrapped key and converts it into the SecretKey shared by
+   * every waiter of the flight. SecretKeySpec is immutable, so sharing one instance is safe.
+   */
+  private SecretKey unwrapped(String fingerprint, byte[] keyBytes) {
+    if (enabled) {
+      misses.incrementAndGet();
+      store(fingerprint, keyBytes);
+      log.debug("Key cache miss - size={} hits={} misses={} coalesced={}",
+          size(), hits.get(), misses.get(), coalescedCount());
+    }
+    return toSecretKey(keyBytes);
+  }
+
+  private static SecretKey toSecretKey(byte[] keyBytes) {
+    try {
+      return new SecretKeySpec(keyBytes, AES_ALGORITHM);
+    } finally {
+      Arrays.fill(keyBytes, (byte) 0);
+    }
+  }
+
+  private record CachedKey(byte[] keyBytes, long expiresAtNanos) {
+    boolean isExpired(long now) {
+      return now - expiresAtNanos >= 0;
+    }
+  }
+}
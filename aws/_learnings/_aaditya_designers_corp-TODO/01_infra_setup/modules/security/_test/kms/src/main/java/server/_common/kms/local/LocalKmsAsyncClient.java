@@ -0,0 +1,55 @@
+package server._common.kms.local;
+
+import software.amazon.awssdk.services.kms.KmsAsyncClient;
+import software.amazon.awssdk.services.kms.model.DecryptRequest;
+import software.amazon.awssdk.services.kms.model.DecryptResponse;
+import software.amazon.awssdk.services.kms.model.GetPublicKeyRequest;
+import software.amazon.awssdk.services.kms.model.GetPublicKeyResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking {@link KmsAsyncClient} backed by {@link LocalKms}.
+ *
+ * <p>Responses complete on a timer after the sampled latency, so no thread is parked while the
+ * simulated call is in flight, as with the Netty-based real client. Operations other than
+ * Decrypt and GetPublicKey fail with UnsupportedOperationException.</p>
+ */
+public class LocalKmsAsyncClient implements KmsAsyncClient {
+
+  private final LocalKms localKms;
+
+  public LocalKmsAsyncClient(LocalKms localKms) {
+    this.localKms = localKms;
+  }
+
+  @Override
+  public CompletableFuture<DecryptResponse> decrypt(DecryptRequest decryptRequest) {
+    return afterLatency(() -> localKms.decrypt(decryptRequest));
+  }
+
+  @Override
+  public CompletableFuture<GetPublicKeyResponse> getPublicKey(GetPublicKeyRequest getPublicKeyRequest) {
+    return afterLatency(() -> localKms.getPublicKey(getPublicKeyRequest));
+  }
+
+  @Override
+  public String serviceName() {
+    return SERVICE_NAME;
+  }
+
+  @Override
+  public void close() {
+  }
+
+  private <T> CompletableFuture<T> afterLatency(Supplier<T> call) {
+    long latencyMillis = localKms.nextLatencyMillis();
+    Executor executor = latencyMillis == 0
+        ? Runnable::run
+        : CompletableFuture.delayedExecutor(latencyMillis, TimeUnit.MILLISECONDS);
+    return CompletableFuture.supplyAsync(call, executor);
+  }
+}
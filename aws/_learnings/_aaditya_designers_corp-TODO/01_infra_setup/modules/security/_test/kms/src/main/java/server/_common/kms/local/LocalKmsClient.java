@@ -0,0 +1,66 @@
+package server._common.kms.local;
+
+import software.amazon.awssdk.services.kms.KmsClient;
+import software.amazon.awssdk.services.kms.model.DecryptRequest;
+import software.amazon.awssdk.services.kms.model.DecryptResponse;
+import software.amazon.awssdk.services.kms.model.GenerateDataKeyRequest;
+import software.amazon.awssdk.services.kms.model.GenerateDataKeyResponse;
+import software.amazon.awssdk.services.kms.model.GetPublicKeyRequest;
+import software.amazon.awssdk.services.kms.model.GetPublicKeyResponse;
+import software.amazon.awssdk.services.kms.model.KmsException;
+
+/**
+ * Blocking {@link KmsClient} backed by {@link LocalKms}.
+ *
+ * <p>The calling thread sleeps for the sampled latency, just as it would wait on the HTTP
+ * round trip of the real client. Operations other than Decrypt, GetPublicKey and GenerateDataKey
+ * throw UnsupportedOperationException.</p>
+ */
+public class LocalKmsClient implements KmsClient {
+
+  private final LocalKms localKms;
+
+  public LocalKmsClient(LocalKms localKms) {
+    this.localKms = localKms;
+  }
+
+  @Override
+  public DecryptResponse decrypt(DecryptRequest decryptRequest) {
+    awaitLatency();
+    return localKms.decrypt(decryptRequest);
+  }
+
+  @Override
+  public GetPublicKeyResponse getPublicKey(GetPublicKeyRequest getPublicKeyRequest) {
+    awaitLatency();
+    return localKms.getPublicKey(getPublicKeyRequest);
+  }
+
+  @Override
+  public GenerateDataKeyResponse generateDataKey(GenerateDataKeyRequest generateDataKeyRequest) {
+    awaitLatency();
+    return localKms.generateDataKey(generateDataKeyRequest);
+  }
+
+  @Override
+  public String serviceName() {
+    return SERVICE_NAME;
+  }
+
+  @Override
+  public void close() {
+  }
+
+  private void awaitLatency() {
+    long latencyMillis = localKms.nextLatencyMillis();
+    if (latencyMillis == 0) {
+      return;
+    }
+    try {
+      Thread.sleep(latencyMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw KmsException.builder().message("Interrupted while waiting for Local KMS").cause(e).build();
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package server._common.kms.local;
+
+import server._common.kms.EcdhKeyAgreement;
+import software.amazon.awssdk.services.kms.model.KmsException;
+
+import java.security.interfaces.ECPublicKey;
+
+/**
+ * Blocking {@link EcdhKeyAgreement} backed by {@link LocalKms}, standing in for KMS DeriveSharedSecret.
+ *
+ * <p>Like {@link LocalKmsClient}, the calling thread sleeps for the sampled latency of the round
+ * trip before the key agreement runs.</p>
+ */
+public class LocalKmsEcdhKeyAgreement implements EcdhKeyAgreement {
+
+  private final LocalKms localKms;
+
+  public LocalKmsEcdhKeyAgreement(LocalKms localKms) {
+    this.localKms = localKms;
+  }
+
+  @Override
+  public ECPublicKey publicKey() {
+    return localKms.ecdhPublicKey();
+  }
+
+  @Override
+  public byte[] deriveSharedSecret(ECPublicKey ephemeralPublicKey) {
+    awaitLatency();
+    return localKms.deriveSharedSecret(ephemeralPublicKey);
+  }
+
+  private void awaitLatency() {
+    long latencyMillis = localKms.nextLatencyMillis();
+    if (latencyMillis == 0) {
+      return;
+    }
+    try {
+      Thread.sleep(latencyMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw KmsException.builder().message("Interrupted while waiting for Local KMS").cause(e).build();
+    }
+  }
+}
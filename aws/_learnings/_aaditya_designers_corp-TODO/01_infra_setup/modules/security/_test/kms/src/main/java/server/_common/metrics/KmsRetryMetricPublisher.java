@@ -0,0 +1,49 @@
+package server._common.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+
+import java.util.List;
+
+/**
+ * KMS Retry Metric Publisher - Counts the AWS SDK's retries per KMS operation.
+ *
+ * <p>kms.request (StageMetrics) times a KMS call as the application sees it, retries included;
+ * this adds kms.request.retries{operation}, the attempts the SDK's retry strategy made on top.
+ * A rising retry rate at a flat request rate is throttling or a degrading KMS, before the
+ * circuit breaker opens.</p>
+ *
+ * <p>Attached to the AWS clients only (AwsKmsConfig): the Local KMS stand-in does not retry.</p>
+ */
+public class KmsRetryMetricPublisher implements MetricPublisher {
+
+  private static final String UNKNOWN_OPERATION = "unknown";
+
+  private final MeterRegistry registry;
+
+  public KmsRetryMetricPublisher(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public void publish(MetricCollection metricCollection) {
+    int retries = metricCollection.metricValues(CoreMetric.RETRY_COUNT).stream().mapToInt(Integer::intValue).sum();
+    if (retries == 0) {
+      return;
+    }
+    List<String> operations = metricCollection.metricValues(CoreMetric.OPERATION_NAME);
+    Counter.builder("kms.request.retries")
+        .description("AWS SDK retries of KMS calls")
+        .tag("operation", operations.isEmpty() ? UNKNOWN_OPERATION : operations.get(0))
+        .register(registry)
+        .increment(retries);
+  }
+
+  @Override
+  public void close() {
+    // Meters belong to the registry
+  }
+}
@@ -0,0 +1,247 @@
+package server._common.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Stage Metrics - Micrometer timers for every crypto and KMS stage of a request.
+ *
+ * <h2>Where the Time Goes</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  kms.request{operation, outcome, error.code}   KMS round trip (remote) │
+ * │  crypto.jwe.parse                              JWE split + Base64URL   │
+ * │  crypto.aes.gcm.decrypt{target=field|payload}  local AES-256-GCM       │
+ * │  crypto.aes.gcm.encrypt{target=field|payload}  encrypted responses     │
+ * │  crypto.aes.gcm.{en,de}crypt{target=file}      whole segmented file    │
+ * │  crypto.aes.gcm.decrypt{target=file_range}     segments of a range     │
+ * │  order.json.parse{approach}                    field extraction        │
+ * │  order.response.serialize{approach}            Gson response body      │
+ * │  order.response.write                          order confirmation body │
+ * │                                                                        │
+ * │  p99 dominated by kms.request → tune KMS (cache, tokens, connections)  │
+ * │  p99 dominated by the others  → local CPU                              │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <p>Every timer is also a counter (its count). Percentile histograms are switched on per meter
+ * prefix with management.metrics.distribution.percentiles-histogram.* and scraped from
+ * /actuator/prometheus.</p>
+ *
+ * <p>A KMS call is timed only when it is actually made: key-cache hits and coalesced callers
+ * show up in the kms.key.cache meters instead (see MetricsConfig).</p>
+ */
+@Component
+public class StageMetrics {
+
+  public static final String MULTI_FIELDS = "multi_fields";
+  public static final String FULL_PAYLOAD = "full_payload";
+
+  private static final String KMS_REQUEST = "kms.request";
+  private static final String NO_ERROR = "none";
+
+  private final MeterRegistry registry;
+  private final Timer jweParse;
+  private final Timer fieldDecrypt;
+  private final Timer payloadDecrypt;
+  private final Timer fieldEncrypt;
+  private final Timer payloadEncrypt;
+  private final Timer fileEncrypt;
+  private final Timer fileDecrypt;
+  private final Timer fileRangeDecrypt;
+  private final Timer responseWrite;
+  private final ConcurrentMap<String, Timer> jsonParse = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Timer> responseSerialize = new ConcurrentHashMap<>();
+
+  public StageMetrics(MeterRegistry registry) {
+    this.registry = registry;
+    this.jweParse = Timer.builder("crypto.jwe.parse")
+        .description("JWE compact serialization parse (header, Base64URL parts)")
+        .register(registry);
+    this.fieldDecrypt = aesGcmDecrypt("field");
+    this.payloadDecrypt = aesGcmDecrypt("payload");
+    this.fieldEncrypt = aesGcmEncrypt("field");
+    this.payloadEncrypt = aesGcmEncrypt("payload");
+    this.fileEncrypt = aesGcmEncrypt("file");
+    this.fileDecrypt = aesGcmDecrypt("file");
+    this.fileRangeDecrypt = aesGcmDecrypt("file_range");
+    this.responseWrite = Timer.builder("order.response.write")
+        .description("Order confirmation encoded and written to the response")
+        .register(registry);
+  }
+
+  /**
+   * @return Timers on an in-memory registry, for code built outside Spring (benchmarks)
+   */
+  public static StageMetrics simple() {
+    return new StageMetrics(new SimpleMeterRegistry());
+  }
+
+  public Timer jweParse() {
+    return jweParse;
+  }
+
+  /**
+   * @return AES-GCM decryption of one multi-fields field (Base64 decode included)
+   */
+  public Timer fieldDecrypt() {
+    return fieldDecrypt;
+  }
+
+  /**
+   * @return AES-GCM decryption of a whole buffered JWE payload (Base64URL decode included)
+   */
+  public Timer payloadDecrypt() {
+    return payloadDecrypt;
+  }
+
+  /**
+   * @return AES-GCM encryption of one multi-fields response field (Base64 encode included)
+   */
+  public Timer fieldEncrypt() {
+    return fieldEncrypt;
+  }
+
+  /**
+   * @return AES-GCM encryption of a whole JWE response payload (Base64URL encode included)
+   */
+  public Timer payloadEncrypt() {
+    return payloadEncrypt;
+  }
+
+  /**
+   * @return AES-GCM encryption of a whole file, all segments and file I/O included
+   */
+  public Timer fileEncrypt() {
+    return fileEncrypt;
+  }
+
+  /**
+   * @return AES-GCM decryption of a whole file, all segments and file I/O included
+   */
+  public Timer fileDecrypt() {
+    return fileDecrypt;
+  }
+
+  /**
+   * @return AES-GCM decryption of the segments covering a byte range of a file, streaming
+   *         included
+   */
+  public Timer fileRangeDecrypt() {
+    return fileRangeDecrypt;
+  }
+
+  /**
+   * @param approach {@link #MULTI_FIELDS} or {@link #FULL_PAYLOAD}
+   */
+  public Timer jsonParse(String approach) {
+    return jsonParse.computeIfAbsent(approach, key -> Timer.builder("order.json.parse")
+        .description("Extraction of the order fields from the (decrypted) JSON")
+        .tag("approach", key)
+        .register(registry));
+  }
+
+  /**
+   * @param approach {@link #MULTI_FIELDS} or {@link #FULL_PAYLOAD}
+   */
+  public Timer responseSerialize(String approach) {
+    return responseSerialize.computeIfAbsent(approach, key -> Timer.builder("order.response.serialize")
+        .description("Serialization of the response body")
+        .tag("approach", key)
+        .register(registry));
+  }
+
+  /**
+   * @return Encoding of an order confirmation straight into the response (replaces
+   *         order.response.serialize for single orders)
+   */
+  public Timer responseWrite() {
+    return responseWrite;
+  }
+
+  /**
+   * Times a blocking KMS call, tagged by outcome and SDK error code.
+   *
+   * @param operation KMS API name, e.g. Decrypt
+   * @param call      The call
+   * @return The call's result
+   */
+  public <T> T kms(String operation, Supplier<T> call) {
+    long start = System.nanoTime();
+    try {
+      T result = call.get();
+      recordKms(operation, null, start);
+      return result;
+    } catch (RuntimeException e) {
+      recordKms(operation, e, start);
+      throw e;
+    }
+  }
+
+  /**
+   * Times a non-blocking KMS call from submission to completion.
+   *
+   * @param operation KMS API name, e.g. Decrypt
+   * @param call      Submits the call
+   * @return The call's future
+   */
+  public <T> CompletableFuture<T> kmsAsync(String operation, Supplier<CompletableFuture<T>> call) {
+    long start = System.nanoTime();
+    CompletableFuture<T> future;
+    try {
+      future = call.get();
+    } catch (RuntimeException e) {
+      recordKms(operation, e, start);
+      throw e;
+    }
+    return future.whenComplete((result, error) -> recordKms(operation, error, start));
+  }
+
+  private void recordKms(String operation, Throwable error, long startNanos) {
+    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    Timer.builder(KMS_REQUEST)
+        .description("KMS API calls actually made (cache hits excluded)")
+        .tag("operation", operation)
+        .tag("outcome", cause == null ? "success" : "error")
+        .tag("error.code", cause == null ? NO_ERROR : errorCode(cause))
+        .register(registry)
+        .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @return The AWS error code (ThrottlingException, KMSInternalException, ...), else the exception
+   *         type (client-side failures: timeouts, connection pool exhaustion)
+   */
+  private static String errorCode(Throwable error) {
+    if (error instanceof AwsServiceException serviceException
+        && serviceException.awsErrorDetails() != null
+        && serviceException.awsErrorDetails().errorCode() != null) {
+      return serviceException.awsErrorDetails().errorCode();
+    }
+    return error.getClass().getSimpleName();
+  }
+
+  private Timer aesGcmDecrypt(String target) {
+    return Timer.builder("crypto.aes.gcm.decrypt")
+        .description("Local AES-256-GCM decryption")
+        .tag("target", target)
+        .register(registry);
+  }
+
+  private Timer aesGcmEncrypt(String target) {
+    return Timer.builder("crypto.aes.gcm.encrypt")
+        .description("Local AES-256-GCM encryption")
+        .tag("target", target)
+        .register(registry);
+  }
+}
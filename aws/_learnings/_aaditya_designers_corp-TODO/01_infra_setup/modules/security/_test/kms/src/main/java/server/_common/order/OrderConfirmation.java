@@ -0,0 +1,65 @@
+package server._common.order;
+
+import com.google.gson.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Order Confirmation - The response of a successfully processed order.
+ *
+ * <pre>
+ * { "success": true, "orderId": "...", "name": "...", "dateOfBirth": "...",
+ *   "cardDetails": { "creditCardNumber": "****-****-****-1234", "ssn": "***-**-6789" } }
+ * </pre>
+ *
+ * <p>Returned by the order endpoints as is: {@link OrderConfirmationHttpMessageConverter} writes
+ * it straight to the response without a JsonObject tree or an intermediate String. Null fields
+ * are omitted, as Gson does.</p>
+ *
+ * @param orderId                Generated order id
+ * @param name                   Decrypted name
+ * @param dateOfBirth            Decrypted date of birth
+ * @param maskedCreditCardNumber Credit card number, masked
+ * @param maskedSsn              SSN, masked
+ */
+public record OrderConfirmation(
+    String orderId,
+    String name,
+    String dateOfBirth,
+    String maskedCreditCardNumber,
+    String maskedSsn
+) {
+
+  /**
+   * @return The confirmation as a JSON tree, for responses that embed it (batch results)
+   */
+  public JsonObject toJsonObject() {
+    JsonObject response = new JsonObject();
+    response.addProperty("success", true);
+    response.addProperty("orderId", orderId);
+    response.addProperty("name", name);
+    response.addProperty("dateOfBirth", dateOfBirth);
+
+    JsonObject cardDetails = new JsonObject();
+    cardDetails.addProperty("creditCardNumber", maskedCreditCardNumber);
+    cardDetails.addProperty("ssn", maskedSsn);
+    response.add("cardDetails", cardDetails);
+    return response;
+  }
+
+  /**
+   * @return The JSON the converter writes, as a String (audit log, tests)
+   */
+  public String toJson() {
+    return new String(toJsonBytes(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @return The JSON the converter writes, UTF-8 encoded (plaintext of an encrypted response)
+   */
+  public byte[] toJsonBytes() {
+    byte[] json = new byte[OrderConfirmationWriter.encodedLength(this)];
+    OrderConfirmationWriter.write(this, json);
+    return json;
+  }
+}
@@ -0,0 +1,69 @@
+package server._common.order;
+
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import server._common.metrics.StageMetrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order Confirmation Converter - Writes {@link OrderConfirmation} response bodies.
+ *
+ * <h2>One Pass to the Servlet Output Stream</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  Before: JsonObject tree → gson.toJson → String                        │
+ * │          → StringHttpMessageConverter → getBytes → output stream       │
+ * │                                                                        │
+ * │  Now:    OrderConfirmation → OrderConfirmationWriter → byte[] (exact   │
+ * │          size) → Content-Length + 1 write to the output stream         │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <p>Spring Boot registers HttpMessageConverter beans ahead of its defaults, so controllers
+ * simply return the confirmation; errors stay String bodies. Write only: the type is never
+ * read from a request.</p>
+ */
+@Component
+public class OrderConfirmationHttpMessageConverter extends AbstractHttpMessageConverter<OrderConfirmation> {
+
+  private final Timer responseWrite;
+
+  public OrderConfirmationHttpMessageConverter(StageMetrics metrics) {
+    super(StandardCharsets.UTF_8, MediaType.APPLICATION_JSON);
+    this.responseWrite = metrics.responseWrite();
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return OrderConfirmation.class == clazz;
+  }
+
+  @Override
+  protected boolean canRead(MediaType mediaType) {
+    return false;
+  }
+
+  @Override
+  protected OrderConfirmation readInternal(Class<? extends OrderConfirmation> clazz, HttpInputMessage inputMessage) {
+    throw new HttpMessageNotReadableException("OrderConfirmation is a response type", inputMessage);
+  }
+
+  @Override
+  protected void writeInternal(OrderConfirmation confirmation, HttpOutputMessage outputMessage) throws IOException {
+    long start = System.nanoTime();
+    byte[] json = new byte[OrderConfirmationWriter.encodedLength(confirmation)];
+    OrderConfirmationWriter.write(confirmation, json);
+    // Headers are sent on the first getBody(): the length must be set before
+    outputMessage.getHeaders().setContentLength(json.length);
+    outputMessage.getBody().write(json);
+    responseWrite.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+  }
+}
@@ -0,0 +1,185 @@
+package server._common.order;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Order Confirmation Writer - Encodes an {@link OrderConfirmation} as UTF-8 JSON in one pass.
+ *
+ * <h2>Pre-Built Shape</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  {"success":true ,"orderId": ,"name": ,"dateOfBirth": ,"cardDetails":{ │
+ * │  "creditCardNumber": "ssn": }}          ← constant UTF-8 fragments,    │
+ * │                                           encoded once at class load   │
+ * │                                                                        │
+ * │  encodedLength(c)  exact byte count (escapes + UTF-8 included)         │
+ * │  write(c, bytes)   fragments copied, the 5 values escaped + encoded    │
+ * │                    straight into the byte[]                            │
+ * │                                                                        │
+ * │  vs Gson tree:  JsonObject × 2 + 7 JsonPrimitive + LinkedTreeMap nodes │
+ * │  → StringWriter → String → String.getBytes (see                        │
+ * │  OrderConfirmationWriterBenchmark)                                     │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <p>The output is byte-for-byte what {@code new Gson().toJson(confirmation.toJsonObject())}
+ * produces: null values omitted, and Gson's HTML-safe escaping ({@code < > & = '}, U+2028 and U+2029
+ * as unicode escapes). A lone surrogate is written as '?', as the UTF-8 encoder does.</p>
+ */
+public final class OrderConfirmationWriter {
+
+  private static final byte[] OPEN = ascii("{\"success\":true");
+  private static final byte[] ORDER_ID = ascii(",\"orderId\":");
+  private static final byte[] NAME = ascii(",\"name\":");
+  private static final byte[] DATE_OF_BIRTH = ascii(",\"dateOfBirth\":");
+  private static final byte[] CARD_DETAILS = ascii(",\"cardDetails\":{");
+  private static final byte[] CREDIT_CARD_NUMBER = ascii("\"creditCardNumber\":");
+  private static final byte[] SSN = ascii("\"ssn\":");
+  private static final byte[] CLOSE = ascii("}}");
+  private static final byte QUOTE = '"';
+  private static final byte COMMA = ',';
+  private static final byte UNMAPPABLE = '?';
+  private static final int UNICODE_ESCAPE_LENGTH = 6;
+  // Valid in JSON, not in JavaScript string literals: escaped by Gson
+  private static final char LINE_SEPARATOR = '\u2028';
+  private static final char PARAGRAPH_SEPARATOR = '\u2029';
+  private static final byte[] LINE_SEPARATOR_ESCAPE = unicodeEscape(LINE_SEPARATOR);
+  private static final byte[] PARAGRAPH_SEPARATOR_ESCAPE = unicodeEscape(PARAGRAPH_SEPARATOR);
+
+  // Escape sequence of each ASCII char, as Gson's HTML-safe JsonWriter writes it; null: written as is
+  private static final byte[][] ASCII_ESCAPES = new byte[128][];
+
+  static {
+    for (int c = 0; c < 0x20; c++) {
+      ASCII_ESCAPES[c] = unicodeEscape(c);
+    }
+    ASCII_ESCAPES['"'] = ascii("\\\"");
+    ASCII_ESCAPES['\\'] = ascii("\\\\");
+    ASCII_ESCAPES['\t'] = ascii("\\t");
+    ASCII_ESCAPES['\b'] = ascii("\\b");
+    ASCII_ESCAPES['\n'] = ascii("\\n");
+    ASCII_ESCAPES['\r'] = ascii("\\r");
+    ASCII_ESCAPES['\f'] = ascii("\\f");
+    for (char c : "<>&='".toCharArray()) {
+      ASCII_ESCAPES[c] = unicodeEscape(c);
+    }
+  }
+
+  private OrderConfirmationWriter() {
+  }
+
+  /**
+   * @param confirmation The confirmation
+   * @return Its exact UTF-8 JSON length in bytes
+   */
+  public static int encodedLength(OrderConfirmation confirmation) {
+    int length = OPEN.length + CARD_DETAILS.length + CLOSE.length
+        + fieldLength(ORDER_ID, confirmation.orderId())
+        + fieldLength(NAME, confirmation.name())
+        + fieldLength(DATE_OF_BIRTH, confirmation.dateOfBirth())
+        + fieldLength(CREDIT_CARD_NUMBER, confirmation.maskedCreditCardNumber())
+        + fieldLength(SSN, confirmation.maskedSsn());
+    if (confirmation.maskedCreditCardNumber() != null && confirmation.maskedSsn() != null) {
+      length++;
+    }
+    return length;
+  }
+
+  /**
+   * Writes the confirmation as UTF-8 JSON.
+   *
+   * @param confirmation The confirmation
+   * @param out          Destination, at least {@link #encodedLength(OrderConfirmation)} bytes
+   * @return Number of bytes written
+   */
+  public static int write(OrderConfirmation confirmation, byte[] out) {
+    int position = copy(OPEN, out, 0);
+    position = writeField(ORDER_ID, confirmation.orderId(), out, position);
+    position = writeField(NAME, confirmation.name(), out, position);
+    position = writeField(DATE_OF_BIRTH, confirmation.dateOfBirth(), out, position);
+    position = copy(CARD_DETAILS, out, position);
+    position = writeField(CREDIT_CARD_NUMBER, confirmation.maskedCreditCardNumber(), out, position);
+    if (confirmation.maskedCreditCardNumber() != null && confirmation.maskedSsn() != null) {
+      out[position++] = COMMA;
+    }
+    position = writeField(SSN, confirmation.maskedSsn(), out, position);
+    return copy(CLOSE, out, position);
+  }
+
+  private static int fieldLength(byte[] name, String value) {
+    return value == null ? 0 : name.length + 2 + stringLength(value);
+  }
+
+  private static int stringLength(String value) {
+    int length = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        length += ASCII_ESCAPES[c] == null ? 1 : ASCII_ESCAPES[c].length;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR) {
+        length += UNICODE_ESCAPE_LENGTH;
+      } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        length++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  private static int writeField(byte[] name, String value, byte[] out, int position) {
+    if (value == null) {
+      return position;
+    }
+    position = copy(name, out, position);
+    out[position++] = QUOTE;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        byte[] escape = ASCII_ESCAPES[c];
+        if (escape == null) {
+          out[position++] = (byte) c;
+        } else {
+          position = copy(escape, out, position);
+        }
+      } else if (c < 0x800) {
+        out[position++] = (byte) (0xC0 | c >> 6);
+        out[position++] = (byte) (0x80 | c & 0x3F);
+      } else if (c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR) {
+        position = copy(c == LINE_SEPARATOR ? LINE_SEPARATOR_ESCAPE : PARAGRAPH_SEPARATOR_ESCAPE, out, position);
+      } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        out[position++] = (byte) (0xF0 | codePoint >> 18);
+        out[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+        out[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+        out[position++] = (byte) (0x80 | codePoint & 0x3F);
+      } else if (Character.isSurrogate(c)) {
+        out[position++] = UNMAPPABLE;
+      } else {
+        out[position++] = (byte) (0xE0 | c >> 12);
+        out[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+        out[position++] = (byte) (0x80 | c & 0x3F);
+      }
+    }
+    out[position++] = QUOTE;
+    return position;
+  }
+
+  private static int copy(byte[] fragment, byte[] out, int position) {
+    System.arraycopy(fragment, 0, out, position, fragment.length);
+    return position + fragment.length;
+  }
+
+  private static byte[] unicodeEscape(int c) {
+    return ascii(String.format("\\u%04x", c));
+  }
+
+  private static byte[] ascii(String fragment) {
+    return fragment.getBytes(StandardCharsets.US_ASCII);
+  }
+}
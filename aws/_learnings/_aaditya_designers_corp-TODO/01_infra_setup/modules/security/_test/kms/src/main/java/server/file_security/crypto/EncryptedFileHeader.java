@@ -0,0 +1,201 @@
+package server.file_security.crypto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Encrypted File Header - The header of a segmented encrypted file, and the segment layout it
+ * determines.
+ *
+ * <h2>File Layout (big-endian)</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  magic "KMSF" (4) │ version (1) │ segmentSize (4) │ noncePrefix (7)    │
+ * │  wrappedKeyLength (2) │ wrappedKey (RSA-OAEP-256 DEK, 512 for RSA-4096)│
+ * ├────────────────────────────────────────────────────────────────────────┤
+ * │  segment 0:     AES-256-GCM(plaintext[0, S))          ‖ tag (16)       │
+ * │  segment 1:     AES-256-GCM(plaintext[S, 2S))         ‖ tag (16)       │
+ * │  ...                                                                   │
+ * │  segment n-1:   AES-256-GCM(rest, 0..S bytes)         ‖ tag (16)       │
+ * └────────────────────────────────────────────────────────────────────────┘
+ *
+ *  nonce(i) = noncePrefix (7) ‖ i (4, big-endian) ‖ last ? 0x01 : 0x00
+ *  AAD      = the header bytes, on every segment
+ * </pre>
+ *
+ * <h3>Why Segments Cannot Be Dropped, Reordered or Appended (STREAM):</h3>
+ * <ul>
+ *   <li>The segment index is part of the nonce: a segment moved to another position fails its tag</li>
+ *   <li>Only the last segment is encrypted with the final flag: a file cut at a segment
+ *       boundary ends in a segment without it and fails; bytes appended after the last
+ *       segment make it a non-final segment and fail</li>
+ *   <li>The header is the AAD of every segment: segment size, nonce prefix and wrapped key
+ *       cannot be swapped</li>
+ * </ul>
+ *
+ * <p>A file always has at least one segment (an empty file is one empty, authenticated final
+ * segment), and a plaintext of exactly n segments is not followed by an empty one. Segment
+ * positions follow from the header alone, so any segment can be located and decrypted on its
+ * own.</p>
+ */
+public record EncryptedFileHeader(int segmentSize, byte[] noncePrefix, byte[] wrappedDataEncryptionKey) {
+
+  public static final int TAG_SIZE_BYTES = 16;
+  public static final int NONCE_SIZE_BYTES = 12;
+  public static final int NONCE_PREFIX_SIZE_BYTES = 7;
+  public static final int MIN_SEGMENT_SIZE = 4096;
+  /** The segment index is 4 bytes of the nonce */
+  public static final long MAX_SEGMENTS = 1L << 32;
+
+  private static final byte[] MAGIC = {'K', 'M', 'S', 'F'};
+  private static final byte VERSION = 1;
+  private static final int FIXED_SIZE_BYTES = MAGIC.length + 1 + 4 + NONCE_PREFIX_SIZE_BYTES + 2;
+  private static final int MAX_WRAPPED_KEY_SIZE_BYTES = 1024;
+
+  public EncryptedFileHeader {
+    if (segmentSize < MIN_SEGMENT_SIZE || segmentSize > Integer.MAX_VALUE - TAG_SIZE_BYTES) {
+      throw new IllegalArgumentException("Segment size out of range: " + segmentSize);
+    }
+    if (noncePrefix.length != NONCE_PREFIX_SIZE_BYTES) {
+      throw new IllegalArgumentException("Nonce prefix must be " + NONCE_PREFIX_SIZE_BYTES + " bytes");
+    }
+    if (wrappedDataEncryptionKey.length == 0 || wrappedDataEncryptionKey.length > MAX_WRAPPED_KEY_SIZE_BYTES) {
+      throw new IllegalArgumentException("Wrapped key size out of range: " + wrappedDataEncryptionKey.length);
+    }
+  }
+
+  /**
+   * The file is not a segmented encrypted file, or its header is damaged.
+   */
+  public static class InvalidEncryptedFileException extends RuntimeException {
+    public InvalidEncryptedFileException(String message) {
+      super(message);
+    }
+  }
+
+  /**
+   * Reads the header from the start of a file.
+   *
+   * @param channel The encrypted file
+   * @return The header
+   * @throws InvalidEncryptedFileException If the file does not start with a valid header
+   */
+  public static EncryptedFileHeader read(FileChannel channel) throws IOException {
+    ByteBuffer fixed = readFully(channel, 0, FIXED_SIZE_BYTES);
+    byte[] magic = new byte[MAGIC.length];
+    fixed.get(magic);
+    if (!Arrays.equals(magic, MAGIC)) {
+      throw new InvalidEncryptedFileException("Not an encrypted file");
+    }
+    byte version = fixed.get();
+    if (version != VERSION) {
+      throw new InvalidEncryptedFileException("Unsupported encrypted file version: " + version);
+    }
+    int segmentSize = fixed.getInt();
+    byte[] noncePrefix = new byte[NONCE_PREFIX_SIZE_BYTES];
+    fixed.get(noncePrefix);
+    int wrappedKeyLength = Short.toUnsignedInt(fixed.getShort());
+
+    ByteBuffer wrappedKey = readFully(channel, FIXED_SIZE_BYTES, wrappedKeyLength);
+    try {
+      return new EncryptedFileHeader(segmentSize, noncePrefix, wrappedKey.array());
+    } catch (IllegalArgumentException e) {
+      throw new InvalidEncryptedFileException("Invalid encrypted file header: " + e.getMessage());
+    }
+  }
+
+  /**
+   * @return The header bytes: written at the start of the file, and the AAD of every segment
+   */
+  public byte[] toBytes() {
+    return ByteBuffer.allocate(length())
+        .put(MAGIC)
+        .put(VERSION)
+        .putInt(segmentSize)
+        .put(noncePrefix)
+        .putShort((short) wrappedDataEncryptionKey.length)
+        .put(wrappedDataEncryptionKey)
+        .array();
+  }
+
+  /**
+   * @return Header size in bytes, i.e. the offset of segment 0
+   */
+  public int length() {
+    return FIXED_SIZE_BYTES + wrappedDataEncryptionKey.length;
+  }
+
+  /**
+   * @return Size of a full segment on disk: plaintext segment size plus tag
+   */
+  public int ciphertextSegmentSize() {
+    return segmentSize + TAG_SIZE_BYTES;
+  }
+
+  /**
+   * @return Offset of a segment in the encrypted file
+   */
+  public long segmentOffset(long segment) {
+    return length() + segment * ciphertextSegmentSize();
+  }
+
+  /**
+   * @return Number of segments a plaintext of the given size is encrypted into (at least 1)
+   */
+  public long segmentCountForPlaintext(long plaintextSize) {
+    return Math.max(1, ceilDiv(plaintextSize, segmentSize));
+  }
+
+  /**
+   * @return Number of segments of an encrypted file of the given size
+   * @throws InvalidEncryptedFileException If the size is not a possible encrypted file size
+   */
+  public long segmentCount(long encryptedFileSize) {
+    long body = encryptedFileSize - length();
+    long segments = ceilDiv(body, ciphertextSegmentSize());
+    if (body < TAG_SIZE_BYTES || body - (segments - 1) * ciphertextSegmentSize() < TAG_SIZE_BYTES) {
+      throw new InvalidEncryptedFileException("Encrypted file is truncated");
+    }
+    if (segments > MAX_SEGMENTS) {
+      throw new InvalidEncryptedFileException("Encrypted file has too many segments");
+    }
+    return segments;
+  }
+
+  /**
+   * @return Plaintext size of an encrypted file of the given size
+   * @throws InvalidEncryptedFileException If the size is not a possible encrypted file size
+   */
+  public long plaintextSize(long encryptedFileSize) {
+    return encryptedFileSize - length() - segmentCount(encryptedFileSize) * TAG_SIZE_BYTES;
+  }
+
+  /**
+   * @param segment Segment index
+   * @param last    Whether this is the final segment of the file
+   * @return The segment's 96-bit GCM nonce
+   */
+  public byte[] nonce(long segment, boolean last) {
+    return ByteBuffer.allocate(NONCE_SIZE_BYTES)
+        .put(noncePrefix)
+        .putInt((int) segment)
+        .put((byte) (last ? 1 : 0))
+        .array();
+  }
+
+  private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new InvalidEncryptedFileException("Encrypted file header is truncated");
+      }
+    }
+    return buffer.flip();
+  }
+
+  private static long ceilDiv(long dividend, long divisor) {
+    return (dividend + divisor - 1) / divisor;
+  }
+}
@@ -0,0 +1,122 @@
+package server.file_security.crypto;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import server._common.kms.KmsCallGuard;
+import server.restapi_data_security.multi_fields_encryption.crypto.DEKDecryptorAndUnwrapper;
+import software.amazon.awssdk.services.kms.KmsClient;
+import software.amazon.awssdk.services.kms.model.GetPublicKeyRequest;
+import software.amazon.awssdk.services.kms.model.GetPublicKeyResponse;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.OAEPParameterSpec;
+import javax.crypto.spec.PSource;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * File Data Key Manager - One fresh DEK per encrypted file, wrapped under the KMS asymmetric key.
+ *
+ * <h2>Wrap Locally, Unwrap in KMS</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  Encrypt: DEK = SecureRandom (32 bytes)                                │
+ * │           wrappedKey = RSA-OAEP-256(KMS public key, DEK)   (no KMS     │
+ * │           call: the public key is fetched once with GetPublicKey)      │
+ * │                                                                        │
+ * │  Decrypt: KMS Decrypt(wrappedKey, RSAES_OAEP_SHA_256) → DEK            │
+ * │           via DEKDecryptorAndUnwrapper: UnwrappedKeyCache, KmsCallGuard│
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <p>The wrapped key is the same RSA-OAEP-256 envelope the multi-fields clients send in
+ * X-Encryption-Key, so unwrapping a file's DEK shares the key cache, single-flight and circuit
+ * breaker of the REST API, and reading a file twice within the cache TTL costs no KMS call.</p>
+ */
+@Component
+public class FileDataKeyManager {
+
+  private static final String RSA_TRANSFORMATION = "RSA/ECB/OAEPWithSHA-256AndMGF1Padding";
+  private static final OAEPParameterSpec OAEP_SHA256 =
+      new OAEPParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, PSource.PSpecified.DEFAULT);
+  private static final int DATA_KEY_SIZE_BYTES = 32;
+
+  private final KmsClient kmsClient;
+  private final KmsCallGuard kmsCallGuard;
+  private final DEKDecryptorAndUnwrapper dekDecryptorAndUnwrapper;
+  private final String keyArn;
+  private final SecureRandom secureRandom = new SecureRandom();
+  private volatile PublicKey publicKey;
+
+  public FileDataKeyManager(
+      KmsClient kmsClient,
+      KmsCallGuard kmsCallGuard,
+      DEKDecryptorAndUnwrapper dekDecryptorAndUnwrapper,
+      @Value("${aws.kms.asymmetric-key-arn}") String keyArn
+  ) {
+    this.kmsClient = kmsClient;
+    this.kmsCallGuard = kmsCallGuard;
+    this.dekDecryptorAndUnwrapper = dekDecryptorAndUnwrapper;
+    this.keyArn = keyArn;
+  }
+
+  /**
+   * A file's DEK and its KMS-wrapped form (stored in the file header).
+   */
+  public record DataKey(SecretKey key, byte[] wrappedKey) {
+  }
+
+  /**
+   * @return A fresh random DEK, wrapped under the KMS key's public key
+   */
+  public DataKey newDataKey() {
+    byte[] key = new byte[DATA_KEY_SIZE_BYTES];
+    secureRandom.nextBytes(key);
+    try {
+      Cipher cipher = Cipher.getInstance(RSA_TRANSFORMATION);
+      cipher.init(Cipher.ENCRYPT_MODE, publicKey(), OAEP_SHA256);
+      return new DataKey(new SecretKeySpec(key, "AES"), cipher.doFinal(key));
+
+    } catch (KmsCallGuard.KmsUnavailableException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to wrap file DEK: " + e.getMessage(), e);
+    } finally {
+      Arrays.fill(key, (byte) 0);
+    }
+  }
+
+  /**
+   * Unwraps a file's DEK via KMS, or from the key cache.
+   *
+   * @param wrappedKey The wrapped key from the file header
+   * @return The file's DEK
+   */
+  public SecretKey unwrap(byte[] wrappedKey) {
+    return dekDecryptorAndUnwrapper.unwrapAndDecryptDataEncryptionKeyViaAWSKMS(
+        Base64.getEncoder().encodeToString(wrappedKey));
+  }
+
+  /**
+   * Not synchronized (a lock held across a KMS call pins virtual threads): concurrent first
+   * callers may each fetch the key, and all get the same one.
+   */
+  private PublicKey publicKey() throws Exception {
+    PublicKey publicKey = this.publicKey;
+    if (publicKey == null) {
+      GetPublicKeyResponse response = kmsCallGuard.call("GetPublicKey", override -> kmsClient.getPublicKey(
+          GetPublicKeyRequest.builder().keyId(keyArn).overrideConfiguration(override).build()));
+      publicKey = KeyFactory.getInstance("RSA")
+          .generatePublic(new X509EncodedKeySpec(response.publicKey().asByteArray()));
+      this.publicKey = publicKey;
+    }
+    return publicKey;
+  }
+}
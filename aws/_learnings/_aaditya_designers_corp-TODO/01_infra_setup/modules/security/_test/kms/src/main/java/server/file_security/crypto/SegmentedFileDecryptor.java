@@ -0,0 +1,411 @@
+package server.file_security.crypto;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import server._common.crypto.AesGcmCipherPool;
+import server._common.metrics.StageMetrics;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Segmented File Decryptor - Decrypts and authenticates a file in the {@link EncryptedFileHeader}
+ * layout, on one core or across the shared crypto pool.
+ *
+ * <h2>Segment by Segment, Verified Before Written</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  source ──mmap (read-only window, up to 64 MiB)──┐                     │
+ * │                                                  ▼                     │
+ * │     segment i ──AES-GCM verify + decrypt (nonce(i, i == n-1))──►       │
+ * │                                         direct buffer (1 segment)      │
+ * │  target ◄──FileChannel.write(buffer, i * segmentSize)──┘               │
+ * │                                                                        │
+ * │  Tag mismatch in segment i → SegmentAuthenticationException; segments  │
+ * │  0..i-1 are already written, the caller discards the target            │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <h2>Parallel Decryption (files ≥ parallel-threshold-bytes)</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  [0, n) segments ──fork──► [0, n/2)          [n/2, n)                  │
+ * │                   ──fork──► ... ranges of ≤ 64 MiB, about 4 per worker │
+ * │  each range: map its own window, decrypt its segments in order,        │
+ * │              positional writes (FileChannel is safe for concurrent     │
+ * │              positional writes; ranges never overlap)                  │
+ * │  join → every segment verified → done                                  │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <h3>Ordering and Whole-File Authentication:</h3>
+ * <ul>
+ *   <li>A segment's position is authenticated by its nonce (index, final flag), not by the order
+ *       in which it is decrypted: a worker can only produce segment i's plaintext at offset
+ *       i * segmentSize</li>
+ *   <li>The file is authenticated once every range joined without failure, exactly as when
+ *       decrypted sequentially</li>
+ *   <li>The lowest failing segment wins, so the error is the one a sequential decryption would
+ *       report; ranges above a known failure stop early</li>
+ * </ul>
+ *
+ * <h3>Random Access ({@link #decryptRange}):</h3>
+ * <pre>
+ *  plaintext bytes [from, to] → segments from / S .. to / S → decrypt only those (sequential,
+ *  in order) → trim the first and last segment → stream
+ * </pre>
+ *
+ * <p>GCM releases a segment's plaintext only after its tag verified, so no unauthenticated byte
+ * is ever written. Whole-file integrity (no segment dropped, reordered or appended) holds only
+ * once the last segment verified: a target left by a failed decryption must not be used.</p>
+ *
+ * <p>AES-GCM is CPU-bound, so the ranges run on the ForkJoinPool sized to the cores that batch and
+ * field decryption share (see CryptoPoolConfig), not on a pool of their own. Memory stays bounded:
+ * at most one segment buffer per worker and file.</p>
+ *
+ * <p>Properties:</p>
+ * <ul>
+ *   <li>encryption.file.decrypt-parallelism: Workers a file's ranges are sized for; the caller waits
+ *       (default: 0 = pool parallelism; 1 = always sequential, on the calling thread)</li>
+ *   <li>encryption.file.parallel-threshold-bytes: Encrypted file size at or above which it is
+ *       decrypted in parallel (default: 8388608)</li>
+ * </ul>
+ */
+@Component
+public class SegmentedFileDecryptor {
+
+  private static final int GCM_TAG_SIZE_BITS = EncryptedFileHeader.TAG_SIZE_BYTES * 8;
+  private static final long MAP_WINDOW_BYTES = 64L << 20;
+  private static final int RANGES_PER_WORKER = 4;
+  private static final long NO_FAILURE = Long.MAX_VALUE;
+
+  private final AesGcmCipherPool cipherPool;
+  private final StageMetrics metrics;
+  private final int parallelism;
+  private final long parallelThresholdBytes;
+  private final ForkJoinPool pool;
+
+  public SegmentedFileDecryptor(
+      AesGcmCipherPool cipherPool,
+      StageMetrics metrics,
+      @Qualifier("cryptoPool") ForkJoinPool cryptoPool,
+      @Value("${encryption.file.decrypt-parallelism:0}") int parallelism,
+      @Value("${encryption.file.parallel-threshold-bytes:8388608}") long parallelThresholdBytes
+  ) {
+    this.cipherPool = cipherPool;
+    this.metrics = metrics;
+    this.parallelism = parallelism > 0 ? parallelism : cryptoPool.getParallelism();
+    this.parallelThresholdBytes = parallelThresholdBytes;
+    this.pool = this.parallelism > 1 ? cryptoPool : null;
+  }
+
+  /**
+   * A segment failed authentication: wrong key, or the file was modified, truncated, reordered
+   * or extended.
+   */
+  public static class SegmentAuthenticationException extends RuntimeException {
+    public SegmentAuthenticationException(long segment, Throwable cause) {
+      super("Encrypted file segment " + segment + " failed authentication", cause);
+    }
+  }
+
+  /**
+   * Decrypts every segment of the source into the target.
+   *
+   * @param source            The encrypted file
+   * @param header            Its header, as read by {@link EncryptedFileHeader#read(FileChannel)}
+   * @param dataEncryptionKey The DEK unwrapped from the header
+   * @param target            The (empty) plaintext file
+   * @return Size of the plaintext in bytes
+   * @throws SegmentAuthenticationException If a segment fails authentication (the lowest one)
+   * @throws EncryptedFileHeader.InvalidEncryptedFileException If the file size is not a possible
+   *                                                           encrypted file size
+   */
+  public long decrypt(FileChannel source, EncryptedFileHeader header, SecretKey dataEncryptionKey, FileChannel target) {
+    try {
+      return metrics.fileDecrypt().recordCallable(() -> decryptSegments(source, header, dataEncryptionKey, target));
+    } catch (SegmentAuthenticationException | EncryptedFileHeader.InvalidEncryptedFileException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to decrypt file: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Decrypts a byte range of the plaintext: only the segments covering it are read and
+   * authenticated, so the cost follows the range size, not the file size.
+   *
+   * <p>Bytes are written to the stream as each segment verifies; a segment failing
+   * authentication stops the stream at its start. Segments outside the range are not checked,
+   * so a range is authenticated, not the whole file.</p>
+   *
+   * @param source            The encrypted file
+   * @param header            Its header
+   * @param dataEncryptionKey The DEK unwrapped from the header
+   * @param from              First plaintext byte, inclusive
+   * @param to                Last plaintext byte, inclusive
+   * @param out               Receives the plaintext bytes [from, to]
+   * @return Number of bytes written
+   * @throws SegmentAuthenticationException If a covering segment fails authentication
+   * @throws IllegalArgumentException If the range is not within the plaintext
+   */
+  public long decryptRange(FileChannel source, EncryptedFileHeader header, SecretKey dataEncryptionKey,
+                           long from, long to, OutputStream out) {
+    try {
+      return metrics.fileRangeDecrypt().recordCallable(
+          () -> decryptByteRange(source, header, dataEncryptionKey, from, to, out));
+    } catch (SegmentAuthenticationException | EncryptedFileHeader.InvalidEncryptedFileException
+             | IllegalArgumentException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to decrypt file range: " + e.getMessage(), e);
+    }
+  }
+
+  private long decryptSegments(FileChannel source, EncryptedFileHeader header, SecretKey dataEncryptionKey,
+                               FileChannel target) throws Exception {
+    long encryptedFileSize = source.size();
+    long segmentsPerWindow = Math.max(1, MAP_WINDOW_BYTES / header.ciphertextSegmentSize());
+
+    SegmentSink sink = (segment, plaintext) -> writeFully(target, plaintext, segment * header.segmentSize());
+    try (Decryption decryption = new Decryption(source, header, dataEncryptionKey, encryptedFileSize, true, sink)) {
+      long segments = decryption.segments;
+      if (pool == null || segments < 2 || encryptedFileSize < parallelThresholdBytes) {
+        decryption.decryptRange(0, segments, segmentsPerWindow);
+      } else {
+        long rangeSegments = Math.min(segmentsPerWindow,
+            Math.max(1, (segments + parallelism * RANGES_PER_WORKER - 1) / (parallelism * RANGES_PER_WORKER)));
+        pool.invoke(new RangeTask(decryption, 0, segments, rangeSegments));
+      }
+      decryption.throwFirstFailure();
+    }
+    return header.plaintextSize(encryptedFileSize);
+  }
+
+  private long decryptByteRange(FileChannel source, EncryptedFileHeader header, SecretKey dataEncryptionKey,
+                                long from, long to, OutputStream out) throws Exception {
+    long encryptedFileSize = source.size();
+    long plaintextSize = header.plaintextSize(encryptedFileSize);
+    if (from < 0 || to < from || to >= plaintextSize) {
+      throw new IllegalArgumentException("Range " + from + "-" + to + " outside of " + plaintextSize + " bytes");
+    }
+    long segmentSize = header.segmentSize();
+    long segmentsPerWindow = Math.max(1, MAP_WINDOW_BYTES / header.ciphertextSegmentSize());
+
+    // Heap buffer: the plaintext is written from the decrypt output array, not copied again
+    SegmentSink sink = (segment, plaintext) -> {
+      long segmentStart = segment * segmentSize;
+      int start = (int) Math.max(0, from - segmentStart);
+      int end = (int) Math.min(plaintext.limit(), to + 1 - segmentStart);
+      out.write(plaintext.array(), plaintext.arrayOffset() + start, end - start);
+    };
+    try (Decryption decryption = new Decryption(source, header, dataEncryptionKey, encryptedFileSize, false, sink)) {
+      decryption.decryptRange(from / segmentSize, to / segmentSize + 1, segmentsPerWindow);
+      decryption.throwFirstFailure();
+    }
+    return to - from + 1;
+  }
+
+  /**
+   * Receives each decrypted segment; called in segment order within a range.
+   */
+  @FunctionalInterface
+  private interface SegmentSink {
+    void accept(long segment, ByteBuffer plaintext) throws IOException;
+  }
+
+  /**
+   * One file's decryption: shared by its ranges, keeps the lowest failing segment and the
+   * segment buffers of the workers.
+   */
+  private final class Decryption implements AutoCloseable {
+
+    private final FileChannel source;
+    private final EncryptedFileHeader header;
+    private final SecretKey dataEncryptionKey;
+    private final long encryptedFileSize;
+    private final boolean directBuffers;
+    private final SegmentSink sink;
+    private final long segments;
+    private final byte[] aad;
+    // Any worker of the shared pool may steal a range, not only decrypt-parallelism of them
+    private final BlockingQueue<ByteBuffer> idleBuffers =
+        new ArrayBlockingQueue<>(Math.max(parallelism, pool != null ? pool.getParallelism() : 1));
+    private final List<ByteBuffer> allBuffers = new ArrayList<>();
+    private long firstFailedSegment = NO_FAILURE;
+    private Exception firstFailure;
+
+    Decryption(FileChannel source, EncryptedFileHeader header, SecretKey dataEncryptionKey, long encryptedFileSize,
+               boolean directBuffers, SegmentSink sink) {
+      this.source = source;
+      this.header = header;
+      this.dataEncryptionKey = dataEncryptionKey;
+      this.encryptedFileSize = encryptedFileSize;
+      this.directBuffers = directBuffers;
+      this.sink = sink;
+      this.segments = header.segmentCount(encryptedFileSize);
+      this.aad = header.toBytes();
+    }
+
+    /**
+     * Decrypts segments [first, end) in order, one mapped window of up to windowSegments at a time.
+     */
+    void decryptRange(long first, long end, long windowSegments) {
+      ByteBuffer output = borrowBuffer();
+      try {
+        for (long windowFirst = first; windowFirst < end && windowFirst < firstFailedSegment();
+             windowFirst += windowSegments) {
+          long windowEnd = Math.min(end, windowFirst + windowSegments);
+          long windowStart = header.segmentOffset(windowFirst);
+          long windowLength = Math.min(encryptedFileSize, header.segmentOffset(windowEnd)) - windowStart;
+          MappedByteBuffer window = source.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+
+          for (long segment = windowFirst; segment < windowEnd; segment++) {
+            int offset = (int) (header.segmentOffset(segment) - windowStart);
+            ByteBuffer input = window.slice(offset, (int) Math.min(header.ciphertextSegmentSize(), windowLength - offset));
+            output.clear();
+            decryptSegment(input, output, segment);
+            sink.accept(segment, output.flip());
+          }
+        }
+      } catch (SegmentFailure e) {
+        fail(e.segment, e.failure);
+      } catch (Exception e) {
+        fail(first, e);
+      } finally {
+        idleBuffers.offer(output);
+      }
+    }
+
+    void throwFirstFailure() throws Exception {
+      Exception failure;
+      synchronized (this) {
+        failure = firstFailure;
+      }
+      if (failure != null) {
+        throw failure;
+      }
+    }
+
+    @Override
+    public void close() {
+      synchronized (this) {
+        allBuffers.forEach(SegmentedFileDecryptor::zeroize);
+      }
+    }
+
+    private void decryptSegment(ByteBuffer input, ByteBuffer output, long segment) throws SegmentFailure {
+      byte[] nonce = header.nonce(segment, segment == segments - 1);
+      try {
+        cipherPool.execute(cipher -> {
+          cipher.init(Cipher.DECRYPT_MODE, dataEncryptionKey, new GCMParameterSpec(GCM_TAG_SIZE_BITS, nonce));
+          cipher.updateAAD(aad);
+          return cipher.doFinal(input, output);
+        });
+      } catch (AEADBadTagException e) {
+        throw new SegmentFailure(segment, new SegmentAuthenticationException(segment, e));
+      } catch (Exception e) {
+        throw new SegmentFailure(segment, e);
+      }
+    }
+
+    private ByteBuffer borrowBuffer() {
+      ByteBuffer buffer = idleBuffers.poll();
+      if (buffer == null) {
+        buffer = directBuffers
+            ? ByteBuffer.allocateDirect(header.segmentSize())
+            : ByteBuffer.allocate(header.segmentSize());
+        synchronized (this) {
+          allBuffers.add(buffer);
+        }
+      }
+      return buffer;
+    }
+
+    private synchronized long firstFailedSegment() {
+      return firstFailedSegment;
+    }
+
+    private synchronized void fail(long segment, Exception e) {
+      if (segment < firstFailedSegment) {
+        firstFailedSegment = segment;
+        firstFailure = e;
+      }
+    }
+  }
+
+  /**
+   * Splits a segment range in halves until it is at most rangeSegments long, then decrypts it.
+   */
+  private static final class RangeTask extends RecursiveAction {
+
+    private final Decryption decryption;
+    private final long first;
+    private final long end;
+    private final long rangeSegments;
+
+    RangeTask(Decryption decryption, long first, long end, long rangeSegments) {
+      this.decryption = decryption;
+      this.first = first;
+      this.end = end;
+      this.rangeSegments = rangeSegments;
+    }
+
+    @Override
+    protected void compute() {
+      long ranges = (end - first + rangeSegments - 1) / rangeSegments;
+      if (ranges <= 1) {
+        decryption.decryptRange(first, end, rangeSegments);
+        return;
+      }
+      long middle = first + (ranges / 2) * rangeSegments;
+      invokeAll(new RangeTask(decryption, first, middle, rangeSegments),
+          new RangeTask(decryption, middle, end, rangeSegments));
+    }
+  }
+
+  /**
+   * Carries the failing segment's index out of the cipher operation.
+   */
+  private static final class SegmentFailure extends Exception {
+
+    private final long segment;
+    private final Exception failure;
+
+    SegmentFailure(long segment, Exception failure) {
+      super(null, null, false, false);
+      this.segment = segment;
+      this.failure = failure;
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+  private static void zeroize(ByteBuffer buffer) {
+    buffer.clear();
+    while (buffer.remaining() >= Long.BYTES) {
+      buffer.putLong(0L);
+    }
+    while (buffer.hasRemaining()) {
+      buffer.put((byte) 0);
+    }
+  }
+}
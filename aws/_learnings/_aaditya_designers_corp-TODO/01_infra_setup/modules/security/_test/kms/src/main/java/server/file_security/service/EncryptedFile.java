@@ -0,0 +1,58 @@
+package server.file_security.service;
+
+import server.file_security.crypto.EncryptedFileHeader;
+import server.file_security.crypto.SegmentedFileDecryptor;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+
+/**
+ * Encrypted File - An encrypted file opened for random-access reads: header read, DEK unwrapped.
+ *
+ * <p>Opening costs the KMS unwrap (or a key cache hit); each {@link #writeRange} then only
+ * decrypts the segments covering its range. Not thread-safe to close while a range is being
+ * written; ranges may be read concurrently.</p>
+ */
+public final class EncryptedFile implements AutoCloseable {
+
+  private final FileChannel channel;
+  private final EncryptedFileHeader header;
+  private final SecretKey dataEncryptionKey;
+  private final SegmentedFileDecryptor decryptor;
+  private final long plaintextSize;
+
+  EncryptedFile(FileChannel channel, EncryptedFileHeader header, SecretKey dataEncryptionKey,
+                SegmentedFileDecryptor decryptor) throws IOException {
+    this.channel = channel;
+    this.header = header;
+    this.dataEncryptionKey = dataEncryptionKey;
+    this.decryptor = decryptor;
+    this.plaintextSize = header.plaintextSize(channel.size());
+  }
+
+  /**
+   * @return Size of the decrypted file in bytes
+   */
+  public long plaintextSize() {
+    return plaintextSize;
+  }
+
+  /**
+   * Decrypts plaintext bytes [from, to] into a stream.
+   *
+   * @param from First byte, inclusive
+   * @param to   Last byte, inclusive
+   * @param out  Receives the bytes
+   * @throws SegmentedFileDecryptor.SegmentAuthenticationException If a covering segment was modified
+   */
+  public void writeRange(long from, long to, OutputStream out) {
+    decryptor.decryptRange(channel, header, dataEncryptionKey, from, to, out);
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,158 @@
+package server.file_security.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import server.file_security.crypto.EncryptedFileHeader;
+import server.file_security.crypto.FileDataKeyManager;
+import server.file_security.crypto.SegmentedFileDecryptor;
+import server.file_security.crypto.SegmentedFileEncryptor;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+
+/**
+ * File Encryption Service - Encrypts and decrypts files of any size under one KMS-wrapped DEK
+ * per file.
+ *
+ * <h2>Flow</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  encrypt(source, target):                                              │
+ * │  1. New DEK, wrapped under the KMS key        (FileDataKeyManager)     │
+ * │  2. Header: segment size, random nonce prefix, wrapped DEK             │
+ * │  3. Header + AES-256-GCM segments → target    (SegmentedFileEncryptor) │
+ * │                                                                        │
+ * │  decrypt(source, target):                                              │
+ * │  1. Read header                               (EncryptedFileHeader)    │
+ * │  2. Unwrap DEK: 1 KMS call, or key cache hit  (FileDataKeyManager)     │
+ * │  3. Verify + decrypt segments → target        (SegmentedFileDecryptor) │
+ * │                                                                        │
+ * │  open(source) → EncryptedFile: header + DEK once, then any number of   │
+ * │  writeRange(from, to, out), each decrypting only its segments          │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <p>A failed operation deletes the target: a partially decrypted file is not authenticated
+ * as a whole and must never be picked up.</p>
+ *
+ * <p>Properties:</p>
+ * <ul>
+ *   <li>encryption.file.segment-size: Plaintext bytes per segment of newly encrypted files; the
+ *       unit of authentication and of random access (default: 1048576)</li>
+ * </ul>
+ */
+@Service
+public class FileEncryptionService {
+
+  private final FileDataKeyManager dataKeyManager;
+  private final SegmentedFileEncryptor encryptor;
+  private final SegmentedFileDecryptor decryptor;
+  private final int segmentSize;
+  private final SecureRandom secureRandom = new SecureRandom();
+
+  public FileEncryptionService(
+      FileDataKeyManager dataKeyManager,
+      SegmentedFileEncryptor encryptor,
+      SegmentedFileDecryptor decryptor,
+      @Value("${encryption.file.segment-size:1048576}") int segmentSize
+  ) {
+    if (segmentSize < EncryptedFileHeader.MIN_SEGMENT_SIZE) {
+      throw new IllegalArgumentException(
+          "encryption.file.segment-size must be at least " + EncryptedFileHeader.MIN_SEGMENT_SIZE);
+    }
+    this.dataKeyManager = dataKeyManager;
+    this.encryptor = encryptor;
+    this.decryptor = decryptor;
+    this.segmentSize = segmentSize;
+  }
+
+  /**
+   * Encrypts a file under a new DEK.
+   *
+   * @param source The plaintext file
+   * @param target The encrypted file (created or replaced)
+   * @return The header written to the target
+   */
+  public EncryptedFileHeader encrypt(Path source, Path target) {
+    FileDataKeyManager.DataKey dataKey = dataKeyManager.newDataKey();
+    byte[] noncePrefix = new byte[EncryptedFileHeader.NONCE_PREFIX_SIZE_BYTES];
+    secureRandom.nextBytes(noncePrefix);
+    EncryptedFileHeader header = new EncryptedFileHeader(segmentSize, noncePrefix, dataKey.wrappedKey());
+
+    try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+         FileChannel out = openTarget(target)) {
+      encryptor.encrypt(in, out, header, dataKey.key());
+      return header;
+
+    } catch (IOException | RuntimeException e) {
+      deleteQuietly(target);
+      throw e instanceof RuntimeException runtime ? runtime
+          : new RuntimeException("Failed to encrypt file: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Decrypts and authenticates an encrypted file.
+   *
+   * @param source The encrypted file
+   * @param target The plaintext file (created or replaced; deleted if decryption fails)
+   * @return Size of the plaintext in bytes
+   * @throws SegmentedFileDecryptor.SegmentAuthenticationException If the file was modified
+   * @throws EncryptedFileHeader.InvalidEncryptedFileException If the source is not an encrypted
+   *                                                           file, or is truncated
+   */
+  public long decrypt(Path source, Path target) {
+    try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+      EncryptedFileHeader header = EncryptedFileHeader.read(in);
+      SecretKey dataEncryptionKey = dataKeyManager.unwrap(header.wrappedDataEncryptionKey());
+
+      try (FileChannel out = openTarget(target)) {
+        return decryptor.decrypt(in, header, dataEncryptionKey, out);
+      } catch (IOException | RuntimeException e) {
+        deleteQuietly(target);
+        throw e;
+      }
+
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to decrypt file: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Opens an encrypted file for range reads: reads its header and unwraps its DEK (1 KMS call,
+   * or a key cache hit).
+   *
+   * @param source The encrypted file
+   * @return The opened file; the caller closes it
+   * @throws EncryptedFileHeader.InvalidEncryptedFileException If the source is not an encrypted
+   *                                                           file, or is truncated
+   */
+  public EncryptedFile open(Path source) throws IOException {
+    FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+    try {
+      EncryptedFileHeader header = EncryptedFileHeader.read(in);
+      return new EncryptedFile(in, header, dataKeyManager.unwrap(header.wrappedDataEncryptionKey()), decryptor);
+    } catch (IOException | RuntimeException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  private static FileChannel openTarget(Path target) throws IOException {
+    return FileChannel.open(target,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+  }
+
+  private static void deleteQuietly(Path target) {
+    try {
+      Files.deleteIfExists(target);
+    } catch (IOException ignored) {
+      // The original failure is what the caller needs to see
+    }
+  }
+}
@@ -1,15 +1,21 @@
 package server.restapi.encryption.full_payload.controller;
 
 import com.google.gson.Gson;
-import com.google.gson.JsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import server._common.Utils;
+import server._common.audit.AuditRecord;
+import server._common.order.OrderConfirmation;
 import server.restapi.encryption.full_payload.service.OrderService;
 
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Order Controller (All-Fields) - REST endpoints for JWE-encrypted payloads.
  *
@@ -27,6 +33,16 @@ import server.restapi.encryption.full_payload.service.OrderService;
  * │  1. Parse JWE                                                          │
  * │  2. KMS decrypt encryptedCek → CEK (1 KMS call)                        │
  * │  3. Local AES decrypt ciphertext → JSON payload                        │
+ * │                                                                        │
+ * │  aws.kms.async.enabled=true: step 2 uses the KmsAsyncClient and the    │
+ * │  request thread is released while KMS is in flight                     │
+ * │                                                                        │
+ * │  Content-Type: application/jose → streaming mode: the JWE is read      │
+ * │  from the request InputStream and decrypted chunk by chunk, so memory  │
+ * │  per request stays bounded for multi-MB payloads                       │
+ * │                                                                        │
+ * │  X-Encrypt-Response: true → the confirmation is returned as a JWE      │
+ * │  (application/jose, alg=dir) under the request's CEK                   │
  * └────────────────────────────────────────────────────────────────────────┘
  * </pre>
  */
@@ -35,17 +51,22 @@ import server.restapi.encryption.full_payload.service.OrderService;
 public class OrderController {
 
   private static final Logger log = LoggerFactory.getLogger(OrderController.class);
+  private static final String ENCRYPT_RESPONSE_HEADER = "X-Encrypt-Response";
+  private static final MediaType APPLICATION_JOSE = MediaType.parseMediaType("application/jose");
 
   private final OrderService orderService;
   private final Gson gson = new Gson();
+  private final boolean asyncKmsEnabled;
   private Utils utils;
 
   public OrderController(
       @Qualifier("allFieldsOrderService") OrderService orderService,
-      Utils utils
+      Utils utils,
+      @Value("${aws.kms.async.enabled:false}") boolean asyncKmsEnabled
   ) {
     this.orderService = orderService;
     this.utils = utils;
+    this.asyncKmsEnabled = asyncKmsEnabled;
   }
 
   @GetMapping("/health")
@@ -59,30 +80,91 @@ public class OrderController {
    * <p>Request body is the JWE compact serialization containing the entire
    * encrypted JSON payload.</p>
    *
-   * @param requestBody The JWE string (Header.EncryptedCek.IV.Ciphertext.AuthTag)
-   * @return Order confirmation with decrypted/masked PII
+   * @param encryptResponse Whether to encrypt the confirmation under the request's CEK (X-Encrypt-Response header)
+   * @param requestBody     The JWE string (Header.EncryptedCek.IV.Ciphertext.AuthTag)
+   * @return Order confirmation with decrypted/masked PII (written by OrderConfirmationHttpMessageConverter),
+   *         or the confirmation as a dir JWE
    */
   @PostMapping(value = "/orders", consumes = "text/plain")
-  public ResponseEntity<String> submitOrder(
+  public CompletableFuture<ResponseEntity<?>> submitOrder(
+      @RequestHeader(value = ENCRYPT_RESPONSE_HEADER, defaultValue = "false") boolean encryptResponse,
       @RequestBody String requestBody
   ) {
-    log.info("Request Body: {}", utils.truncate(requestBody, 60));
+    AuditRecord audit = AuditRecord.current();
+    audit.requestBody(requestBody);
     if (requestBody == null || requestBody.isBlank()) {
-      return ResponseEntity.badRequest().body(gson.toJson(utils.errorResponse("Empty request body")));
+      return CompletableFuture.completedFuture(
+          ResponseEntity.badRequest().body(gson.toJson(utils.errorResponse("Empty request body"))));
     }
     // Validate JWE format (5 dot-separated parts)
     if (requestBody.split("\\.").length != 5) {
-      return ResponseEntity.badRequest().body(gson.toJson(utils.errorResponse("Invalid JWE format")));
+      return CompletableFuture.completedFuture(
+          ResponseEntity.badRequest().body(gson.toJson(utils.errorResponse("Invalid JWE format"))));
     }
 
+    CompletableFuture<?> pendingResponse;
+    if (asyncKmsEnabled) {
+      pendingResponse = encryptResponse
+          ? orderService.processOrderWithEncryptedResponseAsync(requestBody)
+          : orderService.processOrderAsync(requestBody);
+    } else {
+      try {
+        pendingResponse = CompletableFuture.completedFuture(encryptResponse
+            ? orderService.processOrderWithEncryptedResponse(requestBody)
+            : orderService.processOrder(requestBody));
+      } catch (Exception e) {
+        pendingResponse = CompletableFuture.failedFuture(e);
+      }
+    }
+
+    return pendingResponse.<ResponseEntity<?>>handle((response, failure) -> {
+      if (failure != null) {
+        Throwable e = utils.unwrap(failure);
+        log.error("Order processing failed: {}", e.getMessage(), e);
+        return ResponseEntity.status(utils.failureStatus(e)).body(gson.toJson(utils.errorResponse("Order processing failed: " + e.getMessage())));
+      }
+      return ok(response, audit);
+    });
+  }
+
+  /**
+   * Submits an order with JWE-encrypted request body, decrypted while it streams in.
+   *
+   * <p>Same JWE as {@link #submitOrder(boolean, String)}, sent as {@code application/jose} (RFC 7515
+   * compact serialization). The body is never buffered as a String; the CEK is unwrapped with
+   * the blocking KMS client since the request thread is busy reading the body anyway.</p>
+   *
+   * @param encryptResponse Whether to encrypt the confirmation under the request's CEK (X-Encrypt-Response header)
+   * @param requestBody     The JWE stream (Header.EncryptedCek.IV.Ciphertext.AuthTag)
+   * @return Order confirmation with decrypted/masked PII, or the confirmation as a dir JWE
+   */
+  @PostMapping(value = "/orders", consumes = "application/jose")
+  public ResponseEntity<?> submitOrderStream(
+      @RequestHeader(value = ENCRYPT_RESPONSE_HEADER, defaultValue = "false") boolean encryptResponse,
+      InputStream requestBody
+  ) {
+    // The body is streamed, never held as a String: only the response body can be audited
+    AuditRecord audit = AuditRecord.current();
     try {
-      JsonObject response = orderService.processOrder(requestBody);
-      log.info("Response Body: {}", gson.toJson(response));
-      return ResponseEntity.ok(gson.toJson(response));
+      return ok(encryptResponse
+          ? orderService.processOrderWithEncryptedResponse(requestBody)
+          : orderService.processOrder(requestBody), audit);
     } catch (Exception e) {
       log.error("Order processing failed: {}", e.getMessage(), e);
-      return ResponseEntity.badRequest().body(gson.toJson(utils.errorResponse("Order processing failed: " + e.getMessage())));
+      return ResponseEntity.status(utils.failureStatus(e)).body(gson.toJson(utils.errorResponse("Order processing failed: " + e.getMessage())));
     }
   }
 
+  /**
+   * @param response An OrderConfirmation, or the confirmation as a dir JWE
+   */
+  private static ResponseEntity<?> ok(Object response, AuditRecord audit) {
+    if (response instanceof OrderConfirmation confirmation) {
+      audit.responseBody(confirmation::toJson);
+      return ResponseEntity.ok(confirmation);
+    }
+    String jwe = (String) response;
+    audit.responseBody(jwe);
+    return ResponseEntity.ok().contentType(APPLICATION_JOSE).body(jwe);
+  }
 }
@@ -0,0 +1,117 @@
+package server.restapi.encryption.full_payload.crypto;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.crypto.impl.AESKW;
+import com.nimbusds.jose.crypto.impl.ConcatKDF;
+import com.nimbusds.jose.crypto.impl.ECDH;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import server._common.kms.EcdhKeyAgreement;
+import server._common.metrics.StageMetrics;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.interfaces.ECPublicKey;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * ECDH-ES+A256KW Key Unwrapper - Recovers the CEK by key agreement instead of RSA decryption.
+ *
+ * <h2>JWE ECDH-ES+A256KW (RFC 7518 §4.6)</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  Header: { "alg":"ECDH-ES+A256KW", "enc":"A256GCM",                    │
+ * │            "epk":{ client's ephemeral P-256 / P-384 public key } }     │
+ * │  Encrypted Key: AES-KW(KEK, CEK) = 40 bytes (RSA-4096: 512 bytes)      │
+ * │                                                                        │
+ * │  1. Z   = ecdhKeyAgreement.deriveSharedSecret(epk)   (KMS / stand-in)  │
+ * │  2. KEK = Concat KDF(SHA-256, Z, "ECDH-ES+A256KW", apu, apv, 256)      │
+ * │  3. CEK = AES-KW unwrap(KEK, encryptedKey)   (integrity-checked)       │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <h3>Why:</h3>
+ * <ul>
+ *   <li>Smaller messages: header + encrypted key are ~300 characters on P-256 (~360 on P-384)
+ *       instead of ~750 with RSA-4096</li>
+ *   <li>Cheaper private-key operation: one ECDH instead of an RSA-4096 decryption, ~4x less
+ *       work in KMS (or the stand-in). On the client it costs an EC key generation + ECDH, more
+ *       CPU than an RSA public-key encryption in the JDK provider (see JweKeyManagementBenchmark);
+ *       mobile platforms ship fast native P-256</li>
+ *   <li>Every JWE has a fresh epk, so there is nothing for {@link server._common.kms.UnwrappedKeyCache}
+ *       to reuse: 1 key agreement per message, like an RSA cache miss</li>
+ * </ul>
+ *
+ * <p>Only the curve of the server key is accepted; an epk on another curve (or off the curve,
+ * rejected when the header is parsed) fails before the key agreement is called.</p>
+ */
+public class EcdhEsKeyUnwrapper implements JweKeyUnwrapper {
+
+  private static final String AES_ALGORITHM = "AES";
+
+  private final EcdhKeyAgreement ecdhKeyAgreement;
+  private final Curve curve;
+  private final StageMetrics metrics;
+  // The key agreement blocks (KMS round trip): the async variant parks a virtual thread instead of the caller
+  private final Executor agreementExecutor = runnable -> Thread.ofVirtual().name("ecdh-unwrap").start(runnable);
+
+  public EcdhEsKeyUnwrapper(EcdhKeyAgreement ecdhKeyAgreement, StageMetrics metrics) {
+    this.ecdhKeyAgreement = ecdhKeyAgreement;
+    this.metrics = metrics;
+    this.curve = Curve.forECParameterSpec(ecdhKeyAgreement.publicKey().getParams());
+    if (!Curve.P_256.equals(curve) && !Curve.P_384.equals(curve)) {
+      throw new IllegalArgumentException("ECDH-ES+A256KW requires a P-256 or P-384 key, got: " + curve);
+    }
+  }
+
+  @Override
+  public String algorithm() {
+    return JWEAlgorithm.ECDH_ES_A256KW.getName();
+  }
+
+  /**
+   * @return The curve clients must generate their ephemeral keys on
+   */
+  public Curve curve() {
+    return curve;
+  }
+
+  @Override
+  public SecretKey unwrap(JWEHeader header, byte[] encryptedKey) {
+    if (!(header.getEphemeralPublicKey() instanceof ECKey ephemeralKey)) {
+      throw new IllegalArgumentException("Missing or non-EC epk header for " + algorithm());
+    }
+    if (!curve.equals(ephemeralKey.getCurve())) {
+      throw new IllegalArgumentException("Unsupported epk curve: " + ephemeralKey.getCurve() + " (expected " + curve + ")");
+    }
+
+    byte[] sharedSecret = null;
+    try {
+      // STEP 1: Z via the server's key agreement key
+      ECPublicKey ephemeralPublicKey = ephemeralKey.toECPublicKey();
+      sharedSecret = metrics.kms("DeriveSharedSecret", () -> ecdhKeyAgreement.deriveSharedSecret(ephemeralPublicKey));
+
+      // STEP 2: KEK = Concat KDF over Z, alg, apu, apv (a fresh ConcatKDF per call: it holds a JCA context)
+      SecretKey keyEncryptionKey = ECDH.deriveSharedKey(
+          header, new SecretKeySpec(sharedSecret, AES_ALGORITHM), new ConcatKDF("SHA-256"));
+
+      // STEP 3: CEK = AES-KW unwrap
+      return AESKW.unwrapCEK(keyEncryptionKey, encryptedKey, null);
+    } catch (JOSEException e) {
+      throw new IllegalArgumentException("ECDH-ES key unwrap failed: " + e.getMessage(), e);
+    } finally {
+      if (sharedSecret != null) {
+        Arrays.fill(sharedSecret, (byte) 0);
+      }
+    }
+  }
+
+  @Override
+  public CompletableFuture<SecretKey> unwrapAsync(JWEHeader header, byte[] encryptedKey) {
+    return CompletableFuture.supplyAsync(() -> unwrap(header, encryptedKey), agreementExecutor);
+  }
+}
@@ -0,0 +1,38 @@
+package server.restapi.encryption.full_payload.crypto;
+
+import com.nimbusds.jose.JWEHeader;
+
+import javax.crypto.SecretKey;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * JWE Key Unwrapper - Recovers the CEK for one JWE key management algorithm ("alg" header).
+ *
+ * <p>Registered in {@link JweKeyUnwrappers}; {@link PayloadDecryptor} picks the implementation
+ * from the protected header, so adding an algorithm does not touch the payload decryption.</p>
+ */
+public interface JweKeyUnwrapper {
+
+  /**
+   * @return The JWE "alg" value handled, e.g. RSA-OAEP-256
+   */
+  String algorithm();
+
+  /**
+   * Recovers the CEK of a JWE.
+   *
+   * @param header       The parsed protected header (epk, apu, apv for key agreement)
+   * @param encryptedKey The JWE Encrypted Key part
+   * @return The Content Encryption Key
+   */
+  SecretKey unwrap(JWEHeader header, byte[] encryptedKey);
+
+  /**
+   * Non-blocking variant of {@link #unwrap(JWEHeader, byte[])}.
+   *
+   * @param header       The parsed protected header
+   * @param encryptedKey The JWE Encrypted Key part
+   * @return Future completing with the Content Encryption Key
+   */
+  CompletableFuture<SecretKey> unwrapAsync(JWEHeader header, byte[] encryptedKey);
+}
@@ -0,0 +1,61 @@
+package server.restapi.encryption.full_payload.crypto;
+
+import com.nimbusds.jose.JWEHeader;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JWE Key Unwrappers - Registry of the accepted JWE key management algorithms.
+ *
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  header.alg ──► registry ──► JweKeyUnwrapper ──► CEK                   │
+ * │                                                                        │
+ * │  RSA-OAEP-256     → KMS Decrypt (RSA-4096), ~512-byte encrypted key    │
+ * │  ECDH-ES+A256KW   → DeriveSharedSecret + Concat KDF + AES-KW,          │
+ * │                     40-byte encrypted key + epk in the header          │
+ * │  anything else    → IllegalArgumentException (400)                     │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <p>Built once at startup (see JweAlgorithmConfig) from encryption.jwe.algorithms; immutable.</p>
+ */
+public class JweKeyUnwrappers {
+
+  private final Map<String, JweKeyUnwrapper> unwrappers = new LinkedHashMap<>();
+
+  public JweKeyUnwrappers(Collection<JweKeyUnwrapper> unwrappers) {
+    for (JweKeyUnwrapper unwrapper : unwrappers) {
+      if (this.unwrappers.putIfAbsent(unwrapper.algorithm(), unwrapper) != null) {
+        throw new IllegalArgumentException("Duplicate JWE key management algorithm: " + unwrapper.algorithm());
+      }
+    }
+  }
+
+  /**
+   * Selects the unwrapper for a JWE's "alg" header.
+   *
+   * @param header The parsed protected header
+   * @return The unwrapper registered for its algorithm
+   * @throws IllegalArgumentException If the algorithm is not accepted
+   */
+  public JweKeyUnwrapper forHeader(JWEHeader header) {
+    String algorithm = header.getAlgorithm().getName();
+    JweKeyUnwrapper unwrapper = unwrappers.get(algorithm);
+    if (unwrapper == null) {
+      throw new IllegalArgumentException("Unsupported algorithm: " + algorithm);
+    }
+    return unwrapper;
+  }
+
+  /**
+   * @return The accepted "alg" values, in registration order
+   */
+  public Set<String> algorithms() {
+    return Collections.unmodifiableSet(unwrappers.keySet());
+  }
+}
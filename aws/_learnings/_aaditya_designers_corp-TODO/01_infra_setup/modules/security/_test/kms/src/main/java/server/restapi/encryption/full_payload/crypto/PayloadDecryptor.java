@@ -1,20 +1,29 @@
 package server.restapi.encryption.full_payload.crypto;
 
+import com.nimbusds.jose.EncryptionMethod;
 import com.nimbusds.jose.JWEHeader;
 import com.nimbusds.jose.JWEObject;
-import org.springframework.beans.factory.annotation.Value;
+import com.nimbusds.jose.util.Base64URL;
 import org.springframework.stereotype.Component;
-import software.amazon.awssdk.core.SdkBytes;
-import software.amazon.awssdk.services.kms.KmsClient;
-import software.amazon.awssdk.services.kms.model.DecryptRequest;
-import software.amazon.awssdk.services.kms.model.DecryptResponse;
-import software.amazon.awssdk.services.kms.model.EncryptionAlgorithmSpec;
+import server._common.crypto.AesGcmCipherPool;
+import server._common.crypto.AesGcmDecryptingInputStream;
+import server._common.crypto.Base64Decoder;
+import server._common.kms.UnwrappedKeyCache;
+import server._common.metrics.StageMetrics;
 
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Payload Decryptor - Decrypts JWE-encrypted payload using AWS KMS.
@@ -28,7 +37,7 @@ import java.nio.charset.StandardCharsets;
  * │                                                                        │
  * │  Process:                                                              │
  * │  1. Parse JWE to extract components                                    │
- * │  2. Decrypt encryptedCek via KMS → contentEncryptionKey (CEK)          │
+ * │  2. Unwrap encryptedCek for header.alg → contentEncryptionKey (CEK)    │
  * │  3. Decrypt ciphertext with CEK → jsonPayload                          │
  * │                                                                        │
  * │  Output: Original JSON payload string                                  │
@@ -39,23 +48,44 @@ import java.nio.charset.StandardCharsets;
  * <ul>
  *   <li>RSA private key <b>never leaves AWS KMS HSM</b></li>
  *   <li>1 KMS API call to decrypt encryptedCek</li>
- *   <li>Local AES decryption of payload (fast)</li>
+ *   <li>Replayed encryptedCek values are served from {@link UnwrappedKeyCache}</li>
+ *   <li>Accepted "alg" values come from {@link JweKeyUnwrappers}: RSA-OAEP-256
+ *       ({@link RsaOaepKeyUnwrapper}) and ECDH-ES+A256KW ({@link EcdhEsKeyUnwrapper})</li>
+ *   <li>Local AES decryption of payload (fast, on a pooled Cipher from {@link AesGcmCipherPool})</li>
  * </ul>
+ *
+ * <h3>Streaming Mode ({@link #decrypt(InputStream, PlaintextReader)}):</h3>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  request InputStream ──► Header . EncryptedCek . IV   (small, buffered)│
+ * │                          └── unwrap encryptedCek (header.alg) → CEK    │
+ * │                     ──► Ciphertext . AuthTag          (never buffered) │
+ * │                          └── AesGcmDecryptingInputStream (8K chunks)   │
+ * │                              └── PlaintextReader (e.g. Gson JsonReader)│
+ * │                                                                        │
+ * │  Result is returned only after the tag verified at end of stream       │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <p>The decryptWithKey variants also return the CEK, for responses encrypted under it
+ * ({@link PayloadEncryptor}).</p>
  */
 @Component("allFieldsPayloadDecryptor")
 public class PayloadDecryptor {
 
   private static final int GCM_TAG_SIZE_BITS = 128;
+  private static final int MAX_HEADER_CHARS = 8192;
+  private static final int MAX_ENCRYPTED_KEY_CHARS = 2048;
+  private static final int MAX_IV_CHARS = 64;
 
-  private final KmsClient kmsClient;
-  private final String keyArn;
+  private final JweKeyUnwrappers keyUnwrappers;
+  private final AesGcmCipherPool cipherPool;
+  private final StageMetrics metrics;
 
-  public PayloadDecryptor(
-      KmsClient kmsClient,
-      @Value("${aws.kms.asymmetric-key-arn}") String keyArn
-  ) {
-    this.kmsClient = kmsClient;
-    this.keyArn = keyArn;
+  public PayloadDecryptor(JweKeyUnwrappers keyUnwrappers, AesGcmCipherPool cipherPool, StageMetrics metrics) {
+    this.keyUnwrappers = keyUnwrappers;
+    this.cipherPool = cipherPool;
+    this.metrics = metrics;
   }
 
   /**
@@ -130,6 +160,9 @@ public class PayloadDecryptor {
    * │ DECRYPT-RSA    │ RSA-OAEP-256    │ encryptedCek, keyArn            │ aesContentEncryptionKey (CEK) │
    * │                │ (via AWS KMS)   │                                 │                               │
    * ├────────────────┼─────────────────┼─────────────────────────────────┼───────────────────────────────┤
+   * │ or UNWRAP-ECDH │ ECDH-ES+A256KW  │ epk, encryptedCek (40 bytes)    │ aesContentEncryptionKey (CEK) │
+   * │                │ (+ Concat KDF)  │                                 │                               │
+   * ├────────────────┼─────────────────┼─────────────────────────────────┼───────────────────────────────┤
    * │ DECRYPT-AES    │ AES-256-GCM     │ aesContentEncryptionKey (CEK),  │ jsonPayload                   │
    * │                │                 │ iv, ciphertext, authTag, aad    │                               │
    * └────────────────┴─────────────────┴─────────────────────────────────┴───────────────────────────────┘
@@ -139,79 +172,259 @@ public class PayloadDecryptor {
    * @return The decrypted JSON payload
    */
   public String decrypt(String encryptedPayload) {
-    try {
-      // Parse JWE
-      JWEObject jweObject = JWEObject.parse(encryptedPayload);
-      JWEHeader header = jweObject.getHeader();
-
-      // Validate algorithm
-      String algorithm = header.getAlgorithm().getName();
-      if (!"RSA-OAEP-256".equals(algorithm)) {
-        throw new IllegalArgumentException("Unsupported algorithm: " + algorithm);
-      }
+    return decryptWithKey(encryptedPayload).plaintext();
+  }
 
-      // Extract components
-      byte[] encryptedContentEncryptionKey = jweObject.getEncryptedKey().decode();
-      byte[] iv = jweObject.getIV().decode();
-      byte[] encryptedText = jweObject.getCipherText().decode();
-      byte[] authTag = jweObject.getAuthTag().decode();
+  /**
+   * A decrypted payload together with the CEK it was encrypted under.
+   *
+   * <p>The CEK lets the response be encrypted for the same client (PayloadEncryptor, "dir")
+   * without a second key exchange.</p>
+   *
+   * @param plaintext            The decrypted payload, or what the PlaintextReader made of it
+   * @param contentEncryptionKey The unwrapped CEK
+   */
+  public record Decrypted<T>(T plaintext, SecretKey contentEncryptionKey) {}
 
-      // AAD = ASCII(BASE64URL(header))
-      String protectedHeader = encryptedPayload.split("\\.")[0];
-      byte[] aad = protectedHeader.getBytes(StandardCharsets.US_ASCII);
+  /**
+   * Variant of {@link #decrypt(String)} that also returns the unwrapped CEK.
+   *
+   * @param encryptedPayload The JWE compact serialization string
+   * @return The decrypted JSON payload and its CEK
+   */
+  public Decrypted<String> decryptWithKey(String encryptedPayload) {
+    try {
+      // STEP 1: Parse JWE
+      JweComponents jwe = parse(encryptedPayload);
 
-      // STEP 2: Decrypt CEK via KMS
-      byte[] contentEncryptedKeyBytes = decryptCekViaKms(encryptedContentEncryptionKey);
-      SecretKey contentEncryptionKey = new SecretKeySpec(contentEncryptedKeyBytes, "AES");
+      // STEP 2: Unwrap CEK for header.alg (RSA-OAEP-256: KMS, skipped on key cache hit)
+      SecretKey contentEncryptionKey =
+          jwe.keyUnwrapper().unwrap(jwe.header(), jwe.encryptedContentEncryptionKey());
 
       // STEP 3: Decrypt plainText with CEK
-      byte[] plainText = decryptText(contentEncryptionKey, encryptedText, iv, authTag, aad);
-      return new String(plainText, StandardCharsets.UTF_8);
+      return new Decrypted<>(
+          decryptText(contentEncryptionKey, jwe.encryptedText(), jwe.iv(), jwe.authTag(), jwe.aad()),
+          contentEncryptionKey);
+
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to decrypt JWE: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Non-blocking variant of {@link #decrypt(String)}.
+   *
+   * <p>The CEK is unwrapped asynchronously (RSA-OAEP-256: KmsAsyncClient); the local AES step
+   * runs once the key arrives, so no request thread is parked for the KMS round trip.</p>
+   *
+   * @param encryptedPayload The JWE compact serialization string
+   * @return Future completing with the decrypted JSON payload
+   */
+  public CompletableFuture<String> decryptAsync(String encryptedPayload) {
+    return decryptWithKeyAsync(encryptedPayload).thenApply(Decrypted::plaintext);
+  }
+
+  /**
+   * Non-blocking variant of {@link #decryptWithKey(String)}.
+   *
+   * @param encryptedPayload The JWE compact serialization string
+   * @return Future completing with the decrypted JSON payload and its CEK
+   */
+  public CompletableFuture<Decrypted<String>> decryptWithKeyAsync(String encryptedPayload) {
+    JweComponents jwe;
+    try {
+      jwe = parse(encryptedPayload);
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(new RuntimeException("Failed to decrypt JWE: " + e.getMessage(), e));
+    }
+
+    return jwe.keyUnwrapper().unwrapAsync(jwe.header(), jwe.encryptedContentEncryptionKey())
+        .thenApply(contentEncryptionKey -> {
+          try {
+            return new Decrypted<>(
+                decryptText(contentEncryptionKey, jwe.encryptedText(), jwe.iv(), jwe.authTag(), jwe.aad()),
+                contentEncryptionKey);
+          } catch (Exception e) {
+            throw new CompletionException(e);
+          }
+        })
+        .exceptionallyCompose(e -> {
+          Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+          return CompletableFuture.failedFuture(
+              new RuntimeException("Failed to decrypt JWE: " + cause.getMessage(), cause));
+        });
+  }
+
+  /**
+   * Consumes decrypted plaintext; see {@link #decrypt(InputStream, PlaintextReader)}.
+   */
+  @FunctionalInterface
+  public interface PlaintextReader<T> {
+    T read(Reader plaintext) throws IOException;
+  }
+
+  /**
+   * Streaming variant of {@link #decrypt(String)} for large payloads.
+   *
+   * <p>Reads the JWE compact serialization from the stream and decrypts the ciphertext chunk by
+   * chunk while the reader consumes it, so the payload is never held in memory as a whole.
+   * The reader may see plaintext before the authentication tag is verified; its result is
+   * returned only if the tag verifies, and a forged payload reports "Tag mismatch" even if
+   * the reader failed first on the garbage plaintext.</p>
+   *
+   * <p>The CEK is unwrapped with the blocking variant: the body is read on the calling
+   * thread anyway.</p>
+   *
+   * @param encryptedPayload The JWE compact serialization (US-ASCII)
+   * @param plaintextReader  Consumes the decrypted payload (UTF-8)
+   * @return The reader's result
+   */
+  public <T> T decrypt(InputStream encryptedPayload, PlaintextReader<T> plaintextReader) {
+    return decryptWithKey(encryptedPayload, plaintextReader).plaintext();
+  }
+
+  /**
+   * Variant of {@link #decrypt(InputStream, PlaintextReader)} that also returns the unwrapped CEK.
+   *
+   * @param encryptedPayload The JWE compact serialization (US-ASCII)
+   * @param plaintextReader  Consumes the decrypted payload (UTF-8)
+   * @return The reader's result and the CEK
+   */
+  public <T> Decrypted<T> decryptWithKey(InputStream encryptedPayload, PlaintextReader<T> plaintextReader) {
+    try {
+      Reader source = new BufferedReader(new InputStreamReader(encryptedPayload, StandardCharsets.US_ASCII));
+
+      // STEP 1: Parse the small leading parts; the stream is now positioned at the ciphertext
+      String protectedHeader = readSegment(source, MAX_HEADER_CHARS);
+      JWEHeader header = metrics.jweParse().recordCallable(() -> JWEHeader.parse(new Base64URL(protectedHeader)));
+      JweKeyUnwrapper keyUnwrapper = keyUnwrappers.forHeader(header);
+      if (!EncryptionMethod.Family.AES_GCM.contains(header.getEncryptionMethod())) {
+        throw new IllegalArgumentException("Unsupported encryption method for streaming: " + header.getEncryptionMethod());
+      }
+      if (header.getCompressionAlgorithm() != null) {
+        throw new IllegalArgumentException("Compressed JWE payloads are not supported");
+      }
+      byte[] encryptedCek = new Base64URL(readSegment(source, MAX_ENCRYPTED_KEY_CHARS)).decode();
+      byte[] iv = new Base64URL(readSegment(source, MAX_IV_CHARS)).decode();
+
+      // STEP 2: Unwrap CEK for header.alg (RSA-OAEP-256: KMS, skipped on key cache hit)
+      SecretKey contentEncryptionKey = keyUnwrapper.unwrap(header, encryptedCek);
+
+      // STEP 3: Decrypt ciphertext chunk by chunk into the reader (interleaved with the reader,
+      // so not timed as crypto.aes.gcm.decrypt)
+      try (AesGcmDecryptingInputStream plaintext = new AesGcmDecryptingInputStream(
+          source, contentEncryptionKey, iv, protectedHeader.getBytes(StandardCharsets.US_ASCII))) {
+        T result;
+        try {
+          result = plaintextReader.read(new InputStreamReader(plaintext, StandardCharsets.UTF_8));
+        } catch (Exception e) {
+          // Garbage from a forged ciphertext surfaces as a parse error: report the tag mismatch instead
+          plaintext.transferTo(OutputStream.nullOutputStream());
+          throw e;
+        }
+        // Read to EOF: only then is the tag verified
+        plaintext.transferTo(OutputStream.nullOutputStream());
+        return new Decrypted<>(result, contentEncryptionKey);
+      }
 
     } catch (Exception e) {
       throw new RuntimeException("Failed to decrypt JWE: " + e.getMessage(), e);
     }
   }
 
-  /** Decrypts the encrypted CEK using AWS KMS RSA decryption.
+  /** Reads one dot-terminated part of a JWE compact serialization.
    *
-   * @param encryptedCek The encrypted Content Encryption Key
-   * @return The decrypted Content Encryption Key bytes
+   * @param source   The JWE character stream
+   * @param maxChars Largest accepted part
+   * @return The part, without the dot
+   * @throws IOException If the stream ends first or the part is too long
    */
-  private byte[] decryptCekViaKms(byte[] encryptedCek) {
-    DecryptRequest request = DecryptRequest.builder()
-        .keyId(keyArn)
-        .ciphertextBlob(SdkBytes.fromByteArray(encryptedCek))
-        .encryptionAlgorithm(EncryptionAlgorithmSpec.RSAES_OAEP_SHA_256)
-        .build();
-
-    DecryptResponse response = kmsClient.decrypt(request);
-    return response.plaintext().asByteArray();
+  private static String readSegment(Reader source, int maxChars) throws IOException {
+    StringBuilder segment = new StringBuilder();
+    int c;
+    while ((c = source.read()) != '.') {
+      if (c < 0 || segment.length() >= maxChars) {
+        throw new IllegalArgumentException("Invalid JWE format");
+      }
+      segment.append((char) c);
+    }
+    return segment.toString();
+  }
+
+  /** Parses the JWE compact serialization and extracts its components.
+   *
+   * @param encryptedPayload The JWE compact serialization string
+   * @return The decoded JWE components
+   * @throws Exception If the JWE is malformed or uses an unsupported algorithm
+   */
+  private JweComponents parse(String encryptedPayload) throws Exception {
+    return metrics.jweParse().recordCallable(() -> parseComponents(encryptedPayload));
+  }
+
+  private JweComponents parseComponents(String encryptedPayload) throws Exception {
+    // Parse JWE
+    JWEObject jweObject = JWEObject.parse(encryptedPayload);
+    JWEHeader header = jweObject.getHeader();
+
+    // Select the key unwrapper (rejects algorithms not in the registry)
+    JweKeyUnwrapper keyUnwrapper = keyUnwrappers.forHeader(header);
+
+    // AAD = ASCII(BASE64URL(header))
+    String protectedHeader = encryptedPayload.split("\\.")[0];
+
+    // Extract components (ciphertext and tag stay encoded: decryptText decodes them into scratch)
+    return new JweComponents(
+        header,
+        keyUnwrapper,
+        jweObject.getEncryptedKey().decode(),
+        jweObject.getIV().decode(),
+        jweObject.getCipherText(),
+        jweObject.getAuthTag(),
+        protectedHeader.getBytes(StandardCharsets.US_ASCII));
   }
 
   /** Decrypts the ciphertext using AES-GCM with the provided CEK.
+   *
+   * <p>encryptedText and authTag are Base64URL-decoded back to back into the pooled scratch
+   * buffer, so ciphertext || tag is contiguous without a concatenation copy.</p>
    *
    * @param contentEncryptionKey The AES Content Encryption Key
-   * @param encryptedText The encrypted payload
+   * @param encryptedText The encrypted payload (Base64URL)
    * @param iv The initialization vector
-   * @param authTag The authentication tag
+   * @param authTag The authentication tag (Base64URL)
    * @param aad The additional authenticated data
-   * @return The decrypted plaintext bytes
+   * @return The decrypted plaintext
    * @throws Exception If decryption fails
    */
-  private byte[] decryptText(SecretKey contentEncryptionKey, byte[] encryptedText, byte[] iv, byte[] authTag, byte[] aad)
+  private String decryptText(SecretKey contentEncryptionKey, Base64URL encryptedText, byte[] iv, Base64URL authTag, byte[] aad)
       throws Exception {
-    // Combine encryptedText and authTag
-    byte[] ciphertextWithTag = new byte[encryptedText.length + authTag.length];
-    System.arraycopy(encryptedText, 0, ciphertextWithTag, 0, encryptedText.length);
-    System.arraycopy(authTag, 0, ciphertextWithTag, encryptedText.length, authTag.length);
+    String encodedText = encryptedText.toString();
+    String encodedTag = authTag.toString();
 
-    // Decrypt
-    Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+    // Decrypt (pooled Cipher, re-initialized with this message's IV and AAD)
     GCMParameterSpec gcmSpec = new GCMParameterSpec(GCM_TAG_SIZE_BITS, iv);
-    cipher.init(Cipher.DECRYPT_MODE, contentEncryptionKey, gcmSpec);
-    cipher.updateAAD(aad);
+    return metrics.payloadDecrypt().recordCallable(() -> cipherPool.executeWithScratch((cipher, scratch) -> {
+      ByteBuffer input = scratch.input(Base64Decoder.maxDecodedLength(encodedText.length())
+          + Base64Decoder.maxDecodedLength(encodedTag.length()));
+      byte[] in = input.array();
+      int textLength = Base64Decoder.URL.decode(encodedText, 0, encodedText.length(), in, 0);
+      int tagLength = Base64Decoder.URL.decode(encodedTag, 0, encodedTag.length(), in, textLength);
+      input.limit(textLength + tagLength);
 
-    return cipher.doFinal(ciphertextWithTag);
+      cipher.init(Cipher.DECRYPT_MODE, contentEncryptionKey, gcmSpec);
+      cipher.updateAAD(aad);
+      int plainTextLength = cipher.doFinal(input, scratch.output(textLength + tagLength));
+      return scratch.outputAsUtf8(plainTextLength);
+    }));
   }
+
+  private record JweComponents(
+      JWEHeader header,
+      JweKeyUnwrapper keyUnwrapper,
+      byte[] encryptedContentEncryptionKey,
+      byte[] iv,
+      Base64URL encryptedText,
+      Base64URL authTag,
+      byte[] aad
+  ) {}
 }
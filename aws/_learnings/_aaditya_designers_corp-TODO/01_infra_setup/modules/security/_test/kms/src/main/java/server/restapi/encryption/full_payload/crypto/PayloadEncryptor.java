@@ -0,0 +1,112 @@
+package server.restapi.encryption.full_payload.crypto;
+
+import org.springframework.stereotype.Component;
+import server._common.crypto.AesGcmCipherPool;
+import server._common.metrics.StageMetrics;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Payload Encryptor - Encrypts a response as a JWE under the request's CEK.
+ *
+ * <h2>Encrypted Responses (X-Encrypt-Response: true)</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  Request:  alg=RSA-OAEP-256 | ECDH-ES+A256KW → CEK unwrapped           │
+ * │            (1 KMS call, or a key cache hit)                            │
+ * │  Response: alg=dir, enc=A256GCM, same CEK → no second key exchange     │
+ * │                                                                        │
+ * │  BASE64URL(header) . (empty: no encrypted key with "dir")              │
+ * │    . BASE64URL(iv) . BASE64URL(ciphertext) . BASE64URL(authTag)        │
+ * │                                                                        │
+ * │  AAD = ASCII(BASE64URL(header)), as for the request (RFC 7516)         │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <p>"enc" follows the CEK's size (A128GCM / A192GCM / A256GCM), so the response decrypts with
+ * the same key under any AES-GCM request. The protected headers are constant and encoded
+ * once.</p>
+ */
+@Component("allFieldsPayloadEncryptor")
+public class PayloadEncryptor {
+
+  private static final int IV_SIZE_BYTES = 12;
+  private static final int GCM_TAG_SIZE_BITS = 128;
+  private static final int GCM_TAG_SIZE_BYTES = GCM_TAG_SIZE_BITS / 8;
+
+  private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+  private static final String A128GCM_HEADER = protectedHeader("A128GCM");
+  private static final String A192GCM_HEADER = protectedHeader("A192GCM");
+  private static final String A256GCM_HEADER = protectedHeader("A256GCM");
+
+  private final AesGcmCipherPool cipherPool;
+  private final StageMetrics metrics;
+  private final SecureRandom secureRandom = new SecureRandom();
+
+  public PayloadEncryptor(AesGcmCipherPool cipherPool, StageMetrics metrics) {
+    this.cipherPool = cipherPool;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Encrypts a payload as a direct-key JWE.
+   *
+   * @param payload              The UTF-8 payload, zeroized afterwards
+   * @param contentEncryptionKey The CEK unwrapped for the request
+   * @return JWE compact serialization string
+   */
+  public String encrypt(byte[] payload, SecretKey contentEncryptionKey) {
+    String header = headerFor(contentEncryptionKey);
+    byte[] iv = new byte[IV_SIZE_BYTES];
+    secureRandom.nextBytes(iv);
+
+    try {
+      return metrics.payloadEncrypt().recordCallable(() -> cipherPool.executeWithScratch((cipher, scratch) -> {
+        cipher.init(Cipher.ENCRYPT_MODE, contentEncryptionKey, new GCMParameterSpec(GCM_TAG_SIZE_BITS, iv));
+        cipher.updateAAD(header.getBytes(StandardCharsets.US_ASCII));
+        ByteBuffer output = scratch.output(payload.length + GCM_TAG_SIZE_BYTES);
+        int length = cipher.doFinal(ByteBuffer.wrap(payload), output);
+
+        // Ciphertext and tag are encoded straight from the scratch buffer
+        int textLength = length - GCM_TAG_SIZE_BYTES;
+        return header + ".." + BASE64URL.encodeToString(iv)
+            + "." + encode(output, 0, textLength)
+            + "." + encode(output, textLength, length);
+      }));
+
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to encrypt JWE response: " + e.getMessage(), e);
+    } finally {
+      Arrays.fill(payload, (byte) 0);
+    }
+  }
+
+  private static String headerFor(SecretKey contentEncryptionKey) {
+    byte[] key = contentEncryptionKey.getEncoded();
+    int keyLength = key.length;
+    Arrays.fill(key, (byte) 0);
+    return switch (keyLength) {
+      case 16 -> A128GCM_HEADER;
+      case 24 -> A192GCM_HEADER;
+      case 32 -> A256GCM_HEADER;
+      default -> throw new IllegalArgumentException("Unsupported CEK size for an AES-GCM response");
+    };
+  }
+
+  private static String encode(ByteBuffer buffer, int from, int to) {
+    ByteBuffer part = buffer.duplicate().limit(to).position(from);
+    return StandardCharsets.US_ASCII.decode(BASE64URL.encode(part)).toString();
+  }
+
+  private static String protectedHeader(String encryptionMethod) {
+    String json = "{\"alg\":\"dir\",\"enc\":\"" + encryptionMethod + "\",\"cty\":\"json\"}";
+    return BASE64URL.encodeToString(json.getBytes(StandardCharsets.US_ASCII));
+  }
+}
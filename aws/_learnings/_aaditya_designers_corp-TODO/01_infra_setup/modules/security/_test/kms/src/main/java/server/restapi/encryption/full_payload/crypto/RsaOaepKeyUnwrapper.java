@@ -0,0 +1,100 @@
+package server.restapi.encryption.full_payload.crypto;
+
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEHeader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import server._common.kms.KmsCallGuard;
+import server._common.kms.UnwrappedKeyCache;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.kms.KmsAsyncClient;
+import software.amazon.awssdk.services.kms.KmsClient;
+import software.amazon.awssdk.services.kms.model.DecryptRequest;
+import software.amazon.awssdk.services.kms.model.DecryptResponse;
+import software.amazon.awssdk.services.kms.model.EncryptionAlgorithmSpec;
+
+import javax.crypto.SecretKey;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * RSA-OAEP-256 Key Unwrapper - Decrypts the JWE Encrypted Key with the KMS RSA-4096 key.
+ *
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  encryptedCek (~512 bytes) ──► KMS Decrypt(RSAES_OAEP_SHA_256) ──► CEK │
+ * │                                                                        │
+ * │  1 KMS call per CEK; replayed encryptedCek values are served from      │
+ * │  {@link UnwrappedKeyCache}                                             │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ */
+@Component
+public class RsaOaepKeyUnwrapper implements JweKeyUnwrapper {
+
+  private final KmsClient kmsClient;
+  private final KmsAsyncClient kmsAsyncClient;
+  private final UnwrappedKeyCache unwrappedKeyCache;
+  private final String keyArn;
+  private final KmsCallGuard kmsCallGuard;
+
+  public RsaOaepKeyUnwrapper(
+      KmsClient kmsClient,
+      KmsAsyncClient kmsAsyncClient,
+      UnwrappedKeyCache unwrappedKeyCache,
+      @Value("${aws.kms.asymmetric-key-arn}") String keyArn,
+      KmsCallGuard kmsCallGuard
+  ) {
+    this.kmsClient = kmsClient;
+    this.kmsAsyncClient = kmsAsyncClient;
+    this.unwrappedKeyCache = unwrappedKeyCache;
+    this.keyArn = keyArn;
+    this.kmsCallGuard = kmsCallGuard;
+  }
+
+  @Override
+  public String algorithm() {
+    return JWEAlgorithm.RSA_OAEP_256.getName();
+  }
+
+  @Override
+  public SecretKey unwrap(JWEHeader header, byte[] encryptedKey) {
+    return unwrappedKeyCache.getOrUnwrap(encryptedKey, this::decryptCekViaKms);
+  }
+
+  @Override
+  public CompletableFuture<SecretKey> unwrapAsync(JWEHeader header, byte[] encryptedKey) {
+    return unwrappedKeyCache.getOrUnwrapAsync(encryptedKey, this::decryptCekViaKmsAsync);
+  }
+
+  /** Decrypts the encrypted CEK using AWS KMS RSA decryption.
+   *
+   * @param encryptedCek The encrypted Content Encryption Key
+   * @return The decrypted Content Encryption Key bytes
+   */
+  private byte[] decryptCekViaKms(byte[] encryptedCek) {
+    DecryptResponse response = kmsCallGuard.call("Decrypt",
+        override -> kmsClient.decrypt(decryptRequest(encryptedCek, override)));
+    return response.plaintext().asByteArray();
+  }
+
+  /** Decrypts the encrypted CEK using the non-blocking AWS KMS client.
+   *
+   * @param encryptedCek The encrypted Content Encryption Key
+   * @return Future completing with the decrypted Content Encryption Key bytes
+   */
+  private CompletableFuture<byte[]> decryptCekViaKmsAsync(byte[] encryptedCek) {
+    return kmsCallGuard.callAsync("Decrypt",
+            override -> kmsAsyncClient.decrypt(decryptRequest(encryptedCek, override)))
+        .thenApply(response -> response.plaintext().asByteArray());
+  }
+
+  private DecryptRequest decryptRequest(byte[] ciphertext, AwsRequestOverrideConfiguration override) {
+    return DecryptRequest.builder()
+        .keyId(keyArn)
+        .ciphertextBlob(SdkBytes.fromByteArray(ciphertext))
+        .encryptionAlgorithm(EncryptionAlgorithmSpec.RSAES_OAEP_SHA_256)
+        .overrideConfiguration(override)
+        .build();
+  }
+}
@@ -1,14 +1,20 @@
 package server.restapi.encryption.full_payload.service;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import server._common.Utils;
+import server._common.json.JsonFieldExtractor;
+import server._common.metrics.StageMetrics;
+import server._common.order.OrderConfirmation;
 import server.restapi.encryption.full_payload.crypto.PayloadDecryptor;
+import server.restapi.encryption.full_payload.crypto.PayloadEncryptor;
 
+import javax.crypto.SecretKey;
+import java.io.InputStream;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Order Service (All-Fields) - Processes orders with JWE-encrypted payload.
@@ -21,6 +27,16 @@ import java.util.UUID;
  * │    ├── Parse JWE to extract encryptedCek, iv, ciphertext, authTag      │
  * │    ├── KMS API call: Decrypt encryptedCek → CEK (1 call)               │
  * │    └── Local AES: Decrypt ciphertext with CEK → JSON payload           │
+ * │                                                                        │
+ * │  Decrypted JSON is not parsed into a JsonObject: JsonFieldExtractor    │
+ * │  pulls only the fields the response needs and skips the rest           │
+ * │                                                                        │
+ * │  Streaming (application/jose): payloadDecryptor.decrypt(inputStream,   │
+ * │  extractor) → no full plaintext String is built either                 │
+ * │                                                                        │
+ * │  Encrypted response (...WithEncryptedResponse): the confirmation is    │
+ * │  returned as a dir + A256GCM JWE under the request's CEK → no second   │
+ * │  KMS / RSA operation                                                   │
  * └────────────────────────────────────────────────────────────────────────┘
  * </pre>
  */
@@ -28,50 +44,122 @@ import java.util.UUID;
 public class OrderService {
 
   private static final Logger log = LoggerFactory.getLogger(OrderService.class);
-  private final Gson gson = new Gson();
+
+  private static final JsonFieldExtractor ORDER_FIELDS = JsonFieldExtractor.compile(
+      "/name", "/dateOfBirth", "/cardDetails/creditCardNumber", "/cardDetails/ssn");
+  private static final int NAME = 0;
+  private static final int DATE_OF_BIRTH = 1;
+  private static final int CREDIT_CARD_NUMBER = 2;
+  private static final int SSN = 3;
+  private static final JsonFieldExtractor.ValueMapper PLAINTEXT = (field, value) -> value;
 
   private final PayloadDecryptor payloadDecryptor;
+  private final PayloadEncryptor payloadEncryptor;
   private final Utils utils;
+  private final Timer jsonParse;
 
   public OrderService(
       PayloadDecryptor payloadDecryptor,
-      Utils utils
+      PayloadEncryptor payloadEncryptor,
+      Utils utils,
+      StageMetrics metrics
   ) {
     this.payloadDecryptor = payloadDecryptor;
+    this.payloadEncryptor = payloadEncryptor;
     this.utils = utils;
+    this.jsonParse = metrics.jsonParse(StageMetrics.FULL_PAYLOAD);
   }
 
   /**
    * Processes an order from JWE-encrypted request body.
    *
    * @param order The JWE compact serialization containing the order JSON
-   * @return Response JSON with decrypted/masked PII
+   * @return Order confirmation with decrypted/masked PII
    */
-  public JsonObject processOrder(String order) {
+  public OrderConfirmation processOrder(String order) {
     // Decrypt JWE to get original JSON payload
-    log.info("\n=== Step 4: Decrypting JWE payload (1 KMS call for CEK, then local AES decryption)");
+    log.debug("\n=== Step 4: Decrypting JWE payload (1 KMS call for CEK, then local AES decryption)");
     String decryptedOrder = payloadDecryptor.decrypt(order);
+    return buildResponse(extractFields(decryptedOrder));
+  }
+
+  /**
+   * Streaming variant of {@link #processOrder(String)} for large payloads.
+   *
+   * @param order The JWE compact serialization, read from the request body
+   * @return Order confirmation with decrypted/masked PII
+   */
+  public OrderConfirmation processOrder(InputStream order) {
+    log.debug("\n=== Step 4: Streaming JWE payload (1 KMS call for CEK, then chunked AES decryption)");
+    // Parsing pulls the decryption along chunk by chunk: not timed as order.json.parse
+    return buildResponse(payloadDecryptor.decrypt(order, plaintext -> ORDER_FIELDS.extract(plaintext, PLAINTEXT)));
+  }
+
+  /**
+   * Non-blocking variant of {@link #processOrder(String)}.
+   *
+   * <p>The CEK is unwrapped with the KmsAsyncClient; payload decryption runs once the
+   * KMS response arrives.</p>
+   *
+   * @param order The JWE compact serialization containing the order JSON
+   * @return Future completing with the order confirmation with decrypted/masked PII
+   */
+  public CompletableFuture<OrderConfirmation> processOrderAsync(String order) {
+    log.debug("\n=== Step 4: Decrypting JWE payload (1 async KMS call for CEK, then local AES decryption)");
+    return payloadDecryptor.decryptAsync(order)
+        .thenApply(decryptedOrder -> buildResponse(extractFields(decryptedOrder)));
+  }
+
+  /**
+   * Variant of {@link #processOrder(String)} whose confirmation is encrypted for the client.
+   *
+   * @param order The JWE compact serialization containing the order JSON
+   * @return The order confirmation as a dir JWE under the request's CEK
+   */
+  public String processOrderWithEncryptedResponse(String order) {
+    log.debug("\n=== Step 4: Decrypting JWE payload, response encrypted under the same CEK");
+    PayloadDecryptor.Decrypted<String> decryptedOrder = payloadDecryptor.decryptWithKey(order);
+    return encryptResponse(buildResponse(extractFields(decryptedOrder.plaintext())),
+        decryptedOrder.contentEncryptionKey());
+  }
+
+  /**
+   * Streaming variant of {@link #processOrderWithEncryptedResponse(String)}.
+   *
+   * @param order The JWE compact serialization, read from the request body
+   * @return The order confirmation as a dir JWE under the request's CEK
+   */
+  public String processOrderWithEncryptedResponse(InputStream order) {
+    log.debug("\n=== Step 4: Streaming JWE payload, response encrypted under the same CEK");
+    PayloadDecryptor.Decrypted<String[]> decryptedOrder =
+        payloadDecryptor.decryptWithKey(order, plaintext -> ORDER_FIELDS.extract(plaintext, PLAINTEXT));
+    return encryptResponse(buildResponse(decryptedOrder.plaintext()), decryptedOrder.contentEncryptionKey());
+  }
+
+  /**
+   * Non-blocking variant of {@link #processOrderWithEncryptedResponse(String)}.
+   *
+   * @param order The JWE compact serialization containing the order JSON
+   * @return Future completing with the order confirmation as a dir JWE under the request's CEK
+   */
+  public CompletableFuture<String> processOrderWithEncryptedResponseAsync(String order) {
+    log.debug("\n=== Step 4: Decrypting JWE payload (async KMS), response encrypted under the same CEK");
+    return payloadDecryptor.decryptWithKeyAsync(order)
+        .thenApply(decryptedOrder -> encryptResponse(buildResponse(extractFields(decryptedOrder.plaintext())),
+            decryptedOrder.contentEncryptionKey()));
+  }
+
+  private String encryptResponse(OrderConfirmation response, SecretKey contentEncryptionKey) {
+    return payloadEncryptor.encrypt(response.toJsonBytes(), contentEncryptionKey);
+  }
+
+  private String[] extractFields(String decryptedOrder) {
+    return jsonParse.record(() -> ORDER_FIELDS.extract(decryptedOrder, PLAINTEXT));
+  }
 
-    JsonObject orderJson = gson.fromJson(decryptedOrder, JsonObject.class);
-    // Extract fields (all are now in plaintext)
-    String name = orderJson.get("name").getAsString();
-    String dob = orderJson.get("dateOfBirth").getAsString();
-    JsonObject cardDetails = orderJson.getAsJsonObject("cardDetails");
-    String creditCard = cardDetails.get("creditCardNumber").getAsString();
-    String ssn = cardDetails.get("ssn").getAsString();
-
-    // Build response
-    JsonObject response = new JsonObject();
-    response.addProperty("success", true);
-    response.addProperty("orderId", UUID.randomUUID().toString());
-    response.addProperty("name", name);
-    response.addProperty("dateOfBirth", dob);
-
-    JsonObject responseCardDetails = new JsonObject();
-    responseCardDetails.addProperty("creditCardNumber", utils.maskCard(creditCard));
-    responseCardDetails.addProperty("ssn", utils.maskSsn(ssn));
-    response.add("cardDetails", responseCardDetails);
-    return response;
+  private OrderConfirmation buildResponse(String[] fields) {
+    return new OrderConfirmation(UUID.randomUUID().toString(), fields[NAME], fields[DATE_OF_BIRTH],
+        utils.maskCard(fields[CREDIT_CARD_NUMBER]), utils.maskSsn(fields[SSN]));
   }
 
 }
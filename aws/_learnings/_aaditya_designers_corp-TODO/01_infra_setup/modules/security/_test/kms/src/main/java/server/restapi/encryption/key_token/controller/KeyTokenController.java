@@ -0,0 +1,76 @@
+package server.restapi.encryption.key_token.controller;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import server._common.Utils;
+import server.restapi.encryption.key_token.service.KeyTokenService;
+
+/**
+ * Key Token Controller - Handshake endpoint for the KEK-backed key hierarchy.
+ *
+ * <h2>Key-Token Approach</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  POST /api/v1/key-tokens        Header: X-Encryption-Key (wrapped DEK) │
+ * │       → { "keyToken": "...", "expiresAt": "..." }                      │
+ * │                                                                        │
+ * │  Later multi-fields requests send X-Key-Token instead of               │
+ * │  X-Encryption-Key: the DEK is unwrapped locally (AES-KW under the      │
+ * │  in-memory KEK), no KMS call and no server-side session state.         │
+ * │                                                                        │
+ * │  Requires encryption.key-hierarchy.enabled=true (otherwise 503)        │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ */
+@RestController
+@RequestMapping("/api/v1/key-tokens")
+public class KeyTokenController {
+
+  private static final Logger log = LoggerFactory.getLogger(KeyTokenController.class);
+  private static final String ENCRYPTION_KEY_HEADER = "X-Encryption-Key";
+
+  private final KeyTokenService keyTokenService;
+  private final Gson gson = new Gson();
+  private final Utils utils;
+
+  public KeyTokenController(KeyTokenService keyTokenService, Utils utils) {
+    this.keyTokenService = keyTokenService;
+    this.utils = utils;
+  }
+
+  /**
+   * Issues a key token from a wrapped DEK.
+   *
+   * @param encryptedDataEncryptionKey The RSA-encrypted DEK (from X-Encryption-Key header)
+   * @return The key token and its expiry
+   */
+  @PostMapping
+  public ResponseEntity<String> issueToken(
+      @RequestHeader(value = ENCRYPTION_KEY_HEADER, required = false) String encryptedDataEncryptionKey
+  ) {
+    if (encryptedDataEncryptionKey == null || encryptedDataEncryptionKey.isBlank()) {
+      log.warn("Missing X-Encryption-Key header");
+      return ResponseEntity.badRequest().body(gson.toJson(utils.errorResponse("Missing X-Encryption-Key header")));
+    }
+
+    try {
+      KeyTokenService.KeyTokenHandle token = keyTokenService.issueToken(encryptedDataEncryptionKey);
+      JsonObject response = new JsonObject();
+      response.addProperty("success", true);
+      response.addProperty("keyToken", token.keyToken());
+      response.addProperty("expiresAt", token.expiresAt().toString());
+      return ResponseEntity.status(HttpStatus.CREATED).body(gson.toJson(response));
+    } catch (IllegalStateException e) {
+      log.warn("Key token requested while the key hierarchy is disabled");
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(gson.toJson(utils.errorResponse(e.getMessage())));
+    } catch (Exception e) {
+      log.error("Key token handshake failed: {}", e.getMessage(), e);
+      return ResponseEntity.status(utils.failureStatus(e)).body(gson.toJson(utils.errorResponse("Key token handshake failed: " + e.getMessage())));
+    }
+  }
+}
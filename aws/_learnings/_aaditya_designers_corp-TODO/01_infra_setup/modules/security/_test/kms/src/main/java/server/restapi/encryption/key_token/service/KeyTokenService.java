@@ -0,0 +1,152 @@
+package server.restapi.encryption.key_token.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import server._common.kms.KeyEncryptionKeyManager;
+import server.restapi_data_security.multi_fields_encryption.crypto.DEKDecryptorAndUnwrapper;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Key Token Service - Stateless, server-issued DEK handles wrapped under the in-memory KEK.
+ *
+ * <h2>Tiered Key Handshake</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  HANDSHAKE (once per DEK)                                              │
+ * │  ► POST /api/v1/key-tokens   Header: X-Encryption-Key: BASE64(wrapped) │
+ * │  ► dekDecryptorAndUnwrapper → DEK (1 KMS call)                         │
+ * │  ► keyToken = kekManager.wrap(DEK ‖ expiresAt)   (AES-KW, local)       │
+ * │  ► Response: { keyToken, expiresAt }                                   │
+ * │                                 ▼                                      │
+ * │  REQUESTS (steady state)                                               │
+ * │  ► Header: X-Key-Token: keyToken                                       │
+ * │  ► kekManager.unwrap(keyToken) → DEK ‖ expiresAt  (AES-KW, no KMS,     │
+ * │    no server-side state: any number of tokens, nothing to evict)       │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <h3>Compared with sessions (/api/v1/sessions):</h3>
+ * <ul>
+ *   <li>Sessions keep each DEK in a bounded server-side table; tokens carry the wrapped DEK,
+ *       so the server holds only the KEK</li>
+ *   <li>The expiry is inside the AES-KW wrap: it cannot be altered without failing the unwrap</li>
+ *   <li>A token dies with its KEK (second rotation or restart): clients handshake again</li>
+ * </ul>
+ *
+ * <p>Properties:</p>
+ * <ul>
+ *   <li>encryption.key-hierarchy.token-ttl-seconds: Token lifetime, at most the KEK rotation interval (default: 900)</li>
+ * </ul>
+ */
+@Service
+public class KeyTokenService {
+
+  private static final Logger log = LoggerFactory.getLogger(KeyTokenService.class);
+  private static final String AES_ALGORITHM = "AES";
+  private static final int DEK_SIZE_BYTES = 32;
+
+  private final DEKDecryptorAndUnwrapper dekDecryptorAndUnwrapper;
+  private final KeyEncryptionKeyManager keyEncryptionKeyManager;
+  private final Duration ttl;
+
+  public KeyTokenService(
+      DEKDecryptorAndUnwrapper dekDecryptorAndUnwrapper,
+      KeyEncryptionKeyManager keyEncryptionKeyManager,
+      @Value("${encryption.key-hierarchy.token-ttl-seconds:900}") long ttlSeconds
+  ) {
+    // A token must outlive neither its KEK's current nor its previous generation
+    if (keyEncryptionKeyManager.isEnabled() && ttlSeconds > keyEncryptionKeyManager.rotationSeconds()) {
+      throw new IllegalArgumentException("encryption.key-hierarchy.token-ttl-seconds (" + ttlSeconds
+          + ") must not exceed rotation-seconds (" + keyEncryptionKeyManager.rotationSeconds() + ")");
+    }
+    this.dekDecryptorAndUnwrapper = dekDecryptorAndUnwrapper;
+    this.keyEncryptionKeyManager = keyEncryptionKeyManager;
+    this.ttl = Duration.ofSeconds(ttlSeconds);
+  }
+
+  /**
+   * Issues a key token by unwrapping the client's DEK via AWS KMS.
+   *
+   * @param encryptedDataEncryptionKey BASE64-encoded RSA-encrypted DEK from header
+   * @return The key token and its expiry
+   * @throws IllegalStateException    If encryption.key-hierarchy.enabled=false
+   * @throws IllegalArgumentException If the DEK is not a 256-bit key
+   */
+  public KeyTokenHandle issueToken(String encryptedDataEncryptionKey) {
+    if (!keyEncryptionKeyManager.isEnabled()) {
+      throw new IllegalStateException("Key tokens are disabled (encryption.key-hierarchy.enabled=false)");
+    }
+    SecretKey dataEncryptionKey =
+        dekDecryptorAndUnwrapper.unwrapAndDecryptDataEncryptionKeyViaAWSKMS(encryptedDataEncryptionKey);
+
+    // resolveDataEncryptionKey reads the expiry at a fixed offset: any other size would misplace it
+    byte[] dekBytes = dataEncryptionKey.getEncoded();
+    if (dekBytes.length != DEK_SIZE_BYTES) {
+      Arrays.fill(dekBytes, (byte) 0);
+      throw new IllegalArgumentException("Key tokens require a 256-bit DEK, got " + dekBytes.length * 8 + " bits");
+    }
+
+    // DEK ‖ expiresAt: 40 bytes, a multiple of 8 as AES-KW requires
+    Instant expiresAt = Instant.now().plus(ttl);
+    byte[] keyMaterial = ByteBuffer.allocate(DEK_SIZE_BYTES + Long.BYTES)
+        .put(dekBytes)
+        .putLong(expiresAt.getEpochSecond())
+        .array();
+    Arrays.fill(dekBytes, (byte) 0);
+    try {
+      String keyToken = keyEncryptionKeyManager.wrap(keyMaterial);
+      log.debug("Key token issued - expiresAt={}", expiresAt);
+      return new KeyTokenHandle(keyToken, expiresAt);
+    } finally {
+      Arrays.fill(keyMaterial, (byte) 0);
+    }
+  }
+
+  /**
+   * Resolves the DEK of a key token with a local AES-KW unwrap (no KMS call).
+   *
+   * @param keyToken The token returned by {@link #issueToken(String)}
+   * @return The DEK
+   * @throws InvalidKeyTokenException If the token is forged, expired, or its KEK was rotated out
+   */
+  public SecretKey resolveDataEncryptionKey(String keyToken) {
+    byte[] keyMaterial;
+    try {
+      keyMaterial = keyEncryptionKeyManager.unwrap(keyToken);
+    } catch (KeyEncryptionKeyManager.InvalidWrappedKeyException e) {
+      throw new InvalidKeyTokenException("Invalid key token: " + e.getMessage());
+    }
+    try {
+      if (keyMaterial.length != DEK_SIZE_BYTES + Long.BYTES) {
+        throw new InvalidKeyTokenException("Invalid key token");
+      }
+      long expiresAt = ByteBuffer.wrap(keyMaterial, DEK_SIZE_BYTES, Long.BYTES).getLong();
+      if (Instant.now().getEpochSecond() >= expiresAt) {
+        throw new InvalidKeyTokenException("Expired key token");
+      }
+      return new SecretKeySpec(keyMaterial, 0, DEK_SIZE_BYTES, AES_ALGORITHM);
+    } finally {
+      Arrays.fill(keyMaterial, (byte) 0);
+    }
+  }
+
+  public record KeyTokenHandle(String keyToken, Instant expiresAt) {}
+
+  /**
+   * Thrown when a request carries a key token that cannot be used.
+   * Clients react by requesting a new token.
+   */
+  public static class InvalidKeyTokenException extends RuntimeException {
+    public InvalidKeyTokenException(String message) {
+      super(message);
+    }
+  }
+}
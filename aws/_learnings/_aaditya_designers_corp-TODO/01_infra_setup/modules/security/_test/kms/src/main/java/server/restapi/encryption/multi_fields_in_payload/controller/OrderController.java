@@ -2,13 +2,31 @@ package server.restapi.encryption.multi_fields_in_payload.controller;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import server._common.Utils;
+import server._common.audit.AuditRecord;
+import server._common.metrics.StageMetrics;
+import server._common.order.OrderConfirmation;
+import server.restapi.encryption.key_token.service.KeyTokenService;
+import server.restapi.encryption.multi_fields_in_payload.schema.DecryptionPlan;
+import server.restapi.encryption.multi_fields_in_payload.schema.FieldEncryptionSchemas;
+import server.restapi.encryption.multi_fields_in_payload.service.BatchOrderService;
 import server.restapi.encryption.multi_fields_in_payload.service.OrderService;
+import server.restapi.encryption.multi_fields_in_payload.service.PayloadService;
+import server.restapi.encryption.session.service.SessionService;
+
+import javax.crypto.SecretKey;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Order Controller (Multi-Fields) - REST endpoints for orders with field-level encryption.
@@ -22,6 +40,24 @@ import server.restapi.encryption.multi_fields_in_payload.service.OrderService;
  * │  Server Flow:                                                          │
  * │  1. KMS decrypt header → DEK (1 KMS call)                              │
  * │  2. Local AES decrypt each field using DEK                             │
+ * │                                                                        │
+ * │  aws.kms.async.enabled=true: step 1 uses the KmsAsyncClient and the    │
+ * │  request thread is released while KMS is in flight                     │
+ * │                                                                        │
+ * │  Session variant (see /api/v1/sessions):                               │
+ * │  Header: X-Session-Id: sessionId → DEK from session store (no KMS)     │
+ * │                                                                        │
+ * │  Key-token variant (see /api/v1/key-tokens):                           │
+ * │  Header: X-Key-Token: keyToken → DEK via local AES-KW unwrap (no KMS)  │
+ * │                                                                        │
+ * │  X-Encrypt-Response: true (single orders) → name and dateOfBirth of    │
+ * │  the confirmation are encrypted with the same DEK                      │
+ * │                                                                        │
+ * │  Batch variant (/orders:batch): many orders under one DEK              │
+ * │  Body: [ order1, order2, ... ] or NDJSON → 1 KMS call for all orders   │
+ * │                                                                        │
+ * │  Schema variant (/payloads/{type}): any type in encryption.field-      │
+ * │  schemas; its encrypted fields are decrypted in one streaming pass     │
  * └────────────────────────────────────────────────────────────────────────┘
  * </pre>
  */
@@ -31,17 +67,38 @@ public class OrderController {
 
   private static final Logger log = LoggerFactory.getLogger(OrderController.class);
   private static final String ENCRYPTION_KEY_HEADER = "X-Encryption-Key";
+  private static final String SESSION_ID_HEADER = "X-Session-Id";
+  private static final String KEY_TOKEN_HEADER = "X-Key-Token";
+  private static final String ENCRYPT_RESPONSE_HEADER = "X-Encrypt-Response";
 
   private final OrderService orderService;
+  private final BatchOrderService batchOrderService;
+  private final PayloadService payloadService;
+  private final SessionService sessionService;
+  private final KeyTokenService keyTokenService;
   private final Gson gson = new Gson();
+  private final boolean asyncKmsEnabled;
+  private final Timer responseSerialize;
   private Utils utils;
 
   public OrderController(
       @Qualifier("multiFieldsOrderService") OrderService orderService,
-      Utils utils
+      @Qualifier("multiFieldsBatchOrderService") BatchOrderService batchOrderService,
+      @Qualifier("multiFieldsPayloadService") PayloadService payloadService,
+      SessionService sessionService,
+      KeyTokenService keyTokenService,
+      Utils utils,
+      @Value("${aws.kms.async.enabled:false}") boolean asyncKmsEnabled,
+      StageMetrics metrics
   ) {
     this.orderService = orderService;
+    this.batchOrderService = batchOrderService;
+    this.payloadService = payloadService;
+    this.sessionService = sessionService;
+    this.keyTokenService = keyTokenService;
     this.utils = utils;
+    this.asyncKmsEnabled = asyncKmsEnabled;
+    this.responseSerialize = metrics.responseSerialize(StageMetrics.MULTI_FIELDS);
   }
 
   @GetMapping("/health")
@@ -52,40 +109,265 @@ public class OrderController {
   /**
    * Submits an order with encrypted PII fields.
    *
-   * <p>Header contains: BASE64(RSA-OAEP-256(aesDataEncryptionKey))</p>
+   * <p>Header contains: BASE64(RSA-OAEP-256(aesDataEncryptionKey)),
+   * or the id of a session opened via /api/v1/sessions,
+   * or a key token issued by /api/v1/key-tokens</p>
    * <p>Body contains: JSON with individually encrypted fields</p>
    *
    * @param encryptedDataEncryptionKey The RSA-encrypted DEK (from X-Encryption-Key header)
+   * @param sessionId          The session id (from X-Session-Id header)
+   * @param keyToken           The key token (from X-Key-Token header)
+   * @param encryptResponse    Whether to encrypt name and dateOfBirth with the DEK (X-Encrypt-Response header)
    * @param requestBody        The order details as JSON with encrypted fields
-   * @return Order confirmation with masked PII data
+   * @return Order confirmation with masked PII data (written by OrderConfirmationHttpMessageConverter)
    */
   @PostMapping("/orders")
-  public ResponseEntity<String> submitOrder(
+  public CompletableFuture<ResponseEntity<?>> submitOrder(
       @RequestHeader(value = ENCRYPTION_KEY_HEADER, required = false) String encryptedDataEncryptionKey,
+      @RequestHeader(value = SESSION_ID_HEADER, required = false) String sessionId,
+      @RequestHeader(value = KEY_TOKEN_HEADER, required = false) String keyToken,
+      @RequestHeader(value = ENCRYPT_RESPONSE_HEADER, defaultValue = "false") boolean encryptResponse,
       @RequestBody String requestBody
   ) {
-    JsonObject jsonPayload = gson.fromJson(requestBody, JsonObject.class);
-    log.info("Request Header [X-Encryption-Key]: {}", utils.truncate(encryptedDataEncryptionKey, 40));
-    log.info("Request Body: {}", gson.toJson(jsonPayload));
+    AuditRecord audit = AuditRecord.current();
+    audit.requestBody(requestBody);
 
-    // Validate request body
-    if (jsonPayload == null) {
-      return ResponseEntity.badRequest().body(gson.toJson(utils.errorResponse("Empty request body")));
+    // Validate request body (parsed later in a single streaming pass by OrderService)
+    if (requestBody == null || requestBody.isBlank()) {
+      return CompletableFuture.completedFuture(
+          ResponseEntity.badRequest().body(gson.toJson(utils.errorResponse("Empty request body"))));
+    }
+    // Session / key-token orders: DEK without a KMS call
+    if (hasText(sessionId) || hasText(keyToken)) {
+      return CompletableFuture.completedFuture(submitLocalKeyOrder(requestBody, sessionId, keyToken, encryptResponse, audit));
     }
     // Validate presence of encryption header
     if (encryptedDataEncryptionKey == null || encryptedDataEncryptionKey.isBlank()) {
       log.warn("Missing X-Encryption-Key header");
-      return ResponseEntity.badRequest().body(gson.toJson(utils.errorResponse("Missing X-Encryption-Key header")));
+      return CompletableFuture.completedFuture(
+          ResponseEntity.badRequest().body(gson.toJson(utils.errorResponse("Missing X-Encryption-Key header"))));
+    }
+
+    CompletableFuture<OrderConfirmation> pendingResponse;
+    if (asyncKmsEnabled) {
+      pendingResponse = orderService.processOrderAsync(requestBody, encryptedDataEncryptionKey, encryptResponse);
+    } else {
+      try {
+        pendingResponse = CompletableFuture.completedFuture(
+            orderService.processOrder(requestBody, encryptedDataEncryptionKey, encryptResponse));
+      } catch (Exception e) {
+        pendingResponse = CompletableFuture.failedFuture(e);
+      }
     }
 
+    return pendingResponse.<ResponseEntity<?>>handle((response, failure) -> {
+      if (failure != null) {
+        Throwable e = utils.unwrap(failure);
+        log.error("Order processing failed: {}", e.getMessage(), e);
+        return ResponseEntity.status(utils.failureStatus(e)).body(gson.toJson(utils.errorResponse("Order processing failed: " + e.getMessage())));
+      }
+      audit.responseBody(response::toJson);
+      return ResponseEntity.ok(response);
+    });
+  }
+
+  /**
+   * Submits a batch of orders whose PII fields are all encrypted with the same DEK.
+   *
+   * <p>Header contains: BASE64(RSA-OAEP-256(aesDataEncryptionKey)) once for the whole batch,
+   * or the id of a session opened via /api/v1/sessions, or a key token</p>
+   * <p>Body contains: JSON array of orders, or NDJSON (Content-Type: application/x-ndjson)</p>
+   *
+   * @param encryptedDataEncryptionKey The RSA-encrypted DEK (from X-Encryption-Key header)
+   * @param sessionId          The session id (from X-Session-Id header)
+   * @param keyToken           The key token (from X-Key-Token header)
+   * @param contentType        The request Content-Type (selects JSON array or NDJSON)
+   * @param requestBody        The orders with encrypted fields
+   * @return Per-order results in request order; a failed order does not fail the batch
+   */
+  @PostMapping("/orders:batch")
+  public CompletableFuture<ResponseEntity<String>> submitOrderBatch(
+      @RequestHeader(value = ENCRYPTION_KEY_HEADER, required = false) String encryptedDataEncryptionKey,
+      @RequestHeader(value = SESSION_ID_HEADER, required = false) String sessionId,
+      @RequestHeader(value = KEY_TOKEN_HEADER, required = false) String keyToken,
+      @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+      @RequestBody String requestBody
+  ) {
+    AuditRecord audit = AuditRecord.current();
+    audit.requestBody(requestBody);
+
+    // Validate request body
+    boolean ndjson = contentType != null && MediaType.APPLICATION_NDJSON.isCompatibleWith(MediaType.parseMediaType(contentType));
+    List<BatchOrderService.BatchItem> orders;
     try {
-      JsonObject response = orderService.processOrder(jsonPayload, encryptedDataEncryptionKey);
-      log.info("Response Body: {}", gson.toJson(response));
-      return ResponseEntity.ok(gson.toJson(response));
+      orders = batchOrderService.parseOrders(requestBody, ndjson);
+    } catch (IllegalArgumentException e) {
+      return CompletableFuture.completedFuture(
+          ResponseEntity.badRequest().body(gson.toJson(utils.errorResponse(e.getMessage()))));
+    }
+    if (orders.isEmpty()) {
+      return CompletableFuture.completedFuture(
+          ResponseEntity.badRequest().body(gson.toJson(utils.errorResponse("Empty batch"))));
+    }
+    log.debug("Request Body: {} orders ({})", orders.size(), ndjson ? "NDJSON" : "JSON array");
+
+    CompletableFuture<JsonObject> pendingResponse;
+    if (hasText(sessionId) || hasText(keyToken)) {
+      // Session / key-token batches: DEK without a KMS call
+      try {
+        pendingResponse = batchOrderService.processBatch(orders, resolveLocalDataEncryptionKey(sessionId, keyToken));
+      } catch (SessionService.SessionExpiredException | KeyTokenService.InvalidKeyTokenException e) {
+        log.warn("Rejected batch for unknown or expired session / key token");
+        return CompletableFuture.completedFuture(
+            ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(gson.toJson(utils.errorResponse(e.getMessage()))));
+      }
+    } else if (encryptedDataEncryptionKey == null || encryptedDataEncryptionKey.isBlank()) {
+      log.warn("Missing X-Encryption-Key header");
+      return CompletableFuture.completedFuture(
+          ResponseEntity.badRequest().body(gson.toJson(utils.errorResponse("Missing X-Encryption-Key header"))));
+    } else if (asyncKmsEnabled) {
+      pendingResponse = batchOrderService.processBatchAsync(orders, encryptedDataEncryptionKey);
+    } else {
+      try {
+        pendingResponse = batchOrderService.processBatch(orders, encryptedDataEncryptionKey);
+      } catch (Exception e) {
+        pendingResponse = CompletableFuture.failedFuture(e);
+      }
+    }
+
+    return pendingResponse.handle((response, failure) -> {
+      if (failure != null) {
+        Throwable e = utils.unwrap(failure);
+        log.error("Batch processing failed: {}", e.getMessage(), e);
+        return ResponseEntity.status(utils.failureStatus(e)).body(gson.toJson(utils.errorResponse("Batch processing failed: " + e.getMessage())));
+      }
+      log.debug("Response: {} of {} orders succeeded", response.get("succeeded"), response.get("total"));
+      String body = serialize(response);
+      audit.responseBody(body);
+      return ResponseEntity.ok(body);
+    });
+  }
+
+  /**
+   * Submits a payload of a type declared in encryption.field-schemas.
+   *
+   * <p>Header contains: BASE64(RSA-OAEP-256(aesDataEncryptionKey)),
+   * or the id of a session opened via /api/v1/sessions, or a key token</p>
+   * <p>Body contains: JSON whose schema fields are individually encrypted</p>
+   *
+   * @param type               The payload type (schema name)
+   * @param encryptedDataEncryptionKey The RSA-encrypted DEK (from X-Encryption-Key header)
+   * @param sessionId          The session id (from X-Session-Id header)
+   * @param keyToken           The key token (from X-Key-Token header)
+   * @param requestBody        The payload with encrypted fields
+   * @return The pointers of the decrypted fields; 404 if the type has no schema
+   */
+  @PostMapping("/payloads/{type}")
+  public CompletableFuture<ResponseEntity<String>> submitPayload(
+      @PathVariable("type") String type,
+      @RequestHeader(value = ENCRYPTION_KEY_HEADER, required = false) String encryptedDataEncryptionKey,
+      @RequestHeader(value = SESSION_ID_HEADER, required = false) String sessionId,
+      @RequestHeader(value = KEY_TOKEN_HEADER, required = false) String keyToken,
+      @RequestBody String requestBody
+  ) {
+    AuditRecord audit = AuditRecord.current();
+    audit.requestBody(requestBody);
+
+    DecryptionPlan plan;
+    try {
+      plan = payloadService.plan(type);
+    } catch (FieldEncryptionSchemas.UnknownPayloadTypeException e) {
+      log.warn("Rejected payload of unknown type");
+      return CompletableFuture.completedFuture(
+          ResponseEntity.status(HttpStatus.NOT_FOUND).body(gson.toJson(utils.errorResponse(e.getMessage()))));
+    }
+    if (requestBody == null || requestBody.isBlank()) {
+      return CompletableFuture.completedFuture(
+          ResponseEntity.badRequest().body(gson.toJson(utils.errorResponse("Empty request body"))));
+    }
+
+    CompletableFuture<JsonObject> pendingResponse;
+    if (hasText(sessionId) || hasText(keyToken)) {
+      // Session / key-token payloads: DEK without a KMS call
+      SecretKey dataEncryptionKey;
+      try {
+        dataEncryptionKey = resolveLocalDataEncryptionKey(sessionId, keyToken);
+      } catch (SessionService.SessionExpiredException | KeyTokenService.InvalidKeyTokenException e) {
+        log.warn("Rejected payload for unknown or expired session / key token");
+        return CompletableFuture.completedFuture(
+            ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(gson.toJson(utils.errorResponse(e.getMessage()))));
+      }
+      try {
+        pendingResponse = CompletableFuture.completedFuture(
+            payloadService.processPayload(plan, requestBody, dataEncryptionKey));
+      } catch (Exception e) {
+        pendingResponse = CompletableFuture.failedFuture(e);
+      }
+    } else if (encryptedDataEncryptionKey == null || encryptedDataEncryptionKey.isBlank()) {
+      log.warn("Missing X-Encryption-Key header");
+      return CompletableFuture.completedFuture(
+          ResponseEntity.badRequest().body(gson.toJson(utils.errorResponse("Missing X-Encryption-Key header"))));
+    } else if (asyncKmsEnabled) {
+      pendingResponse = payloadService.processPayloadAsync(plan, requestBody, encryptedDataEncryptionKey);
+    } else {
+      try {
+        pendingResponse = CompletableFuture.completedFuture(
+            payloadService.processPayload(plan, requestBody, encryptedDataEncryptionKey));
+      } catch (Exception e) {
+        pendingResponse = CompletableFuture.failedFuture(e);
+      }
+    }
+
+    return pendingResponse.handle((response, failure) -> {
+      if (failure != null) {
+        Throwable e = utils.unwrap(failure);
+        log.error("Payload processing failed: {}", e.getMessage(), e);
+        return ResponseEntity.status(utils.failureStatus(e)).body(gson.toJson(utils.errorResponse("Payload processing failed: " + e.getMessage())));
+      }
+      String body = serialize(response);
+      audit.responseBody(body);
+      return ResponseEntity.ok(body);
+    });
+  }
+
+  private ResponseEntity<?> submitLocalKeyOrder(String requestBody, String sessionId, String keyToken,
+                                                boolean encryptResponse, AuditRecord audit) {
+    SecretKey dataEncryptionKey;
+    try {
+      dataEncryptionKey = resolveLocalDataEncryptionKey(sessionId, keyToken);
+    } catch (SessionService.SessionExpiredException | KeyTokenService.InvalidKeyTokenException e) {
+      log.warn("Rejected order for unknown or expired session / key token");
+      return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(gson.toJson(utils.errorResponse(e.getMessage())));
+    }
+
+    try {
+      OrderConfirmation response = orderService.processOrder(requestBody, dataEncryptionKey, encryptResponse);
+      audit.responseBody(response::toJson);
+      return ResponseEntity.ok(response);
     } catch (Exception e) {
       log.error("Order processing failed: {}", e.getMessage(), e);
-      return ResponseEntity.badRequest().body(gson.toJson(utils.errorResponse("Order processing failed: " + e.getMessage())));
+      return ResponseEntity.status(utils.failureStatus(e)).body(gson.toJson(utils.errorResponse("Order processing failed: " + e.getMessage())));
     }
   }
 
+  /**
+   * DEK of a request that does not carry a KMS-wrapped DEK: from the session store (X-Session-Id)
+   * or unwrapped locally from a key token (X-Key-Token). No KMS call either way.
+   *
+   * @throws SessionService.SessionExpiredException    If the session is unknown or expired
+   * @throws KeyTokenService.InvalidKeyTokenException If the key token is forged, expired or its KEK rotated out
+   */
+  private SecretKey resolveLocalDataEncryptionKey(String sessionId, String keyToken) {
+    return hasText(sessionId)
+        ? sessionService.resolveDataEncryptionKey(sessionId)
+        : keyTokenService.resolveDataEncryptionKey(keyToken);
+  }
+
+  private static boolean hasText(String header) {
+    return header != null && !header.isBlank();
+  }
+
+  private String serialize(JsonObject response) {
+    return responseSerialize.record(() -> gson.toJson(response));
+  }
 }
@@ -2,15 +2,20 @@ package server.restapi_data_security.multi_fields_encryption.crypto;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import server._common.kms.KmsCallGuard;
+import server._common.kms.UnwrappedKeyCache;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
 import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.kms.KmsAsyncClient;
 import software.amazon.awssdk.services.kms.KmsClient;
 import software.amazon.awssdk.services.kms.model.DecryptRequest;
 import software.amazon.awssdk.services.kms.model.DecryptResponse;
 import software.amazon.awssdk.services.kms.model.EncryptionAlgorithmSpec;
 
 import javax.crypto.SecretKey;
-import javax.crypto.spec.SecretKeySpec;
 import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * DEK Decryptor and Unwrapper - Decrypts and unwraps AES DEK using AWS KMS RSA decryption.
@@ -35,6 +40,7 @@ import java.util.Base64;
  * <ul>
  *   <li>RSA private key <b>never leaves AWS KMS HSM</b></li>
  *   <li>This is the <b>ONLY KMS API call</b> per request</li>
+ *   <li>Repeat requests with the same wrapped DEK are served from {@link UnwrappedKeyCache}</li>
  *   <li>Simpler than JWE: No CEK, no AES decryption of DEK</li>
  * </ul>
  */
@@ -42,14 +48,23 @@ import java.util.Base64;
 public class DEKDecryptorAndUnwrapper {
 
   private final KmsClient kmsClient;
+  private final KmsAsyncClient kmsAsyncClient;
+  private final UnwrappedKeyCache unwrappedKeyCache;
   private final String keyArn;
+  private final KmsCallGuard kmsCallGuard;
 
   public DEKDecryptorAndUnwrapper(
       KmsClient kmsClient,
-      @Value("${aws.kms.asymmetric-key-arn}") String keyArn
+      KmsAsyncClient kmsAsyncClient,
+      UnwrappedKeyCache unwrappedKeyCache,
+      @Value("${aws.kms.asymmetric-key-arn}") String keyArn,
+      KmsCallGuard kmsCallGuard
   ) {
     this.kmsClient = kmsClient;
+    this.kmsAsyncClient = kmsAsyncClient;
+    this.unwrappedKeyCache = unwrappedKeyCache;
     this.keyArn = keyArn;
+    this.kmsCallGuard = kmsCallGuard;
   }
 
   /**
@@ -90,7 +105,8 @@ public class DEKDecryptorAndUnwrapper {
    * └────────────────┴─────────────────┴─────────────────────────────────────┴──────────────────────────┘
    * </pre>
    *
-   * <p><b>NOTE:</b> This is the ONLY KMS API call per request!</p>
+   * <p><b>NOTE:</b> This is the ONLY KMS API call per request, and it is skipped
+   * entirely when the same wrapped DEK was unwrapped recently (key cache hit).</p>
    *
    * @param encryptedDataEncryptionKey BASE64-encoded RSA-encrypted DEK from header
    * @return The AES Data Encryption Key (DEK) for field decryption
@@ -101,22 +117,70 @@ public class DEKDecryptorAndUnwrapper {
       // Decode Base64 to get encrypted DEK bytes
       byte[] encryptedDataEncryptionKeyBytes = Base64.getDecoder().decode(encryptedDataEncryptionKey);
 
-      // Build KMS decrypt request
-      DecryptRequest request = DecryptRequest.builder()
-          .keyId(keyArn)
-          .ciphertextBlob(SdkBytes.fromByteArray(encryptedDataEncryptionKeyBytes))
-          .encryptionAlgorithm(EncryptionAlgorithmSpec.RSAES_OAEP_SHA_256)
-          .build();
-
-      // Decrypt via KMS (private key never leaves HSM)
-      DecryptResponse response = kmsClient.decrypt(request);
-      byte[] dekBytes = response.plaintext().asByteArray();
-
-      // Return as SecretKey
-      return new SecretKeySpec(dekBytes, "AES");
+      // Reuse the DEK if this wrapped key was unwrapped recently, otherwise ask KMS
+      return unwrappedKeyCache.getOrUnwrap(encryptedDataEncryptionKeyBytes, this::decryptViaKms);
 
     } catch (Exception e) {
       throw new RuntimeException("Failed to unwrap DEK via KMS: " + e.getMessage(), e);
     }
   }
+
+  /**
+   * Non-blocking variant of {@link #unwrapAndDecryptDataEncryptionKeyViaAWSKMS(String)}.
+   *
+   * <p>Uses the KmsAsyncClient, so no thread is parked while the KMS round trip is in flight.</p>
+   *
+   * @param encryptedDataEncryptionKey BASE64-encoded RSA-encrypted DEK from header
+   * @return Future completing with the AES Data Encryption Key (DEK)
+   */
+  public CompletableFuture<SecretKey> unwrapAndDecryptDataEncryptionKeyViaAWSKMSAsync(String encryptedDataEncryptionKey) {
+    byte[] encryptedDataEncryptionKeyBytes;
+    try {
+      encryptedDataEncryptionKeyBytes = Base64.getDecoder().decode(encryptedDataEncryptionKey);
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(
+          new RuntimeException("Failed to unwrap DEK via KMS: " + e.getMessage(), e));
+    }
+
+    return unwrappedKeyCache.getOrUnwrapAsync(encryptedDataEncryptionKeyBytes, this::decryptViaKmsAsync)
+        .exceptionallyCompose(e -> {
+          Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+          return CompletableFuture.failedFuture(
+              new RuntimeException("Failed to unwrap DEK via KMS: " + cause.getMessage(), cause));
+        });
+  }
+
+  /**
+   * Decrypts the encrypted DEK using AWS KMS RSA decryption.
+   *
+   * @param encryptedDataEncryptionKeyBytes The RSA-encrypted DEK bytes
+   * @return The decrypted Data Encryption Key bytes
+   */
+  private byte[] decryptViaKms(byte[] encryptedDataEncryptionKeyBytes) {
+    // Decrypt via KMS (private key never leaves HSM)
+    DecryptResponse response = kmsCallGuard.call("Decrypt",
+        override -> kmsClient.decrypt(decryptRequest(encryptedDataEncryptionKeyBytes, override)));
+    return response.plaintext().asByteArray();
+  }
+
+  /**
+   * Decrypts the encrypted DEK using the non-blocking AWS KMS client.
+   *
+   * @param encryptedDataEncryptionKeyBytes The RSA-encrypted DEK bytes
+   * @return Future completing with the decrypted Data Encryption Key bytes
+   */
+  private CompletableFuture<byte[]> decryptViaKmsAsync(byte[] encryptedDataEncryptionKeyBytes) {
+    return kmsCallGuard.callAsync("Decrypt",
+            override -> kmsAsyncClient.decrypt(decryptRequest(encryptedDataEncryptionKeyBytes, override)))
+        .thenApply(response -> response.plaintext().asByteArray());
+  }
+
+  private DecryptRequest decryptRequest(byte[] ciphertext, AwsRequestOverrideConfiguration override) {
+    return DecryptRequest.builder()
+        .keyId(keyArn)
+        .ciphertextBlob(SdkBytes.fromByteArray(ciphertext))
+        .encryptionAlgorithm(EncryptionAlgorithmSpec.RSAES_OAEP_SHA_256)
+        .overrideConfiguration(override)
+        .build();
+  }
 }
@@ -1,12 +1,14 @@
 package server.restapi_data_security.multi_fields_encryption.crypto;
 
 import org.springframework.stereotype.Component;
+import server._common.crypto.AesGcmCipherPool;
+import server._common.crypto.Base64Decoder;
+import server._common.metrics.StageMetrics;
 
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.nio.ByteBuffer;
 
 /**
  * Field Decryptor - Decrypts individual PII fields using AES-256-GCM.
@@ -32,6 +34,9 @@ import java.util.Base64;
  *   <li><b>No KMS Call:</b> Decryption happens locally using the AES DEK</li>
  *   <li><b>Fast:</b> AES decryption is extremely fast (~GB/sec)</li>
  *   <li><b>Integrity:</b> AuthTag verifies data wasn't tampered</li>
+ *   <li><b>Cipher reuse:</b> Ciphers come from {@link AesGcmCipherPool} (no provider lookup per field)</li>
+ *   <li><b>Low garbage:</b> Base64 is decoded straight into the pooled scratch buffer and decrypted
+ *       ByteBuffer to ByteBuffer; per field only the GCMParameterSpec and the result String are allocated</li>
  * </ul>
  */
 @Component("multiFieldsFieldDecryptor")
@@ -39,6 +44,14 @@ public class FieldDecryptor {
 
   private static final int AUTH_TAG_SIZE_BITS = 128;
 
+  private final AesGcmCipherPool cipherPool;
+  private final StageMetrics metrics;
+
+  public FieldDecryptor(AesGcmCipherPool cipherPool, StageMetrics metrics) {
+    this.cipherPool = cipherPool;
+    this.metrics = metrics;
+  }
+
   /**
    * Decrypts an encrypted field value.
    *
@@ -70,32 +83,38 @@ public class FieldDecryptor {
    * @return The decrypted plaintext string
    */
   public String decrypt(String encryptedField, SecretKey dataEncryptionKey) {
-    String[] parts = encryptedField.split("\\.");
-    if (parts.length != 3) {
+    // Locate the 2 separators (no regex split, no substrings)
+    int firstDot = encryptedField.indexOf('.');
+    int secondDot = firstDot < 0 ? -1 : encryptedField.indexOf('.', firstDot + 1);
+    if (secondDot < 0 || encryptedField.indexOf('.', secondDot + 1) >= 0) {
       throw new IllegalArgumentException(
-          "Invalid format. Expected: IV.EncryptedText.AuthTag, got " + parts.length + " parts");
+          "Invalid format. Expected: IV.EncryptedText.AuthTag, got " + countParts(encryptedField) + " parts");
     }
 
     try {
-      byte[] iv = Base64.getDecoder().decode(parts[0]);
-      byte[] encryptedText = Base64.getDecoder().decode(parts[1]);
-      byte[] authTag = Base64.getDecoder().decode(parts[2]);
-
-      // Combine encryptedText and authTag (GCM expects them together)
-      byte[] encryptedWithTag = new byte[encryptedText.length + authTag.length];
-      System.arraycopy(encryptedText, 0, encryptedWithTag, 0, encryptedText.length);
-      System.arraycopy(authTag, 0, encryptedWithTag, encryptedText.length, authTag.length);
+      return metrics.fieldDecrypt().recordCallable(() -> cipherPool.executeWithScratch((cipher, scratch) -> {
+        // Decode IV | encryptedText | authTag back to back into the scratch buffer:
+        // encryptedText || authTag ends up contiguous, as GCM expects, without a concatenation copy
+        ByteBuffer input = scratch.input(Base64Decoder.maxDecodedLength(encryptedField.length()));
+        byte[] in = input.array();
+        int ivLength = Base64Decoder.STANDARD.decode(encryptedField, 0, firstDot, in, 0);
+        int textLength = Base64Decoder.STANDARD.decode(encryptedField, firstDot + 1, secondDot, in, ivLength);
+        int tagLength = Base64Decoder.STANDARD.decode(encryptedField, secondDot + 1, encryptedField.length(),
+            in, ivLength + textLength);
 
-      // Decrypt
-      Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-      GCMParameterSpec gcmSpec = new GCMParameterSpec(AUTH_TAG_SIZE_BITS, iv);
-      cipher.init(Cipher.DECRYPT_MODE, dataEncryptionKey, gcmSpec);
-
-      byte[] plainText = cipher.doFinal(encryptedWithTag);
-      return new String(plainText, StandardCharsets.UTF_8);
+        // Decrypt (pooled Cipher, re-initialized with this field's IV)
+        cipher.init(Cipher.DECRYPT_MODE, dataEncryptionKey, new GCMParameterSpec(AUTH_TAG_SIZE_BITS, in, 0, ivLength));
+        input.position(ivLength).limit(ivLength + textLength + tagLength);
+        int plainTextLength = cipher.doFinal(input, scratch.output(textLength + tagLength));
+        return scratch.outputAsUtf8(plainTextLength);
+      }));
 
     } catch (Exception e) {
       throw new RuntimeException("Failed to decrypt field: " + e.getMessage(), e);
     }
   }
+
+  private static int countParts(String encryptedField) {
+    return (int) encryptedField.chars().filter(c -> c == '.').count() + 1;
+  }
 }
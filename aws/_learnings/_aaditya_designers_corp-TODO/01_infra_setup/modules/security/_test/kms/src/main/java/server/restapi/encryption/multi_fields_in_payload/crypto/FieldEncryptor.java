@@ -0,0 +1,88 @@
+package server.restapi_data_security.multi_fields_encryption.crypto;
+
+import org.springframework.stereotype.Component;
+import server._common.crypto.AesGcmCipherPool;
+import server._common.metrics.StageMetrics;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Field Encryptor - Encrypts PII fields of a response with the request's DEK.
+ *
+ * <h2>Encrypted Responses (X-Encrypt-Response: true)</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  Input: plainText (e.g. "1990-05-15"), the DEK the request was         │
+ * │         decrypted with (already unwrapped: no KMS call, no RSA)        │
+ * │                                                                        │
+ * │  Process:                                                              │
+ * │  1. Generate random IV (12 bytes)                                      │
+ * │  2. Encrypt plainText using AES-256-GCM on a pooled Cipher             │
+ * │  3. Combine: BASE64(IV) + "." + BASE64(ciphertext) + "." + BASE64(tag) │
+ * │                                                                        │
+ * │  Output: the request field format, so the client decrypts the          │
+ * │  response with the DEK it generated                                    │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <p>A fresh random 96-bit IV per field keeps IV reuse under one DEK negligible for the number
+ * of fields a DEK (request, session or key token) ever protects.</p>
+ */
+@Component("multiFieldsFieldEncryptor")
+public class FieldEncryptor {
+
+  private static final int IV_SIZE_BYTES = 12;
+  private static final int AUTH_TAG_SIZE_BITS = 128;
+  private static final int AUTH_TAG_SIZE_BYTES = AUTH_TAG_SIZE_BITS / 8;
+
+  private final AesGcmCipherPool cipherPool;
+  private final StageMetrics metrics;
+  private final SecureRandom secureRandom = new SecureRandom();
+
+  public FieldEncryptor(AesGcmCipherPool cipherPool, StageMetrics metrics) {
+    this.cipherPool = cipherPool;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Encrypts a field value.
+   *
+   * @param plainText         The value to encrypt
+   * @param dataEncryptionKey The AES DEK of the request
+   * @return Encrypted string in format: BASE64(IV).BASE64(EncryptedText).BASE64(AuthTag)
+   */
+  public String encrypt(String plainText, SecretKey dataEncryptionKey) {
+    byte[] iv = new byte[IV_SIZE_BYTES];
+    secureRandom.nextBytes(iv);
+    byte[] plainBytes = plainText.getBytes(StandardCharsets.UTF_8);
+
+    try {
+      return metrics.fieldEncrypt().recordCallable(() -> cipherPool.executeWithScratch((cipher, scratch) -> {
+        // Encrypt (pooled Cipher, initialized with this field's IV)
+        cipher.init(Cipher.ENCRYPT_MODE, dataEncryptionKey, new GCMParameterSpec(AUTH_TAG_SIZE_BITS, iv));
+        ByteBuffer output = scratch.output(plainBytes.length + AUTH_TAG_SIZE_BYTES);
+        int length = cipher.doFinal(ByteBuffer.wrap(plainBytes), output);
+
+        // GCM appends the tag to the ciphertext: encode the two parts separately
+        byte[] out = output.array();
+        int textLength = length - AUTH_TAG_SIZE_BYTES;
+        Base64.Encoder encoder = Base64.getEncoder();
+        return encoder.encodeToString(iv) + "."
+            + encoder.encodeToString(Arrays.copyOf(out, textLength)) + "."
+            + encoder.encodeToString(Arrays.copyOfRange(out, textLength, length));
+      }));
+
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to encrypt field: " + e.getMessage(), e);
+    } finally {
+      Arrays.fill(plainBytes, (byte) 0);
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package server.restapi.encryption.multi_fields_in_payload.schema;
+
+import com.google.gson.JsonElement;
+import io.micrometer.core.instrument.Timer;
+import server._common.json.JsonFieldExtractor;
+import server.restapi_data_security.multi_fields_encryption.crypto.FieldDecryptor;
+
+import javax.crypto.SecretKey;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Decryption Plan - The encrypted fields of one payload type, compiled for a single-pass walk.
+ *
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  Schema (startup):  order → [/dateOfBirth, /cardDetails/ssn, ...]      │
+ * │                     └── compiled once into a JsonFieldExtractor trie   │
+ * │                                                                        │
+ * │  decrypt(payload, DEK):                                                │
+ * │  1. Walk the payload once: collect every encrypted (and plain) match   │
+ * │  2. Decrypt the encrypted matches with the shared DEK                  │
+ * │     (ParallelFieldDecryptor: sequential for small payloads, fanned out │
+ * │     across the bounded pool for many or large fields)                  │
+ * │  3. Result: pointer → plaintext, in document order                     │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <p>The first field (in document order) that fails to decrypt is reported with its concrete
+ * pointer (e.g. "/dependents/2/ssn"). Immutable and thread-safe.</p>
+ */
+public final class DecryptionPlan {
+
+  private final String type;
+  private final List<String> encryptedPointers;
+  private final List<String> plainPointers;
+  private final ParallelFieldDecryptor parallelFieldDecryptor;
+  private final Timer walkTimer;
+  private final JsonFieldExtractor extractor;
+
+  /**
+   * @param type              The payload type (schema name)
+   * @param encryptedPointers JSON pointers of encrypted fields ("*" matches every array element)
+   * @param plainPointers     JSON pointers of plaintext fields to extract in the same pass
+   * @param parallelFieldDecryptor Decrypts the encrypted matches, in parallel when they are many or large
+   * @param walkTimer         Times the JSON walk (order.json.parse), field decryption excluded
+   */
+  DecryptionPlan(String type, List<String> encryptedPointers, List<String> plainPointers,
+                 ParallelFieldDecryptor parallelFieldDecryptor, Timer walkTimer) {
+    this.type = type;
+    this.encryptedPointers = List.copyOf(encryptedPointers);
+    this.plainPointers = List.copyOf(plainPointers);
+    this.parallelFieldDecryptor = parallelFieldDecryptor;
+    this.walkTimer = walkTimer;
+
+    // Fields [0, encrypted) are encrypted, the rest are plain
+    List<String> paths = new ArrayList<>(this.encryptedPointers);
+    paths.addAll(this.plainPointers);
+    try {
+      this.extractor = JsonFieldExtractor.compile(paths);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid field schema '" + type + "': " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * @param pointers Plaintext fields to extract alongside the encrypted ones (e.g. "/name")
+   * @return A plan over the same encrypted fields that also extracts the given plain fields
+   */
+  public DecryptionPlan withPlainFields(String... pointers) {
+    List<String> plain = new ArrayList<>(plainPointers);
+    plain.addAll(List.of(pointers));
+    return new DecryptionPlan(type, encryptedPointers, plain, parallelFieldDecryptor, walkTimer);
+  }
+
+  public String type() {
+    return type;
+  }
+
+  public List<String> encryptedPointers() {
+    return encryptedPointers;
+  }
+
+  /**
+   * Walks the payload once and decrypts every field the schema marks as encrypted.
+   *
+   * @param payload           The JSON payload
+   * @param dataEncryptionKey The shared AES DEK
+   * @param fieldDecryptor    Decrypts one IV.EncryptedText.AuthTag value
+   * @return Concrete pointer → plaintext for every match (encrypted and plain), in document order
+   * @throws IllegalArgumentException If the payload is malformed, a field without "*" is
+   *                                  missing, or a field fails to decrypt (message names its pointer)
+   */
+  public Map<String, String> decrypt(String payload, SecretKey dataEncryptionKey, FieldDecryptor fieldDecryptor) {
+    return decrypt(handler -> extractor.walk(payload, handler), dataEncryptionKey, fieldDecryptor);
+  }
+
+  /**
+   * Variant of {@link #decrypt(String, SecretKey, FieldDecryptor)} for a payload that is already
+   * parsed (e.g. an element of a batch array): the tree is walked in place, not re-serialized.
+   *
+   * @param payload           The parsed JSON payload
+   * @param dataEncryptionKey The shared AES DEK
+   * @param fieldDecryptor    Decrypts one IV.EncryptedText.AuthTag value
+   * @return Concrete pointer → plaintext for every match (encrypted and plain), in document order
+   * @throws IllegalArgumentException If a field without "*" is missing, or a field fails to decrypt
+   */
+  public Map<String, String> decrypt(JsonElement payload, SecretKey dataEncryptionKey, FieldDecryptor fieldDecryptor) {
+    return decrypt(handler -> extractor.walk(payload, handler), dataEncryptionKey, fieldDecryptor);
+  }
+
+  private Map<String, String> decrypt(Consumer<JsonFieldExtractor.MatchHandler> walk, SecretKey dataEncryptionKey,
+                                      FieldDecryptor fieldDecryptor) {
+    int encryptedFields = encryptedPointers.size();
+    Map<String, String> result = new LinkedHashMap<>();
+    List<String> encryptedMatches = new ArrayList<>();
+    List<String> encryptedValues = new ArrayList<>();
+    walkTimer.record(() -> walk.accept((field, pointer, value) -> {
+      if (field < encryptedFields) {
+        encryptedMatches.add(pointer);
+        encryptedValues.add(value);
+        result.put(pointer, null); // placeholder keeps document order
+      } else {
+        result.put(pointer, value);
+      }
+    }));
+
+    String[] plaintexts =
+        parallelFieldDecryptor.decrypt(encryptedMatches, encryptedValues, dataEncryptionKey, fieldDecryptor);
+    for (int i = 0; i < plaintexts.length; i++) {
+      result.put(encryptedMatches.get(i), plaintexts[i]);
+    }
+    return result;
+  }
+}
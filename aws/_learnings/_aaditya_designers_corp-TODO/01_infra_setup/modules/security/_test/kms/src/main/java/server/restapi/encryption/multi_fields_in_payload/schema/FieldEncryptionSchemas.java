@@ -0,0 +1,75 @@
+package server.restapi.encryption.multi_fields_in_payload.schema;
+
+import io.micrometer.core.instrument.Timer;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Field Encryption Schemas - Which fields are encrypted, per payload type.
+ *
+ * <h2>Declared in application.yml, compiled at startup</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  encryption:                                                           │
+ * │    field-schemas:                                                      │
+ * │      order:        [ /dateOfBirth, /cardDetails/creditCardNumber, ... ]│
+ * │      claim:        [ /patient/ssn, /dependents/∗/ssn, ... ]            │
+ * │                                                                        │
+ * │  startup: each list → DecryptionPlan (invalid pointer = startup fails) │
+ * │  request: plan(type).decrypt(payload, DEK)                             │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <p>Onboarding a payload type is a config change: its schema is served by
+ * POST /api/v1/multi-fields/payloads/{type}. The "order" schema drives /orders.</p>
+ */
+public class FieldEncryptionSchemas {
+
+  private final Map<String, DecryptionPlan> plans = new LinkedHashMap<>();
+
+  /**
+   * @param encryptedPointersByType Payload type → JSON pointers of its encrypted fields
+   * @param parallelFieldDecryptor  Shared by all plans: decrypts each payload's fields
+   * @param walkTimer               Shared by all plans: times each payload's JSON walk
+   * @throws IllegalArgumentException If a schema is empty or has an invalid pointer
+   */
+  public FieldEncryptionSchemas(Map<String, List<String>> encryptedPointersByType,
+                                ParallelFieldDecryptor parallelFieldDecryptor,
+                                Timer walkTimer) {
+    encryptedPointersByType.forEach((type, pointers) -> {
+      if (pointers.isEmpty()) {
+        throw new IllegalArgumentException("Field schema '" + type + "' has no encrypted fields");
+      }
+      plans.put(type, new DecryptionPlan(type, pointers, List.of(), parallelFieldDecryptor, walkTimer));
+    });
+  }
+
+  /**
+   * @param type The payload type
+   * @return The compiled plan
+   * @throws UnknownPayloadTypeException If no schema is configured for the type
+   */
+  public DecryptionPlan plan(String type) {
+    DecryptionPlan plan = plans.get(type);
+    if (plan == null) {
+      throw new UnknownPayloadTypeException("No field schema for payload type: " + type);
+    }
+    return plan;
+  }
+
+  public Set<String> types() {
+    return plans.keySet();
+  }
+
+  /**
+   * Thrown when a payload type has no configured schema.
+   */
+  public static class UnknownPayloadTypeException extends RuntimeException {
+    public UnknownPayloadTypeException(String message) {
+      super(message);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package server.restapi.encryption.multi_fields_in_payload.schema;
+
+import server.restapi_data_security.multi_fields_encryption.crypto.FieldDecryptor;
+
+import javax.crypto.SecretKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parallel Field Decryptor - Decrypts the fields of one payload under its shared DEK, sequentially
+ * or across the shared crypto pool.
+ *
+ * <h2>When to Fan Out</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  fields ≥ parallel-threshold  OR  encoded bytes ≥ parallel-threshold-  │
+ * │  bytes (few but large fields, e.g. documents, base64 images)           │
+ * │  ├── no  → decrypt one after another on the calling thread             │
+ * │  └── yes → field i goes to stripe i mod N (N ≤ parallelism):           │
+ * │            stripes 1..N-1 on the shared "crypto" ForkJoinPool,         │
+ * │            stripe 0 on the calling thread, then join                   │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <h3>Deterministic Errors:</h3>
+ * <p>Each stripe stops at its first failure and the lowest failing index wins, so the error
+ * always names the first failing field in document order, whichever thread hit it. Fields
+ * after a known failure are skipped.</p>
+ *
+ * <p>AES-GCM is CPU-bound, so the stripes run on the ForkJoinPool sized to the cores that batch
+ * and file decryption share (see CryptoPoolConfig) rather than on a virtual-thread executor;
+ * encryption.field-decryption.parallelism bounds the stripes of one payload.</p>
+ */
+public final class ParallelFieldDecryptor {
+
+  private static final int NO_FAILURE = Integer.MAX_VALUE;
+
+  private final int parallelism;
+  private final int countThreshold;
+  private final long sizeThresholdBytes;
+  private final ForkJoinPool pool;
+
+  /**
+   * @param pool               The shared crypto pool, running stripes 1..N-1
+   * @param parallelism        Stripes per payload, calling thread included (0 = pool parallelism; 1 = always sequential)
+   * @param countThreshold     Fields per payload at or above which decryption fans out
+   * @param sizeThresholdBytes Total encoded field size at or above which decryption fans out
+   */
+  public ParallelFieldDecryptor(ForkJoinPool pool, int parallelism, int countThreshold, long sizeThresholdBytes) {
+    this.parallelism = parallelism > 0 ? parallelism : pool.getParallelism();
+    this.countThreshold = countThreshold;
+    this.sizeThresholdBytes = sizeThresholdBytes;
+    this.pool = this.parallelism > 1 ? pool : null;
+  }
+
+  /**
+   * @return A decryptor that never fans out
+   */
+  public static ParallelFieldDecryptor sequential() {
+    return new ParallelFieldDecryptor(null, 1, Integer.MAX_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * Decrypts every field with the shared DEK.
+   *
+   * @param pointers          Concrete pointer of each field, in document order
+   * @param encryptedValues   IV.EncryptedText.AuthTag of each field, same order
+   * @param dataEncryptionKey The shared AES DEK
+   * @param fieldDecryptor    Decrypts one field
+   * @return Plaintexts, same order
+   * @throws IllegalArgumentException For the first field (in document order) that fails,
+   *                                  as "pointer: reason"
+   */
+  public String[] decrypt(List<String> pointers, List<String> encryptedValues, SecretKey dataEncryptionKey,
+                          FieldDecryptor fieldDecryptor) {
+    int fields = encryptedValues.size();
+    String[] plaintexts = new String[fields];
+    RuntimeException[] failures = new RuntimeException[fields];
+    AtomicInteger firstFailure = new AtomicInteger(NO_FAILURE);
+
+    int stripes = shouldFanOut(encryptedValues) ? Math.min(parallelism, fields) : 1;
+    List<ForkJoinTask<?>> tasks = new ArrayList<>(stripes - 1);
+    for (int stripe = 1; stripe < stripes; stripe++) {
+      int first = stripe;
+      tasks.add(pool.submit(() -> decryptStripe(first, stripes, encryptedValues, plaintexts, failures,
+          firstFailure, dataEncryptionKey, fieldDecryptor)));
+    }
+    decryptStripe(0, stripes, encryptedValues, plaintexts, failures, firstFailure, dataEncryptionKey, fieldDecryptor);
+    tasks.forEach(ForkJoinTask::join);
+
+    int failed = firstFailure.get();
+    if (failed != NO_FAILURE) {
+      RuntimeException e = failures[failed];
+      throw new IllegalArgumentException(pointers.get(failed) + ": " + e.getMessage(), e);
+    }
+    return plaintexts;
+  }
+
+  private boolean shouldFanOut(List<String> encryptedValues) {
+    if (pool == null || encryptedValues.size() < 2) {
+      return false;
+    }
+    if (encryptedValues.size() >= countThreshold) {
+      return true;
+    }
+    long bytes = 0;
+    for (String value : encryptedValues) {
+      bytes += value.length();
+    }
+    return bytes >= sizeThresholdBytes;
+  }
+
+  private static void decryptStripe(int first, int stride, List<String> encryptedValues, String[] plaintexts,
+                                    RuntimeException[] failures, AtomicInteger firstFailure,
+                                    SecretKey dataEncryptionKey, FieldDecryptor fieldDecryptor) {
+    // A failure at a lower index already decides the error: everything after it is moot
+    for (int i = first; i < plaintexts.length && i < firstFailure.get(); i += stride) {
+      try {
+        plaintexts[i] = fieldDecryptor.decrypt(encryptedValues.get(i), dataEncryptionKey);
+      } catch (RuntimeException e) {
+        failures[i] = e;
+        firstFailure.accumulateAndGet(i, Math::min);
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,248 @@
+package server.restapi.encryption.multi_fields_in_payload.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import server._common.Utils;
+import server.restapi_data_security.multi_fields_encryption.crypto.DEKDecryptorAndUnwrapper;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Batch Order Service (Multi-Fields) - Processes many orders encrypted under one DEK.
+ *
+ * <h2>One KMS Call per Batch</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  Header: X-Encryption-Key: BASE64(RSA-encrypted DEK)  (once per batch) │
+ * │  Body:   [ order1, order2, ... ]  or NDJSON (1 order per line)         │
+ * │                                                                        │
+ * │  0. Parse order by order; > max-orders fails before the rest is read;  │
+ * │     a malformed NDJSON line becomes an error item                      │
+ * │  1. KMS decrypt header → DEK (1 KMS call for the whole batch)          │
+ * │  2. Split orders into chunks, one per worker (batch.parallelism),      │
+ * │     run on the shared crypto pool                                      │
+ * │  3. Each worker decrypts its orders' fields with the shared DEK        │
+ * │  4. Results in request order; a failing order yields an error item,    │
+ * │     the rest of the batch still succeeds                               │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <h3>Response:</h3>
+ * <pre>
+ * { "success": true, "total": 3, "succeeded": 2, "failed": 1,
+ *   "results": [ { "index": 0, "success": true, "orderId": ..., ... },
+ *                { "index": 1, "success": false, "message": "..." }, ... ] }
+ * </pre>
+ *
+ * <p>Properties:</p>
+ * <ul>
+ *   <li>encryption.batch.max-orders: Largest accepted batch (default: 1000)</li>
+ *   <li>encryption.batch.parallelism: Chunks decrypted at once on the shared crypto pool
+ *       (default: 0 = pool parallelism)</li>
+ * </ul>
+ */
+@Service("multiFieldsBatchOrderService")
+public class BatchOrderService {
+
+  private static final Logger log = LoggerFactory.getLogger(BatchOrderService.class);
+
+  private final OrderService orderService;
+  private final DEKDecryptorAndUnwrapper dekDecryptorAndUnwrapper;
+  private final Utils utils;
+  private final int maxOrders;
+  private final int parallelism;
+  private final ForkJoinPool cryptoPool;
+
+  public BatchOrderService(
+      @Qualifier("multiFieldsOrderService") OrderService orderService,
+      DEKDecryptorAndUnwrapper dekDecryptorAndUnwrapper,
+      Utils utils,
+      @Qualifier("cryptoPool") ForkJoinPool cryptoPool,
+      @Value("${encryption.batch.max-orders:1000}") int maxOrders,
+      @Value("${encryption.batch.parallelism:0}") int parallelism
+  ) {
+    this.orderService = orderService;
+    this.dekDecryptorAndUnwrapper = dekDecryptorAndUnwrapper;
+    this.utils = utils;
+    this.maxOrders = maxOrders;
+    // AES decryption is CPU-bound: the pool shared with field and file decryption is sized to
+    // the cores, a pool of its own would compete with them for the same cores
+    this.cryptoPool = cryptoPool;
+    this.parallelism = parallelism > 0 ? parallelism : cryptoPool.getParallelism();
+  }
+
+  /**
+   * One order of a batch: the parsed order, or why it could not be parsed.
+   */
+  public record BatchItem(JsonObject order, String error) {
+  }
+
+  /**
+   * Splits a batch request body into orders.
+   *
+   * <p>Read one order at a time: a body with more than max-orders orders is rejected as soon as
+   * order max-orders + 1 is reached, before the rest of the body is parsed.</p>
+   *
+   * @param body   JSON array of orders, or NDJSON (one order per line, blank lines ignored)
+   * @param ndjson Whether the body is NDJSON
+   * @return The orders in request order
+   * @throws IllegalArgumentException If the body is not a JSON array, or has more than max-orders orders
+   */
+  public List<BatchItem> parseOrders(String body, boolean ndjson) {
+    List<BatchItem> items = new ArrayList<>();
+    if (ndjson) {
+      for (String line : (Iterable<String>) body.lines()::iterator) {
+        if (line.isBlank()) {
+          continue;
+        }
+        checkBatchSize(items);
+        try {
+          items.add(toItem(JsonParser.parseString(line)));
+        } catch (JsonParseException e) {
+          items.add(new BatchItem(null, "Invalid JSON: " + e.getMessage()));
+        }
+      }
+      return items;
+    }
+
+    if (body.isBlank()) {
+      return items;
+    }
+    try {
+      JsonReader reader = new JsonReader(new StringReader(body));
+      if (reader.peek() == JsonToken.NULL) {
+        reader.nextNull();
+      } else {
+        reader.beginArray();
+        while (reader.hasNext()) {
+          checkBatchSize(items);
+          items.add(toItem(JsonParser.parseReader(reader)));
+        }
+        reader.endArray();
+      }
+      if (reader.peek() != JsonToken.END_DOCUMENT) {
+        throw new JsonParseException("Unexpected content after the JSON array");
+      }
+    } catch (IOException | IllegalStateException | JsonParseException e) {
+      throw new IllegalArgumentException("Body must be a JSON array of orders", e);
+    }
+    return items;
+  }
+
+  private void checkBatchSize(List<BatchItem> items) {
+    if (items.size() == maxOrders) {
+      throw new IllegalArgumentException("Batch exceeds max-orders " + maxOrders);
+    }
+  }
+
+  /**
+   * Unwraps the DEK (1 KMS call) and processes all orders with it.
+   *
+   * @param orders                     The orders, each a JSON object with encrypted fields
+   * @param encryptedDataEncryptionKey The encrypted DEK from X-Encryption-Key header
+   * @return Future completing with the batch response
+   */
+  public CompletableFuture<JsonObject> processBatch(List<BatchItem> orders, String encryptedDataEncryptionKey) {
+    log.debug("\n=== Step 6: Unwrapping and decrypting DEK via AWS KMS (1 KMS call for {} orders) ===", orders.size());
+    SecretKey dataEncryptionKey =
+        dekDecryptorAndUnwrapper.unwrapAndDecryptDataEncryptionKeyViaAWSKMS(encryptedDataEncryptionKey);
+    return processBatch(orders, dataEncryptionKey);
+  }
+
+  /**
+   * Non-blocking variant of {@link #processBatch(List, String)}.
+   */
+  public CompletableFuture<JsonObject> processBatchAsync(List<BatchItem> orders, String encryptedDataEncryptionKey) {
+    log.debug("\n=== Step 6: Unwrapping and decrypting DEK via AWS KMS (1 async KMS call for {} orders) ===", orders.size());
+    return dekDecryptorAndUnwrapper.unwrapAndDecryptDataEncryptionKeyViaAWSKMSAsync(encryptedDataEncryptionKey)
+        .thenCompose(dataEncryptionKey -> processBatch(orders, dataEncryptionKey));
+  }
+
+  /**
+   * Processes all orders with an already unwrapped DEK (e.g. the DEK of a session).
+   *
+   * @param orders            The orders, each a JSON object with encrypted fields
+   * @param dataEncryptionKey The AES DEK for field decryption
+   * @return Future completing with the batch response, results in request order
+   */
+  public CompletableFuture<JsonObject> processBatch(List<BatchItem> orders, SecretKey dataEncryptionKey) {
+    log.debug("\n=== Step 7: Decrypting PII fields of {} orders on {} workers ===", orders.size(), parallelism);
+    JsonObject[] results = new JsonObject[orders.size()];
+
+    // Contiguous chunks: one task per worker instead of one per order
+    int chunkCount = Math.max(1, Math.min(parallelism, orders.size()));
+    int chunkSize = (orders.size() + chunkCount - 1) / Math.max(1, chunkCount);
+    List<CompletableFuture<Void>> chunks = new ArrayList<>(chunkCount);
+    for (int start = 0; start < orders.size(); start += chunkSize) {
+      int from = start;
+      int to = Math.min(orders.size(), start + chunkSize);
+      chunks.add(CompletableFuture.runAsync(() -> {
+        for (int index = from; index < to; index++) {
+          results[index] = processItem(index, orders.get(index), dataEncryptionKey);
+        }
+      }, cryptoPool));
+    }
+
+    return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new))
+        .thenApply(done -> buildResponse(results));
+  }
+
+  private static BatchItem toItem(JsonElement order) {
+    return order.isJsonObject()
+        ? new BatchItem(order.getAsJsonObject(), null)
+        : new BatchItem(null, "Order must be a JSON object");
+  }
+
+  private JsonObject processItem(int index, BatchItem order, SecretKey dataEncryptionKey) {
+    JsonObject item;
+    try {
+      if (order.error() != null) {
+        throw new IllegalArgumentException(order.error());
+      }
+      item = orderService.processOrder(order.order(), dataEncryptionKey).toJsonObject();
+    } catch (Exception e) {
+      log.warn("Batch order {} failed: {}", index, e.getMessage());
+      item = utils.errorResponse("Order processing failed: " + e.getMessage());
+    }
+    // index first, then the single-order response fields
+    JsonObject indexed = new JsonObject();
+    indexed.addProperty("index", index);
+    item.entrySet().forEach(field -> indexed.add(field.getKey(), field.getValue()));
+    return indexed;
+  }
+
+  private JsonObject buildResponse(JsonObject[] results) {
+    JsonArray items = new JsonArray(results.length);
+    int succeeded = 0;
+    for (JsonObject result : results) {
+      if (result.get("success").getAsBoolean()) {
+        succeeded++;
+      }
+      items.add(result);
+    }
+
+    JsonObject response = new JsonObject();
+    response.addProperty("success", true);
+    response.addProperty("total", results.length);
+    response.addProperty("succeeded", succeeded);
+    response.addProperty("failed", results.length - succeeded);
+    response.add("results", items);
+    return response;
+  }
+}
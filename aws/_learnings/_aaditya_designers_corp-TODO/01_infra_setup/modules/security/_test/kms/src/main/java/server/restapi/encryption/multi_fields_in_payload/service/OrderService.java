@@ -5,11 +5,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import server._common.Utils;
+import server._common.order.OrderConfirmation;
+import server.restapi.encryption.multi_fields_in_payload.schema.DecryptionPlan;
+import server.restapi.encryption.multi_fields_in_payload.schema.FieldEncryptionSchemas;
 import server.restapi_data_security.multi_fields_encryption.crypto.DEKDecryptorAndUnwrapper;
 import server.restapi_data_security.multi_fields_encryption.crypto.FieldDecryptor;
+import server.restapi_data_security.multi_fields_encryption.crypto.FieldEncryptor;
 
 import javax.crypto.SecretKey;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Order Service (Multi-Fields) - Processes orders with encrypted PII fields.
@@ -22,8 +29,12 @@ import java.util.UUID;
  * │  ► 1 KMS API call to decrypt the RSA-encrypted DEK                     │
  * │                                 ▼                                      │
  * │  STEP 6: Decrypt each PII field locally                                │
- * │  ► fieldDecryptor.decrypt(encryptedField, dek)                         │
+ * │  ► orderPlan.decrypt(order, dek): the encryption.field-schemas.order   │
+ * │    pointers, compiled at startup, in one streaming pass over the body  │
  * │  ► Fast local AES-256-GCM decryption (no KMS calls)                    │
+ * │                                                                        │
+ * │  encryptResponse: name and dateOfBirth of the confirmation are         │
+ * │  encrypted with the same DEK (FieldEncryptor) → no second KMS / RSA    │
  * └────────────────────────────────────────────────────────────────────────┘
  * </pre>
  */
@@ -31,56 +42,126 @@ import java.util.UUID;
 public class OrderService {
 
   private static final Logger log = LoggerFactory.getLogger(OrderService.class);
+  private static final String ORDER_TYPE = "order";
+  private static final String NAME = "/name";
+  private static final String DATE_OF_BIRTH = "/dateOfBirth";
+  private static final String CREDIT_CARD_NUMBER = "/cardDetails/creditCardNumber";
+  private static final String SSN = "/cardDetails/ssn";
+  /** Encrypted fields the confirmation is built from */
+  private static final List<String> CONFIRMATION_FIELDS = List.of(DATE_OF_BIRTH, CREDIT_CARD_NUMBER, SSN);
 
   private Utils utils;
   private final DEKDecryptorAndUnwrapper dekDecryptorAndUnwrapper;
   private final FieldDecryptor fieldDecryptor;
+  private final FieldEncryptor fieldEncryptor;
+  private final DecryptionPlan orderPlan;
 
+  /**
+   * @throws IllegalArgumentException If the "order" schema lacks a field of the confirmation:
+   *                                  fails startup instead of answering without it
+   */
   public OrderService(
       DEKDecryptorAndUnwrapper dekDecryptorAndUnwrapper,
       FieldDecryptor fieldDecryptor,
+      FieldEncryptor fieldEncryptor,
+      FieldEncryptionSchemas fieldEncryptionSchemas,
       Utils utils
   ) {
     this.dekDecryptorAndUnwrapper = dekDecryptorAndUnwrapper;
     this.fieldDecryptor = fieldDecryptor;
+    this.fieldEncryptor = fieldEncryptor;
+    // name is not encrypted but is echoed in the response: extracted in the same pass
+    this.orderPlan = fieldEncryptionSchemas.plan(ORDER_TYPE).withPlainFields(NAME);
+    List<String> missing = CONFIRMATION_FIELDS.stream()
+        .filter(pointer -> !orderPlan.encryptedPointers().contains(pointer))
+        .toList();
+    if (!missing.isEmpty()) {
+      throw new IllegalArgumentException("encryption.field-schemas." + ORDER_TYPE
+          + " is missing " + missing + ", required for the order confirmation");
+    }
     this.utils = utils;
   }
 
   /**
    * Processes an order with encrypted PII fields.
    *
-   * @param order       The order JSON with encrypted fields
+   * @param order       The order JSON with encrypted fields (request body)
    * @param encryptedDataEncryptionKey The encrypted DEK from X-Encryption-Key header
-   * @return Response JSON with decrypted/masked PII
+   * @param encryptResponse   Whether to encrypt name and dateOfBirth of the confirmation with the DEK
+   * @return Order confirmation with decrypted (or re-encrypted) and masked PII
    */
-  public JsonObject processOrder(JsonObject order, String encryptedDataEncryptionKey) {
-    // Extract encrypted fields
-    String encryptedDob = order.get("dateOfBirth").getAsString();
-    JsonObject cardDetails = order.getAsJsonObject("cardDetails");
-    String encryptedCreditCard = cardDetails.get("creditCardNumber").getAsString();
-    String encryptedSsn = cardDetails.get("ssn").getAsString();
-
-    log.info("\n=== Step 6: Unwrapping and decrypting DEK via AWS KMS (1 KMS call) ===");
+  public OrderConfirmation processOrder(String order, String encryptedDataEncryptionKey, boolean encryptResponse) {
+    log.debug("\n=== Step 6: Unwrapping and decrypting DEK via AWS KMS (1 KMS call) ===");
     SecretKey dataEncryptionKey =
         dekDecryptorAndUnwrapper.unwrapAndDecryptDataEncryptionKeyViaAWSKMS(encryptedDataEncryptionKey);
+    return processOrder(order, dataEncryptionKey, encryptResponse);
+  }
+
+  /**
+   * Non-blocking variant of {@link #processOrder(String, String, boolean)}.
+   *
+   * <p>The DEK is unwrapped with the KmsAsyncClient; field decryption runs once the
+   * KMS response arrives.</p>
+   *
+   * @param order       The order JSON with encrypted fields (request body)
+   * @param encryptedDataEncryptionKey The encrypted DEK from X-Encryption-Key header
+   * @param encryptResponse   Whether to encrypt name and dateOfBirth of the confirmation with the DEK
+   * @return Future completing with the order confirmation with decrypted (or re-encrypted) and masked PII
+   */
+  public CompletableFuture<OrderConfirmation> processOrderAsync(String order, String encryptedDataEncryptionKey,
+                                                                boolean encryptResponse) {
+    log.debug("\n=== Step 6: Unwrapping and decrypting DEK via AWS KMS (1 async KMS call) ===");
+    return dekDecryptorAndUnwrapper.unwrapAndDecryptDataEncryptionKeyViaAWSKMSAsync(encryptedDataEncryptionKey)
+        .thenApply(dataEncryptionKey -> processOrder(order, dataEncryptionKey, encryptResponse));
+  }
+
+  /**
+   * Processes an order with encrypted PII fields using an already unwrapped DEK
+   * (e.g. the DEK of a session opened via /api/v1/sessions).
+   *
+   * <p>The body is streamed once; the fields marked by the "order" schema are decrypted and
+   * all other content is skipped without being materialized.</p>
+   *
+   * @param order             The order JSON with encrypted fields (request body)
+   * @param dataEncryptionKey The AES DEK for field decryption
+   * @param encryptResponse   Whether to encrypt name and dateOfBirth of the confirmation with the DEK
+   * @return Order confirmation with decrypted (or re-encrypted) and masked PII
+   */
+  public OrderConfirmation processOrder(String order, SecretKey dataEncryptionKey, boolean encryptResponse) {
+    log.debug("\n=== Step 7: Decrypting {} PII fields locally using DEK ===", orderPlan.encryptedPointers().size());
+    return toConfirmation(orderPlan.decrypt(order, dataEncryptionKey, fieldDecryptor), dataEncryptionKey, encryptResponse);
+  }
+
+  /**
+   * Variant of {@link #processOrder(String, SecretKey, boolean)} for an order that is already parsed
+   * (e.g. an element of a batch array): the plan walks the JsonObject itself, no String round trip.
+   *
+   * @param order             The order JSON with encrypted fields
+   * @param dataEncryptionKey The AES DEK for field decryption
+   * @return Order confirmation with decrypted/masked PII
+   */
+  public OrderConfirmation processOrder(JsonObject order, SecretKey dataEncryptionKey) {
+    return toConfirmation(orderPlan.decrypt(order, dataEncryptionKey, fieldDecryptor), dataEncryptionKey, false);
+  }
 
-    log.info("\n=== Step 7: Decrypting PII fields locally using DEK ===");
-    String dob = fieldDecryptor.decrypt(encryptedDob, dataEncryptionKey);
-    String creditCard = fieldDecryptor.decrypt(encryptedCreditCard, dataEncryptionKey);
-    String ssn = fieldDecryptor.decrypt(encryptedSsn, dataEncryptionKey);
+  private OrderConfirmation toConfirmation(Map<String, String> fields, SecretKey dataEncryptionKey,
+                                           boolean encryptResponse) {
+    String name = fields.get(NAME);
+    String dob = fields.get(DATE_OF_BIRTH);
+    if (encryptResponse) {
+      name = encryptField(name, dataEncryptionKey);
+      dob = encryptField(dob, dataEncryptionKey);
+    }
+    return buildResponse(name, dob, fields.get(CREDIT_CARD_NUMBER), fields.get(SSN));
+  }
 
-    // Build response with decrypted/masked data
-    JsonObject response = new JsonObject();
-    response.addProperty("success", true);
-    response.addProperty("orderId", UUID.randomUUID().toString());
-    response.addProperty("name", order.get("name").getAsString());
-    response.addProperty("dateOfBirth", dob);
+  private String encryptField(String value, SecretKey dataEncryptionKey) {
+    return value == null ? null : fieldEncryptor.encrypt(value, dataEncryptionKey);
+  }
 
-    JsonObject responseCardDetails = new JsonObject();
-    responseCardDetails.addProperty("creditCardNumber", utils.maskCard(creditCard));
-    responseCardDetails.addProperty("ssn", utils.maskSsn(ssn));
-    response.add("cardDetails", responseCardDetails);
-    return response;
+  private OrderConfirmation buildResponse(String name, String dob, String creditCard, String ssn) {
+    return new OrderConfirmation(UUID.randomUUID().toString(), name, dob,
+        utils.maskCard(creditCard), utils.maskSsn(ssn));
   }
 
 }
@@ -0,0 +1,112 @@
+package server.restapi.encryption.multi_fields_in_payload.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import server.restapi.encryption.multi_fields_in_payload.schema.DecryptionPlan;
+import server.restapi.encryption.multi_fields_in_payload.schema.FieldEncryptionSchemas;
+import server.restapi_data_security.multi_fields_encryption.crypto.DEKDecryptorAndUnwrapper;
+import server.restapi_data_security.multi_fields_encryption.crypto.FieldDecryptor;
+
+import javax.crypto.SecretKey;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Payload Service (Multi-Fields) - Decrypts any payload type declared in encryption.field-schemas.
+ *
+ * <h2>Schema-Driven Decryption</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  POST /api/v1/multi-fields/payloads/{type}                             │
+ * │                                                                        │
+ * │  1. plan = schemas.plan(type)        (compiled at startup; unknown→404)│
+ * │  2. KMS decrypt header → DEK         (1 KMS call, or session DEK)      │
+ * │  3. plan.decrypt(payload, DEK)       (1 streaming pass, all fields)    │
+ * │  4. Response: which fields were decrypted (plaintext is not echoed)    │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <h3>Response:</h3>
+ * <pre>
+ * { "success": true, "type": "claim", "decryptedFields": 3,
+ *   "fields": [ "/patient/ssn", "/dependents/0/ssn", "/dependents/1/ssn" ] }
+ * </pre>
+ */
+@Service("multiFieldsPayloadService")
+public class PayloadService {
+
+  private static final Logger log = LoggerFactory.getLogger(PayloadService.class);
+
+  private final DEKDecryptorAndUnwrapper dekDecryptorAndUnwrapper;
+  private final FieldDecryptor fieldDecryptor;
+  private final FieldEncryptionSchemas fieldEncryptionSchemas;
+
+  public PayloadService(
+      DEKDecryptorAndUnwrapper dekDecryptorAndUnwrapper,
+      FieldDecryptor fieldDecryptor,
+      FieldEncryptionSchemas fieldEncryptionSchemas
+  ) {
+    this.dekDecryptorAndUnwrapper = dekDecryptorAndUnwrapper;
+    this.fieldDecryptor = fieldDecryptor;
+    this.fieldEncryptionSchemas = fieldEncryptionSchemas;
+  }
+
+  /**
+   * @param type The payload type
+   * @return The compiled plan for the type
+   * @throws FieldEncryptionSchemas.UnknownPayloadTypeException If no schema is configured for the type
+   */
+  public DecryptionPlan plan(String type) {
+    return fieldEncryptionSchemas.plan(type);
+  }
+
+  /**
+   * Decrypts a payload whose fields are encrypted under the DEK in the X-Encryption-Key header.
+   *
+   * @param plan                       The plan of the payload type
+   * @param payload                    The JSON payload (request body)
+   * @param encryptedDataEncryptionKey The encrypted DEK from X-Encryption-Key header
+   * @return Response JSON listing the decrypted fields
+   */
+  public JsonObject processPayload(DecryptionPlan plan, String payload, String encryptedDataEncryptionKey) {
+    log.debug("\n=== Unwrapping and decrypting DEK via AWS KMS (1 KMS call) ===");
+    SecretKey dataEncryptionKey =
+        dekDecryptorAndUnwrapper.unwrapAndDecryptDataEncryptionKeyViaAWSKMS(encryptedDataEncryptionKey);
+    return processPayload(plan, payload, dataEncryptionKey);
+  }
+
+  /**
+   * Non-blocking variant of {@link #processPayload(DecryptionPlan, String, String)}.
+   */
+  public CompletableFuture<JsonObject> processPayloadAsync(DecryptionPlan plan, String payload,
+                                                           String encryptedDataEncryptionKey) {
+    log.debug("\n=== Unwrapping and decrypting DEK via AWS KMS (1 async KMS call) ===");
+    return dekDecryptorAndUnwrapper.unwrapAndDecryptDataEncryptionKeyViaAWSKMSAsync(encryptedDataEncryptionKey)
+        .thenApply(dataEncryptionKey -> processPayload(plan, payload, dataEncryptionKey));
+  }
+
+  /**
+   * Decrypts a payload using an already unwrapped DEK (e.g. the DEK of a session).
+   *
+   * @param plan              The plan of the payload type
+   * @param payload           The JSON payload (request body)
+   * @param dataEncryptionKey The AES DEK for field decryption
+   * @return Response JSON listing the decrypted fields
+   */
+  public JsonObject processPayload(DecryptionPlan plan, String payload, SecretKey dataEncryptionKey) {
+    Map<String, String> fields = plan.decrypt(payload, dataEncryptionKey, fieldDecryptor);
+    log.debug("\n=== Decrypted {} fields of payload type '{}' locally using DEK ===", fields.size(), plan.type());
+
+    JsonArray pointers = new JsonArray();
+    fields.keySet().forEach(pointers::add);
+    JsonObject response = new JsonObject();
+    response.addProperty("success", true);
+    response.addProperty("type", plan.type());
+    response.addProperty("decryptedFields", fields.size());
+    response.add("fields", pointers);
+    return response;
+  }
+}
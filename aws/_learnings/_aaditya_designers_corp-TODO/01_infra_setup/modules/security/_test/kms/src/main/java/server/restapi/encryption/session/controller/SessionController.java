@@ -0,0 +1,84 @@
+package server.restapi.encryption.session.controller;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import server._common.Utils;
+import server.restapi.encryption.session.service.SessionService;
+
+/**
+ * Session Controller - Handshake endpoint so clients wrap the DEK once per session.
+ *
+ * <h2>Session-Key Approach</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  POST   /api/v1/sessions        Header: X-Encryption-Key (wrapped DEK) │
+ * │         → { "sessionId": "...", "expiresAt": "..." }                   │
+ * │  DELETE /api/v1/sessions/{id}   Ends the session early                 │
+ * │                                                                        │
+ * │  Later orders send X-Session-Id instead of X-Encryption-Key:           │
+ * │  KMS calls drop from one per request to one per session.               │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ */
+@RestController
+@RequestMapping("/api/v1/sessions")
+public class SessionController {
+
+  private static final Logger log = LoggerFactory.getLogger(SessionController.class);
+  private static final String ENCRYPTION_KEY_HEADER = "X-Encryption-Key";
+
+  private final SessionService sessionService;
+  private final Gson gson = new Gson();
+  private final Utils utils;
+
+  public SessionController(SessionService sessionService, Utils utils) {
+    this.sessionService = sessionService;
+    this.utils = utils;
+  }
+
+  /**
+   * Opens a session from a wrapped DEK.
+   *
+   * @param encryptedDataEncryptionKey The RSA-encrypted DEK (from X-Encryption-Key header)
+   * @return The session id and its expiry
+   */
+  @PostMapping
+  public ResponseEntity<String> openSession(
+      @RequestHeader(value = ENCRYPTION_KEY_HEADER, required = false) String encryptedDataEncryptionKey
+  ) {
+    if (encryptedDataEncryptionKey == null || encryptedDataEncryptionKey.isBlank()) {
+      log.warn("Missing X-Encryption-Key header");
+      return ResponseEntity.badRequest().body(gson.toJson(utils.errorResponse("Missing X-Encryption-Key header")));
+    }
+
+    try {
+      SessionService.SessionHandle session = sessionService.openSession(encryptedDataEncryptionKey);
+      JsonObject response = new JsonObject();
+      response.addProperty("success", true);
+      response.addProperty("sessionId", session.sessionId());
+      response.addProperty("expiresAt", session.expiresAt().toString());
+      return ResponseEntity.status(HttpStatus.CREATED).body(gson.toJson(response));
+    } catch (Exception e) {
+      log.error("Session handshake failed: {}", e.getMessage(), e);
+      return ResponseEntity.status(utils.failureStatus(e)).body(gson.toJson(utils.errorResponse("Session handshake failed: " + e.getMessage())));
+    }
+  }
+
+  /**
+   * Ends a session early.
+   *
+   * @param sessionId The session id returned by the handshake
+   * @return 204 if the session was closed, 404 if it was unknown or already expired
+   */
+  @DeleteMapping("/{sessionId}")
+  public ResponseEntity<Void> closeSession(@PathVariable String sessionId) {
+    return sessionService.closeSession(sessionId)
+        ? ResponseEntity.noContent().build()
+        : ResponseEntity.notFound().build();
+  }
+}
@@ -0,0 +1,105 @@
+package server.restapi.encryption.session.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import server.restapi_data_security.multi_fields_encryption.crypto.DEKDecryptorAndUnwrapper;
+
+import javax.crypto.SecretKey;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Session Service - Unwraps a client DEK once and hands out an opaque session id.
+ *
+ * <h2>Session-Key Handshake</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  HANDSHAKE (once per session)                                          │
+ * │  ► POST /api/v1/sessions   Header: X-Encryption-Key: BASE64(wrapped DEK)│
+ * │  ► dekDecryptorAndUnwrapper → DEK (1 KMS call)                         │
+ * │  ► sessionStore.put(sessionId, DEK)                                    │
+ * │  ► Response: { sessionId, expiresAt }                                  │
+ * │                                 ▼                                      │
+ * │  ORDERS (many per session)                                             │
+ * │  ► POST /api/v1/multi-fields/orders   Header: X-Session-Id: sessionId  │
+ * │  ► sessionStore.get(sessionId) → DEK (no KMS call, no RSA on client)   │
+ * │  ► Local AES-256-GCM decryption of each field                          │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ */
+@Service
+public class SessionService {
+
+  private static final Logger log = LoggerFactory.getLogger(SessionService.class);
+  private static final int SESSION_ID_SIZE_BYTES = 32;
+
+  private final DEKDecryptorAndUnwrapper dekDecryptorAndUnwrapper;
+  private final SessionStore sessionStore;
+  private final SecureRandom secureRandom = new SecureRandom();
+
+  public SessionService(
+      DEKDecryptorAndUnwrapper dekDecryptorAndUnwrapper,
+      SessionStore sessionStore
+  ) {
+    this.dekDecryptorAndUnwrapper = dekDecryptorAndUnwrapper;
+    this.sessionStore = sessionStore;
+  }
+
+  /**
+   * Opens a session by unwrapping the client's DEK via AWS KMS.
+   *
+   * @param encryptedDataEncryptionKey BASE64-encoded RSA-encrypted DEK from header
+   * @return The new session id and its expiry
+   */
+  public SessionHandle openSession(String encryptedDataEncryptionKey) {
+    SecretKey dataEncryptionKey =
+        dekDecryptorAndUnwrapper.unwrapAndDecryptDataEncryptionKeyViaAWSKMS(encryptedDataEncryptionKey);
+
+    byte[] sessionIdBytes = new byte[SESSION_ID_SIZE_BYTES];
+    secureRandom.nextBytes(sessionIdBytes);
+    String sessionId = Base64.getUrlEncoder().withoutPadding().encodeToString(sessionIdBytes);
+
+    Instant expiresAt = sessionStore.put(sessionId, dataEncryptionKey);
+    log.debug("Session opened - expiresAt={} liveSessions={}", expiresAt, sessionStore.size());
+    return new SessionHandle(sessionId, expiresAt);
+  }
+
+  /**
+   * Resolves the DEK of a live session.
+   *
+   * @param sessionId The id returned by {@link #openSession(String)}
+   * @return The session DEK
+   * @throws SessionExpiredException if the session is unknown or expired
+   */
+  public SecretKey resolveDataEncryptionKey(String sessionId) {
+    SecretKey dataEncryptionKey = sessionStore.get(sessionId);
+    if (dataEncryptionKey == null) {
+      throw new SessionExpiredException("Unknown or expired session");
+    }
+    return dataEncryptionKey;
+  }
+
+  /**
+   * Ends a session early and zeroizes its DEK.
+   *
+   * @param sessionId The id returned by {@link #openSession(String)}
+   * @return true if the session existed
+   */
+  public boolean closeSession(String sessionId) {
+    return sessionStore.remove(sessionId);
+  }
+
+  public record SessionHandle(String sessionId, Instant expiresAt) {}
+
+  /**
+   * Thrown when an order references a session that is unknown or has expired.
+   * Clients react by performing a new handshake.
+   */
+  public static class SessionExpiredException extends RuntimeException {
+    public SessionExpiredException(String message) {
+      super(message);
+    }
+  }
+}
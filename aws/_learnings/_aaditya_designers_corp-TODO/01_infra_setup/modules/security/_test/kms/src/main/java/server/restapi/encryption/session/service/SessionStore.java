@@ -0,0 +1,139 @@
+package server.restapi.encryption.session.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Session Store - Bounded, expiring table of sessionId → dataEncryptionKey (DEK).
+ *
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  put(sessionId, DEK)  → entry expires at now + ttl-seconds             │
+ * │  get(sessionId)       → DEK copy, or null if unknown / expired         │
+ * │  remove(sessionId)    → ends the session early                         │
+ * │                                                                        │
+ * │  Bounded: once max-sessions is reached the oldest session is dropped   │
+ * │  (with a fixed TTL the oldest session is also the next to expire)      │
+ * │  Dropped DEK bytes are zeroized                                        │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <p>Properties:</p>
+ * <ul>
+ *   <li>encryption.session.max-sessions: Maximum live sessions (default: 10000)</li>
+ *   <li>encryption.session.ttl-seconds: Session lifetime (default: 900)</li>
+ * </ul>
+ */
+@Component
+public class SessionStore {
+
+  private static final String AES_ALGORITHM = "AES";
+
+  private final int maxSessions;
+  private final Duration ttl;
+  // Insertion-ordered map: iteration starts at the oldest session
+  private final Map<String, Session> sessions;
+
+  public SessionStore(
+      @Value("${encryption.session.max-sessions:10000}") int maxSessions,
+      @Value("${encryption.session.ttl-seconds:900}") long ttlSeconds
+  ) {
+    this.maxSessions = maxSessions;
+    this.ttl = Duration.ofSeconds(ttlSeconds);
+    this.sessions = new LinkedHashMap<>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Session> eldest) {
+        if (size() > SessionStore.this.maxSessions) {
+          eldest.getValue().destroy();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Stores the DEK of a new session.
+   *
+   * @param sessionId         Opaque session id
+   * @param dataEncryptionKey The unwrapped DEK
+   * @return The instant at which the session expires
+   */
+  public synchronized Instant put(String sessionId, SecretKey dataEncryptionKey) {
+    Instant now = Instant.now();
+    purgeExpired(now);
+    Instant expiresAt = now.plus(ttl);
+    sessions.put(sessionId, new Session(dataEncryptionKey.getEncoded(), expiresAt));
+    return expiresAt;
+  }
+
+  /**
+   * Looks up the DEK of a live session.
+   *
+   * @param sessionId Opaque session id
+   * @return A copy of the session DEK, or null if the session is unknown or expired
+   */
+  public synchronized SecretKey get(String sessionId) {
+    Session session = sessions.get(sessionId);
+    if (session == null) {
+      return null;
+    }
+    if (session.isExpired(Instant.now())) {
+      sessions.remove(sessionId);
+      session.destroy();
+      return null;
+    }
+    return new SecretKeySpec(session.keyBytes, AES_ALGORITHM);
+  }
+
+  /**
+   * Ends a session and zeroizes its DEK.
+   *
+   * @param sessionId Opaque session id
+   * @return true if a session was removed
+   */
+  public synchronized boolean remove(String sessionId) {
+    Session session = sessions.remove(sessionId);
+    if (session == null) {
+      return false;
+    }
+    session.destroy();
+    return true;
+  }
+
+  public synchronized int size() {
+    return sessions.size();
+  }
+
+  private void purgeExpired(Instant now) {
+    Iterator<Session> iterator = sessions.values().iterator();
+    while (iterator.hasNext()) {
+      Session session = iterator.next();
+      if (!session.isExpired(now)) {
+        // Insertion order + fixed TTL: everything after this entry is newer
+        break;
+      }
+      iterator.remove();
+      session.destroy();
+    }
+  }
+
+  private record Session(byte[] keyBytes, Instant expiresAt) {
+    boolean isExpired(Instant now) {
+      return !now.isBefore(expiresAt);
+    }
+
+    void destroy() {
+      Arrays.fill(keyBytes, (byte) 0);
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package server.restapi.files.controller;
+
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import server._common.Utils;
+import server.file_security.crypto.EncryptedFileHeader;
+import server.file_security.service.EncryptedFile;
+import server.restapi.files.service.EncryptedFileStore;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+
+/**
+ * Encrypted File Controller - Serves decrypted byte ranges of segmented encrypted files.
+ *
+ * <h2>HTTP Range Requests (RFC 9110)</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  GET /api/v1/files/{name}                                              │
+ * │    Range: bytes=a-b | a- | -n  → 206 Partial Content                   │
+ * │                                  Content-Range: bytes a-b/size         │
+ * │    no Range, several ranges,   → 200, the whole file                   │
+ * │    or a malformed Range                                                │
+ * │    range outside the file      → 416, Content-Range: bytes &#42;/size      │
+ * │    not an encrypted file       → 422 (bad magic or header, truncated)  │
+ * │  HEAD: same headers, nothing decrypted                                 │
+ * │                                                                        │
+ * │  1. Open: read header, unwrap DEK (key cache hit after the first read) │
+ * │  2. Decrypt only segments a / S .. b / S, streamed as each verifies    │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <p>The ciphertext is read from a memory map and each segment is decrypted into one buffer
+ * that is written straight to the response: no file-sized buffer, and latency follows the
+ * range size. Headers are sent before the first segment is verified: a segment failing
+ * authentication aborts the response (short body), it is never sent.</p>
+ */
+@RestController
+@RequestMapping("/api/v1/files")
+public class EncryptedFileController {
+
+  private static final Logger log = LoggerFactory.getLogger(EncryptedFileController.class);
+
+  private final EncryptedFileStore fileStore;
+  private final Gson gson = new Gson();
+  private final Utils utils;
+
+  public EncryptedFileController(EncryptedFileStore fileStore, Utils utils) {
+    this.fileStore = fileStore;
+    this.utils = utils;
+  }
+
+  /**
+   * Returns a file's plaintext, or the byte range asked for.
+   *
+   * @param name    The stored file's name
+   * @param headers Request headers (Range)
+   * @param method  GET, or HEAD for the headers only
+   * @return 200 / 206 with the decrypted bytes, 416 for an unsatisfiable range, 422 for a stored file
+   *         that is not a valid encrypted file (errors are JSON,
+   *         streamed as well: the handler picks streaming from the declared body type)
+   */
+  @GetMapping("/{name}")
+  public ResponseEntity<StreamingResponseBody> getFile(@PathVariable String name, @RequestHeader HttpHeaders headers, HttpMethod method) {
+    EncryptedFile file;
+    try {
+      file = fileStore.open(name);
+    } catch (IllegalArgumentException e) {
+      return error(HttpStatus.BAD_REQUEST, e.getMessage());
+    } catch (NoSuchFileException e) {
+      return error(HttpStatus.NOT_FOUND, "File not found");
+    } catch (EncryptedFileHeader.InvalidEncryptedFileException e) {
+      log.warn("Stored file {} is not a valid encrypted file: {}", name, e.getMessage());
+      return error(HttpStatus.UNPROCESSABLE_ENTITY, "Invalid encrypted file: " + e.getMessage());
+    } catch (Exception e) {
+      log.error("Opening encrypted file failed: {}", e.getMessage(), e);
+      HttpStatus status = utils.failureStatus(e) == HttpStatus.SERVICE_UNAVAILABLE
+          ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.INTERNAL_SERVER_ERROR;
+      return error(status, "Opening file failed: " + e.getMessage());
+    }
+
+    long size = file.plaintextSize();
+    HttpRange range = singleRange(headers);
+    long from = 0;
+    long to = size - 1;
+    if (range != null) {
+      try {
+        from = range.getRangeStart(size);
+        to = range.getRangeEnd(size);
+      } catch (IllegalArgumentException e) {
+        from = size;
+      }
+      if (from >= size || from > to) {
+        closeQuietly(file);
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+            .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+            .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+            .build();
+      }
+    }
+
+    ResponseEntity.BodyBuilder response = ResponseEntity.status(range != null ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+        .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+        .contentLength(to - from + 1);
+    if (range != null) {
+      response.header(HttpHeaders.CONTENT_RANGE, "bytes " + from + "-" + to + "/" + size);
+    }
+    if (method == HttpMethod.HEAD || size == 0) {
+      closeQuietly(file);
+      return response.build();
+    }
+
+    long first = from;
+    long last = to;
+    StreamingResponseBody body = out -> {
+      try (file) {
+        file.writeRange(first, last, out);
+      } catch (RuntimeException e) {
+        log.error("Decrypting {} bytes {}-{} failed: {}", name, first, last, e.getMessage(), e);
+        throw e;
+      }
+    };
+    return response.body(body);
+  }
+
+  private ResponseEntity<StreamingResponseBody> error(HttpStatus status, String message) {
+    byte[] json = gson.toJson(utils.errorResponse(message)).getBytes(StandardCharsets.UTF_8);
+    return ResponseEntity.status(status)
+        .contentType(MediaType.APPLICATION_JSON)
+        .contentLength(json.length)
+        .body(out -> out.write(json));
+  }
+
+  /**
+   * @return The requested range, or null to serve the whole file (no Range header, several
+   *         ranges, or one that does not parse: a server may ignore Range, RFC 9110 14.2)
+   */
+  private static HttpRange singleRange(HttpHeaders headers) {
+    try {
+      List<HttpRange> ranges = headers.getRange();
+      return ranges.size() == 1 ? ranges.get(0) : null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private static void closeQuietly(EncryptedFile file) {
+    try {
+      file.close();
+    } catch (IOException ignored) {
+      // Read-only channel: nothing to lose
+    }
+  }
+}
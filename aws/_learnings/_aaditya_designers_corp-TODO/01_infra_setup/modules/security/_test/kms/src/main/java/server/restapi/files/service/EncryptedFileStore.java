@@ -0,0 +1,71 @@
+package server.restapi.files.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import server.file_security.service.EncryptedFile;
+import server.file_security.service.FileEncryptionService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+/**
+ * Encrypted File Store - The directory of segmented encrypted files served by /api/v1/files.
+ *
+ * <p>A file is addressed by its name only: names are restricted to letters, digits, '.', '_'
+ * and '-' (no leading '.'), so a request can never resolve outside the directory. Files are
+ * placed there with {@link FileEncryptionService#encrypt} under their plaintext name.</p>
+ *
+ * <p>Properties:</p>
+ * <ul>
+ *   <li>encryption.file.storage-dir: Directory of the encrypted files, created at startup
+ *       (default: ${java.io.tmpdir}/encrypted-files)</li>
+ * </ul>
+ */
+@Service
+public class EncryptedFileStore {
+
+  private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]{0,254}");
+
+  private final FileEncryptionService fileEncryptionService;
+  private final Path directory;
+
+  public EncryptedFileStore(
+      FileEncryptionService fileEncryptionService,
+      @Value("${encryption.file.storage-dir:${java.io.tmpdir}/encrypted-files}") Path directory
+  ) {
+    this.fileEncryptionService = fileEncryptionService;
+    this.directory = directory.toAbsolutePath().normalize();
+    try {
+      Files.createDirectories(this.directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot create encryption.file.storage-dir " + this.directory, e);
+    }
+  }
+
+  /**
+   * @param name File name
+   * @return Where the encrypted file of that name is stored
+   * @throws IllegalArgumentException If the name is not a valid file name
+   */
+  public Path resolve(String name) {
+    if (name == null || !FILE_NAME.matcher(name).matches()) {
+      throw new IllegalArgumentException("Invalid file name");
+    }
+    return directory.resolve(name);
+  }
+
+  /**
+   * Opens a stored file for range reads (header read, DEK unwrapped or taken from the key cache).
+   *
+   * @param name File name
+   * @return The opened file; the caller closes it
+   * @throws NoSuchFileException If no file of that name is stored
+   */
+  public EncryptedFile open(String name) throws IOException {
+    return fileEncryptionService.open(resolve(name));
+  }
+}
@@ -0,0 +1,67 @@
+package client._common.crypto;
+
+import javax.crypto.Cipher;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Cipher Pool (client) - Reuses Cipher instances of one transformation across threads.
+ *
+ * <h2>Borrow → Init → Use → Return</h2>
+ * <pre>
+ * ┌────────────────────────────────────────────────────────────────────────┐
+ * │  1. borrow: poll an idle Cipher, or Cipher.getInstance() if none idle  │
+ * │  2. operation: cipher.init(mode, key, params) → doFinal()              │
+ * │  3. return: offer back to the pool (dropped if maxIdle reached)        │
+ * │                                                                        │
+ * │  Operation throws → Cipher is discarded, never returned                │
+ * └────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <p>A Cipher is not thread-safe, but one borrowed Cipher belongs to one thread until it is
+ * returned, so any number of threads can encrypt concurrently without Cipher.getInstance (a
+ * provider lookup) per field. Every operation must init the Cipher first: init resets the
+ * previous key, IV and OAEP parameters.</p>
+ */
+public final class CipherPool {
+
+  private final String transformation;
+  private final BlockingQueue<Cipher> idleCiphers;
+
+  /**
+   * Runs on a borrowed Cipher; must init it before use.
+   */
+  @FunctionalInterface
+  public interface CipherOperation<T> {
+    T apply(Cipher cipher) throws GeneralSecurityException;
+  }
+
+  /**
+   * @param transformation e.g. "AES/GCM/NoPadding"
+   * @param maxIdle        Maximum idle Ciphers kept; 0 = Cipher.getInstance per operation
+   */
+  public CipherPool(String transformation, int maxIdle) {
+    this.transformation = transformation;
+    this.idleCiphers = maxIdle > 0 ? new ArrayBlockingQueue<>(maxIdle) : null;
+  }
+
+  /**
+   * Runs the operation on a pooled Cipher.
+   *
+   * @param operation Initializes and uses the Cipher
+   * @return The operation result
+   * @throws GeneralSecurityException If the operation fails
+   */
+  public <T> T execute(CipherOperation<T> operation) throws GeneralSecurityException {
+    Cipher cipher = idleCiphers != null ? idleCiphers.poll() : null;
+    if (cipher == null) {
+      cipher = Cipher.getInstance(transformation);
+    }
+    T result = operation.apply(cipher);
+    if (idleCiphers != null) {
+      idleCiphers.offer(cipher);
+    }
+    return result;
+  }
+}
@@ -1,10 +1,16 @@
 package client.restapi.encryption.full_payload.crypto;
 
 import com.nimbusds.jose.*;
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jose.crypto.ECDHEncrypter;
 import com.nimbusds.jose.crypto.RSAEncrypter;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.SecretKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPublicKey;
+import java.text.ParseException;
 
 /**
  * Payload Encryptor - Encrypts entire JSON payload using JWE (RFC 7516).
@@ -36,14 +42,28 @@ import java.security.interfaces.RSAPublicKey;
  *   <li>Library handles all crypto details correctly</li>
  * </ul>
  *
+ * <h3>ECDH-ES+A256KW Mode ({@link #encrypt(String, ECPublicKey)}):</h3>
+ * <p>Same JWE, but step 3 becomes a key agreement with the server's P-256 / P-384 key: a fresh
+ * ephemeral key pair per message (sent as "epk"), Concat KDF → KEK, AES-KW(KEK, CEK). The
+ * encrypted key shrinks from 512 to 40 bytes, and the server-side (KMS) operation is an ECDH
+ * instead of an RSA-4096 decryption.</p>
+ *
  * <h3>CEK vs DEK Naming:</h3>
  * <p>In JWE context, we call it <b>CEK (Content Encryption Key)</b> because it
  * encrypts the "content" (payload). Internally, it's still AES-256, so we can
  * also think of it as <b>aesContentEncryptionKey</b>.</p>
+ *
+ * <h3>Thread Safety:</h3>
+ * <p>Stateless. A {@link JWEEncrypter} from {@link #encrypter(PublicKey)} draws a fresh CEK (and,
+ * for ECDH-ES, a fresh ephemeral key pair) on every call, so one encrypter per server key is
+ * built once and shared by all threads; the JWE headers are immutable constants.</p>
  */
 @Component
 public class PayloadEncryptor {
 
+  private static final JWEHeader RSA_OAEP_256_HEADER = header(JWEAlgorithm.RSA_OAEP_256);
+  private static final JWEHeader ECDH_ES_A256KW_HEADER = header(JWEAlgorithm.ECDH_ES_A256KW);
+
   /**
    * Encrypts entire JSON payload into JWE format.
    *
@@ -128,27 +148,110 @@ public class PayloadEncryptor {
    * @return JWE compact serialization string
    */
   public String encrypt(String payload, RSAPublicKey publicKey) {
+    // Nimbus library internally:
+    // 1. Generates random CEK (aesContentEncryptionKey)
+    // 2. Encrypts payload with CEK using A256GCM
+    // 3. Encrypts CEK with RSA public key
+    return encrypt(payload, new RSAEncrypter(publicKey));
+  }
+
+  /**
+   * Encrypts entire JSON payload into JWE format with ECDH-ES+A256KW key management.
+   *
+   * @param payload   The entire payload to encrypt
+   * @param publicKey The server's EC key agreement public key (P-256 or P-384)
+   * @return JWE compact serialization string
+   */
+  public String encrypt(String payload, ECPublicKey publicKey) {
+    // Nimbus library internally: ephemeral key pair → ECDH → Concat KDF → AES-KW(KEK, CEK)
+    return encrypt(payload, encrypter(publicKey));
+  }
+
+  /**
+   * Builds the reusable encrypter of a server key: RSA-OAEP-256 for RSA, ECDH-ES+A256KW for EC.
+   *
+   * @param publicKey The server's RSA or EC public key
+   * @return An encrypter generating a fresh CEK per payload; safe to share across threads
+   */
+  public JWEEncrypter encrypter(PublicKey publicKey) {
     try {
-      // Create JWE header with RSA-OAEP-256 for key encryption and A256GCM for content encryption
-      JWEHeader header = new JWEHeader.Builder(JWEAlgorithm.RSA_OAEP_256, EncryptionMethod.A256GCM)
-          .contentType("json")
-          .build();
+      if (publicKey instanceof ECPublicKey ecPublicKey) {
+        return new ECDHEncrypter(ecPublicKey);
+      }
+      return new RSAEncrypter((RSAPublicKey) publicKey);
 
-      // Create JWE object with payload
-      JWEObject jweObject = new JWEObject(header, new Payload(payload));
+    } catch (JOSEException e) {
+      throw new RuntimeException("Failed to create JWE encrypter: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Encrypts entire JSON payload into JWE format with an encrypter from {@link #encrypter(PublicKey)}.
+   *
+   * @param payload   The entire payload to encrypt
+   * @param encrypter RSA-OAEP-256 or ECDH-ES+A256KW encrypter
+   * @return JWE compact serialization string
+   */
+  public String encrypt(String payload, JWEEncrypter encrypter) {
+    try {
+      return encrypt(payload, encrypter instanceof ECDHEncrypter ? ECDH_ES_A256KW_HEADER : RSA_OAEP_256_HEADER, encrypter);
 
-      // Encrypt with RSA public key
-      // Nimbus library internally:
-      // 1. Generates random CEK (aesContentEncryptionKey)
-      // 2. Encrypts payload with CEK using A256GCM
-      // 3. Encrypts CEK with RSA public key
-      jweObject.encrypt(new RSAEncrypter(publicKey));
+    } catch (JOSEException e) {
+      throw new RuntimeException("Failed to encrypt payload as JWE: " + e.getMessage(), e);
+    }
+  }
 
-      // Return JWE compact serialization
-      return jweObject.serialize();
+  /**
+   * Encrypts the payload under a CEK chosen by the caller, who keeps it to decrypt the
+   * encrypted response (X-Encrypt-Response: true).
+   *
+   * @param payload              The entire payload to encrypt
+   * @param publicKey            The server's RSA or EC public key
+   * @param contentEncryptionKey The AES-256 CEK
+   * @return JWE compact serialization string
+   */
+  public String encrypt(String payload, PublicKey publicKey, SecretKey contentEncryptionKey) {
+    try {
+      if (publicKey instanceof ECPublicKey ecPublicKey) {
+        return encrypt(payload, ECDH_ES_A256KW_HEADER, new ECDHEncrypter(ecPublicKey, contentEncryptionKey));
+      }
+      return encrypt(payload, RSA_OAEP_256_HEADER, new RSAEncrypter((RSAPublicKey) publicKey, contentEncryptionKey));
 
     } catch (JOSEException e) {
       throw new RuntimeException("Failed to encrypt payload as JWE: " + e.getMessage(), e);
     }
   }
+
+  /**
+   * Decrypts an encrypted response: a JWE with alg "dir" under the CEK of the request.
+   *
+   * @param response             The JWE compact serialization the server returned
+   * @param contentEncryptionKey The CEK the request was encrypted under
+   * @return The decrypted response JSON
+   */
+  public String decryptResponse(String response, SecretKey contentEncryptionKey) {
+    try {
+      JWEObject jweObject = JWEObject.parse(response);
+      if (!JWEAlgorithm.DIR.equals(jweObject.getHeader().getAlgorithm())) {
+        throw new IllegalArgumentException("Expected a dir JWE, got " + jweObject.getHeader().getAlgorithm());
+      }
+      jweObject.decrypt(new DirectDecrypter(contentEncryptionKey));
+      return jweObject.getPayload().toString();
+
+    } catch (ParseException | JOSEException e) {
+      throw new RuntimeException("Failed to decrypt JWE response: " + e.getMessage(), e);
+    }
+  }
+
+  private static String encrypt(String payload, JWEHeader header, JWEEncrypter encrypter) throws JOSEException {
+    JWEObject jweObject = new JWEObject(header, new Payload(payload));
+    jweObject.encrypt(encrypter);
+    return jweObject.serialize();
+  }
+
+  private static JWEHeader header(JWEAlgorithm algorithm) {
+    return new JWEHeader.Builder(algorithm, EncryptionMethod.A256GCM)
+        .contentType("json")
+        .build();
+  }
 }
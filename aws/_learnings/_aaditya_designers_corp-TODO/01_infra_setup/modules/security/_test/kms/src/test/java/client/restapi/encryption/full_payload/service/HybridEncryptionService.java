@@ -1,14 +1,17 @@
 package client.restapi.encryption.full_payload.service;
 
 import client.restapi.encryption.full_payload.crypto.PayloadEncryptor;
+import com.nimbusds.jose.JWEEncrypter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.crypto.SecretKey;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyFactory;
-import java.security.interfaces.RSAPublicKey;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.Base64;
 
@@ -21,13 +24,13 @@ import java.util.Base64;
  * │                ALL-FIELDS ENCRYPTION (PROPER JWE/CEK)                        │
  * │                                                                              │
  * │  STEP 1: loadPublicKey()                                                  │
- * │  ► Load RSA-4096 public key from PEM file                                    │
+ * │  ► Load RSA-4096 (or EC P-256 / P-384) public key from PEM file              │
  * │                                 ▼                                            │
  * │  STEP 2: encryptPayload(jsonPayload)                                         │
  * │  ► payloadEncryptor.encrypt(jsonPayload, publicKey)                           │
  * │  ► JWE library generates CEK (aesContentEncryptionKey) internally            │
  * │  ► Encrypts entire JSON with CEK                                             │
- * │  ► Encrypts CEK with RSA public key                                          │
+ * │  ► Encrypts CEK with RSA public key (EC key: ECDH-ES+A256KW)                 │
  * │  ► Output: JWE string (entire encrypted payload)                             │
  * └──────────────────────────────────────────────────────────────────────────────┘
  * </pre>
@@ -39,6 +42,12 @@ import java.util.Base64;
  *   <li>Want standard JWE format (RFC 7516)</li>
  *   <li>Don't need to decrypt individual fields separately</li>
  * </ul>
+ *
+ * <h3>Concurrency:</h3>
+ * <p>No request state: the public key is parsed once (loading the same PEM again is a no-op)
+ * and published atomically together with its JWE encrypter, which every thread shares. Each
+ * encryptPayload call draws its own CEK, so one bean encrypts any number of payloads in
+ * parallel.</p>
  */
 @Service("allFieldsHybridEncryptionService")
 public class HybridEncryptionService {
@@ -46,7 +55,7 @@ public class HybridEncryptionService {
   private static final String PUBLIC_KEY_RESOURCE = "/public-key.pem";
 
   private final PayloadEncryptor payloadEncryptor;
-  private RSAPublicKey publicKey;
+  private volatile LoadedPublicKey publicKey;
 
   @Autowired
   public HybridEncryptionService(PayloadEncryptor payloadEncryptor) {
@@ -69,9 +78,14 @@ public class HybridEncryptionService {
   }
 
   /**
-   * Loads the RSA public key from a PEM-formatted string.
+   * Loads the server public key from a PEM-formatted string: RSA selects RSA-OAEP-256,
+   * EC selects ECDH-ES+A256KW. The PEM already loaded is not parsed again.
    */
   public void loadPublicKey(String pemContent) {
+    LoadedPublicKey current = publicKey;
+    if (current != null && current.pemContent().equals(pemContent)) {
+      return;
+    }
     try {
       String base64Key = pemContent
           .replace("-----BEGIN PUBLIC KEY-----", "")
@@ -80,8 +94,14 @@ public class HybridEncryptionService {
 
       byte[] keyBytes = Base64.getDecoder().decode(base64Key);
       X509EncodedKeySpec keySpec = new X509EncodedKeySpec(keyBytes);
-      KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-      this.publicKey = (RSAPublicKey) keyFactory.generatePublic(keySpec);
+      // SubjectPublicKeyInfo names its algorithm, but JCA needs it up front: RSA first, then EC
+      PublicKey key;
+      try {
+        key = KeyFactory.getInstance("RSA").generatePublic(keySpec);
+      } catch (InvalidKeySpecException e) {
+        key = KeyFactory.getInstance("EC").generatePublic(keySpec);
+      }
+      this.publicKey = new LoadedPublicKey(pemContent, key, payloadEncryptor.encrypter(key));
 
     } catch (Exception e) {
       throw new RuntimeException("Failed to parse public key", e);
@@ -95,16 +115,51 @@ public class HybridEncryptionService {
    * <ol>
    *   <li>Generates random CEK (aesContentEncryptionKey)</li>
    *   <li>Encrypts payload with CEK using AES-256-GCM</li>
-   *   <li>Encrypts CEK with RSA public key</li>
+   *   <li>Encrypts CEK with RSA public key (EC key: ECDH-ES+A256KW)</li>
    * </ol>
    *
    * @param payload The entire JSON payload to encrypt
    * @return JWE compact serialization string
    */
   public String encryptPayload(String payload) {
-    if (publicKey == null) {
+    return payloadEncryptor.encrypt(payload, loadedPublicKey().encrypter());
+  }
+
+  /**
+   * Encrypts the payload under a caller-chosen CEK, for orders sent with
+   * X-Encrypt-Response: true: the server returns the confirmation as a dir JWE under the same
+   * CEK, decrypted with {@link #decryptResponse(String, SecretKey)}.
+   *
+   * @param payload              The entire JSON payload to encrypt
+   * @param contentEncryptionKey The AES-256 CEK, kept by the caller
+   * @return JWE compact serialization string
+   */
+  public String encryptPayload(String payload, SecretKey contentEncryptionKey) {
+    return payloadEncryptor.encrypt(payload, loadedPublicKey().key(), contentEncryptionKey);
+  }
+
+  /**
+   * Decrypts an encrypted order response.
+   *
+   * @param response             The dir JWE the server returned
+   * @param contentEncryptionKey The CEK passed to {@link #encryptPayload(String, SecretKey)}
+   * @return The response JSON
+   */
+  public String decryptResponse(String response, SecretKey contentEncryptionKey) {
+    return payloadEncryptor.decryptResponse(response, contentEncryptionKey);
+  }
+
+  private LoadedPublicKey loadedPublicKey() {
+    LoadedPublicKey current = publicKey;
+    if (current == null) {
       throw new IllegalStateException("Public key not loaded. Call loadPublicKey() first.");
     }
-    return payloadEncryptor.encrypt(payload, publicKey);
+    return current;
+  }
+
+  /**
+   * The parsed key with its PEM and shared encrypter, published as one immutable value.
+   */
+  private record LoadedPublicKey(String pemContent, PublicKey key, JWEEncrypter encrypter) {
   }
 }
@@ -0,0 +1,145 @@
+package client.restapi.encryption.load;
+
+import client._common.Utils;
+import client.restapi.encryption.multi_fields_in_payload.service.EncryptionContext;
+import client.restapi.encryption.multi_fields_in_payload.service.HybridEncryptionService;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import server._common.InFlightRequestTracker;
+import server._common.kms.local.LocalKms;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Load Comparison: fires a burst of concurrent Multi-Fields orders and reports how many
+ * the server held in flight at once, and how long the burst took.
+ *
+ * <p>The key cache is disabled so every order pays its own KMS round trip: the number of
+ * orders waiting on KMS at the same time is then bounded only by the server's thread model.
+ * KMS is the offline Local KMS stand-in with 50ms ± 10ms latency per call.</p>
+ *
+ * <p>Each mode asserts its peak against the Tomcat thread cap (server.tomcat.threads.max):
+ * the platform-thread baseline cannot exceed it, virtual threads and async KMS must.</p>
+ *
+ * <p>Run with: {@code LOADTEST=true ./gradlew test --tests "client.restapi.encryption.load.*"}</p>
+ */
+abstract class AbstractThreadModeLoadTest {
+
+  private static final Logger log = LoggerFactory.getLogger(AbstractThreadModeLoadTest.class);
+  private static final int CONCURRENT_REQUESTS = 1000;
+
+  @LocalServerPort
+  private int port;
+
+  @Autowired
+  @Qualifier("multiFieldsHybridEncryptionService")
+  private HybridEncryptionService hybridEncryptionService;
+
+  @Autowired
+  @Qualifier("clientUtils")
+  private Utils utils;
+
+  @Autowired
+  private InFlightRequestTracker inFlightRequestTracker;
+
+  @Autowired
+  private LocalKms localKms;
+
+  @Value("${server.tomcat.threads.max:200}")
+  private int tomcatMaxThreads;
+
+  private final Gson gson = new Gson();
+
+  protected abstract String threadMode();
+
+  /**
+   * @param peakInFlight     Most orders the server held at once during the burst
+   * @param tomcatMaxThreads The Tomcat thread cap (server.tomcat.threads.max)
+   */
+  protected abstract void assertPeakInFlight(int peakInFlight, int tomcatMaxThreads);
+
+  @Test
+  void burstOfConcurrentOrders() throws Exception {
+    String[] order = prepareOrder();
+    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/multi-fields/orders"))
+        .header("Content-Type", "application/json")
+        .header("X-Encryption-Key", order[0])
+        .timeout(Duration.ofSeconds(60))
+        .POST(HttpRequest.BodyPublishers.ofString(order[1]))
+        .build();
+
+    try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+         HttpClient httpClient = HttpClient.newBuilder().executor(clients).build()) {
+      // Warm up connection and KMS client before measuring
+      assertEquals(200, httpClient.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+      inFlightRequestTracker.resetPeak();
+
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<Integer>> statuses = new ArrayList<>(CONCURRENT_REQUESTS);
+      for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+        statuses.add(clients.submit(() -> {
+          start.await();
+          return httpClient.send(request, HttpResponse.BodyHandlers.ofString()).statusCode();
+        }));
+      }
+
+      long startNanos = System.nanoTime();
+      start.countDown();
+      int ok = 0;
+      for (Future<Integer> status : statuses) {
+        if (status.get() == 200) {
+          ok++;
+        }
+      }
+      long elapsedMs = Duration.ofNanos(System.nanoTime() - startNanos).toMillis();
+      int peakInFlight = inFlightRequestTracker.peakInFlight();
+
+      log.info("\n=== LOAD [{}] requests={} ok={} peakInFlight={} elapsedMs={} throughput={}/s ===",
+          threadMode(), CONCURRENT_REQUESTS, ok, peakInFlight, elapsedMs,
+          elapsedMs == 0 ? CONCURRENT_REQUESTS : CONCURRENT_REQUESTS * 1000L / elapsedMs);
+      assertEquals(CONCURRENT_REQUESTS, ok, "All orders should succeed");
+      assertPeakInFlight(peakInFlight, tomcatMaxThreads);
+    }
+  }
+
+  /**
+   * @return [encryptedDataEncryptionKey header, JSON body]
+   */
+  private String[] prepareOrder() {
+    hybridEncryptionService.loadPublicKey(localKms.publicKeyPem());
+    EncryptionContext request = hybridEncryptionService.newContext();
+
+    JsonObject order = utils.loadSampleOrder();
+    JsonObject cardDetails = order.getAsJsonObject("cardDetails");
+    JsonObject encryptedCardDetails = new JsonObject();
+    encryptedCardDetails.addProperty("creditCardNumber",
+        request.encryptField(cardDetails.get("creditCardNumber").getAsString()));
+    encryptedCardDetails.addProperty("ssn",
+        request.encryptField(cardDetails.get("ssn").getAsString()));
+    JsonObject jsonPayload = new JsonObject();
+    jsonPayload.addProperty("name", order.get("name").getAsString());
+    jsonPayload.addProperty("dateOfBirth",
+        request.encryptField(order.get("dateOfBirth").getAsString()));
+    jsonPayload.add("cardDetails", encryptedCardDetails);
+    return new String[] {request.getEncryptedDataEncryptionKey(), gson.toJson(jsonPayload)};
+  }
+}
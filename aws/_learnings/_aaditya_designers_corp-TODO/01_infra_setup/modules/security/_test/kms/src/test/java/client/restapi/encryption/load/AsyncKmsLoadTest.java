@@ -0,0 +1,42 @@
+package client.restapi.encryption.load;
+
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Async KMS mode: platform-thread Tomcat pool, but the order endpoints return CompletableFuture
+ * and release the Tomcat thread while KMS is in flight. In-flight orders are capped by the
+ * KmsAsyncClient pool and its pending-acquire queue, so the peak must exceed the thread cap.
+ */
+@SpringBootTest(
+    classes = {server.ServerApplication.class, TestConfig.class},
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+        "spring.threads.virtual.enabled=false",
+        "aws.kms.async.enabled=true",
+        "aws.kms.key-cache.enabled=false",
+        "aws.kms.local.enabled=true",
+        "aws.kms.local.latency-ms=50",
+        "aws.kms.local.jitter-ms=10",
+        "server.tomcat.threads.max=200"
+    }
+)
+@ActiveProfiles("test")
+@EnabledIfEnvironmentVariable(named = "LOADTEST", matches = "true")
+class AsyncKmsLoadTest extends AbstractThreadModeLoadTest {
+
+  @Override
+  protected String threadMode() {
+    return "async-kms";
+  }
+
+  @Override
+  protected void assertPeakInFlight(int peakInFlight, int tomcatMaxThreads) {
+    assertTrue(peakInFlight > tomcatMaxThreads,
+        "Async KMS should hold more orders in flight (" + peakInFlight + ") than the Tomcat thread cap ("
+            + tomcatMaxThreads + ")");
+  }
+}
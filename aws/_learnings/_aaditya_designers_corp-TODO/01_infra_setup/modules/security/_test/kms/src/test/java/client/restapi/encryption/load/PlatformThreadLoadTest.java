@@ -0,0 +1,41 @@
+package client.restapi.encryption.load;
+
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Baseline: platform-thread Tomcat pool (200 threads) with the blocking KMS client.
+ * In-flight orders are capped by the thread pool size.
+ */
+@SpringBootTest(
+    classes = {server.ServerApplication.class, TestConfig.class},
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+        "spring.threads.virtual.enabled=false",
+        "aws.kms.async.enabled=false",
+        "aws.kms.key-cache.enabled=false",
+        "aws.kms.local.enabled=true",
+        "aws.kms.local.latency-ms=50",
+        "aws.kms.local.jitter-ms=10",
+        "server.tomcat.threads.max=200",
+        "aws.kms.sync.max-connections=200"
+    }
+)
+@ActiveProfiles("test")
+@EnabledIfEnvironmentVariable(named = "LOADTEST", matches = "true")
+class PlatformThreadLoadTest extends AbstractThreadModeLoadTest {
+
+  @Override
+  protected String threadMode() {
+    return "platform-threads";
+  }
+
+  @Override
+  protected void assertPeakInFlight(int peakInFlight, int tomcatMaxThreads) {
+    assertTrue(peakInFlight <= tomcatMaxThreads,
+        "Each in-flight order holds a Tomcat thread: peak " + peakInFlight + " > cap " + tomcatMaxThreads);
+  }
+}
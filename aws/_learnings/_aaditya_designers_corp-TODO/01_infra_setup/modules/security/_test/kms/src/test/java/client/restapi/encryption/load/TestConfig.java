@@ -0,0 +1,17 @@
+package client.restapi.encryption.load;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.ComponentScan;
+
+/**
+ * Test configuration for the thread-mode load comparison.
+ * Reuses the Multi-Fields client components to build encrypted orders.
+ */
+@TestConfiguration
+@ComponentScan(basePackages = {
+    "client.restapi.encryption.multi_fields_in_payload.crypto",
+    "client.restapi.encryption.multi_fields_in_payload.service",
+    "client._common"
+})
+public class TestConfig {
+}
@@ -0,0 +1,43 @@
+package client.restapi.encryption.load;
+
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Virtual-thread mode: Tomcat requests and the blocking KMS calls run on virtual threads.
+ * In-flight orders are capped by the KMS connection pool instead of the thread pool, so the
+ * peak must exceed the Tomcat thread cap that bounds the platform-thread baseline.
+ */
+@SpringBootTest(
+    classes = {server.ServerApplication.class, TestConfig.class},
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+        "spring.threads.virtual.enabled=true",
+        "aws.kms.async.enabled=false",
+        "aws.kms.key-cache.enabled=false",
+        "aws.kms.local.enabled=true",
+        "aws.kms.local.latency-ms=50",
+        "aws.kms.local.jitter-ms=10",
+        "server.tomcat.threads.max=200",
+        "aws.kms.sync.max-connections=1000"
+    }
+)
+@ActiveProfiles("test")
+@EnabledIfEnvironmentVariable(named = "LOADTEST", matches = "true")
+class VirtualThreadLoadTest extends AbstractThreadModeLoadTest {
+
+  @Override
+  protected String threadMode() {
+    return "virtual-threads";
+  }
+
+  @Override
+  protected void assertPeakInFlight(int peakInFlight, int tomcatMaxThreads) {
+    assertTrue(peakInFlight > tomcatMaxThreads,
+        "Virtual threads should hold more orders in flight (" + peakInFlight + ") than the Tomcat thread cap ("
+            + tomcatMaxThreads + ")");
+  }
+}
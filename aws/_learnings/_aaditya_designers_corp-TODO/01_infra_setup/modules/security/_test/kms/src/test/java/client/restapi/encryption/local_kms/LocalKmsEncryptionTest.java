@@ -0,0 +1,774 @@
+package client.restapi.encryption.local_kms;
+
+import client._common.Utils;
+import client.restapi.encryption.multi_fields_in_payload.crypto.DEKEncryptorAndWrapper;
+import client.restapi.encryption.multi_fields_in_payload.service.EncryptionContext;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.*;
+import org.springframework.test.context.ActiveProfiles;
+import server._common.kms.local.LocalKms;
+import server.file_security.crypto.EncryptedFileHeader;
+import server.file_security.crypto.SegmentedFileDecryptor;
+import server.file_security.service.FileEncryptionService;
+import server.restapi.files.service.EncryptedFileStore;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.SecureRandom;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-End Test (offline): both approaches against the Local KMS stand-in.
+ *
+ * <h3>Setup:</h3>
+ * <ol>
+ *   <li>Server starts with aws.kms.local.enabled=true (no AWS credentials needed)</li>
+ *   <li>Local KMS generates an RSA-4096 key pair; clients load its public key PEM</li>
+ *   <li>Every KMS call takes 20ms ± 5ms, like a real in-region round trip</li>
+ *   <li>Key hierarchy on: the KEK comes from Local KMS GenerateDataKey at startup</li>
+ *   <li>Local KMS also generates a P-256 key pair standing in for a KMS key agreement key</li>
+ *   <li>Metrics export on (off by default in tests): /actuator/prometheus is scraped last</li>
+ *   <li>Files from 1 MB up are decrypted on 4 fork-join workers</li>
+ * </ol>
+ */
+@SpringBootTest(
+    classes = {server.ServerApplication.class, TestConfig.class},
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+        "aws.kms.local.enabled=true",
+        "aws.kms.local.latency-ms=20",
+        "aws.kms.local.jitter-ms=5",
+        "aws.kms.key-cache.enabled=false",
+        "aws.kms.async.enabled=true",
+        "encryption.field-decryption.parallelism=4",
+        "encryption.batch.max-orders=8",
+        "encryption.file.decrypt-parallelism=4",
+        "encryption.file.parallel-threshold-bytes=1048576",
+        "encryption.key-hierarchy.enabled=true",
+        "aws.kms.symmetric-key-arn=arn:aws:kms:us-east-1:000000000000:key/local-kek",
+        "audit.log.sample-rate=1.0",
+        "audit.log.include-bodies=true"
+    }
+)
+@ActiveProfiles("test")
+@AutoConfigureObservability
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class LocalKmsEncryptionTest {
+
+  private static final Logger log = LoggerFactory.getLogger(LocalKmsEncryptionTest.class);
+
+  @LocalServerPort
+  private int port;
+  private String baseUrl() {
+    return "http://localhost:" + port + "/api/v1";
+  }
+
+  @Autowired
+  private TestRestTemplate restTemplate;
+
+  @Autowired
+  @Qualifier("multiFieldsHybridEncryptionService")
+  private client.restapi.encryption.multi_fields_in_payload.service.HybridEncryptionService multiFieldsEncryptionService;
+
+  @Autowired
+  @Qualifier("allFieldsHybridEncryptionService")
+  private client.restapi.encryption.full_payload.service.HybridEncryptionService allFieldsEncryptionService;
+
+  @Autowired
+  private LocalKms localKms;
+
+  @Autowired
+  private DEKEncryptorAndWrapper dekEncryptorAndWrapper;
+
+  @Autowired
+  private FileEncryptionService fileEncryptionService;
+
+  @Autowired
+  private EncryptedFileStore encryptedFileStore;
+
+  @Autowired
+  @Qualifier("clientUtils")
+  private Utils utils;
+  private final Gson gson = new Gson();
+
+  @Test
+  @Order(1)
+  @DisplayName("Local KMS: Multi-Fields order decrypted without AWS")
+  void testMultiFieldsOrder() {
+    log.info("\n=== Step 1: Load Local KMS Public Key ===");
+    multiFieldsEncryptionService.loadPublicKey(localKms.publicKeyPem());
+    EncryptionContext request = multiFieldsEncryptionService.newContext();
+
+    log.info("\n=== Step 2: Encrypt PII Fields with DEK ===");
+    JsonObject jsonPayload = encryptMultiFieldsOrder(request);
+
+    log.info("\n=== Step 3: Submit Order to API ===");
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.set("X-Encryption-Key", request.getEncryptedDataEncryptionKey());
+    long kmsCallsBefore = localKms.requestCount();
+    ResponseEntity<String> response = restTemplate.postForEntity(
+        baseUrl() + "/multi-fields/orders", new HttpEntity<>(gson.toJson(jsonPayload), headers), String.class);
+
+    verifyResponse(gson.fromJson(response.getBody(), JsonObject.class), response.getStatusCode());
+    assertEquals(1, localKms.requestCount() - kmsCallsBefore, "Expected exactly 1 KMS call");
+  }
+
+  @Test
+  @Order(2)
+  @DisplayName("Local KMS: All-Fields JWE order decrypted without AWS")
+  void testAllFieldsOrder() {
+    log.info("\n=== Step 1: Load Local KMS Public Key ===");
+    allFieldsEncryptionService.loadPublicKey(localKms.publicKeyPem());
+
+    log.info("\n=== Step 2: Encrypt Entire Payload as JWE ===");
+    String payload = allFieldsEncryptionService.encryptPayload(gson.toJson(utils.loadSampleOrder()));
+
+    log.info("\n=== Step 3: Submit Order to API ===");
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.TEXT_PLAIN);
+    long kmsCallsBefore = localKms.requestCount();
+    ResponseEntity<String> response = restTemplate.postForEntity(
+        baseUrl() + "/all-fields/orders", new HttpEntity<>(payload, headers), String.class);
+
+    verifyResponse(gson.fromJson(response.getBody(), JsonObject.class), response.getStatusCode());
+    assertEquals(1, localKms.requestCount() - kmsCallsBefore, "Expected exactly 1 KMS call");
+  }
+
+  @Test
+  @Order(5)
+  @DisplayName("Local KMS: All-Fields 4 MB JWE streamed as application/jose, forged tag rejected")
+  void testAllFieldsStreamingOrder() {
+    log.info("\n=== Step 1: Load Local KMS Public Key ===");
+    allFieldsEncryptionService.loadPublicKey(localKms.publicKeyPem());
+
+    log.info("\n=== Step 2: Encrypt a 4 MB order as JWE ===");
+    JsonObject order = utils.loadSampleOrder();
+    order.addProperty("notes", "x".repeat(4 * 1024 * 1024));
+    String payload = allFieldsEncryptionService.encryptPayload(gson.toJson(order));
+
+    log.info("\n=== Step 3: Submit Order to API (streaming) ===");
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.parseMediaType("application/jose"));
+    long kmsCallsBefore = localKms.requestCount();
+    ResponseEntity<String> response = restTemplate.postForEntity(
+        baseUrl() + "/all-fields/orders", new HttpEntity<>(payload, headers), String.class);
+
+    verifyResponse(gson.fromJson(response.getBody(), JsonObject.class), response.getStatusCode());
+    assertEquals(1, localKms.requestCount() - kmsCallsBefore, "Expected exactly 1 KMS call");
+
+    log.info("\n=== Step 4: Submit the same JWE with a forged ciphertext ===");
+    int ciphertextStart = payload.lastIndexOf('.', payload.lastIndexOf('.') - 1) + 1;
+    char[] forged = payload.toCharArray();
+    forged[ciphertextStart + 100] = forged[ciphertextStart + 100] == 'A' ? 'B' : 'A';
+    ResponseEntity<String> forgedResponse = restTemplate.postForEntity(
+        baseUrl() + "/all-fields/orders", new HttpEntity<>(new String(forged), headers), String.class);
+
+    assertEquals(HttpStatus.BAD_REQUEST, forgedResponse.getStatusCode(), "Expected 400 Bad Request");
+    JsonObject error = gson.fromJson(forgedResponse.getBody(), JsonObject.class);
+    assertTrue(error.get("message").getAsString().contains("Tag mismatch"), "Expected tag verification failure");
+  }
+
+  @Test
+  @Order(3)
+  @DisplayName("Local KMS: Multi-Fields batch under one DEK, 1 KMS call, per-order errors")
+  void testMultiFieldsBatch() {
+    log.info("\n=== Step 1: Load Local KMS Public Key, one DEK for the batch ===");
+    multiFieldsEncryptionService.loadPublicKey(localKms.publicKeyPem());
+    EncryptionContext request = multiFieldsEncryptionService.newContext();
+
+    log.info("\n=== Step 2: Encrypt 5 orders, tamper with order 2 ===");
+    JsonArray orders = new JsonArray();
+    for (int i = 0; i < 5; i++) {
+      orders.add(encryptMultiFieldsOrder(request));
+    }
+    JsonObject tampered = orders.get(2).getAsJsonObject();
+    String dateOfBirth = tampered.get("dateOfBirth").getAsString();
+    tampered.addProperty("dateOfBirth", (dateOfBirth.charAt(0) == 'A' ? "B" : "A") + dateOfBirth.substring(1));
+
+    log.info("\n=== Step 3: Submit Batch to API ===");
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.set("X-Encryption-Key", request.getEncryptedDataEncryptionKey());
+    long kmsCallsBefore = localKms.requestCount();
+    ResponseEntity<String> response = restTemplate.postForEntity(
+        baseUrl() + "/multi-fields/orders:batch", new HttpEntity<>(gson.toJson(orders), headers), String.class);
+
+    log.info("\n=== Verify Batch Response ===");
+    assertEquals(HttpStatus.OK, response.getStatusCode(), "Expected 200 OK");
+    assertEquals(1, localKms.requestCount() - kmsCallsBefore, "Expected exactly 1 KMS call for the batch");
+    JsonObject result = gson.fromJson(response.getBody(), JsonObject.class);
+    assertEquals(5, result.get("total").getAsInt());
+    assertEquals(4, result.get("succeeded").getAsInt());
+    assertEquals(1, result.get("failed").getAsInt());
+
+    JsonArray results = result.getAsJsonArray("results");
+    for (int i = 0; i < 5; i++) {
+      JsonObject item = results.get(i).getAsJsonObject();
+      assertEquals(i, item.get("index").getAsInt(), "Results should be in request order");
+      if (i == 2) {
+        assertFalse(item.get("success").getAsBoolean(), "Tampered order should fail on its own");
+      } else {
+        verifyResponse(item, HttpStatus.OK);
+      }
+    }
+  }
+
+  @Test
+  @Order(4)
+  @DisplayName("Local KMS: Multi-Fields NDJSON batch, malformed line is a per-order error")
+  void testMultiFieldsNdjsonBatch() {
+    log.info("\n=== Step 1: Load Local KMS Public Key, one DEK for the batch ===");
+    multiFieldsEncryptionService.loadPublicKey(localKms.publicKeyPem());
+    EncryptionContext request = multiFieldsEncryptionService.newContext();
+
+    log.info("\n=== Step 2: Encrypt 3 orders as NDJSON, line 1 malformed ===");
+    StringJoiner ndjson = new StringJoiner("\n");
+    ndjson.add(gson.toJson(encryptMultiFieldsOrder(request)));
+    ndjson.add("{\"name\": ");
+    ndjson.add(gson.toJson(encryptMultiFieldsOrder(request)));
+
+    log.info("\n=== Step 3: Submit Batch to API ===");
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_NDJSON);
+    headers.set("X-Encryption-Key", request.getEncryptedDataEncryptionKey());
+    long kmsCallsBefore = localKms.requestCount();
+    ResponseEntity<String> response = restTemplate.postForEntity(
+        baseUrl() + "/multi-fields/orders:batch", new HttpEntity<>(ndjson.toString(), headers), String.class);
+
+    log.info("\n=== Verify Batch Response ===");
+    assertEquals(HttpStatus.OK, response.getStatusCode(), "Expected 200 OK");
+    assertEquals(1, localKms.requestCount() - kmsCallsBefore, "Expected exactly 1 KMS call for the batch");
+    JsonArray results = gson.fromJson(response.getBody(), JsonObject.class).getAsJsonArray("results");
+    assertEquals(3, results.size());
+    verifyResponse(results.get(0).getAsJsonObject(), HttpStatus.OK);
+    assertFalse(results.get(1).getAsJsonObject().get("success").getAsBoolean(), "Malformed line should fail on its own");
+    verifyResponse(results.get(2).getAsJsonObject(), HttpStatus.OK);
+  }
+
+  @Test
+  @Order(6)
+  @DisplayName("Local KMS: Schema-driven claim payload, 22 encrypted fields decrypted in parallel")
+  void testMultiFieldsSchemaPayload() {
+    log.info("\n=== Step 1: Load Local KMS Public Key ===");
+    multiFieldsEncryptionService.loadPublicKey(localKms.publicKeyPem());
+    EncryptionContext request = multiFieldsEncryptionService.newContext();
+
+    log.info("\n=== Step 2: Encrypt a claim: patient DOB/SSN + 20 dependents' SSNs ===");
+    JsonObject patient = new JsonObject();
+    patient.addProperty("name", "aakash.kumar");
+    patient.addProperty("dateOfBirth", request.encryptField("1990-05-15"));
+    patient.addProperty("ssn", request.encryptField("123-45-6789"));
+    JsonArray dependents = new JsonArray();
+    for (int i = 0; i < 20; i++) {
+      JsonObject dependent = new JsonObject();
+      dependent.addProperty("name", "dependent-" + i);
+      dependent.addProperty("ssn", request.encryptField(String.format("123-45-%04d", i)));
+      dependents.add(dependent);
+    }
+    JsonObject claim = new JsonObject();
+    claim.add("patient", patient);
+    claim.add("dependents", dependents);
+
+    log.info("\n=== Step 3: Submit Claim to API ===");
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.set("X-Encryption-Key", request.getEncryptedDataEncryptionKey());
+    long kmsCallsBefore = localKms.requestCount();
+    ResponseEntity<String> response = restTemplate.postForEntity(
+        baseUrl() + "/multi-fields/payloads/claim", new HttpEntity<>(gson.toJson(claim), headers), String.class);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode(), "Expected 200 OK");
+    assertEquals(1, localKms.requestCount() - kmsCallsBefore, "Expected exactly 1 KMS call");
+    JsonObject result = gson.fromJson(response.getBody(), JsonObject.class);
+    assertEquals(22, result.get("decryptedFields").getAsInt());
+    JsonArray fields = result.getAsJsonArray("fields");
+    assertEquals("/patient/dateOfBirth", fields.get(0).getAsString(), "Fields should be in document order");
+    assertEquals("/dependents/19/ssn", fields.get(21).getAsString(), "Fields should be in document order");
+
+    log.info("\n=== Step 4: Tamper with dependents 7 and 15, then submit an unknown type ===");
+    for (int i : new int[] {15, 7}) {
+      JsonObject tampered = dependents.get(i).getAsJsonObject();
+      String ssn = tampered.get("ssn").getAsString();
+      tampered.addProperty("ssn", (ssn.charAt(0) == 'A' ? "B" : "A") + ssn.substring(1));
+    }
+    for (int attempt = 0; attempt < 5; attempt++) {
+      ResponseEntity<String> tamperedResponse = restTemplate.postForEntity(
+          baseUrl() + "/multi-fields/payloads/claim", new HttpEntity<>(gson.toJson(claim), headers), String.class);
+      assertEquals(HttpStatus.BAD_REQUEST, tamperedResponse.getStatusCode(), "Expected 400 Bad Request");
+      assertTrue(gson.fromJson(tamperedResponse.getBody(), JsonObject.class).get("message").getAsString()
+          .contains("/dependents/7/ssn"), "Error should name the first failing field in document order");
+    }
+
+    ResponseEntity<String> unknownResponse = restTemplate.postForEntity(
+        baseUrl() + "/multi-fields/payloads/invoice", new HttpEntity<>(gson.toJson(claim), headers), String.class);
+    assertEquals(HttpStatus.NOT_FOUND, unknownResponse.getStatusCode(), "Expected 404 for a type without schema");
+  }
+
+  @Test
+  @Order(7)
+  @DisplayName("Local KMS: Key token from one KMS call, then orders unwrap the DEK locally")
+  void testMultiFieldsKeyToken() {
+    log.info("\n=== Step 1: Load Local KMS Public Key ===");
+    multiFieldsEncryptionService.loadPublicKey(localKms.publicKeyPem());
+    EncryptionContext request = multiFieldsEncryptionService.newContext();
+
+    log.info("\n=== Step 2: Exchange the wrapped DEK for a key token (1 KMS call) ===");
+    HttpHeaders handshakeHeaders = new HttpHeaders();
+    handshakeHeaders.set("X-Encryption-Key", request.getEncryptedDataEncryptionKey());
+    long kmsCallsBefore = localKms.requestCount();
+    ResponseEntity<String> handshake = restTemplate.postForEntity(
+        baseUrl() + "/key-tokens", new HttpEntity<>(null, handshakeHeaders), String.class);
+    assertEquals(HttpStatus.CREATED, handshake.getStatusCode(), "Expected 201 Created");
+    String keyToken = gson.fromJson(handshake.getBody(), JsonObject.class).get("keyToken").getAsString();
+
+    log.info("\n=== Step 3: Submit 3 orders with X-Key-Token (no KMS calls) ===");
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.set("X-Key-Token", keyToken);
+    for (int i = 0; i < 3; i++) {
+      ResponseEntity<String> response = restTemplate.postForEntity(
+          baseUrl() + "/multi-fields/orders", new HttpEntity<>(gson.toJson(encryptMultiFieldsOrder(request)), headers), String.class);
+      verifyResponse(gson.fromJson(response.getBody(), JsonObject.class), response.getStatusCode());
+    }
+    assertEquals(1, localKms.requestCount() - kmsCallsBefore, "Expected 1 KMS call for the handshake only");
+
+    log.info("\n=== Step 4: Submit with a forged key token ===");
+    int wrapStart = keyToken.indexOf('.') + 1;
+    char[] forged = keyToken.toCharArray();
+    forged[wrapStart + 5] = forged[wrapStart + 5] == 'A' ? 'B' : 'A';
+    headers.set("X-Key-Token", new String(forged));
+    ResponseEntity<String> forgedResponse = restTemplate.postForEntity(
+        baseUrl() + "/multi-fields/orders", new HttpEntity<>(gson.toJson(encryptMultiFieldsOrder(request)), headers), String.class);
+    assertEquals(HttpStatus.UNAUTHORIZED, forgedResponse.getStatusCode(), "Expected 401 for a forged key token");
+
+    log.info("\n=== Step 5: Handshake with 128-, 192- and 384-bit DEKs ===");
+    RSAPublicKey kmsPublicKey = kmsPublicKey();
+    for (int dekSize : new int[] {16, 24, 48}) {
+      byte[] dek = new byte[dekSize];
+      new SecureRandom().nextBytes(dek);
+      handshakeHeaders.set("X-Encryption-Key", dekEncryptorAndWrapper.encryptAndWrapDataEncryptionKey(
+          new SecretKeySpec(dek, "AES"), kmsPublicKey));
+      ResponseEntity<String> rejected = restTemplate.postForEntity(
+          baseUrl() + "/key-tokens", new HttpEntity<>(null, handshakeHeaders), String.class);
+      assertEquals(HttpStatus.BAD_REQUEST, rejected.getStatusCode(), "Expected 400 for a " + dekSize + "-byte DEK");
+      assertTrue(rejected.getBody().contains("require a 256-bit DEK"), rejected.getBody());
+    }
+  }
+
+  @Test
+  @Order(8)
+  @DisplayName("Local KMS: All-Fields JWE with ECDH-ES+A256KW, buffered and streamed, forged key rejected")
+  void testAllFieldsEcdhOrder() {
+    log.info("\n=== Step 1: Load Local KMS ECDH Public Key (P-256) ===");
+    allFieldsEncryptionService.loadPublicKey(localKms.ecdhPublicKeyPem());
+
+    log.info("\n=== Step 2: Encrypt Entire Payload as ECDH-ES+A256KW JWE ===");
+    String payload = allFieldsEncryptionService.encryptPayload(gson.toJson(utils.loadSampleOrder()));
+    String[] parts = payload.split("\\.");
+    String header = new String(Base64.getUrlDecoder().decode(parts[0]), StandardCharsets.UTF_8);
+    assertTrue(header.contains("\"ECDH-ES+A256KW\"") && header.contains("\"epk\""), "Expected ECDH-ES header with epk");
+    assertEquals(54, parts[1].length(), "Expected a 40-byte AES-KW encrypted key");
+
+    log.info("\n=== Step 3: Submit Order to API (buffered and streaming) ===");
+    for (MediaType contentType : new MediaType[] {MediaType.TEXT_PLAIN, MediaType.parseMediaType("application/jose")}) {
+      HttpHeaders headers = new HttpHeaders();
+      headers.setContentType(contentType);
+      long kmsCallsBefore = localKms.requestCount();
+      ResponseEntity<String> response = restTemplate.postForEntity(
+          baseUrl() + "/all-fields/orders", new HttpEntity<>(payload, headers), String.class);
+
+      verifyResponse(gson.fromJson(response.getBody(), JsonObject.class), response.getStatusCode());
+      assertEquals(1, localKms.requestCount() - kmsCallsBefore, "Expected exactly 1 key agreement");
+    }
+
+    log.info("\n=== Step 4: Submit the same JWE with a forged encrypted key ===");
+    char[] forgedKey = parts[1].toCharArray();
+    forgedKey[20] = forgedKey[20] == 'A' ? 'B' : 'A';
+    String forged = parts[0] + "." + new String(forgedKey) + "." + parts[2] + "." + parts[3] + "." + parts[4];
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.TEXT_PLAIN);
+    ResponseEntity<String> forgedResponse = restTemplate.postForEntity(
+        baseUrl() + "/all-fields/orders", new HttpEntity<>(forged, headers), String.class);
+    assertEquals(HttpStatus.BAD_REQUEST, forgedResponse.getStatusCode(), "Expected 400 for a forged encrypted key");
+  }
+
+  @Test
+  @Order(9)
+  @DisplayName("Local KMS: Prometheus scrape has KMS, crypto and JSON stage timers from the orders above")
+  void testStageMetrics() {
+    log.info("\n=== Step 1: Submit an order with an undecryptable wrapped DEK (failed KMS call) ===");
+    byte[] garbageKey = new byte[512];
+    new java.security.SecureRandom().nextBytes(garbageKey);
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.set("X-Encryption-Key", Base64.getEncoder().encodeToString(garbageKey));
+    EncryptionContext request = multiFieldsEncryptionService.newContext();
+    ResponseEntity<String> failed = restTemplate.postForEntity(
+        baseUrl() + "/multi-fields/orders", new HttpEntity<>(gson.toJson(encryptMultiFieldsOrder(request)), headers), String.class);
+    assertEquals(HttpStatus.BAD_REQUEST, failed.getStatusCode(), "Expected 400 for an undecryptable DEK");
+
+    log.info("\n=== Step 2: Scrape /actuator/prometheus ===");
+    ResponseEntity<String> response = restTemplate.getForEntity(
+        "http://localhost:" + port + "/actuator/prometheus", String.class);
+    assertEquals(HttpStatus.OK, response.getStatusCode(), "Expected 200 OK");
+    String scrape = response.getBody();
+
+    log.info("\n=== Step 3: Verify stage timers ===");
+    assertTrue(scrape.contains("kms_request_seconds_count{error_code=\"none\",operation=\"Decrypt\",outcome=\"success\""),
+        "Expected successful KMS Decrypt calls");
+    assertTrue(scrape.contains("error_code=\"InvalidCiphertextException\",operation=\"Decrypt\",outcome=\"error\""),
+        "Expected the failed KMS Decrypt call, tagged with its error code");
+    assertTrue(scrape.contains("operation=\"GenerateDataKey\""), "Expected the KEK GenerateDataKey call");
+    assertTrue(scrape.contains("operation=\"DeriveSharedSecret\""), "Expected the ECDH key agreements");
+    assertTrue(scrape.contains("crypto_aes_gcm_decrypt_seconds_bucket{target=\"field\""),
+        "Expected a field decryption histogram");
+    assertTrue(scrape.contains("crypto_aes_gcm_decrypt_seconds_count{target=\"payload\"}"),
+        "Expected payload decryptions");
+    assertTrue(scrape.contains("crypto_jwe_parse_seconds_count"), "Expected JWE parses");
+    assertTrue(scrape.contains("order_json_parse_seconds_count{approach=\"multi_fields\"}")
+        && scrape.contains("order_json_parse_seconds_count{approach=\"full_payload\"}"), "Expected JSON parses of both approaches");
+    assertTrue(scrape.contains("order_response_write_seconds_count"), "Expected order confirmations written");
+    assertTrue(scrape.contains("kms_key_cache_requests_total{result=\"miss\"}"), "Expected key cache counters");
+  }
+
+  @Test
+  @Order(10)
+  @DisplayName("Local KMS: an exhausted request deadline fails fast with 503, a sufficient one is served")
+  void testRequestDeadline() {
+    log.info("\n=== Step 1: Submit an order with a 0 ms budget (KMS not called) ===");
+    EncryptionContext request = multiFieldsEncryptionService.newContext();
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.set("X-Encryption-Key", request.getEncryptedDataEncryptionKey());
+    headers.set("X-Request-Timeout-Ms", "0");
+    String body = gson.toJson(encryptMultiFieldsOrder(request));
+    ResponseEntity<String> rejected = restTemplate.postForEntity(
+        baseUrl() + "/multi-fields/orders", new HttpEntity<>(body, headers), String.class);
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getStatusCode(), "Expected 503 for an exhausted deadline");
+    assertTrue(rejected.getBody().contains("deadline"), "Expected the deadline in the error message");
+
+    log.info("\n=== Step 2: Same order with a 2 s budget ===");
+    headers.set("X-Request-Timeout-Ms", "2000");
+    ResponseEntity<String> served = restTemplate.postForEntity(
+        baseUrl() + "/multi-fields/orders", new HttpEntity<>(body, headers), String.class);
+    verifyResponse(gson.fromJson(served.getBody(), JsonObject.class), served.getStatusCode());
+
+    log.info("\n=== Step 3: Verify resilience meters ===");
+    String scrape = restTemplate.getForEntity("http://localhost:" + port + "/actuator/prometheus", String.class).getBody();
+    assertTrue(scrape.contains("kms_call_rejections_total{reason=\"deadline\"} 1.0"), "Expected 1 deadline rejection");
+    assertTrue(scrape.contains("kms_circuit_state{state=\"closed\"} 1.0"), "Expected a closed KMS circuit");
+  }
+
+  @Test
+  @Order(11)
+  @DisplayName("Local KMS: encrypted responses under the request's DEK / CEK, no extra KMS call")
+  void testEncryptedResponses() throws Exception {
+    String name = utils.loadSampleOrder().get("name").getAsString();
+
+    log.info("\n=== Step 1: Multi-Fields order with X-Encrypt-Response ===");
+    multiFieldsEncryptionService.loadPublicKey(localKms.publicKeyPem());
+    EncryptionContext request = multiFieldsEncryptionService.newContext();
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.set("X-Encryption-Key", request.getEncryptedDataEncryptionKey());
+    headers.set("X-Encrypt-Response", "true");
+    long kmsCallsBefore = localKms.requestCount();
+    ResponseEntity<String> response = restTemplate.postForEntity(
+        baseUrl() + "/multi-fields/orders", new HttpEntity<>(gson.toJson(encryptMultiFieldsOrder(request)), headers), String.class);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode(), "Expected 200 OK");
+    assertFalse(response.getBody().contains("1990-05-15") || response.getBody().contains(name),
+        "Expected no cleartext PII in the response");
+    JsonObject result = gson.fromJson(response.getBody(), JsonObject.class);
+    result.addProperty("name", request.decryptField(result.get("name").getAsString()));
+    result.addProperty("dateOfBirth", request.decryptField(result.get("dateOfBirth").getAsString()));
+    verifyResponse(result, response.getStatusCode());
+    assertEquals(name, result.get("name").getAsString(), "Name should decrypt with the request DEK");
+    assertEquals(1, localKms.requestCount() - kmsCallsBefore, "Expected exactly 1 KMS call");
+
+    log.info("\n=== Step 2: All-Fields order with X-Encrypt-Response (buffered and streaming) ===");
+    allFieldsEncryptionService.loadPublicKey(localKms.publicKeyPem());
+    javax.crypto.KeyGenerator keyGenerator = javax.crypto.KeyGenerator.getInstance("AES");
+    keyGenerator.init(256);
+    for (MediaType contentType : new MediaType[] {MediaType.TEXT_PLAIN, MediaType.parseMediaType("application/jose")}) {
+      javax.crypto.SecretKey contentEncryptionKey = keyGenerator.generateKey();
+      String payload = allFieldsEncryptionService.encryptPayload(gson.toJson(utils.loadSampleOrder()), contentEncryptionKey);
+      headers = new HttpHeaders();
+      headers.setContentType(contentType);
+      headers.set("X-Encrypt-Response", "true");
+      kmsCallsBefore = localKms.requestCount();
+      response = restTemplate.postForEntity(
+          baseUrl() + "/all-fields/orders", new HttpEntity<>(payload, headers), String.class);
+
+      assertEquals(HttpStatus.OK, response.getStatusCode(), "Expected 200 OK");
+      assertTrue(MediaType.parseMediaType("application/jose").isCompatibleWith(response.getHeaders().getContentType()),
+          "Expected an application/jose response");
+      String header = new String(Base64.getUrlDecoder().decode(response.getBody().split("\\.")[0]), StandardCharsets.UTF_8);
+      assertTrue(header.contains("\"dir\"") && header.contains("\"A256GCM\""), "Expected a dir + A256GCM JWE");
+      verifyResponse(gson.fromJson(allFieldsEncryptionService.decryptResponse(response.getBody(), contentEncryptionKey),
+          JsonObject.class), response.getStatusCode());
+      assertEquals(1, localKms.requestCount() - kmsCallsBefore, "Expected exactly 1 KMS call");
+    }
+
+    log.info("\n=== Step 3: Verify response encryption timers ===");
+    String scrape = restTemplate.getForEntity("http://localhost:" + port + "/actuator/prometheus", String.class).getBody();
+    assertTrue(scrape.contains("crypto_aes_gcm_encrypt_seconds_count{target=\"field\"}"), "Expected field encryptions");
+    assertTrue(scrape.contains("crypto_aes_gcm_encrypt_seconds_count{target=\"payload\"}"), "Expected payload encryptions");
+  }
+
+  @Test
+  @Order(12)
+  @DisplayName("Local KMS: segmented file encryption round trip, tampering and truncation rejected")
+  void testFileEncryption(@TempDir Path dir) throws Exception {
+    log.info("\n=== Step 1: Encrypt a multi-segment file ===");
+    byte[] plaintext = new byte[3 * 1024 * 1024 + 123];
+    new java.security.SecureRandom().nextBytes(plaintext);
+    Path source = Files.write(dir.resolve("plain.bin"), plaintext);
+    Path encrypted = dir.resolve("plain.bin.enc");
+    EncryptedFileHeader header = fileEncryptionService.encrypt(source, encrypted);
+
+    long segments = header.segmentCountForPlaintext(plaintext.length);
+    assertEquals(4, segments, "Expected 4 segments of 1 MiB");
+    assertEquals(header.length() + plaintext.length + segments * EncryptedFileHeader.TAG_SIZE_BYTES, Files.size(encrypted),
+        "Expected header + plaintext + one tag per segment");
+
+    log.info("\n=== Step 2: Decrypt it in parallel (1 KMS call to unwrap the DEK) ===");
+    Path decrypted = dir.resolve("decrypted.bin");
+    long kmsCallsBefore = localKms.requestCount();
+    assertEquals(plaintext.length, fileEncryptionService.decrypt(encrypted, decrypted));
+    assertArrayEquals(plaintext, Files.readAllBytes(decrypted), "Decrypted file should match the original");
+    assertEquals(1, localKms.requestCount() - kmsCallsBefore, "Expected exactly 1 KMS call");
+
+    log.info("\n=== Step 3: Empty file ===");
+    Path empty = Files.write(dir.resolve("empty.bin"), new byte[0]);
+    fileEncryptionService.encrypt(empty, dir.resolve("empty.bin.enc"));
+    assertEquals(0, fileEncryptionService.decrypt(dir.resolve("empty.bin.enc"), decrypted));
+    assertEquals(0, Files.size(decrypted), "Expected an empty file");
+
+    log.info("\n=== Step 4: Flipped bit, dropped last segment, swapped segments are rejected ===");
+    byte[] ciphertext = Files.readAllBytes(encrypted);
+    int segmentSize = header.ciphertextSegmentSize();
+
+    byte[] tampered = ciphertext.clone();
+    tampered[(int) header.segmentOffset(1) + 7] ^= 1;
+    tampered[(int) header.segmentOffset(3) + 7] ^= 1;
+    assertEquals("Encrypted file segment 1 failed authentication",
+        assertFileRejected(Files.write(dir.resolve("tampered.enc"), tampered), decrypted).getMessage(),
+        "Expected the lowest failing segment, whichever worker found it");
+
+    byte[] truncated = Arrays.copyOf(ciphertext, (int) header.segmentOffset(segments - 1));
+    assertFileRejected(Files.write(dir.resolve("truncated.enc"), truncated), decrypted);
+
+    byte[] swapped = ciphertext.clone();
+    System.arraycopy(ciphertext, (int) header.segmentOffset(0), swapped, (int) header.segmentOffset(1), segmentSize);
+    System.arraycopy(ciphertext, (int) header.segmentOffset(1), swapped, (int) header.segmentOffset(0), segmentSize);
+    assertFileRejected(Files.write(dir.resolve("swapped.enc"), swapped), decrypted);
+
+    log.info("\n=== Step 5: Verify file encryption timers ===");
+    String scrape = restTemplate.getForEntity("http://localhost:" + port + "/actuator/prometheus", String.class).getBody();
+    assertTrue(scrape.contains("crypto_aes_gcm_encrypt_seconds_count{target=\"file\"}"), "Expected file encryptions");
+    assertTrue(scrape.contains("crypto_aes_gcm_decrypt_seconds_count{target=\"file\"}"), "Expected file decryptions");
+  }
+
+  @Test
+  @Order(13)
+  @DisplayName("Local KMS: HTTP Range reads of an encrypted file decrypt only the covering segments")
+  void testEncryptedFileRanges(@TempDir Path dir) throws Exception {
+    log.info("\n=== Step 1: Store an encrypted 4-segment file ===");
+    byte[] plaintext = new byte[3 * 1024 * 1024 + 123];
+    new java.security.SecureRandom().nextBytes(plaintext);
+    Path stored = encryptedFileStore.resolve("report.bin");
+    Path notEncrypted = encryptedFileStore.resolve("plain.bin");
+    Path truncatedHeader = encryptedFileStore.resolve("truncated-header.bin");
+    fileEncryptionService.encrypt(Files.write(dir.resolve("report.bin"), plaintext), stored);
+    String url = baseUrl() + "/files/report.bin";
+
+    try {
+      log.info("\n=== Step 2: Range across the segment 0/1 boundary (1 KMS call: key cache is off here) ===");
+      long kmsCallsBefore = localKms.requestCount();
+      ResponseEntity<byte[]> response = getRange(url, HttpRange.createByteRange(1048000, 1049999));
+      assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode(), "Expected 206 Partial Content");
+      assertEquals("bytes 1048000-1049999/" + plaintext.length, response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+      assertArrayEquals(Arrays.copyOfRange(plaintext, 1048000, 1050000), response.getBody());
+      assertEquals(1, localKms.requestCount() - kmsCallsBefore, "Expected exactly 1 KMS call");
+
+      log.info("\n=== Step 3: Suffix range (last segment only) and the whole file ===");
+      response = getRange(url, HttpRange.createSuffixRange(100));
+      assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode(), "Expected 206 Partial Content");
+      assertArrayEquals(Arrays.copyOfRange(plaintext, plaintext.length - 100, plaintext.length), response.getBody());
+      response = restTemplate.getForEntity(url, byte[].class);
+      assertEquals(HttpStatus.OK, response.getStatusCode(), "Expected 200 OK without Range");
+      assertEquals("bytes", response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES));
+      assertArrayEquals(plaintext, response.getBody(), "Expected the whole decrypted file");
+
+      log.info("\n=== Step 4: Unsatisfiable range, invalid and unknown names ===");
+      response = getRange(url, HttpRange.createByteRange(plaintext.length));
+      assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode(), "Expected 416");
+      assertEquals("bytes */" + plaintext.length, response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+      assertEquals(HttpStatus.BAD_REQUEST,
+          restTemplate.getForEntity(baseUrl() + "/files/.hidden", String.class).getStatusCode(), "Expected 400");
+      assertEquals(HttpStatus.NOT_FOUND,
+          restTemplate.getForEntity(baseUrl() + "/files/missing.bin", String.class).getStatusCode(), "Expected 404");
+
+      log.info("\n=== Step 5: Stored files that are not encrypted files (plaintext, truncated header) ===");
+      Files.write(notEncrypted, plaintext);
+      Files.write(truncatedHeader, Arrays.copyOf(Files.readAllBytes(stored), 10));
+      for (String invalid : new String[] {"plain.bin", "truncated-header.bin"}) {
+        ResponseEntity<String> rejected = restTemplate.getForEntity(baseUrl() + "/files/" + invalid, String.class);
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, rejected.getStatusCode(), "Expected 422 for " + invalid);
+        assertTrue(rejected.getBody().contains("Invalid encrypted file"), rejected.getBody());
+      }
+
+      String scrape = restTemplate.getForEntity("http://localhost:" + port + "/actuator/prometheus", String.class).getBody();
+      assertTrue(scrape.contains("crypto_aes_gcm_decrypt_seconds_count{target=\"file_range\"}"), "Expected range decryptions");
+    } finally {
+      Files.deleteIfExists(stored);
+      Files.deleteIfExists(notEncrypted);
+      Files.deleteIfExists(truncatedHeader);
+    }
+  }
+
+  @Test
+  @Order(14)
+  @DisplayName("Local KMS: one client service encrypts concurrent orders, each under its own DEK")
+  void testConcurrentClientEncryption() throws Exception {
+    int orders = 16;
+    String name = utils.loadSampleOrder().get("name").getAsString();
+    multiFieldsEncryptionService.loadPublicKey(localKms.publicKeyPem());
+
+    log.info("\n=== Step 1: Encrypt and submit {} orders on 8 threads through one client service ===", orders);
+    Set<String> encryptedDataEncryptionKeys = ConcurrentHashMap.newKeySet();
+    long kmsCallsBefore = localKms.requestCount();
+    List<Future<String>> decryptedNames = new ArrayList<>(orders);
+    try (ExecutorService clients = Executors.newFixedThreadPool(8)) {
+      for (int i = 0; i < orders; i++) {
+        decryptedNames.add(clients.submit(() -> {
+          EncryptionContext request = multiFieldsEncryptionService.newContext();
+          encryptedDataEncryptionKeys.add(request.getEncryptedDataEncryptionKey());
+          HttpHeaders headers = new HttpHeaders();
+          headers.setContentType(MediaType.APPLICATION_JSON);
+          headers.set("X-Encryption-Key", request.getEncryptedDataEncryptionKey());
+          headers.set("X-Encrypt-Response", "true");
+          ResponseEntity<String> response = restTemplate.postForEntity(
+              baseUrl() + "/multi-fields/orders", new HttpEntity<>(gson.toJson(encryptMultiFieldsOrder(request)), headers), String.class);
+          assertEquals(HttpStatus.OK, response.getStatusCode(), "Expected 200 OK");
+          return request.decryptField(gson.fromJson(response.getBody(), JsonObject.class).get("name").getAsString());
+        }));
+      }
+
+      log.info("\n=== Step 2: Each response decrypts with its own request's DEK ===");
+      for (Future<String> decryptedName : decryptedNames) {
+        assertEquals(name, decryptedName.get(), "Name should decrypt with the request DEK");
+      }
+    }
+    assertEquals(orders, encryptedDataEncryptionKeys.size(), "Expected a distinct DEK per order");
+    assertEquals(orders, localKms.requestCount() - kmsCallsBefore, "Expected 1 KMS call per order");
+  }
+
+  @Test
+  @Order(15)
+  @DisplayName("Local KMS: Multi-Fields batch over max-orders rejected before the rest of the body is read")
+  void testMultiFieldsBatchOverMaxOrders() {
+    multiFieldsEncryptionService.loadPublicKey(localKms.publicKeyPem());
+    EncryptionContext request = multiFieldsEncryptionService.newContext();
+    HttpHeaders headers = new HttpHeaders();
+    headers.set("X-Encryption-Key", request.getEncryptedDataEncryptionKey());
+    long kmsCallsBefore = localKms.requestCount();
+
+    log.info("\n=== Step 1: JSON array of 9 orders (max-orders=8), then a truncated element ===");
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    String array = "[" + "{},".repeat(9) + "{\"name\": ";
+    ResponseEntity<String> response = restTemplate.postForEntity(
+        baseUrl() + "/multi-fields/orders:batch", new HttpEntity<>(array, headers), String.class);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Expected 400 Bad Request");
+    assertTrue(response.getBody().contains("exceeds max-orders 8"), "Limit should fail before the malformed tail");
+
+    log.info("\n=== Step 2: NDJSON with 9 lines ===");
+    headers.setContentType(MediaType.APPLICATION_NDJSON);
+    response = restTemplate.postForEntity(
+        baseUrl() + "/multi-fields/orders:batch", new HttpEntity<>("{}\n".repeat(9), headers), String.class);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Expected 400 Bad Request");
+    assertTrue(response.getBody().contains("exceeds max-orders 8"), "NDJSON should apply the same limit");
+    assertEquals(0, localKms.requestCount() - kmsCallsBefore, "An oversized batch must not reach KMS");
+  }
+
+  private RSAPublicKey kmsPublicKey() {
+    String base64 = localKms.publicKeyPem().replaceAll("-----[A-Z ]+-----|\\s", "");
+    try {
+      return (RSAPublicKey) KeyFactory.getInstance("RSA")
+          .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(base64)));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private ResponseEntity<byte[]> getRange(String url, HttpRange range) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setRange(List.of(range));
+    return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+  }
+
+  private SegmentedFileDecryptor.SegmentAuthenticationException assertFileRejected(Path encrypted, Path target) {
+    SegmentedFileDecryptor.SegmentAuthenticationException e = assertThrows(
+        SegmentedFileDecryptor.SegmentAuthenticationException.class, () -> fileEncryptionService.decrypt(encrypted, target));
+    assertFalse(Files.exists(target), "A failed decryption must not leave a plaintext file behind");
+    return e;
+  }
+
+  private JsonObject encryptMultiFieldsOrder(EncryptionContext request) {
+    JsonObject order = utils.loadSampleOrder();
+    JsonObject cardDetails = order.getAsJsonObject("cardDetails");
+    JsonObject encryptedCardDetails = new JsonObject();
+    encryptedCardDetails.addProperty("creditCardNumber",
+        request.encryptField(cardDetails.get("creditCardNumber").getAsString()));
+    encryptedCardDetails.addProperty("ssn",
+        request.encryptField(cardDetails.get("ssn").getAsString()));
+    JsonObject jsonPayload = new JsonObject();
+    jsonPayload.addProperty("name", order.get("name").getAsString());
+    jsonPayload.addProperty("dateOfBirth",
+        request.encryptField(order.get("dateOfBirth").getAsString()));
+    jsonPayload.add("cardDetails", encryptedCardDetails);
+    return jsonPayload;
+  }
+
+  private void verifyResponse(JsonObject result, HttpStatusCode status) {
+    log.info("\n=== Verify Response ===");
+    assertEquals(HttpStatus.OK, status, "Expected 200 OK");
+
+    assertTrue(result.get("success").getAsBoolean(), "Expected success=true");
+    assertEquals("1990-05-15", result.get("dateOfBirth").getAsString(), "DOB should be decrypted");
+    JsonObject cardDetails = result.getAsJsonObject("cardDetails");
+    assertTrue(cardDetails.get("creditCardNumber").getAsString().endsWith("1234"), "Card should show last 4 digits");
+    assertTrue(cardDetails.get("ssn").getAsString().endsWith("6789"), "SSN should show last 4 digits");
+  }
+}
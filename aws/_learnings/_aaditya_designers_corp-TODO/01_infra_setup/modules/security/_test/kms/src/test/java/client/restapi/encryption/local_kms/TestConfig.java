@@ -0,0 +1,19 @@
+package client.restapi.encryption.local_kms;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.ComponentScan;
+
+/**
+ * Test configuration for offline (Local KMS) encryption tests.
+ * Scans the client components of both approaches (not their TestConfig classes, whose bean names clash).
+ */
+@TestConfiguration
+@ComponentScan(basePackages = {
+    "client.restapi.encryption.multi_fields_in_payload.crypto",
+    "client.restapi.encryption.multi_fields_in_payload.service",
+    "client.restapi.encryption.full_payload.crypto",
+    "client.restapi.encryption.full_payload.service",
+    "client._common"
+})
+public class TestConfig {
+}
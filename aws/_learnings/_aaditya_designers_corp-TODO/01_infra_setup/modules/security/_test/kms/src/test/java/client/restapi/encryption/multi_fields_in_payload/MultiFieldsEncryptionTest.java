@@ -1,6 +1,7 @@
 package client.restapi.encryption.multi_fields_in_payload;
 
 import client._common.Utils;
+import client.restapi.encryption.multi_fields_in_payload.service.EncryptionContext;
 import client.restapi.encryption.multi_fields_in_payload.service.HybridEncryptionService;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
@@ -81,22 +82,20 @@ class MultiFieldsEncryptionTest {
    * @return An EncryptedOrder containing the encrypted DEK and payload.
    */
   private Order prepareOrder() {
-    hybridEncryptionService.clear();
-
     log.info("\n=== Step 1: Load RSA Public Key ===");
     hybridEncryptionService.loadPublicKey();
     log.info("\n=== Step 2: Generate DEK & Wrap with RSA (Direct, No CEK) ===");
-    hybridEncryptionService.generateEncryptAndWrapDataEncryptionKey();
+    EncryptionContext request = hybridEncryptionService.newContext();
 
     log.info("\n=== Step 3: Encrypt PII Fields with DEK ===");
     JsonObject order = utils.loadSampleOrder();
     JsonObject cardDetails = order.getAsJsonObject("cardDetails");
-    String encryptedDob = hybridEncryptionService.encryptField(order.get("dateOfBirth").getAsString());
-    String encryptedCreditCard = hybridEncryptionService.encryptField(cardDetails.get("creditCardNumber").getAsString());
-    String encryptedSsn = hybridEncryptionService.encryptField(cardDetails.get("ssn").getAsString());
+    String encryptedDob = request.encryptField(order.get("dateOfBirth").getAsString());
+    String encryptedCreditCard = request.encryptField(cardDetails.get("creditCardNumber").getAsString());
+    String encryptedSsn = request.encryptField(cardDetails.get("ssn").getAsString());
 
     log.info("\n=== Step 4: Get Encrypted DEK for Header ===");
-    String encryptedDataEncryptionKey = hybridEncryptionService.getEncryptedDataEncryptionKey();
+    String encryptedDataEncryptionKey = request.getEncryptedDataEncryptionKey();
 
     // Build JSON payload with encrypted fields
     JsonObject encryptedCardDetails = new JsonObject();
@@ -0,0 +1,144 @@
+package client.restapi.encryption.multi_fields_in_payload;
+
+import client._common.Utils;
+import client.restapi.encryption.multi_fields_in_payload.service.EncryptionContext;
+import client.restapi.encryption.multi_fields_in_payload.service.HybridEncryptionService;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.*;
+import org.springframework.test.context.ActiveProfiles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-End Test: Multi-Fields Encryption with a Session Key (1 KMS call per session)
+ *
+ * <h3>Client Flow:</h3>
+ * <ol>
+ *   <li>Load RSA public key</li>
+ *   <li>Generate AES DEK, RSA-encrypt it once</li>
+ *   <li>Open a session: POST /api/v1/sessions with the wrapped DEK</li>
+ *   <li>Submit several orders with X-Session-Id (no RSA wrap per order)</li>
+ * </ol>
+ *
+ * <h3>Server Flow:</h3>
+ * <ol>
+ *   <li>Handshake: KMS decrypt header → DEK (1 API call), store under sessionId</li>
+ *   <li>Orders: DEK from session store, local AES decrypt each field</li>
+ * </ol>
+ */
+@SpringBootTest(
+    classes = {server.ServerApplication.class, client.restapi.encryption.multi_fields_in_payload.TestConfig.class},
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT
+)
+@ActiveProfiles("test")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class MultiFieldsSessionEncryptionTest {
+
+  private static final Logger log = LoggerFactory.getLogger(MultiFieldsSessionEncryptionTest.class);
+  private static final int ORDERS_PER_SESSION = 3;
+
+  @LocalServerPort
+  private int port;
+  private String baseUrl() {
+    return "http://localhost:" + port + "/api/v1";
+  }
+
+  @Autowired
+  private TestRestTemplate restTemplate;
+
+  @Autowired
+  @Qualifier("multiFieldsHybridEncryptionService")
+  private HybridEncryptionService hybridEncryptionService;
+
+  @Autowired
+  @Qualifier("clientUtils")
+  private Utils utils;
+  private final Gson gson = new Gson();
+
+  @Test
+  @DisplayName("Multi-Fields: Submit several orders under one session key (1 KMS call per session)")
+  void testSubmitOrdersWithSession() {
+    log.info("\n=== Step 1: Load RSA Public Key ===");
+    hybridEncryptionService.loadPublicKey();
+    log.info("\n=== Step 2: Generate DEK & Wrap with RSA (once per session) ===");
+    EncryptionContext session = hybridEncryptionService.newContext();
+
+    log.info("\n=== Step 3: Open Session ===");
+    String sessionId = openSession(session.getEncryptedDataEncryptionKey());
+
+    for (int i = 0; i < ORDERS_PER_SESSION; i++) {
+      log.info("\n=== Step 4: Submit Order {} with X-Session-Id ===", i + 1);
+      submitAndVerifyOrder(sessionId, prepareOrder(session));
+    }
+
+    log.info("\n=== Step 5: Close Session ===");
+    restTemplate.delete(baseUrl() + "/sessions/" + sessionId);
+    ResponseEntity<String> rejected = postOrder(sessionId, prepareOrder(session));
+    assertEquals(HttpStatus.UNAUTHORIZED, rejected.getStatusCode(), "Closed session should be rejected");
+
+    log.info("\n=== SUCCESS === (1 KMS call for {} orders)", ORDERS_PER_SESSION);
+  }
+
+  private String openSession(String encryptedDataEncryptionKey) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set("X-Encryption-Key", encryptedDataEncryptionKey);
+    log.info("POST /api/v1/sessions");
+    ResponseEntity<String> response =
+        restTemplate.postForEntity(baseUrl() + "/sessions", new HttpEntity<>(null, headers), String.class);
+    assertEquals(HttpStatus.CREATED, response.getStatusCode(), "Expected 201 Created");
+
+    JsonObject session = gson.fromJson(response.getBody(), JsonObject.class);
+    assertTrue(session.get("success").getAsBoolean(), "Expected success=true");
+    log.info("Session - expiresAt={}", session.get("expiresAt").getAsString());
+    return session.get("sessionId").getAsString();
+  }
+
+  private JsonObject prepareOrder(EncryptionContext session) {
+    JsonObject order = utils.loadSampleOrder();
+    JsonObject cardDetails = order.getAsJsonObject("cardDetails");
+
+    JsonObject encryptedCardDetails = new JsonObject();
+    encryptedCardDetails.addProperty("creditCardNumber",
+        session.encryptField(cardDetails.get("creditCardNumber").getAsString()));
+    encryptedCardDetails.addProperty("ssn",
+        session.encryptField(cardDetails.get("ssn").getAsString()));
+    JsonObject jsonPayload = new JsonObject();
+    jsonPayload.addProperty("name", order.get("name").getAsString());
+    jsonPayload.addProperty("address", order.get("address").getAsString());
+    jsonPayload.addProperty("dateOfBirth",
+        session.encryptField(order.get("dateOfBirth").getAsString()));
+    jsonPayload.addProperty("orderAmount", order.get("orderAmount").getAsDouble());
+    jsonPayload.add("cardDetails", encryptedCardDetails);
+    return jsonPayload;
+  }
+
+  private ResponseEntity<String> postOrder(String sessionId, JsonObject jsonPayload) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.set("X-Session-Id", sessionId);
+    return restTemplate.postForEntity(baseUrl() + "/multi-fields/orders",
+        new HttpEntity<>(gson.toJson(jsonPayload), headers), String.class);
+  }
+
+  private void submitAndVerifyOrder(String sessionId, JsonObject jsonPayload) {
+    ResponseEntity<String> response = postOrder(sessionId, jsonPayload);
+    assertEquals(HttpStatus.OK, response.getStatusCode(), "Expected 200 OK");
+
+    JsonObject result = gson.fromJson(response.getBody(), JsonObject.class);
+    assertTrue(result.get("success").getAsBoolean(), "Expected success=true");
+    assertEquals("1990-05-15", result.get("dateOfBirth").getAsString(), "DOB should be decrypted");
+    JsonObject cardDetails = result.getAsJsonObject("cardDetails");
+    assertTrue(cardDetails.get("creditCardNumber").getAsString().endsWith("1234"), "Card should show last 4 digits");
+    assertTrue(cardDetails.get("ssn").getAsString().endsWith("6789"), "SSN should show last 4 digits");
+  }
+
+}
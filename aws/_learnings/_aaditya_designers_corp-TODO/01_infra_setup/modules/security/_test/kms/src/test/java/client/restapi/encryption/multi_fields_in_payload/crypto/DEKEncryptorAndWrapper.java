@@ -1,5 +1,6 @@
 package client.restapi.encryption.multi_fields_in_payload.crypto;
 
+import client._common.crypto.CipherPool;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Cipher;
@@ -35,11 +36,36 @@ import java.util.Base64;
  *   <li>Simpler: 1 RSA encryption instead of RSA(CEK) + AES(DEK)</li>
  *   <li>More efficient: Server needs only 1 KMS decrypt call</li>
  * </ul>
+ *
+ * <p>Thread-safe: RSA Ciphers are borrowed from a {@link CipherPool} and the OAEP parameters
+ * are immutable, so concurrent requests wrap their DEKs in parallel.</p>
  */
 @Component
 public class DEKEncryptorAndWrapper {
 
   private static final String RSA_ALGORITHM = "RSA/ECB/OAEPWithSHA-256AndMGF1Padding";
+  private static final int DEFAULT_MAX_IDLE_CIPHERS = 64;
+
+  // OAEP parameters (SHA-256 for both hash and MGF1)
+  private static final OAEPParameterSpec OAEP_PARAMS = new OAEPParameterSpec(
+      "SHA-256",
+      "MGF1",
+      MGF1ParameterSpec.SHA256,
+      PSource.PSpecified.DEFAULT
+  );
+
+  private final CipherPool cipherPool;
+
+  public DEKEncryptorAndWrapper() {
+    this(DEFAULT_MAX_IDLE_CIPHERS);
+  }
+
+  /**
+   * @param maxIdleCiphers Pooled RSA Ciphers kept; 0 = Cipher.getInstance per DEK
+   */
+  public DEKEncryptorAndWrapper(int maxIdleCiphers) {
+    this.cipherPool = new CipherPool(RSA_ALGORITHM, maxIdleCiphers);
+  }
 
   /**
    * Wraps the AES Data Encryption Key using RSA-OAEP-256.
@@ -82,20 +108,11 @@ public class DEKEncryptorAndWrapper {
    */
   public String encryptAndWrapDataEncryptionKey(SecretKey dataEncryptionKey, RSAPublicKey publicKey) {
     try {
-      // Configure OAEP parameters (SHA-256 for both hash and MGF1)
-      OAEPParameterSpec oaepParams = new OAEPParameterSpec(
-          "SHA-256",
-          "MGF1",
-          MGF1ParameterSpec.SHA256,
-          PSource.PSpecified.DEFAULT
-      );
-
-      // Initialize RSA cipher with OAEP padding
-      Cipher cipher = Cipher.getInstance(RSA_ALGORITHM);
-      cipher.init(Cipher.ENCRYPT_MODE, publicKey, oaepParams);
-
-      // Encrypt the DEK
-      byte[] encryptedDataEncryptionKey = cipher.doFinal(dataEncryptionKey.getEncoded());
+      // Encrypt the DEK on a pooled RSA cipher with OAEP padding
+      byte[] encryptedDataEncryptionKey = cipherPool.execute(cipher -> {
+        cipher.init(Cipher.ENCRYPT_MODE, publicKey, OAEP_PARAMS);
+        return cipher.doFinal(dataEncryptionKey.getEncoded());
+      });
 
       // Return as Base64 for HTTP header
       return Base64.getEncoder().encodeToString(encryptedDataEncryptionKey);
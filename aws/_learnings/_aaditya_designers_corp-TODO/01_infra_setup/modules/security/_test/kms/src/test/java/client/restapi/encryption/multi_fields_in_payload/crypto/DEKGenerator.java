@@ -2,9 +2,9 @@ package client.restapi.encryption.multi_fields_in_payload.crypto;
 
 import org.springframework.stereotype.Component;
 
-import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
-import java.security.NoSuchAlgorithmException;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.SecureRandom;
 
 /**
  * AES Key Generator - Generates 256-bit AES Data Encryption Keys (DEK).
@@ -14,20 +14,25 @@ import java.security.NoSuchAlgorithmException;
  * ┌────────────────────────────────────────────────────────────────────────┐
  * │  DEK GENERATION                                                        │
  * │                                                                        │
- * │  aesDataEncryptionKey = KeyGenerator.getInstance("AES")                │
- * │                           .generateKey()                               │
+ * │  aesDataEncryptionKey = SecretKeySpec(SecureRandom 32 bytes, "AES")    │
  * │                                                                        │
  * │  Output: SecretKey (32 bytes / 256 bits)                               │
  * │                                                                        │
  * │  Purpose: Encrypt multiple PII fields with same key                    │
  * └────────────────────────────────────────────────────────────────────────┘
  * </pre>
+ *
+ * <p>Same key material as KeyGenerator("AES").init(256) (random bytes from the default
+ * SecureRandom), without a provider lookup per key. SecureRandom is thread-safe, so one
+ * instance serves concurrent requests.</p>
  */
 @Component
 public class DEKGenerator {
 
   private static final String AES_ALGORITHM = "AES";
-  private static final int KEY_SIZE_BITS = 256;
+  private static final int KEY_SIZE_BYTES = 32;
+
+  private final SecureRandom secureRandom = new SecureRandom();
 
   /**
    * Generates a new AES-256 Data Encryption Key.
@@ -35,12 +40,8 @@ public class DEKGenerator {
    * @return A new 256-bit AES SecretKey
    */
   public SecretKey generateDataEncryptionKey() {
-    try {
-      KeyGenerator keyGen = KeyGenerator.getInstance(AES_ALGORITHM);
-      keyGen.init(KEY_SIZE_BITS);
-      return keyGen.generateKey();
-    } catch (NoSuchAlgorithmException e) {
-      throw new RuntimeException("AES algorithm not available", e);
-    }
+    byte[] keyBytes = new byte[KEY_SIZE_BYTES];
+    secureRandom.nextBytes(keyBytes);
+    return new SecretKeySpec(keyBytes, AES_ALGORITHM);
   }
 }
@@ -1,5 +1,6 @@
 package client.restapi.encryption.multi_fields_in_payload.crypto;
 
+import client._common.crypto.CipherPool;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Cipher;
@@ -28,14 +29,31 @@ import java.util.Base64;
  * │  Output: "BASE64(IV).BASE64(EncryptedText).BASE64(AuthTag)"            │
  * └────────────────────────────────────────────────────────────────────────┘
  * </pre>
+ *
+ * <p>Thread-safe: the key comes with each call and Ciphers are borrowed from a {@link CipherPool},
+ * so one instance serves every request thread.</p>
  */
 @Component
 public class FieldEncryptor {
 
+  private static final String AES_GCM = "AES/GCM/NoPadding";
   private static final int IV_SIZE_BYTES = 12;
   private static final int AUTH_TAG_SIZE_BITS = 128;
+  private static final int DEFAULT_MAX_IDLE_CIPHERS = 256;
 
   private final SecureRandom secureRandom = new SecureRandom();
+  private final CipherPool cipherPool;
+
+  public FieldEncryptor() {
+    this(DEFAULT_MAX_IDLE_CIPHERS);
+  }
+
+  /**
+   * @param maxIdleCiphers Pooled AES-GCM Ciphers kept; 0 = Cipher.getInstance per field
+   */
+  public FieldEncryptor(int maxIdleCiphers) {
+    this.cipherPool = new CipherPool(AES_GCM, maxIdleCiphers);
+  }
 
   /**
    * Encrypts a sensitive field value using AES-256-GCM.
@@ -68,13 +86,12 @@ public class FieldEncryptor {
       byte[] iv = new byte[IV_SIZE_BYTES];
       secureRandom.nextBytes(iv);
 
-      // Initialize cipher
-      Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-      GCMParameterSpec gcmSpec = new GCMParameterSpec(AUTH_TAG_SIZE_BITS, iv);
-      cipher.init(Cipher.ENCRYPT_MODE, dataEncryptionKey, gcmSpec);
-
-      // Encrypt
-      byte[] encryptedWithTag = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
+      // Encrypt on a pooled cipher (init resets it to this key and IV)
+      byte[] plainBytes = plainText.getBytes(StandardCharsets.UTF_8);
+      byte[] encryptedWithTag = cipherPool.execute(cipher -> {
+        cipher.init(Cipher.ENCRYPT_MODE, dataEncryptionKey, new GCMParameterSpec(AUTH_TAG_SIZE_BITS, iv));
+        return cipher.doFinal(plainBytes);
+      });
 
       // GCM appends auth tag to ciphertext, split them
       int ciphertextLength = encryptedWithTag.length - (AUTH_TAG_SIZE_BITS / 8);
@@ -92,4 +109,37 @@ public class FieldEncryptor {
       throw new RuntimeException("Failed to encrypt field: " + e.getMessage(), e);
     }
   }
+
+  /**
+   * Decrypts a field of an encrypted response (X-Encrypt-Response: true), which the server
+   * encrypted with the request's DEK in the same format.
+   *
+   * @param encryptedField    Format: BASE64(IV).BASE64(EncryptedText).BASE64(AuthTag)
+   * @param dataEncryptionKey The AES DEK the request was encrypted with
+   * @return The decrypted plaintext string
+   */
+  public String decrypt(String encryptedField, SecretKey dataEncryptionKey) {
+    try {
+      String[] parts = encryptedField.split("\\.");
+      if (parts.length != 3) {
+        throw new IllegalArgumentException("Invalid format. Expected: IV.EncryptedText.AuthTag");
+      }
+      byte[] iv = Base64.getDecoder().decode(parts[0]);
+      byte[] encryptedText = Base64.getDecoder().decode(parts[1]);
+      byte[] authTag = Base64.getDecoder().decode(parts[2]);
+
+      // GCM expects the auth tag appended to the ciphertext
+      byte[] encryptedWithTag = new byte[encryptedText.length + authTag.length];
+      System.arraycopy(encryptedText, 0, encryptedWithTag, 0, encryptedText.length);
+      System.arraycopy(authTag, 0, encryptedWithTag, encryptedText.length, authTag.length);
+
+      return new String(cipherPool.execute(cipher -> {
+        cipher.init(Cipher.DECRYPT_MODE, dataEncryptionKey, new GCMParameterSpec(AUTH_TAG_SIZE_BITS, iv));
+        return cipher.doFinal(encryptedWithTag);
+      }), StandardCharsets.UTF_8);
+
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to decrypt field: " + e.getMessage(), e);
+    }
+  }
 }
@@ -0,0 +1,65 @@
+package client.restapi.encryption.multi_fields_in_payload.service;
+
+import client.restapi.encryption.multi_fields_in_payload.crypto.FieldEncryptor;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Encryption Context (Multi-Fields) - The DEK of one request and its RSA-wrapped form.
+ *
+ * <pre>
+ * ┌───────────────────────────────────────────────────────────────────────────────┐
+ * │  EncryptionContext request = hybridEncryptionService.newContext();            │
+ * │                                                                               │
+ * │  request.encryptField("1990-05-15")      → BASE64(IV).BASE64(..).BASE64(tag)  │
+ * │  request.getEncryptedDataEncryptionKey() → X-Encryption-Key header            │
+ * │  request.decryptField(responseField)     (X-Encrypt-Response: true)           │
+ * └───────────────────────────────────────────────────────────────────────────────┘
+ * </pre>
+ *
+ * <p>Immutable: created with its DEK, never reset. Each request (or batch) gets its own
+ * context, so any number of threads encrypt concurrently through one
+ * {@link HybridEncryptionService}, and a context may itself be shared by the threads of one
+ * request.</p>
+ */
+public final class EncryptionContext {
+
+  private final SecretKey dataEncryptionKey;
+  private final String encryptedDataEncryptionKey;
+  private final FieldEncryptor fieldEncryptor;
+
+  EncryptionContext(SecretKey dataEncryptionKey, String encryptedDataEncryptionKey, FieldEncryptor fieldEncryptor) {
+    this.dataEncryptionKey = dataEncryptionKey;
+    this.encryptedDataEncryptionKey = encryptedDataEncryptionKey;
+    this.fieldEncryptor = fieldEncryptor;
+  }
+
+  /**
+   * Encrypts a sensitive field value using this request's DEK.
+   *
+   * @param plaintext The sensitive value to encrypt
+   * @return Encrypted string in format: BASE64(IV).BASE64(EncryptedText).BASE64(AuthTag)
+   */
+  public String encryptField(String plaintext) {
+    return fieldEncryptor.encrypt(plaintext, dataEncryptionKey);
+  }
+
+  /**
+   * Decrypts a field of an encrypted response (X-Encrypt-Response: true) using this request's DEK.
+   *
+   * @param encryptedField BASE64(IV).BASE64(EncryptedText).BASE64(AuthTag)
+   * @return The decrypted value
+   */
+  public String decryptField(String encryptedField) {
+    return fieldEncryptor.decrypt(encryptedField, dataEncryptionKey);
+  }
+
+  /**
+   * Gets the encrypted DEK for the X-Encryption-Key header.
+   *
+   * @return BASE64-encoded RSA-encrypted DEK
+   */
+  public String getEncryptedDataEncryptionKey() {
+    return encryptedDataEncryptionKey;
+  }
+}
@@ -23,20 +23,20 @@ import java.util.Base64;
  * ┌──────────────────────────────────────────────────────────────────────────────┐
  * │               MULTI-FIELD ENCRYPTION (NO JWE/CEK)                            │
  * │                                                                              │
- * │  STEP 1: loadPublicKey()                                                  │
+ * │  STEP 1: loadPublicKey()                         (once per key)              │
  * │  ► Load RSA-4096 public key from PEM file                                    │
  * │                                 ▼                                            │
- * │  STEP 2: generateEncryptAndWrapDataEncryptionKey()                                                │
+ * │  STEP 2: newContext()                            (once per request)          │
  * │  ► Generate AES DEK (256-bit Data Encryption Key)                            │
  * │  ► RSA-encrypt DEK directly (NO CEK, NO JWE)                                 │
- * │  ► Output: BASE64(encryptedDataEncryptionKey)                                              │
+ * │  ► Output: EncryptionContext(DEK, BASE64(encryptedDataEncryptionKey))        │
  * │                                 ▼                                            │
- * │  STEP 3: encryptField(plaintext)                                             │
- * │  ► fieldEncryptor.encrypt(plaintext, dataEncryptionKey)                   │
+ * │  STEP 3: context.encryptField(plaintext)                                     │
+ * │  ► fieldEncryptor.encrypt(plaintext, dataEncryptionKey)                      │
  * │  ► Output: "BASE64(IV).BASE64(EncryptedText).BASE64(AuthTag)"                │
  * │                                 ▼                                            │
- * │  STEP 4: getEncryptedDataEncryptionKey()                                                   │
- * │  ► Returns BASE64(encryptedDataEncryptionKey) for X-Encryption-Key header                  │
+ * │  STEP 4: context.getEncryptedDataEncryptionKey()                             │
+ * │  ► Returns BASE64(encryptedDataEncryptionKey) for X-Encryption-Key header    │
  * └──────────────────────────────────────────────────────────────────────────────┘
  * </pre>
  *
@@ -46,6 +46,15 @@ import java.util.Base64;
  *   <li><b>Efficient:</b> Server needs only 1 KMS call to decrypt DEK</li>
  *   <li><b>Sufficient:</b> DEK is 32 bytes, RSA-4096 can encrypt up to ~470 bytes</li>
  * </ul>
+ *
+ * <h3>Concurrency:</h3>
+ * <ul>
+ *   <li>The service holds no request state: each request's DEK lives in its own immutable
+ *       {@link EncryptionContext}, so one bean encrypts any number of requests in parallel</li>
+ *   <li>The public key is parsed once; loading the same PEM again is a no-op, and a new key is
+ *       published atomically (requests in flight keep the key they started with)</li>
+ *   <li>RSA and AES Ciphers are pooled ({@link DEKEncryptorAndWrapper}, {@link FieldEncryptor})</li>
+ * </ul>
  */
 @Service("multiFieldsHybridEncryptionService")
 public class HybridEncryptionService {
@@ -56,9 +65,7 @@ public class HybridEncryptionService {
   private final DEKEncryptorAndWrapper dekEncryptorAndWrapper;
   private final DEKGenerator dekGenerator;
 
-  private RSAPublicKey publicKey;
-  private SecretKey dataEncryptionKey;
-  private String encryptedDataEncryptionKey;
+  private volatile LoadedPublicKey publicKey;
 
   @Autowired
   public HybridEncryptionService(
@@ -87,9 +94,13 @@ public class HybridEncryptionService {
   }
 
   /**
-   * Loads the RSA public key from a PEM-formatted string.
+   * Loads the RSA public key from a PEM-formatted string; the PEM already loaded is not parsed again.
    */
   public void loadPublicKey(String pemContent) {
+    LoadedPublicKey current = publicKey;
+    if (current != null && current.pemContent().equals(pemContent)) {
+      return;
+    }
     try {
       String base64Key = pemContent
           .replace("-----BEGIN PUBLIC KEY-----", "")
@@ -99,7 +110,7 @@ public class HybridEncryptionService {
       byte[] keyBytes = Base64.getDecoder().decode(base64Key);
       X509EncodedKeySpec keySpec = new X509EncodedKeySpec(keyBytes);
       KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-      this.publicKey = (RSAPublicKey) keyFactory.generatePublic(keySpec);
+      this.publicKey = new LoadedPublicKey(pemContent, (RSAPublicKey) keyFactory.generatePublic(keySpec));
 
     } catch (Exception e) {
       throw new RuntimeException("Failed to parse public key", e);
@@ -107,7 +118,7 @@ public class HybridEncryptionService {
   }
 
   /**
-   * Generates an AES Data Encryption Key (DEK) and wraps it with RSA.
+   * Starts a request: generates an AES Data Encryption Key (DEK) and wraps it with RSA.
    *
    * <p>Unlike JWE approach, this directly RSA-encrypts the DEK:</p>
    * <pre>
@@ -115,45 +126,22 @@ public class HybridEncryptionService {
    * </pre>
    *
    * <p>No intermediate CEK is used.</p>
-   */
-  public void generateEncryptAndWrapDataEncryptionKey() {
-    if (publicKey == null) {
-      throw new IllegalStateException("Public key not loaded. Call loadPublicKey() first.");
-    }
-    this.dataEncryptionKey = dekGenerator.generateDataEncryptionKey();
-    this.encryptedDataEncryptionKey = dekEncryptorAndWrapper.encryptAndWrapDataEncryptionKey(dataEncryptionKey, publicKey);
-  }
-
-  /**
-   * Encrypts a sensitive field value using the AES DEK.
-   *
-   * @param plaintext The sensitive value to encrypt
-   * @return Encrypted string in format: BASE64(IV).BASE64(EncryptedText).BASE64(AuthTag)
-   */
-  public String encryptField(String plaintext) {
-    if (dataEncryptionKey == null) {
-      throw new IllegalStateException("Call generateEncryptAndWrapDataEncryptionKey() first.");
-    }
-    return fieldEncryptor.encrypt(plaintext, dataEncryptionKey);
-  }
-
-  /**
-   * Gets the encrypted DEK for the X-Encryption-Key header.
    *
-   * @return BASE64-encoded RSA-encrypted DEK
+   * @return The request's DEK context, to encrypt its fields and set X-Encryption-Key
    */
-  public String getEncryptedDataEncryptionKey() {
-    if (encryptedDataEncryptionKey == null) {
-      throw new IllegalStateException("Call generateEncryptAndWrapDataEncryptionKey() first.");
+  public EncryptionContext newContext() {
+    LoadedPublicKey current = publicKey;
+    if (current == null) {
+      throw new IllegalStateException("Public key not loaded. Call loadPublicKey() first.");
     }
-    return encryptedDataEncryptionKey;
+    SecretKey dataEncryptionKey = dekGenerator.generateDataEncryptionKey();
+    String encryptedDataEncryptionKey = dekEncryptorAndWrapper.encryptAndWrapDataEncryptionKey(dataEncryptionKey, current.key());
+    return new EncryptionContext(dataEncryptionKey, encryptedDataEncryptionKey, fieldEncryptor);
   }
 
   /**
-   * Clears the current request state.
+   * The parsed key together with its PEM, published as one immutable value.
    */
-  public void clear() {
-    this.dataEncryptionKey = null;
-    this.encryptedDataEncryptionKey = null;
+  private record LoadedPublicKey(String pemContent, RSAPublicKey key) {
   }
 }
@@ -0,0 +1,196 @@
+package server._common.crypto;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AesGcmDecryptingInputStream against NIST SP 800-38D vectors and against the JDK's AES/GCM.
+ *
+ * <p>Input is {@code BASE64URL(ciphertext) '.' BASE64URL(tag)}, decoded in 8192-char chunks
+ * (6144 bytes): sizes straddle the 16-byte block, the 16-byte tag hold-back and the chunk
+ * boundary, read in one go, one byte at a time and through a Reader returning 5 chars per read.</p>
+ */
+class AesGcmDecryptingInputStreamTest {
+
+  private static final HexFormat HEX = HexFormat.of();
+  private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+  private static final SecureRandom RANDOM = new SecureRandom();
+  private static final int CHUNK_BYTES = 6144;
+
+  private static final String NIST_KEY = "feffe9928665731c6d6a8f9467308308feffe9928665731c6d6a8f9467308308";
+  private static final String NIST_IV = "cafebabefacedbaddecaf888";
+  private static final String NIST_PLAINTEXT = "d9313225f88406e5a55909c5aff5269a86a7a9531534f7da2e4c303d8a318a72"
+      + "1c3c0c95956809532fcf0e2449a6b525b16aedf5aa0de657ba637b391aafd255";
+  private static final String NIST_CIPHERTEXT = "522dc1f099567d07f47f37a32a84427d643a8cdcbfe5c0c97598a2bd2555d1aa"
+      + "8cb08e48590dbb3da7b08b1056828838c5f61e6393ba7a0abcc9f662898015ad";
+
+  private enum ReadMode { BULK, SINGLE_BYTES, TRICKLE }
+
+  @Test
+  @DisplayName("NIST SP 800-38D test cases 13-16 (AES-256, 96-bit IV)")
+  void nistVectors() throws IOException {
+    // Test case 13: empty plaintext, empty AAD
+    assertArrayEquals(new byte[0], decrypt("00".repeat(32), "00".repeat(12), "", "",
+        "530f8afbc74536b9a963b4f1c4cb738b"));
+    // Test case 14: one zero block
+    assertArrayEquals(new byte[16], decrypt("00".repeat(32), "00".repeat(12), "",
+        "cea7403d4d606b6e074ec5d3baf39d18", "d0d1c8a799996bf0265b98b5d48ab919"));
+    // Test case 15: 4 blocks
+    assertArrayEquals(HEX.parseHex(NIST_PLAINTEXT), decrypt(NIST_KEY, NIST_IV, "",
+        NIST_CIPHERTEXT, "b094dac5d93471bdec1a502270e3cc6c"));
+    // Test case 16: partial last block, 20-byte AAD
+    assertArrayEquals(HEX.parseHex(NIST_PLAINTEXT.substring(0, 120)), decrypt(NIST_KEY, NIST_IV,
+        "feedfacedeadbeeffeedfacedeadbeefabaddad2", NIST_CIPHERTEXT.substring(0, 120), "76fc6ece0f4e1768cddf8853bb2d551b"));
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {0, 1, 15, 16, 17, 31, 32, 33, 4095, CHUNK_BYTES - 17, CHUNK_BYTES - 16, CHUNK_BYTES - 1,
+      CHUNK_BYTES, CHUNK_BYTES + 1, CHUNK_BYTES + 16, 2 * CHUNK_BYTES, 2 * CHUNK_BYTES + 7, 65537, 1 << 20})
+  @DisplayName("Same plaintext as the JDK's AES/GCM at block, hold-back and chunk boundaries")
+  void matchesJdk(int size) throws Exception {
+    byte[] plaintext = random(size);
+    SecretKey key = new SecretKeySpec(random(32), "AES");
+    byte[] iv = random(12);
+    byte[] aad = random(size % 50);
+    String message = encryptWithJdk(plaintext, key, iv, aad);
+
+    for (ReadMode mode : ReadMode.values()) {
+      if (mode == ReadMode.SINGLE_BYTES && size > 65537) {
+        continue;
+      }
+      assertArrayEquals(plaintext, drain(message, key, iv, aad, mode), "size " + size + ", " + mode);
+    }
+  }
+
+  @Test
+  @DisplayName("Trailing whitespace after the tag is accepted")
+  void trailingWhitespace() throws Exception {
+    byte[] plaintext = random(100);
+    SecretKey key = new SecretKeySpec(random(32), "AES");
+    byte[] iv = random(12);
+    assertArrayEquals(plaintext, drain(encryptWithJdk(plaintext, key, iv, new byte[0]) + "\r\n", key, iv, new byte[0], ReadMode.BULK));
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {0, 1, 16, CHUNK_BYTES, CHUNK_BYTES + 1})
+  @DisplayName("Forged ciphertext, tag or AAD, and truncated or missing tags are rejected")
+  void rejectsForgeries(int size) throws Exception {
+    byte[] plaintext = random(size);
+    SecretKey key = new SecretKeySpec(random(32), "AES");
+    byte[] iv = random(12);
+    byte[] aad = random(16);
+    byte[] sealed = encryptWithJdkRaw(plaintext, key, iv, aad);
+    int ciphertextLength = sealed.length - 16;
+
+    for (int position : new int[] {0, ciphertextLength / 2, ciphertextLength - 1, ciphertextLength, sealed.length - 1}) {
+      if (position < 0) {
+        continue;
+      }
+      byte[] forged = sealed.clone();
+      forged[position] ^= 0x01;
+      assertTagMismatch(encode(forged, ciphertextLength), key, iv, aad);
+    }
+    byte[] otherAad = aad.clone();
+    otherAad[0] ^= 0x01;
+    assertTagMismatch(encode(sealed, ciphertextLength), key, iv, otherAad);
+
+    String truncatedTag = encode(Arrays.copyOf(sealed, sealed.length - 1), ciphertextLength);
+    assertTagMismatch(truncatedTag, key, iv, aad);
+
+    String missingTag = BASE64URL.encodeToString(Arrays.copyOf(sealed, ciphertextLength));
+    IOException missing = assertThrows(IOException.class, () -> drain(missingTag, key, iv, aad, ReadMode.BULK));
+    assertTrue(missing.getMessage().contains("missing authentication tag"), missing.getMessage());
+  }
+
+  private void assertTagMismatch(String message, SecretKey key, byte[] iv, byte[] aad) {
+    for (ReadMode mode : new ReadMode[] {ReadMode.BULK, ReadMode.TRICKLE}) {
+      IOException e = assertThrows(IOException.class, () -> drain(message, key, iv, aad, mode));
+      assertEquals("Tag mismatch", e.getMessage());
+    }
+  }
+
+  private static byte[] decrypt(String key, String iv, String aad, String ciphertext, String tag) throws IOException {
+    String message = BASE64URL.encodeToString(HEX.parseHex(ciphertext)) + "." + BASE64URL.encodeToString(HEX.parseHex(tag));
+    return drain(message, new SecretKeySpec(HEX.parseHex(key), "AES"), HEX.parseHex(iv), HEX.parseHex(aad), ReadMode.BULK);
+  }
+
+  private static byte[] drain(String message, SecretKey key, byte[] iv, byte[] aad, ReadMode mode) throws IOException {
+    Reader reader = mode == ReadMode.TRICKLE ? new TrickleReader(message) : new StringReader(message);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (InputStream in = new AesGcmDecryptingInputStream(reader, key, iv, aad)) {
+      if (mode == ReadMode.SINGLE_BYTES) {
+        int b;
+        while ((b = in.read()) >= 0) {
+          out.write(b);
+        }
+      } else {
+        in.transferTo(out);
+      }
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+    return out.toByteArray();
+  }
+
+  private static String encryptWithJdk(byte[] plaintext, SecretKey key, byte[] iv, byte[] aad) throws Exception {
+    byte[] sealed = encryptWithJdkRaw(plaintext, key, iv, aad);
+    return encode(sealed, sealed.length - 16);
+  }
+
+  private static byte[] encryptWithJdkRaw(byte[] plaintext, SecretKey key, byte[] iv, byte[] aad) throws Exception {
+    Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+    cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+    cipher.updateAAD(aad);
+    return cipher.doFinal(plaintext);
+  }
+
+  /** JWE compact tail: BASE64URL(ciphertext) '.' BASE64URL(tag) */
+  private static String encode(byte[] sealed, int ciphertextLength) {
+    return BASE64URL.encodeToString(Arrays.copyOf(sealed, ciphertextLength)) + "."
+        + BASE64URL.encodeToString(Arrays.copyOfRange(sealed, ciphertextLength, sealed.length));
+  }
+
+  private static byte[] random(int size) {
+    byte[] bytes = new byte[size];
+    RANDOM.nextBytes(bytes);
+    return bytes;
+  }
+
+  /** Returns at most 5 chars per read, so chunks end at every offset of a 4-char group. */
+  private static final class TrickleReader extends Reader {
+    private final StringReader delegate;
+
+    TrickleReader(String text) {
+      this.delegate = new StringReader(text);
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+      return delegate.read(buffer, offset, Math.min(length, 5));
+    }
+
+    @Override
+    public void close() {
+      delegate.close();
+    }
+  }
+}
@@ -0,0 +1,271 @@
+package server._common.kms;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import server._common.deadline.RequestDeadline;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SingleFlight with a latched call: the leader blocks until released, so every other caller
+ * is known to have joined its flight before it completes.
+ */
+class SingleFlightTest {
+
+  private static final String KEY = "wrapped-key-fingerprint";
+  private static final int CALLERS = 8;
+
+  @Test
+  @DisplayName("Concurrent calls for one key make one call and share its result")
+  void coalescesConcurrentCalls() throws Exception {
+    SingleFlight<String, Object> singleFlight = new SingleFlight<>(10_000);
+    Object key = new Object();
+    LatchedCall<Object> unwrapper = new LatchedCall<>(() -> key);
+
+    try (ExecutorService callers = Executors.newFixedThreadPool(CALLERS)) {
+      List<Future<Object>> results = startCallers(singleFlight, unwrapper, callers);
+      unwrapper.release.countDown();
+
+      for (Future<Object> result : results) {
+        assertSame(key, result.get(5, TimeUnit.SECONDS), "Every caller should get the leader's result");
+      }
+    }
+    assertEquals(1, unwrapper.calls.get(), "Expected exactly one call");
+    assertEquals(CALLERS - 1, singleFlight.coalescedCount());
+    assertEquals(0, singleFlight.inFlightCount(), "The key should be released");
+  }
+
+  @Test
+  @DisplayName("The leader's exception reaches every waiter")
+  void leaderFailureReachesEveryWaiter() throws Exception {
+    SingleFlight<String, Object> singleFlight = new SingleFlight<>(10_000);
+    IllegalArgumentException rejected = new IllegalArgumentException("Invalid ciphertext");
+    LatchedCall<Object> unwrapper = new LatchedCall<>(() -> {
+      throw rejected;
+    });
+
+    try (ExecutorService callers = Executors.newFixedThreadPool(CALLERS)) {
+      List<Future<Object>> results = startCallers(singleFlight, unwrapper, callers);
+      unwrapper.release.countDown();
+
+      for (Future<Object> result : results) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertSame(rejected, e.getCause());
+      }
+    }
+    assertEquals(1, unwrapper.calls.get(), "Expected exactly one call");
+    assertEquals(0, singleFlight.inFlightCount(), "The key should be released after a failure");
+  }
+
+  @Test
+  @DisplayName("A hung leader: waiters time out and the key is released for a new call")
+  void waiterTimesOut() throws Exception {
+    SingleFlight<String, Object> singleFlight = new SingleFlight<>(200);
+    Object late = new Object();
+    LatchedCall<Object> unwrapper = new LatchedCall<>(() -> late);
+
+    try (ExecutorService callers = Executors.newFixedThreadPool(2)) {
+      Future<Object> leader = callers.submit(() -> singleFlight.execute(KEY, unwrapper));
+      assertTrue(unwrapper.entered.await(5, TimeUnit.SECONDS));
+
+      long start = System.nanoTime();
+      SingleFlight.FlightTimeoutException e = assertThrows(SingleFlight.FlightTimeoutException.class,
+          () -> singleFlight.execute(KEY, () -> fail("A follower must not make its own call")));
+      long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      assertTrue(waitedMs < 5_000, "Follower waited " + waitedMs + " ms");
+      assertTrue(e.getMessage().contains("200 ms"), e.getMessage());
+
+      awaitReleased(singleFlight);
+      Object fresh = new Object();
+      assertSame(fresh, singleFlight.execute(KEY, () -> fresh), "Next call after the timeout should start its own flight");
+
+      unwrapper.release.countDown();
+      assertSame(late, leader.get(5, TimeUnit.SECONDS), "The leader still gets its own late result");
+    }
+    assertEquals(0, singleFlight.inFlightCount());
+  }
+
+  @Test
+  @DisplayName("Async: concurrent calls for one key make one call; a timeout fails every waiter")
+  void coalescesAsyncCalls() throws Exception {
+    SingleFlight<String, Object> singleFlight = new SingleFlight<>(200);
+    AtomicInteger calls = new AtomicInteger();
+    CompletableFuture<Object> pending = new CompletableFuture<>();
+    Supplier<CompletableFuture<Object>> call = () -> {
+      calls.incrementAndGet();
+      return pending;
+    };
+
+    List<CompletableFuture<Object>> waiters = new ArrayList<>();
+    for (int i = 0; i < CALLERS; i++) {
+      waiters.add(singleFlight.executeAsync(KEY, call));
+    }
+    Object key = new Object();
+    pending.complete(key);
+    for (CompletableFuture<Object> waiter : waiters) {
+      assertSame(key, waiter.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, calls.get(), "Expected exactly one call");
+    assertEquals(0, singleFlight.inFlightCount());
+
+    List<CompletableFuture<Object>> timedOut = new ArrayList<>();
+    for (int i = 0; i < CALLERS; i++) {
+      timedOut.add(singleFlight.executeAsync(KEY, CompletableFuture::new));
+    }
+    for (CompletableFuture<Object> waiter : timedOut) {
+      ExecutionException e = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+      assertInstanceOf(SingleFlight.FlightTimeoutException.class, e.getCause());
+    }
+    assertEquals(0, singleFlight.inFlightCount());
+  }
+
+  @Test
+  @DisplayName("A follower waits no longer than its own request deadline")
+  void followerBoundedByItsDeadline() throws Exception {
+    SingleFlight<String, Object> singleFlight = new SingleFlight<>(10_000);
+    LatchedCall<Object> unwrapper = new LatchedCall<>(Object::new);
+
+    try (ExecutorService callers = Executors.newFixedThreadPool(1)) {
+      Future<Object> leader = callers.submit(() -> singleFlight.execute(KEY, unwrapper));
+      assertTrue(unwrapper.entered.await(5, TimeUnit.SECONDS));
+
+      long start = System.nanoTime();
+      assertThrows(SingleFlight.FlightTimeoutException.class, () -> singleFlight.execute(KEY,
+          () -> fail("A follower must not make its own call"), RequestDeadline.after(Duration.ofMillis(100))));
+      long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      assertTrue(waitedMs < 2_000, "Follower with 100 ms left waited " + waitedMs + " ms");
+
+      unwrapper.release.countDown();
+      assertNotNull(leader.get(5, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  @DisplayName("A leader failing on its own deadline is not shared: the followers retry and succeed")
+  void callerSpecificFailureIsNotShared() throws Exception {
+    SingleFlight<String, Object> singleFlight =
+        new SingleFlight<>(10_000, failure -> failure instanceof KmsCallGuard.DeadlineExceededException);
+    KmsCallGuard.DeadlineExceededException leaderDeadline =
+        new KmsCallGuard.DeadlineExceededException("Request deadline exhausted before KMS Decrypt (3 ms left)", null);
+    LatchedCall<Object> leaderCall = new LatchedCall<>(() -> {
+      throw leaderDeadline;
+    });
+    Object key = new Object();
+    AtomicInteger followerCalls = new AtomicInteger();
+    Supplier<Object> followerCall = () -> {
+      followerCalls.incrementAndGet();
+      return key;
+    };
+
+    try (ExecutorService callers = Executors.newFixedThreadPool(CALLERS)) {
+      List<Future<Object>> results = startCallers(singleFlight, leaderCall, followerCall, callers);
+      leaderCall.release.countDown();
+
+      ExecutionException e = assertThrows(ExecutionException.class, () -> results.get(0).get(5, TimeUnit.SECONDS));
+      assertSame(leaderDeadline, e.getCause(), "The leader gets its own deadline failure");
+      for (Future<Object> result : results.subList(1, CALLERS)) {
+        assertSame(key, result.get(5, TimeUnit.SECONDS), "A follower should retry, not fail with the leader's deadline");
+      }
+    }
+    assertEquals(CALLERS - 1, singleFlight.retriedCount());
+    assertTrue(followerCalls.get() >= 1 && followerCalls.get() < CALLERS, "Retries should lead new calls");
+    assertEquals(0, singleFlight.inFlightCount());
+  }
+
+  @Test
+  @DisplayName("Async: a leader failing on its own deadline is not shared with followers")
+  void asyncCallerSpecificFailureIsNotShared() throws Exception {
+    SingleFlight<String, Object> singleFlight =
+        new SingleFlight<>(10_000, failure -> failure instanceof KmsCallGuard.DeadlineExceededException);
+    CompletableFuture<Object> leaderCall = new CompletableFuture<>();
+    CompletableFuture<Object> leader = singleFlight.executeAsync(KEY, () -> leaderCall);
+    Object key = new Object();
+    CompletableFuture<Object> follower = singleFlight.executeAsync(KEY,
+        () -> CompletableFuture.completedFuture(key), RequestDeadline.after(Duration.ofSeconds(30)));
+
+    leaderCall.completeExceptionally(new KmsCallGuard.DeadlineExceededException("Request deadline exceeded", null));
+    ExecutionException e = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+    assertInstanceOf(KmsCallGuard.DeadlineExceededException.class, e.getCause());
+    assertSame(key, follower.get(5, TimeUnit.SECONDS));
+    assertEquals(1, singleFlight.retriedCount());
+    assertEquals(0, singleFlight.inFlightCount());
+  }
+
+  /**
+   * Starts the leader, waits until it is inside the call, then starts the followers and waits
+   * until all of them joined its flight.
+   */
+  private static List<Future<Object>> startCallers(SingleFlight<String, Object> singleFlight,
+                                                   LatchedCall<Object> unwrapper,
+                                                   ExecutorService callers) throws Exception {
+    return startCallers(singleFlight, unwrapper, unwrapper, callers);
+  }
+
+  private static List<Future<Object>> startCallers(SingleFlight<String, Object> singleFlight,
+                                                   LatchedCall<Object> leaderCall,
+                                                   Supplier<Object> followerCall,
+                                                   ExecutorService callers) throws Exception {
+    List<Future<Object>> results = new ArrayList<>(CALLERS);
+    results.add(callers.submit(() -> singleFlight.execute(KEY, leaderCall)));
+    assertTrue(leaderCall.entered.await(5, TimeUnit.SECONDS), "Leader should start the call");
+    for (int i = 1; i < CALLERS; i++) {
+      results.add(callers.submit(() -> singleFlight.execute(KEY, followerCall, RequestDeadline.after(Duration.ofSeconds(30)))));
+    }
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (singleFlight.coalescedCount() < CALLERS - 1) {
+      assertTrue(System.nanoTime() < deadline, "Followers should join the leader's flight");
+      Thread.sleep(1);
+    }
+    return results;
+  }
+
+  private static void awaitReleased(SingleFlight<String, Object> singleFlight) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (singleFlight.inFlightCount() > 0) {
+      assertTrue(System.nanoTime() < deadline, "The timed-out flight should release its key");
+      Thread.sleep(1);
+    }
+  }
+
+  /**
+   * Counts its calls and blocks in each until released.
+   */
+  private static final class LatchedCall<V> implements Supplier<V> {
+    private final Supplier<V> result;
+    private final AtomicInteger calls = new AtomicInteger();
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    LatchedCall(Supplier<V> result) {
+      this.result = result;
+    }
+
+    @Override
+    public V get() {
+      calls.incrementAndGet();
+      entered.countDown();
+      try {
+        if (!release.await(10, TimeUnit.SECONDS)) {
+          throw new IllegalStateException("Never released");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+      return result.get();
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package server._common.kms;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import server._common.kms.local.LocalKms;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.kms.model.DecryptRequest;
+import software.amazon.awssdk.services.kms.model.EncryptionAlgorithmSpec;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.OAEPParameterSpec;
+import javax.crypto.spec.PSource;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.MGF1ParameterSpec;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UnwrappedKeyCache in front of a LocalKms without injected latency or faults: DEKs are wrapped
+ * with RSA-OAEP-256 under the LocalKms public key, exactly as the clients wrap them, and every
+ * miss is one LocalKms Decrypt call counted by {@link LocalKms#requestCount()}.
+ */
+class UnwrappedKeyCacheTest {
+
+  private static final SecureRandom RANDOM = new SecureRandom();
+  private static final long SINGLE_FLIGHT_TIMEOUT_MS = 10_000;
+
+  private static KeyPair rsaKeyPair;
+  private static LocalKms localKms;
+
+  @BeforeAll
+  static void startLocalKms() throws Exception {
+    KeyPairGenerator rsa = KeyPairGenerator.getInstance("RSA");
+    rsa.initialize(2048);
+    rsaKeyPair = rsa.generateKeyPair();
+    KeyPairGenerator ec = KeyPairGenerator.getInstance("EC");
+    ec.initialize(new ECGenParameterSpec("secp256r1"));
+    localKms = new LocalKms(rsaKeyPair.getPrivate(), rsaKeyPair.getPublic(), ec.generateKeyPair(),
+        new LocalKms.FaultProfile(0, 0, 0, 0));
+  }
+
+  @Test
+  @DisplayName("A second unwrap of the same wrapped DEK makes no KMS Decrypt call")
+  void hitSkipsKms() throws Exception {
+    UnwrappedKeyCache cache = new UnwrappedKeyCache(true, 10, 300, SINGLE_FLIGHT_TIMEOUT_MS);
+    byte[] dek = random(32);
+    byte[] wrappedDek = wrap(dek);
+
+    long kmsCallsBefore = localKms.requestCount();
+    assertArrayEquals(dek, cache.getOrUnwrap(wrappedDek, KmsDecrypt.INSTANCE).getEncoded());
+    assertEquals(1, localKms.requestCount() - kmsCallsBefore, "first unwrap calls KMS");
+
+    kmsCallsBefore = localKms.requestCount();
+    assertArrayEquals(dek, cache.getOrUnwrap(wrappedDek, KmsDecrypt.INSTANCE).getEncoded());
+    assertArrayEquals(dek, cache.getOrUnwrapAsync(wrappedDek, KmsDecrypt.ASYNC).join().getEncoded());
+    assertEquals(0, localKms.requestCount() - kmsCallsBefore, "cached unwraps call KMS");
+    assertEquals(2, cache.hitCount());
+    assertEquals(1, cache.missCount());
+  }
+
+  @Test
+  @DisplayName("An entry older than ttl-seconds is dropped and unwrapped again by KMS")
+  void expiredEntryCallsKms() throws Exception {
+    UnwrappedKeyCache cache = new UnwrappedKeyCache(true, 10, 1, SINGLE_FLIGHT_TIMEOUT_MS);
+    byte[] dek = random(32);
+    byte[] wrappedDek = wrap(dek);
+
+    long kmsCallsBefore = localKms.requestCount();
+    cache.getOrUnwrap(wrappedDek, KmsDecrypt.INSTANCE);
+    cache.getOrUnwrap(wrappedDek, KmsDecrypt.INSTANCE);
+    assertEquals(1, localKms.requestCount() - kmsCallsBefore, "within the TTL");
+    byte[] expiredBytes = cachedKeyBytes(cache, wrappedDek);
+
+    Thread.sleep(1_100);
+
+    assertArrayEquals(dek, cache.getOrUnwrap(wrappedDek, KmsDecrypt.INSTANCE).getEncoded());
+    assertEquals(2, localKms.requestCount() - kmsCallsBefore, "past the TTL");
+    assertEquals(1, cache.evictionCount());
+    assertArrayEquals(new byte[32], expiredBytes, "expired key bytes are zeroized");
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  @DisplayName("max-entries evicts the least-recently-used key and zeroizes it; keys handed out are copies")
+  void evictionZeroizesCachedBytesOnly() throws Exception {
+    UnwrappedKeyCache cache = new UnwrappedKeyCache(true, 2, 300, SINGLE_FLIGHT_TIMEOUT_MS);
+    byte[] dekA = random(32);
+    byte[] dekB = random(32);
+    byte[] dekC = random(32);
+    byte[] wrappedA = wrap(dekA);
+    byte[] wrappedB = wrap(dekB);
+    byte[] wrappedC = wrap(dekC);
+
+    SecretKey fromMiss = cache.getOrUnwrap(wrappedA, KmsDecrypt.INSTANCE);
+    SecretKey fromHit = cache.getOrUnwrap(wrappedA, KmsDecrypt.INSTANCE);
+    byte[] cachedA = cachedKeyBytes(cache, wrappedA);
+    cache.getOrUnwrap(wrappedB, KmsDecrypt.INSTANCE);
+    // A is the least recently used and goes when C arrives
+    long kmsCallsBefore = localKms.requestCount();
+    cache.getOrUnwrap(wrappedC, KmsDecrypt.INSTANCE);
+
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.evictionCount());
+    assertArrayEquals(new byte[32], cachedA, "evicted key bytes are zeroized");
+    assertArrayEquals(dekA, fromMiss.getEncoded(), "key returned on the miss is unaffected");
+    assertArrayEquals(dekA, fromHit.getEncoded(), "key returned on the hit is unaffected");
+
+    cache.getOrUnwrap(wrappedB, KmsDecrypt.INSTANCE);
+    cache.getOrUnwrap(wrappedC, KmsDecrypt.INSTANCE);
+    assertEquals(1, localKms.requestCount() - kmsCallsBefore, "B and C stay cached");
+    assertArrayEquals(dekA, cache.getOrUnwrap(wrappedA, KmsDecrypt.INSTANCE).getEncoded());
+    assertEquals(2, localKms.requestCount() - kmsCallsBefore, "evicted A is unwrapped again");
+  }
+
+  @Test
+  @DisplayName("With the cache disabled every unwrap calls KMS")
+  void disabledCallsKmsEveryTime() throws Exception {
+    UnwrappedKeyCache cache = new UnwrappedKeyCache(false, 10, 300, SINGLE_FLIGHT_TIMEOUT_MS);
+    byte[] dek = random(32);
+    byte[] wrappedDek = wrap(dek);
+
+    long kmsCallsBefore = localKms.requestCount();
+    assertArrayEquals(dek, cache.getOrUnwrap(wrappedDek, KmsDecrypt.INSTANCE).getEncoded());
+    assertArrayEquals(dek, cache.getOrUnwrap(wrappedDek, KmsDecrypt.INSTANCE).getEncoded());
+    assertEquals(2, localKms.requestCount() - kmsCallsBefore);
+    assertEquals(0, cache.size());
+  }
+
+  /** LocalKms Decrypt with the algorithm the services request (RSAES_OAEP_SHA_256). */
+  private enum KmsDecrypt implements Function<byte[], byte[]> {
+    INSTANCE;
+
+    static final Function<byte[], CompletableFuture<byte[]>> ASYNC =
+        wrapped -> CompletableFuture.completedFuture(INSTANCE.apply(wrapped));
+
+    @Override
+    public byte[] apply(byte[] wrappedKey) {
+      return localKms.decrypt(DecryptRequest.builder()
+          .keyId("local")
+          .ciphertextBlob(SdkBytes.fromByteArray(wrappedKey))
+          .encryptionAlgorithm(EncryptionAlgorithmSpec.RSAES_OAEP_SHA_256)
+          .build()).plaintext().asByteArray();
+    }
+  }
+
+  private static byte[] wrap(byte[] dek) throws Exception {
+    Cipher cipher = Cipher.getInstance("RSA/ECB/OAEPPadding");
+    cipher.init(Cipher.ENCRYPT_MODE, rsaKeyPair.getPublic(), new OAEPParameterSpec(
+        "SHA-256", "MGF1", MGF1ParameterSpec.SHA256, PSource.PSpecified.DEFAULT));
+    return cipher.doFinal(dek);
+  }
+
+  /** The byte[] the cache holds for a wrapped key: the array eviction must zero-fill. */
+  private static byte[] cachedKeyBytes(UnwrappedKeyCache cache, byte[] wrappedKey) throws Exception {
+    Field cachedKeys = UnwrappedKeyCache.class.getDeclaredField("cachedKeys");
+    cachedKeys.setAccessible(true);
+    String fingerprint = UnwrappedKeyCache.fingerprint(wrappedKey);
+    Object cachedKey = null;
+    synchronized (cache) {
+      // Iterate rather than get(): a get() would reorder the access-ordered map
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) cachedKeys.get(cache)).entrySet()) {
+        if (entry.getKey().equals(fingerprint)) {
+          cachedKey = entry.getValue();
+        }
+      }
+    }
+    assertNotNull(cachedKey, "wrapped key is cached");
+    Method keyBytes = cachedKey.getClass().getDeclaredMethod("keyBytes");
+    keyBytes.setAccessible(true);
+    return (byte[]) keyBytes.invoke(cachedKey);
+  }
+
+  private static byte[] random(int size) {
+    byte[] bytes = new byte[size];
+    RANDOM.nextBytes(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,90 @@
+package server._common.order;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OrderConfirmationWriter against {@code new Gson().toJson(confirmation.toJsonObject())}, the
+ * output it promises to reproduce byte for byte: every escape branch, every UTF-8 length, lone
+ * surrogates, and each combination of null fields.
+ */
+class OrderConfirmationWriterTest {
+
+  private static final Gson GSON = new Gson();
+
+  private static final String LINE_SEPARATOR = String.valueOf((char) 0x2028);
+  private static final String PARAGRAPH_SEPARATOR = String.valueOf((char) 0x2029);
+  private static final String HIGH_SURROGATE = String.valueOf((char) 0xD83D);
+  private static final String LOW_SURROGATE = String.valueOf((char) 0xDE00);
+  // U+1F600, 4 bytes in UTF-8
+  private static final String EMOJI = new String(Character.toChars(0x1F600));
+
+  static Stream<String> values() {
+    return Stream.of(
+        "",
+        "aakash.kumar",
+        "<script>alert('x')</script> & a=b",
+        "quote \" backslash \\ slash /",
+        "\t\b\n\r\f" + (char) 0x00 + (char) 0x01 + (char) 0x1F + (char) 0x7F,
+        "line" + LINE_SEPARATOR + "paragraph" + PARAGRAPH_SEPARATOR,
+        "é ß Ω" + (char) 0x07FF,           // 2-byte UTF-8
+        "€ 日本 " + (char) 0x0800 + (char) 0xFFFF, // 3-byte UTF-8
+        EMOJI + "x" + EMOJI,                 // 4-byte UTF-8
+        "lone " + HIGH_SURROGATE + " high",
+        "lone " + LOW_SURROGATE + " low",
+        "high at end " + HIGH_SURROGATE,
+        LOW_SURROGATE + HIGH_SURROGATE,      // reversed pair: two lone surrogates
+        HIGH_SURROGATE + EMOJI + LOW_SURROGATE);
+  }
+
+  @ParameterizedTest
+  @MethodSource("values")
+  @DisplayName("Same bytes as Gson for every escape and UTF-8 branch, in every field")
+  void matchesGson(String value) {
+    assertMatchesGson(new OrderConfirmation(value, value, value, value, value));
+    assertMatchesGson(new OrderConfirmation("id", "name " + value, "1990-05-15", "****-****-****-1234", value));
+  }
+
+  @Test
+  @DisplayName("Same bytes as Gson for every char of the Basic Multilingual Plane")
+  void matchesGsonForEveryChar() {
+    StringBuilder all = new StringBuilder(0x10000);
+    for (int c = 0; c <= 0xFFFF; c++) {
+      all.append((char) c);
+    }
+    String value = all.toString();
+    assertMatchesGson(new OrderConfirmation("id", value, value, null, value));
+  }
+
+  @Test
+  @DisplayName("Null fields are omitted as Gson omits them: card only, SSN only, neither")
+  void nullFieldCombinations() {
+    String card = "****-****-****-1234";
+    String ssn = "***-**-6789";
+    assertMatchesGson(new OrderConfirmation("id", "name", "1990-05-15", card, ssn));
+    assertMatchesGson(new OrderConfirmation("id", "name", "1990-05-15", card, null));
+    assertMatchesGson(new OrderConfirmation("id", "name", "1990-05-15", null, ssn));
+    assertMatchesGson(new OrderConfirmation("id", "name", "1990-05-15", null, null));
+    assertMatchesGson(new OrderConfirmation("id", null, null, card, ssn));
+    assertMatchesGson(new OrderConfirmation(null, null, null, null, null));
+
+    assertEquals("{\"success\":true,\"orderId\":\"id\",\"cardDetails\":{\"ssn\":\"***-**-6789\"}}",
+        new OrderConfirmation("id", null, null, null, ssn).toJson());
+  }
+
+  private static void assertMatchesGson(OrderConfirmation confirmation) {
+    byte[] expected = GSON.toJson(confirmation.toJsonObject()).getBytes(StandardCharsets.UTF_8);
+    byte[] actual = confirmation.toJsonBytes();
+    assertEquals(expected.length, OrderConfirmationWriter.encodedLength(confirmation), "encodedLength");
+    assertArrayEquals(expected, actual,
+        () -> "expected " + new String(expected, StandardCharsets.UTF_8) + " but was " + new String(actual, StandardCharsets.UTF_8));
+  }
+}